@@ -0,0 +1,91 @@
+package org.example.stackflowanalysis.benchmark;
+
+import org.example.stackflowanalysis.DTOs.TrendSeriesDto;
+import org.example.stackflowanalysis.Service.AnalysisService;
+import org.example.stackflowanalysis.Service.DataVersion;
+import org.example.stackflowanalysis.Service.TrendGranularity;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// AnalysisService 各接口的端到端耗时; 每次调用前递增数据版本, 测量的是未命中缓存的计算路径
+// 运行: mvn -Pbenchmark verify -DskipTests -Djmh.args="AnalysisBenchmark -p corpusSize=100000 -prof gc"
+// 分片并行的加速比: -Djmh.args="AnalysisBenchmark.(topCoOccurringTags|compareSolvability) -p parallelism=1,2,4,8,16,32"
+// 库内计算与内存列存对比: -Djmh.args="AnalysisBenchmark -p engine=database,columnar"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    private static final List<String> DASHBOARD_TAGS = List.of("spring", "android", "hibernate", "maven", "jpa",
+            "multithreading", "swing", "junit", "gradle", "json", "xml", "eclipse", "arrays", "string",
+            "arraylist", "servlets", "jsp", "rest", "mysql", "spring-boot");
+
+    @Param({"10000"})
+    public int corpusSize;
+
+    // 全量分析的分片并行度
+    @Param({"1"})
+    public int parallelism;
+
+    // 分析引擎 (analysis.engine): database 或 columnar
+    @Param({"database"})
+    public String engine;
+
+    private BenchmarkEnvironment environment;
+    private AnalysisService analysisService;
+    private DataVersion dataVersion;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start("--analysis.parallelism=" + parallelism,
+                "--analysis.engine=" + engine);
+        environment.seed(new SyntheticCorpus(corpusSize));
+        analysisService = environment.bean(AnalysisService.class);
+        dataVersion = environment.bean(DataVersion.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void invalidateCaches() {
+        dataVersion.bumpAfterCommit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> topCoOccurringTags() {
+        return analysisService.getTopCoOccurringTags(10);
+    }
+
+    @Benchmark
+    public Map<String, Long> multithreadingWordCloud() {
+        return analysisService.generateMultithreadingWordCloud();
+    }
+
+    @Benchmark
+    public Map<String, Object> compareSolvability() {
+        return analysisService.compareSolvability();
+    }
+
+    @Benchmark
+    public Map<String, Long> topicTrend() {
+        return analysisService.getTopicTrend("spring",
+                LocalDateTime.of(2012, 3, 15, 0, 0), LocalDateTime.of(2022, 9, 20, 0, 0));
+    }
+
+    @Benchmark
+    public TrendSeriesDto weeklyTrendOfTwentyTags() {
+        return analysisService.getTrends(DASHBOARD_TAGS, TrendGranularity.WEEK,
+                LocalDateTime.of(2008, 1, 1, 0, 0), LocalDateTime.of(2026, 1, 1, 0, 0));
+    }
+}
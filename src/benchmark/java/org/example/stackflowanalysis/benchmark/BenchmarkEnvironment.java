@@ -0,0 +1,86 @@
+package org.example.stackflowanalysis.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Service.IngestService;
+import org.example.stackflowanalysis.StackFlowAnalysisApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 基准测试用的应用上下文: 默认启动嵌入式 PostgreSQL,
+// 也可用 -Dbench.jdbc.url/-Dbench.jdbc.username/-Dbench.jdbc.password 指向已有数据库 (会清空业务表)
+final class BenchmarkEnvironment implements AutoCloseable {
+
+    private static final int SEED_PAGE_SIZE = 100;
+
+    private final EmbeddedPostgres embeddedPostgres;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkEnvironment(EmbeddedPostgres embeddedPostgres, ConfigurableApplicationContext context) {
+        this.embeddedPostgres = embeddedPostgres;
+        this.context = context;
+    }
+
+    // extraArgs 为额外的 --key=value 配置, 优先级同样高于 application.properties
+    static BenchmarkEnvironment start(String... extraArgs) throws IOException {
+        String url = System.getProperty("bench.jdbc.url");
+        String username = System.getProperty("bench.jdbc.username", "postgres");
+        String password = System.getProperty("bench.jdbc.password", "postgres");
+        EmbeddedPostgres embeddedPostgres = null;
+        if (url == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            url = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+        }
+        // 以命令行参数传入, 优先级高于 application.properties, 不会误连开发库
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.jpa.show-sql=false",
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=WARN"));
+        args.addAll(Arrays.asList(extraArgs));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(StackFlowAnalysisApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+        return new BenchmarkEnvironment(embeddedPostgres, context);
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // 库中已是同规模语料则直接复用, 否则清空后按页走正常入库路径写入
+    void seed(SyntheticCorpus corpus) {
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+        Long existing = jdbc.queryForObject("SELECT count(*) FROM questions", Long.class);
+        Long maxId = jdbc.queryForObject("SELECT coalesce(max(id), 0) FROM questions", Long.class);
+        if (existing != null && existing == corpus.size() && maxId != null && maxId == corpus.size()) {
+            return;
+        }
+        jdbc.execute("TRUNCATE questions, question_tags, answers, question_owners, tags, "
+                + "tag_month_counts, tag_term_counts, crawl_checkpoints, crawl_runs");
+        IngestService ingestService = bean(IngestService.class);
+        for (long firstId = 1; firstId <= corpus.size(); firstId += SEED_PAGE_SIZE) {
+            int count = (int) Math.min(SEED_PAGE_SIZE, corpus.size() - firstId + 1);
+            List<QuestionDto> page = corpus.page(firstId, count);
+            ingestService.ingestPage(page);
+        }
+        jdbc.execute("ANALYZE");
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+    }
+}
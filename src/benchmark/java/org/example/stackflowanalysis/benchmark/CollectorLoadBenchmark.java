@@ -0,0 +1,86 @@
+package org.example.stackflowanalysis.benchmark;
+
+import org.example.stackflowanalysis.DTOs.CollectionStatusDto;
+import org.example.stackflowanalysis.Service.CollectionJobService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// 端到端采集: 采集器对本地回放服务跑完一整轮抓取计划 (抓取 + 去重 + 入库 + 检查点)
+// 每轮回放服务切换到新的问题id区间并清空抓取计划, 因此每轮都是全新数据
+// 运行: mvn -Pbenchmark verify -DskipTests -Djmh.args="CollectorLoadBenchmark -p tooManyRequestsEvery=0,100 -p fetchMode=reactive"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CollectorLoadBenchmark {
+
+    @Param({"50"})
+    public long latencyMillis;
+
+    @Param({"10"})
+    public int pagesPerQuery;
+
+    @Param({"0", "100"})
+    public int tooManyRequestsEvery;
+
+    @Param({"8"})
+    public int fetchThreads;
+
+    @Param({"blocking", "reactive"})
+    public String fetchMode;
+
+    private ReplayStubServer stub;
+    private BenchmarkEnvironment environment;
+    private CollectionJobService jobService;
+    private JdbcTemplate jdbc;
+    private long requestsBefore;
+    private long tooManyRequestsBefore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stub = new ReplayStubServer(new ReplayStubServer.Settings(0, latencyMillis, latencyMillis / 2,
+                pagesPerQuery, 1_000_000, tooManyRequestsEvery, 0, 1, null));
+        environment = BenchmarkEnvironment.start(
+                "--collector.api.base-url=" + stub.baseUrl(),
+                "--collector.fetch-mode=" + fetchMode,
+                "--collector.fetch-threads=" + fetchThreads,
+                "--collector.rate.permits-per-second=1000",
+                "--collector.rate.burst=" + fetchThreads,
+                "--collector.rate.too-many-requests-pause=PT1S",
+                "--collector.error-retry-delay=PT0.1S");
+        jobService = environment.bean(CollectionJobService.class);
+        jdbc = environment.bean(JdbcTemplate.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPlan() {
+        stub.nextGeneration(jdbc.queryForObject("SELECT coalesce(max(id), 0) + 1 FROM questions", Long.class));
+        jdbc.execute("TRUNCATE crawl_checkpoints, crawl_runs");
+        requestsBefore = stub.requests();
+        tooManyRequestsBefore = stub.tooManyRequestsResponses();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+        stub.close();
+    }
+
+    @Benchmark
+    public CollectionStatusDto collectFullPlan() throws InterruptedException {
+        jobService.start();
+        CollectionStatusDto status;
+        while ((status = jobService.status().orElseThrow()).finishedAt() == null) {
+            Thread.sleep(20);
+        }
+        System.out.printf("%n  %d页, 新问题%d, 重复%d, %.1f页/秒, 请求%d次, 其中429 %d次%n",
+                status.pagesFetched(), status.newQuestions(), status.duplicateQuestions(), status.pagesPerSecond(),
+                stub.requests() - requestsBefore, stub.tooManyRequestsResponses() - tooManyRequestsBefore);
+        return status;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.stackflowanalysis.benchmark;
+
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Service.IngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 入库路径: 单个问题 (等同 DataService.saveQuestionData) 与整页100个问题
+// 每次调用都写入新的问题 id, 数据库随迭代增长
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"10000"})
+    public int corpusSize;
+
+    private BenchmarkEnvironment environment;
+    private IngestService ingestService;
+    private SyntheticCorpus corpus;
+    private long nextId;
+
+    private QuestionDto question;
+    private List<QuestionDto> page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start();
+        corpus = new SyntheticCorpus(corpusSize);
+        environment.seed(corpus);
+        ingestService = environment.bean(IngestService.class);
+        nextId = environment.bean(JdbcTemplate.class)
+                .queryForObject("SELECT coalesce(max(id), 0) + 1 FROM questions", Long.class);
+    }
+
+    // 语料生成不计入测量
+    @Setup(Level.Invocation)
+    public void nextQuestions() {
+        question = corpus.question(nextId);
+        page = corpus.page(nextId + 1, PAGE_SIZE);
+        nextId += PAGE_SIZE + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public int saveQuestionData() {
+        return ingestService.ingestPage(List.of(question));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public int ingestPage() {
+        return ingestService.ingestPage(page);
+    }
+}
@@ -0,0 +1,267 @@
+package org.example.stackflowanalysis.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// 本地回放的 StackExchange /2.3/questions 接口, 用于在单机上压测采集器:
+// 生成模式按 (时间片, 页码, 排序) 确定性地生成问题, 不同排序返回同一批问题的不同顺序, 与真实接口一样产生重复;
+// 回放模式依次返回目录中录制的 JSON 响应. 两种模式都支持注入延迟、429 和 backoff.
+// 单独运行: mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test
+//          -Dexec.mainClass=org.example.stackflowanalysis.benchmark.ReplayStubServer [-Dstub.port=8089 ...]
+// 然后以 --collector.api.base-url=http://localhost:8089/2.3 启动应用
+public final class ReplayStubServer implements AutoCloseable {
+
+    public record Settings(
+            int port,
+            // 每次请求固定延迟和随机抖动
+            long latencyMillis,
+            long latencyJitterMillis,
+            // 每个 (时间片, 排序) 组合有多少页数据, 之后 has_more=false
+            int pagesPerQuery,
+            // 初始配额, 每个成功响应减一
+            int quota,
+            // 每N个请求返回一次429, 0为不注入
+            int tooManyRequestsEvery,
+            // 每N个成功响应带一次 backoff 字段, 0为不注入
+            int backoffEvery,
+            int backoffSeconds,
+            // 录制的响应目录 (*.json), 为空时使用生成模式
+            Path recordedDirectory
+    ) {
+        public static Settings fromSystemProperties() {
+            String recorded = System.getProperty("stub.recorded-dir");
+            return new Settings(
+                    Integer.getInteger("stub.port", 8089),
+                    Long.getLong("stub.latency-ms", 50),
+                    Long.getLong("stub.latency-jitter-ms", 20),
+                    Integer.getInteger("stub.pages-per-query", 25),
+                    Integer.getInteger("stub.quota", 1_000_000),
+                    Integer.getInteger("stub.too-many-requests-every", 0),
+                    Integer.getInteger("stub.backoff-every", 0),
+                    Integer.getInteger("stub.backoff-seconds", 1),
+                    recorded == null ? null : Path.of(recorded));
+        }
+    }
+
+    private static final String QUESTIONS_PATH = "/2.3/questions";
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(32);
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final SyntheticCorpus corpus = new SyntheticCorpus(1);
+    private final List<byte[]> recordedResponses;
+    private final Map<Long, Long> chunkIndexes = new ConcurrentHashMap<>();
+    private final AtomicLong chunkCounter = new AtomicLong();
+    private final AtomicInteger quotaRemaining;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong successResponses = new AtomicLong();
+    private final AtomicLong tooManyRequestsResponses = new AtomicLong();
+    private volatile long idOffset = 1_000_000_000L;
+
+    public ReplayStubServer(Settings settings) throws IOException {
+        this.settings = settings;
+        this.quotaRemaining = new AtomicInteger(settings.quota());
+        this.recordedResponses = loadRecorded(settings.recordedDirectory());
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", settings.port()), 256);
+        server.createContext(QUESTIONS_PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ReplayStubServer stub = new ReplayStubServer(Settings.fromSystemProperties());
+        System.out.println("回放服务已启动: " + stub.baseUrl());
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        Thread.currentThread().join();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/2.3";
+    }
+
+    // 切换到从 firstId 开始的新 id 区间, 使下一轮抓取得到的全部是新问题
+    public void nextGeneration(long firstId) {
+        idOffset = firstId;
+        chunkIndexes.clear();
+        chunkCounter.set(0);
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long successResponses() {
+        return successResponses.get();
+    }
+
+    public long tooManyRequestsResponses() {
+        return tooManyRequestsResponses.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            long requestNumber = requests.incrementAndGet();
+            sleep(settings.latencyMillis() + (settings.latencyJitterMillis() > 0
+                    ? ThreadLocalRandom.current().nextLong(settings.latencyJitterMillis() + 1) : 0));
+            if (settings.tooManyRequestsEvery() > 0 && requestNumber % settings.tooManyRequestsEvery() == 0) {
+                tooManyRequestsResponses.incrementAndGet();
+                send(exchange, 429, jsonMapper.writeValueAsBytes(Map.of(
+                        "error_id", 502, "error_name", "throttle_violation", "error_message", "too many requests")));
+                return;
+            }
+            byte[] body;
+            if (recordedResponses.isEmpty()) {
+                body = jsonMapper.writeValueAsBytes(generate(parseQuery(exchange.getRequestURI().getRawQuery())));
+            } else {
+                body = recordedResponses.get((int) ((requestNumber - 1) % recordedResponses.size()));
+            }
+            successResponses.incrementAndGet();
+            send(exchange, 200, body);
+        }
+    }
+
+    private Map<String, Object> generate(Map<String, String> query) {
+        int page = Integer.parseInt(query.getOrDefault("page", "1"));
+        int pageSize = Integer.parseInt(query.getOrDefault("pagesize", "30"));
+        long fromDate = Long.parseLong(query.getOrDefault("fromdate", "0"));
+        long toDate = Long.parseLong(query.getOrDefault("todate", String.valueOf(fromDate + 86_400)));
+        String sort = query.getOrDefault("sort", "activity");
+
+        int questionsPerQuery = settings.pagesPerQuery() * pageSize;
+        long chunkIndex = chunkIndexes.computeIfAbsent(fromDate, key -> chunkCounter.getAndIncrement());
+        int rotation = Math.floorMod(sort.hashCode(), 4) * (questionsPerQuery / 4);
+        List<Map<String, Object>> items = new ArrayList<>();
+        if (page <= settings.pagesPerQuery()) {
+            for (int i = 0; i < pageSize; i++) {
+                int position = (page - 1) * pageSize + i;
+                int index = (position + rotation) % questionsPerQuery;
+                long created = fromDate + (toDate - fromDate) * index / questionsPerQuery;
+                long id = idOffset + chunkIndex * questionsPerQuery + index;
+                items.add(toJson(corpus.question(id), created));
+            }
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("items", items);
+        response.put("has_more", page < settings.pagesPerQuery());
+        response.put("quota_max", settings.quota());
+        response.put("quota_remaining", Math.max(0, quotaRemaining.decrementAndGet()));
+        if (settings.backoffEvery() > 0 && successResponses.get() % settings.backoffEvery() == 0) {
+            response.put("backoff", settings.backoffSeconds());
+        }
+        return response;
+    }
+
+    // 与真实接口相同的字段名; 回答时间相对问题创建时间平移
+    private static Map<String, Object> toJson(QuestionDto question, long created) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("question_id", question.questionId());
+        json.put("title", question.title());
+        json.put("body", question.body());
+        json.put("creation_date", created);
+        json.put("score", question.score());
+        json.put("view_count", question.viewCount());
+        json.put("answer_count", question.answerCount());
+        json.put("is_answered", question.isAnswered());
+        json.put("tags", question.tags());
+        putOwner(json, question.owner());
+        List<Map<String, Object>> answers = new ArrayList<>();
+        for (AnswerDto answer : question.answers()) {
+            Map<String, Object> a = new LinkedHashMap<>();
+            a.put("answer_id", answer.answerId());
+            a.put("body", answer.body());
+            a.put("creation_date", created + (answer.creationDate() - question.creationDate()));
+            a.put("score", answer.score());
+            a.put("is_accepted", answer.isAccepted());
+            putOwner(a, answer.owner());
+            answers.add(a);
+        }
+        json.put("answers", answers);
+        return json;
+    }
+
+    private static void putOwner(Map<String, Object> json, OwnerDto owner) {
+        if (owner == null) {
+            json.put("owner", Map.of("user_type", "does_not_exist", "display_name", "deleted"));
+            return;
+        }
+        json.put("owner", Map.of("user_id", owner.userId(), "display_name", owner.displayName(),
+                "reputation", owner.reputation()));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static List<byte[]> loadRecorded(Path directory) throws IOException {
+        if (directory == null) {
+            return List.of();
+        }
+        List<byte[]> responses = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".json")).sorted().toList()) {
+                responses.add(Files.readAllBytes(file));
+            }
+        }
+        if (responses.isEmpty()) {
+            throw new IllegalArgumentException("录制目录中没有 *.json 响应: " + directory);
+        }
+        return responses;
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.stackflowanalysis.benchmark;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// 可复现的合成语料: 每个问题只由其 id 决定, 任意分页生成无需保存状态
+// tag 服从 Zipf 分布, 每个问题都带 java (与采集条件一致), 标题/正文混入技术短语和HTML
+public final class SyntheticCorpus {
+
+    private static final String[] HEAD_TAGS = {
+            "spring", "android", "multithreading", "spring-boot", "arrays", "hibernate", "string", "maven",
+            "swing", "jdbc", "arraylist", "json", "collections", "generics", "hashmap", "java-stream",
+            "concurrency", "junit", "lambda", "jpa", "eclipse", "intellij-idea", "rest", "sql", "mysql",
+            "postgresql", "gradle", "kotlin", "javafx", "servlets", "oop", "performance", "recursion",
+            "exception", "sorting", "algorithm", "regex", "file", "jvm", "garbage-collection"
+    };
+    private static final String[] WORDS = {
+            "object", "method", "value", "list", "map", "array", "loop", "variable", "field", "instance",
+            "constructor", "callback", "future", "executor", "service", "lock", "mutex", "monitor", "queue",
+            "stack", "buffer", "stream", "reader", "writer", "socket", "server", "client", "request",
+            "response", "database", "query", "table", "column", "index", "transaction", "session", "cache",
+            "memory", "heap", "garbage", "collector", "performance", "slow", "fast", "blocking", "waiting",
+            "synchronized", "volatile", "atomic", "counter", "increment", "shared", "state", "update",
+            "result", "compile", "runtime", "stacktrace", "null", "pointer", "cast", "generic", "type",
+            "interface", "abstract", "override", "annotation", "bean", "context", "config", "property",
+            "file", "path", "directory", "json", "parse", "serialize", "string", "builder", "format",
+            "date", "time", "zone", "sort", "compare", "order", "element", "size", "capacity", "iterator",
+            "the", "is", "and", "to", "in", "when", "how", "why", "with", "this", "that", "my", "it", "but",
+            "after", "before", "every", "never", "always", "sometimes", "because", "however", "into"
+    };
+    private static final String[] PHRASES = {
+            "race condition", "dead lock", "memory leak", "thread safe", "thread pool", "context switch",
+            "concurrent modification", "wait notify", "count down latch", "atomic integer"
+    };
+    private static final long FROM_EPOCH = LocalDate.of(2009, 1, 1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+    private static final long TO_EPOCH = LocalDate.of(2025, 1, 1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+
+    private final int size;
+    private final int ownerPool;
+    private final String[] tags;
+    private final double[] tagCdf;
+
+    public SyntheticCorpus(int size) {
+        this(size, 2000, 1.1);
+    }
+
+    public SyntheticCorpus(int size, int tagCount, double zipfExponent) {
+        if (size <= 0 || tagCount < HEAD_TAGS.length) {
+            throw new IllegalArgumentException("语料规模必须为正数, tag数量不少于" + HEAD_TAGS.length);
+        }
+        this.size = size;
+        this.ownerPool = Math.max(1000, size / 5);
+        this.tags = new String[tagCount];
+        this.tagCdf = new double[tagCount];
+        double total = 0;
+        for (int i = 0; i < tagCount; i++) {
+            tags[i] = i < HEAD_TAGS.length ? HEAD_TAGS[i] : "tag-" + i;
+            total += 1.0 / Math.pow(i + 1, zipfExponent);
+            tagCdf[i] = total;
+        }
+        for (int i = 0; i < tagCount; i++) {
+            tagCdf[i] /= total;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 问题 id 为 1..size; 超出范围的 id 也可生成, 供入库基准使用新数据
+    public List<QuestionDto> page(long firstId, int count) {
+        List<QuestionDto> page = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            page.add(question(firstId + i));
+        }
+        return page;
+    }
+
+    public QuestionDto question(long id) {
+        SplittableRandom random = new SplittableRandom(id * 0x9E3779B97F4A7C15L);
+        List<String> questionTags = new ArrayList<>(5);
+        questionTags.add("java");
+        int extraTags = 1 + random.nextInt(4);
+        for (int attempt = 0; questionTags.size() <= extraTags && attempt < 20; attempt++) {
+            String tag = sampleTag(random);
+            if (!questionTags.contains(tag)) {
+                questionTags.add(tag);
+            }
+        }
+        long created = FROM_EPOCH + random.nextLong(TO_EPOCH - FROM_EPOCH);
+        List<AnswerDto> answers = answers(id, created, random);
+        boolean answered = answers.stream().anyMatch(a -> a.isAccepted() || a.score() > 0);
+        return new QuestionDto(id, sentence(random, 6 + random.nextInt(7)), body(random), created,
+                random.nextInt(-3, 40), random.nextInt(20, 50_000), answers.size(), answered,
+                questionTags, random.nextInt(50) == 0 ? null : owner(random), answers);
+    }
+
+    private List<AnswerDto> answers(long questionId, long created, SplittableRandom random) {
+        int count = switch (random.nextInt(10)) {
+            case 0, 1, 2 -> 0;
+            case 3, 4, 5, 6 -> 1;
+            case 7, 8 -> 2;
+            default -> 3 + random.nextInt(3);
+        };
+        int accepted = count > 0 && random.nextInt(10) < 4 ? random.nextInt(count) : -1;
+        List<AnswerDto> answers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long answeredAt = created + 60 + random.nextLong(30L * 24 * 3600);
+            answers.add(new AnswerDto(questionId * 8 + i, sentence(random, 20 + random.nextInt(60)), answeredAt,
+                    random.nextInt(-2, 25), i == accepted, owner(random)));
+        }
+        return answers;
+    }
+
+    private OwnerDto owner(SplittableRandom random) {
+        long userId = 1 + random.nextInt(ownerPool);
+        // 声望只由 userId 决定, 同一用户在不同问题中保持一致
+        int reputation = (int) (1 + (userId * 2654435761L & 0xFFFFF) % 200_000);
+        return new OwnerDto(userId, "user" + userId, reputation);
+    }
+
+    private String sampleTag(SplittableRandom random) {
+        double u = random.nextDouble();
+        int low = 0;
+        int high = tagCdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tagCdf[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return tags[low];
+    }
+
+    private static String body(SplittableRandom random) {
+        StringBuilder body = new StringBuilder(2048);
+        int paragraphs = 1 + random.nextInt(4);
+        for (int p = 0; p < paragraphs; p++) {
+            body.append("<p>").append(sentence(random, 15 + random.nextInt(60))).append("</p>\n");
+            if (random.nextInt(3) == 0) {
+                body.append("<pre><code>").append(WORDS[random.nextInt(WORDS.length)])
+                        .append(".").append(WORDS[random.nextInt(WORDS.length)]).append("();\n</code></pre>\n");
+            }
+        }
+        return body.toString();
+    }
+
+    private static String sentence(SplittableRandom random, int words) {
+        StringBuilder sentence = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            if (random.nextInt(25) == 0) {
+                sentence.append(PHRASES[random.nextInt(PHRASES.length)]);
+            } else {
+                sentence.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+        }
+        return sentence.toString();
+    }
+}
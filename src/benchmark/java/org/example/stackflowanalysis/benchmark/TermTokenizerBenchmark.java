@@ -0,0 +1,48 @@
+package org.example.stackflowanalysis.benchmark;
+
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Util.TermTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// 词云分词 (原 protectTechnicalPhrases + cleanText 的合并实现), 不依赖数据库
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TermTokenizerBenchmark {
+
+    private static final int SAMPLE_SIZE = 1000;
+
+    private String[][] texts;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(SAMPLE_SIZE);
+        texts = new String[SAMPLE_SIZE][];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            QuestionDto question = corpus.question(i + 1);
+            texts[i] = new String[]{question.title(), question.body()};
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public void countTerms(Blackhole blackhole) {
+        for (String[] text : texts) {
+            blackhole.consume(TermTokenizer.INSTANCE.countTerms(text));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public void tokenize(Blackhole blackhole) {
+        for (String[] text : texts) {
+            TermTokenizer.INSTANCE.tokenize(blackhole::consume, text);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.stackflowanalysis.Config;
+
+import org.example.stackflowanalysis.Service.DataVersion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+// AnalysisService 各接口的结果缓存, 键为 方法名 + 参数
+@Configuration
+@EnableCaching
+public class AnalysisCacheConfig {
+
+    public static final String ANALYSIS_CACHE = "analysis";
+
+    @Bean
+    public VersionedCache analysisCache(DataVersion dataVersion,
+                                        @Value("${analysis.cache.max-size:500}") int maxSize,
+                                        @Value("${analysis.cache.ttl:PT1H}") Duration ttl) {
+        return new VersionedCache(ANALYSIS_CACHE, dataVersion, maxSize, ttl);
+    }
+
+    @Bean
+    public CacheManager cacheManager(VersionedCache analysisCache) {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(analysisCache));
+        return cacheManager;
+    }
+
+    @Bean
+    public KeyGenerator analysisKeyGenerator() {
+        return (target, method, params) -> analysisKey(method.getName(), params);
+    }
+
+    // 与 analysisKeyGenerator 相同的键, 供绕过 @Cacheable 直接读写缓存的调用方使用
+    public static SimpleKey analysisKey(String methodName, Object... params) {
+        Object[] key = new Object[params.length + 1];
+        key[0] = methodName;
+        System.arraycopy(params, 0, key, 1, params.length);
+        return new SimpleKey(key);
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.stackflowanalysis.Config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// 统计经连接池创建的JDBC语句数 (JdbcTemplate 与 Hibernate 都经过这里), 一条语句对应一次
+// prepareStatement/createStatement/prepareCall, 批处理整体计一次, 与数据库往返次数基本一致.
+// 按线程累计, 调用方在一段代码前后各取一次 currentThreadCount 求差
+public final class JdbcStatementCounter {
+
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("prepareStatement", "createStatement", "prepareCall");
+    private static final ThreadLocal<long[]> PER_THREAD = ThreadLocal.withInitial(() -> new long[1]);
+    private static final LongAdder TOTAL = new LongAdder();
+
+    private JdbcStatementCounter() {}
+
+    public static long currentThreadCount() {
+        return PER_THREAD.get()[0];
+    }
+
+    public static long total() {
+        return TOTAL.sum();
+    }
+
+    static DataSource wrap(DataSource target) {
+        return new DelegatingDataSource(target) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return countingConnection(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return countingConnection(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private static Connection countingConnection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(JdbcStatementCounter.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (STATEMENT_FACTORIES.contains(method.getName())) {
+                        PER_THREAD.get()[0]++;
+                        TOTAL.increment();
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
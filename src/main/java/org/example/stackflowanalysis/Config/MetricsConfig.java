@@ -0,0 +1,52 @@
+package org.example.stackflowanalysis.Config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// 自定义指标: JDBC语句计数与分析结果缓存命中情况; 采集、入库、分析各自的计时见 CollectorMetrics、IngestService、AnalysisService
+@Configuration
+public class MetricsConfig {
+
+    // 静态方法, 使后处理器不依赖本配置类实例, 能在数据源创建前注册
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && "dataSource".equals(beanName)
+                        ? JdbcStatementCounter.wrap(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder jdbcStatementMetrics() {
+        return registry -> FunctionCounter.builder("jdbc.statements", JdbcStatementCounter.class,
+                        type -> JdbcStatementCounter.total())
+                .description("经连接池创建的JDBC语句数")
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder analysisCacheMetrics(VersionedCache analysisCache) {
+        return registry -> {
+            FunctionCounter.builder("analysis.cache.requests", analysisCache, c -> number(c.stats(), "hits"))
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("analysis.cache.requests", analysisCache, c -> number(c.stats(), "misses"))
+                    .tag("result", "miss").register(registry);
+            Gauge.builder("analysis.cache.size", analysisCache, c -> number(c.stats(), "size"))
+                    .register(registry);
+        };
+    }
+
+    private static double number(Map<String, Object> stats, String key) {
+        return ((Number) stats.get(key)).doubleValue();
+    }
+}
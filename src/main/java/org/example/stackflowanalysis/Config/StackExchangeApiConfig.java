@@ -0,0 +1,56 @@
+package org.example.stackflowanalysis.Config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+// 采集器使用的 HTTP 客户端, 超时可配置; 地址见 collector.api.base-url
+@Configuration
+public class StackExchangeApiConfig {
+
+    @Bean
+    public RestTemplate stackExchangeRestTemplate(@Value("${collector.api.connect-timeout:PT10S}") Duration connectTimeout,
+                                                  @Value("${collector.api.read-timeout:PT30S}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return new RestTemplate(requestFactory);
+    }
+
+    // 响应式抓取的连接池, 连接数与抓取并发一致
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider stackExchangeConnectionProvider(@Value("${collector.fetch-threads:4}") int fetchThreads) {
+        return ConnectionProvider.builder("stackexchange")
+                .maxConnections(Math.max(1, fetchThreads))
+                .pendingAcquireMaxCount(-1)
+                .build();
+    }
+
+    // compress(true): 请求带 Accept-Encoding: gzip, 响应按网络分块边收边解压
+    @Bean
+    public WebClient stackExchangeWebClient(ConnectionProvider stackExchangeConnectionProvider,
+                                            @Value("${collector.api.connect-timeout:PT10S}") Duration connectTimeout,
+                                            @Value("${collector.api.read-timeout:PT30S}") Duration readTimeout) {
+        reactor.netty.http.client.HttpClient httpClient = reactor.netty.http.client.HttpClient
+                .create(stackExchangeConnectionProvider)
+                .compress(true)
+                .followRedirect(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.stackflowanalysis.Config;
+
+import org.example.stackflowanalysis.Service.DataVersion;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// 分析结果缓存: LRU容量淘汰 + TTL, 条目记录写入时的数据版本, 数据版本变化后立即失效
+public class VersionedCache extends AbstractValueAdaptingCache {
+
+    private record Entry(Object value, long version, long expiresAtNanos) {}
+
+    private final String name;
+    private final DataVersion dataVersion;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Object, Entry> entries;
+    // 同一个键只允许一个线程计算
+    private final ConcurrentHashMap<Object, Object> loadLocks = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleEvictions = new LongAdder();
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+
+    public VersionedCache(String name, DataVersion dataVersion, int maxSize, Duration ttl) {
+        super(true);
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("缓存容量必须为正数");
+        }
+        this.name = name;
+        this.dataVersion = dataVersion;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() > VersionedCache.this.maxSize) {
+                    sizeEvictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return entries;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && !isValid(entry, key)) {
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+        Object lock = loadLocks.computeIfAbsent(key, k -> new Object());
+        try {
+            synchronized (lock) {
+                synchronized (entries) {
+                    Entry entry = entries.get(key);
+                    if (entry != null && isValid(entry, key)) {
+                        return (T) fromStoreValue(entry.value());
+                    }
+                }
+                // 先取版本再计算, 计算期间有新数据入库时该条目会在下次读取时失效
+                long version = dataVersion.current();
+                T value;
+                try {
+                    value = valueLoader.call();
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+                store(key, toStoreValue(value), version);
+                return value;
+            }
+        } finally {
+            loadLocks.remove(key, lock);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        store(key, toStoreValue(value), dataVersion.current());
+    }
+
+    @Override
+    public void evict(Object key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("dataVersion", dataVersion.current());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("staleEvictions", staleEvictions.sum());
+        stats.put("expiredEvictions", expiredEvictions.sum());
+        stats.put("sizeEvictions", sizeEvictions.sum());
+        return stats;
+    }
+
+    private void store(Object key, Object storeValue, long version) {
+        synchronized (entries) {
+            entries.put(key, new Entry(storeValue, version, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    // 调用方需持有entries锁; 过期或版本落后的条目直接移除
+    private boolean isValid(Entry entry, Object key) {
+        if (entry.version() != dataVersion.current()) {
+            entries.remove(key);
+            staleEvictions.increment();
+            return false;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() > 0) {
+            entries.remove(key);
+            expiredEvictions.increment();
+            return false;
+        }
+        return true;
+    }
+}
@@ -1,98 +1,324 @@
 package org.example.stackflowanalysis.Controller;
 
+import org.example.stackflowanalysis.Config.VersionedCache;
+import org.example.stackflowanalysis.DTOs.ApproximateResultDto;
+import org.example.stackflowanalysis.DTOs.CollectionStatusDto;
+import org.example.stackflowanalysis.DTOs.SearchResultDto;
+import org.example.stackflowanalysis.DTOs.ResponseTimeSeriesDto;
+import org.example.stackflowanalysis.DTOs.SnapshotSummaryDto;
+import org.example.stackflowanalysis.DTOs.TopAnswererDto;
+import org.example.stackflowanalysis.DTOs.TrendSeriesDto;
 import org.example.stackflowanalysis.Service.AnalysisService;
-import org.example.stackflowanalysis.Service.DataService;
+import org.example.stackflowanalysis.Service.AnalysisStreamService;
+import org.example.stackflowanalysis.Service.CollectionJobService;
+import org.example.stackflowanalysis.Service.RollupService;
+import org.example.stackflowanalysis.Service.SearchService;
+import org.example.stackflowanalysis.Service.SketchEngine;
+import org.example.stackflowanalysis.Service.SnapshotService;
+import org.example.stackflowanalysis.Service.TrendGranularity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 @RestController
 public class DataController {
 
-    private final DataService stackOverflowService;
+    private final CollectionJobService collectionJobService;
     private final AnalysisService analysisService;
+    private final RollupService rollupService;
+    private final VersionedCache analysisCache;
+    private final SnapshotService snapshotService;
+    private final AnalysisStreamService analysisStreamService;
+    private final SearchService searchService;
     private static final DateTimeFormatter YEAR_MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final int MAX_TREND_TAGS = 50;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_SEARCH_OFFSET = 10_000;
 
-    public DataController(DataService stackOverflowService, AnalysisService analysisService) {
-        this.stackOverflowService = stackOverflowService;
+    public DataController(CollectionJobService collectionJobService, AnalysisService analysisService,
+                          RollupService rollupService, VersionedCache analysisCache,
+                          SnapshotService snapshotService, AnalysisStreamService analysisStreamService,
+                          SearchService searchService) {
+        this.collectionJobService = collectionJobService;
         this.analysisService = analysisService;
+        this.rollupService = rollupService;
+        this.analysisCache = analysisCache;
+        this.snapshotService = snapshotService;
+        this.analysisStreamService = analysisStreamService;
+        this.searchService = searchService;
     }
 
     @GetMapping("/api/collect")
-    public String triggerCollection() {
-        new Thread(stackOverflowService::collectData).start();
-        return "Data collection started in background. Check console logs.";
+    public ResponseEntity<CollectionStatusDto> triggerCollection() {
+        return ResponseEntity.ok(collectionJobService.start());
     }
+    // SSE: 启动或接入采集任务并持续推送进度
+    @GetMapping("/api/collect/stream")
+    public SseEmitter streamCollection() {
+        return analysisStreamService.collection();
+    }
+    @GetMapping("/api/collect/status")
+    public ResponseEntity<CollectionStatusDto> getCollectionStatus() {
+        return ResponseEntity.of(collectionJobService.status());
+    }
+    @GetMapping("/api/collect/cancel")
+    public ResponseEntity<CollectionStatusDto> cancelCollection() {
+        return ResponseEntity.of(collectionJobService.cancel());
+    }
+    @GetMapping("/api/rollup/rebuild")
+    public String rebuildRollups() {
+        int rows = rollupService.rebuildTagMonthCounts();
+        int questions = rollupService.rebuildQuestionStats();
+        int indexed = rollupService.rebuildTagTermCounts();
+        int answerers = rollupService.rebuildTagAnswererCounts();
+        int answered = rollupService.rebuildTagResponseTimes();
+        return "Rebuilt tag_month_counts: " + rows + " rows, question stats: " + questions
+                + " questions, tag_term_counts from " + indexed + " questions, tag_answerer_counts: "
+                + answerers + " rows, tag_response_times from " + answered + " answered questions.";
+    }
+    @GetMapping("/api/snapshot/export")
+    public ResponseEntity<SnapshotSummaryDto> exportSnapshot(@RequestParam(defaultValue = "snapshot.bin") String file) {
+        return ResponseEntity.ok(snapshotService.export(file));
+    }
+    @GetMapping("/api/snapshot/import")
+    public ResponseEntity<SnapshotSummaryDto> importSnapshot(@RequestParam(defaultValue = "snapshot.bin") String file) {
+        return ResponseEntity.ok(snapshotService.importSnapshot(file));
+    }
+    @GetMapping("/api/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(analysisCache.stats());
+    }
+    // approx=true 的接口返回 ApproximateResultDto, 由入库时维护的草图估计并附带误差
     @GetMapping("/api/trend")
-    public ResponseEntity<Map<String, Long>> getTagTrend(
+    public ResponseEntity<?> getTagTrend(
             @RequestParam String tagName,
             @RequestParam String starttime,
-            @RequestParam String endtime) {
+            @RequestParam String endtime,
+            @RequestParam(defaultValue = "false") boolean approx) {
+        if (tagName.isBlank()) {
+            throw new IllegalArgumentException("tagName 不能为空");
+        }
+        String tag = tagName.trim().toLowerCase(Locale.ROOT);
         boolean startmatch = Pattern.matches("^\\d{4}-(0[1-9]|1[0-2])$", starttime);
         boolean endmatch = Pattern.matches("^\\d{4}-(0[1-9]|1[0-2])$", endtime);
         if (startmatch && endmatch) {
             YearMonth startYearMonth = YearMonth.parse(starttime);
             YearMonth endYearMonth = YearMonth.parse(endtime);
-            LocalDateTime start = startYearMonth.atDay(1).atStartOfDay();
-            LocalDateTime end = endYearMonth.atDay(1).atStartOfDay();
-            if (start.isAfter(end)) {
+            if (startYearMonth.isAfter(endYearMonth)) {
                 throw new IllegalArgumentException("结束时间必须位于开始时间之后");
             }
-            Map<String, Long> trendData = analysisService.getTopicTrend(tagName, start, end);
+            // 包含结束月份
+            LocalDateTime start = startYearMonth.atDay(1).atStartOfDay();
+            LocalDateTime end = endYearMonth.plusMonths(1).atDay(1).atStartOfDay();
+            if (approx) {
+                return ResponseEntity.ok(analysisService.getApproximateTopicTrend(tag, start, end));
+            }
+            Map<String, Long> trendData = analysisService.getTopicTrend(tag, start, end);
             return ResponseEntity.ok(trendData);
         }
         throw new IllegalArgumentException("时间格式错误");
     }
-    @GetMapping("/api/topNpairs")
-    public ResponseEntity<List<Map.Entry<String, Integer>>> getTopCoOccurringTags(
-            @RequestParam(defaultValue = "10") String topNStr) {
-        int topN;
-        try {
-            topN = Integer.parseInt(topNStr);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("topN 必须是有效的整数");
+    // 多tag趋势: tags逗号分隔; start/end 为 yyyy-MM-dd 或 yyyy-MM, 均包含在内
+    @GetMapping("/api/trends")
+    public ResponseEntity<?> getTagTrends(
+            @RequestParam String tags,
+            @RequestParam(defaultValue = "month") String granularity,
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(defaultValue = "false") boolean approx) {
+        List<String> tagNames = Arrays.stream(tags.split(","))
+                .map(tag -> tag.trim().toLowerCase(Locale.ROOT))
+                .filter(tag -> !tag.isEmpty())
+                .distinct()
+                .toList();
+        if (tagNames.isEmpty()) {
+            throw new IllegalArgumentException("tags 不能为空");
         }
-        if (topN < 1 || topN > 100) {
-            throw new IllegalArgumentException("topN 必须在 1 到 100 之间");
+        if (tagNames.size() > MAX_TREND_TAGS) {
+            throw new IllegalArgumentException("tags 最多 " + MAX_TREND_TAGS + " 个");
+        }
+        TrendGranularity trendGranularity = TrendGranularity.parse(granularity);
+        LocalDate startDate = parseTrendDate(start, false);
+        LocalDate endDate = parseTrendDate(end, true);
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("结束时间必须位于开始时间之后");
+        }
+        if (approx) {
+            return ResponseEntity.ok(analysisService.getApproximateTrends(tagNames, trendGranularity,
+                    startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay()));
+        }
+        return ResponseEntity.ok(analysisService.getTrends(tagNames, trendGranularity,
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay()));
+    }
+    // 全文检索问题标题、正文与回答; tags 为逗号分隔且需全部带有, from/to 为 yyyy-MM-dd 或 yyyy-MM
+    @GetMapping("/api/search")
+    public ResponseEntity<SearchResultDto> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String tags,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "0") int offset) {
+        if (q.isBlank()) {
+            throw new IllegalArgumentException("q 不能为空");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("limit 必须在 1 到 " + MAX_SEARCH_LIMIT + " 之间");
+        }
+        if (offset < 0 || offset > MAX_SEARCH_OFFSET) {
+            throw new IllegalArgumentException("offset 必须在 0 到 " + MAX_SEARCH_OFFSET + " 之间");
+        }
+        List<String> tagNames = tags == null ? List.of() : Arrays.stream(tags.split(","))
+                .map(tag -> tag.trim().toLowerCase(Locale.ROOT))
+                .filter(tag -> !tag.isEmpty())
+                .distinct()
+                .toList();
+        if (tagNames.size() > MAX_TREND_TAGS) {
+            throw new IllegalArgumentException("tags 最多 " + MAX_TREND_TAGS + " 个");
+        }
+        LocalDateTime fromTime = from == null || from.isBlank() ? null : parseTrendDate(from, false).atStartOfDay();
+        LocalDateTime toTime = to == null || to.isBlank() ? null : parseTrendDate(to, true).plusDays(1).atStartOfDay();
+        if (fromTime != null && toTime != null && !fromTime.isBefore(toTime)) {
+            throw new IllegalArgumentException("结束时间必须位于开始时间之后");
+        }
+        return ResponseEntity.ok(searchService.search(q.trim(), tagNames, fromTime, toTime, limit, offset));
+    }
+    @GetMapping("/api/topNpairs")
+    public ResponseEntity<?> getTopCoOccurringTags(
+            @RequestParam(defaultValue = "10") String topNStr,
+            @RequestParam(defaultValue = "false") boolean approx) {
+        int topN = parseTopN(topNStr);
+        if (approx) {
+            return ResponseEntity.ok(analysisService.getApproximateTopCoOccurringTags(topN));
         }
         List<Map.Entry<String, Integer>> topPairs = analysisService.getTopCoOccurringTags(topN);
         return ResponseEntity.ok(topPairs);
     }
+    @GetMapping("/api/topNpairs/stream")
+    public SseEmitter streamTopCoOccurringTags(@RequestParam(defaultValue = "10") String topNStr) {
+        return analysisStreamService.topPairs(parseTopN(topNStr));
+    }
     @GetMapping("/api/topNmonthly")
-    public ResponseEntity<List<Map.Entry<String, Integer>>> getTopTagsMonthly(
+    public ResponseEntity<?> getTopTagsMonthly(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
-            @RequestParam(defaultValue = "10") String topNStr) {
-        int topN;
-        try {
-            topN = Integer.parseInt(topNStr);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("topN 必须是有效的整数");
-        }
-        if (topN < 1 || topN > 100) {
-            throw new IllegalArgumentException("topN 必须在 1 到 100 之间");
+            @RequestParam(defaultValue = "10") String topNStr,
+            @RequestParam(defaultValue = "false") boolean approx) {
+        int topN = parseTopN(topNStr);
+        if (approx) {
+            return ResponseEntity.ok(analysisService.getApproximateTopNTagsMonthly(dateTime, topN));
         }
         List<Map.Entry<String, Integer>> topTags = analysisService.getTopNTagsmonthly(dateTime, topN);
         return ResponseEntity.ok(topTags);
     }
     @GetMapping("/api/wordcloud")
-    public ResponseEntity<Map<String, Long>> getMultithreadingWordCloud() {
-
-        Map<String, Long> wordCloudData = analysisService.generateMultithreadingWordCloud();
+    public ResponseEntity<?> getWordCloud(
+            @RequestParam(defaultValue = "multithreading") String tag,
+            @RequestParam(defaultValue = "false") boolean approx) {
+        if (tag.isBlank()) {
+            throw new IllegalArgumentException("tag 不能为空");
+        }
+        if (approx) {
+            return ResponseEntity.ok(analysisService.generateApproximateWordCloud(tag.trim().toLowerCase(Locale.ROOT)));
+        }
+        Map<String, Long> wordCloudData = analysisService.generateWordCloud(tag.trim().toLowerCase(Locale.ROOT));
         return ResponseEntity.ok(wordCloudData);
     }
+    // 某tag某月的提问者与回答者去重数 (HyperLogLog 估计); month 为 yyyy-MM
+    @GetMapping("/api/distinctUsers")
+    public ResponseEntity<ApproximateResultDto<Map<String, Long>>> getDistinctUsers(
+            @RequestParam String tag,
+            @RequestParam String month) {
+        if (tag.isBlank()) {
+            throw new IllegalArgumentException("tag 不能为空");
+        }
+        if (!Pattern.matches("^\\d{4}-(0[1-9]|1[0-2])$", month)) {
+            throw new IllegalArgumentException("时间格式错误");
+        }
+        return ResponseEntity.ok(analysisService.getDistinctUsers(tag.trim().toLowerCase(Locale.ROOT),
+                YearMonth.parse(month)));
+    }
+    // 问题得分、浏览数或回答者声望的 p50/p90/p99 (t-digest 估计)
+    @GetMapping("/api/percentiles")
+    public ResponseEntity<ApproximateResultDto<Map<String, Double>>> getPercentiles(
+            @RequestParam(defaultValue = "score") String metric) {
+        return ResponseEntity.ok(analysisService.getPercentiles(SketchEngine.Metric.parse(metric)));
+    }
+    @GetMapping("/api/topAnswerers")
+    public ResponseEntity<List<TopAnswererDto>> getTopAnswerers(
+            @RequestParam(defaultValue = "java") String tag,
+            @RequestParam(defaultValue = "10") String topNStr) {
+        if (tag.isBlank()) {
+            throw new IllegalArgumentException("tag 不能为空");
+        }
+        return ResponseEntity.ok(analysisService.getTopAnswerers(tag.trim().toLowerCase(Locale.ROOT), parseTopN(topNStr)));
+    }
+    // 某tag按提问月份的最早回答与被采纳回答耗时 (秒) 的 p50/p90/p99; start/end 为 yyyy-MM, 均含
+    @GetMapping("/api/responseTimes")
+    public ResponseEntity<ResponseTimeSeriesDto> getResponseTimes(
+            @RequestParam(defaultValue = "java") String tag,
+            @RequestParam String start,
+            @RequestParam String end) {
+        if (tag.isBlank()) {
+            throw new IllegalArgumentException("tag 不能为空");
+        }
+        if (!Pattern.matches("^\\d{4}-(0[1-9]|1[0-2])$", start) || !Pattern.matches("^\\d{4}-(0[1-9]|1[0-2])$", end)) {
+            throw new IllegalArgumentException("时间格式错误");
+        }
+        return ResponseEntity.ok(analysisService.getResponseTimes(tag.trim().toLowerCase(Locale.ROOT),
+                YearMonth.parse(start), YearMonth.parse(end)));
+    }
+    // 不指定tag时统计全部用户
+    @GetMapping("/api/reputation")
+    public ResponseEntity<Map<String, Long>> getReputationDistribution(@RequestParam(required = false) String tag) {
+        String tagName = tag == null || tag.isBlank() ? null : tag.trim().toLowerCase(Locale.ROOT);
+        return ResponseEntity.ok(analysisService.getReputationDistribution(tagName));
+    }
     @GetMapping("/api/solvability")
     public ResponseEntity<Map<String, Object>> getSolvabilityComparison() {
 
         Map<String, Object> comparisonData = analysisService.compareSolvability();
         return ResponseEntity.ok(comparisonData);
     }
+    @GetMapping("/api/solvability/stream")
+    public SseEmitter streamSolvabilityComparison() {
+        return analysisStreamService.solvability();
+    }
+    // yyyy-MM-dd 或 yyyy-MM; 月份作为结束时间时取该月最后一天
+    private static LocalDate parseTrendDate(String value, boolean endOfPeriod) {
+        try {
+            if (Pattern.matches("^\\d{4}-(0[1-9]|1[0-2])$", value)) {
+                YearMonth yearMonth = YearMonth.parse(value);
+                return endOfPeriod ? yearMonth.atEndOfMonth() : yearMonth.atDay(1);
+            }
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("时间格式错误");
+        }
+    }
+    private static int parseTopN(String topNStr) {
+        int topN;
+        try {
+            topN = Integer.parseInt(topNStr);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("topN 必须是有效的整数");
+        }
+        if (topN < 1 || topN > 100) {
+            throw new IllegalArgumentException("topN 必须在 1 到 100 之间");
+        }
+        return topN;
+    }
 }
\ No newline at end of file
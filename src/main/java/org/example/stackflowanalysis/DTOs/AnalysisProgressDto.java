@@ -0,0 +1,8 @@
+package org.example.stackflowanalysis.DTOs;
+
+// 流式分析的阶段性结果: 已处理问题数 / 问题总数, 以及截至目前的累计结果
+public record AnalysisProgressDto<T>(
+        long processedQuestions,
+        long totalQuestions,
+        T partial
+) {}
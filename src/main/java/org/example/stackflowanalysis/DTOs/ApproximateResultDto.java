@@ -0,0 +1,19 @@
+package org.example.stackflowanalysis.DTOs;
+
+// 基于草图的近似结果, error 的含义由 errorType 决定:
+// absolute: 每个计数的估计值不小于真实值, 且以 confidence 的概率至多高出 error (Count-Min)
+// relative: 去重计数的相对标准误差, 与其他分组哈希冲突时只会偏大 (HyperLogLog)
+// rank: 分位数的估计值所在排名与目标排名之差占总数的比例, 约数 (t-digest)
+// 后两种没有概率保证, confidence 为 null; items 为草图累计处理的元素数
+public record ApproximateResultDto<T>(
+        T result,
+        String sketch,
+        String errorType,
+        double error,
+        Double confidence,
+        long items
+) {
+    public <R> ApproximateResultDto<R> withResult(R newResult) {
+        return new ApproximateResultDto<>(newResult, sketch, errorType, error, confidence, items);
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.stackflowanalysis.DTOs;
+
+import java.time.Instant;
+
+public record CollectionStatusDto(
+        String jobId,
+        String state,
+        Instant startedAt,
+        Instant finishedAt,
+        long pagesFetched,
+        long newQuestions,
+        long duplicateQuestions,
+        long tasksCompleted,
+        long tasksTotal,
+        double pagesPerSecond,
+        Long etaSeconds,
+        String message
+) {}
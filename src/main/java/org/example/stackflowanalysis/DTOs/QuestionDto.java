@@ -23,4 +23,27 @@ public record QuestionDto(
     public LocalDateTime getCreationDateTime() {
         return LocalDateTime.ofInstant(Instant.ofEpochSecond(creationDate), ZoneId.of("UTC"));
     }
+    // 页中回答最早者距提问的秒数, 没有回答时为 null; 回答早于提问 (合并过来的问题) 时记为0
+    public Long getFirstAnswerSeconds() {
+        Long first = null;
+        if (answers != null) {
+            for (AnswerDto a : answers) {
+                if (a.answerId() != null && a.creationDate() != null && (first == null || a.creationDate() < first)) {
+                    first = a.creationDate();
+                }
+            }
+        }
+        return first == null ? null : Math.max(0, first - creationDate);
+    }
+    // 被采纳回答距提问的秒数, 没有被采纳的回答时为 null
+    public Long getAcceptedAnswerSeconds() {
+        if (answers != null) {
+            for (AnswerDto a : answers) {
+                if (a.answerId() != null && a.creationDate() != null && a.isAccepted()) {
+                    return Math.max(0, a.creationDate() - creationDate);
+                }
+            }
+        }
+        return null;
+    }
 }
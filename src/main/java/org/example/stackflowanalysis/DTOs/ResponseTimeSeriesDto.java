@@ -0,0 +1,17 @@
+package org.example.stackflowanalysis.DTOs;
+
+import java.util.List;
+
+// 某tag按提问月份的回答耗时 (秒) 分位数曲线: months 与各曲线的 monthly 一一对应, overall 为整个区间合并后的结果
+// firstAnswer 统计有回答的问题的最早回答耗时, acceptedAnswer 统计有被采纳回答的问题
+public record ResponseTimeSeriesDto(
+        String tag,
+        List<String> months,
+        LatencyCurve firstAnswer,
+        LatencyCurve acceptedAnswer
+) {
+    public record LatencyCurve(List<Percentiles> monthly, Percentiles overall) {}
+
+    // 没有数据时各分位数为 null
+    public record Percentiles(long count, Long p50, Long p90, Long p99) {}
+}
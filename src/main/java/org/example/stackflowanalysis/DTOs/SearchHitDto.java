@@ -0,0 +1,19 @@
+package org.example.stackflowanalysis.DTOs;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// 检索命中的一个问题; snippet 为去掉HTML标签后的正文片段, 命中词以 <mark> 标出, 其余内容保持原有的HTML转义
+// matchedInAnswer 表示最高得分来自该问题的某个回答
+public record SearchHitDto(
+        long questionId,
+        String title,
+        String snippet,
+        LocalDateTime creationDate,
+        int score,
+        int answerCount,
+        boolean answered,
+        List<String> tags,
+        double rank,
+        boolean matchedInAnswer
+) {}
@@ -0,0 +1,14 @@
+package org.example.stackflowanalysis.DTOs;
+
+import java.util.List;
+
+// total 为满足条件的问题总数, hits 为按相关度排序后 [offset, offset + limit) 的部分;
+// totalCapped 为 true 时匹配过多, 只在部分候选中排序, total 为这些候选中的问题数, 实际更多
+public record SearchResultDto(
+        String query,
+        long total,
+        boolean totalCapped,
+        int offset,
+        int limit,
+        List<SearchHitDto> hits
+) {}
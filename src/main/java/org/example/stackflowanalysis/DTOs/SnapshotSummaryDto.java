@@ -0,0 +1,11 @@
+package org.example.stackflowanalysis.DTOs;
+
+public record SnapshotSummaryDto(
+        String file,
+        long questions,
+        long answers,
+        // 导入时为新写入的问题数, 导出时为0
+        long newQuestions,
+        long bytes,
+        long elapsedMillis
+) {}
@@ -7,5 +7,6 @@ import java.util.List;
 public record StackOverflowResponse<T>(
         List<T> items,
         @JsonProperty("has_more") boolean hasMore,
-        @JsonProperty("quota_remaining") int quotaRemaining
+        @JsonProperty("quota_remaining") int quotaRemaining,
+        @JsonProperty("backoff") Integer backoff
 ) {}
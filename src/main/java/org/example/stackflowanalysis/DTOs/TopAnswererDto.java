@@ -0,0 +1,11 @@
+package org.example.stackflowanalysis.DTOs;
+
+// 某tag下的回答者: 回答数、被采纳数与回答得分之和均只统计该tag的问题, reputation 为用户当前的全站声望
+public record TopAnswererDto(
+        long userId,
+        String displayName,
+        int reputation,
+        long answers,
+        long acceptedAnswers,
+        long answerScore
+) {}
@@ -0,0 +1,11 @@
+package org.example.stackflowanalysis.DTOs;
+
+import java.util.List;
+import java.util.Map;
+
+// 多tag趋势: buckets 为按时间排序的全部时间桶标签, series 中每个tag的计数数组与 buckets 一一对应, 没有问题的桶为0
+public record TrendSeriesDto(
+        String granularity,
+        List<String> buckets,
+        Map<String, long[]> series
+) {}
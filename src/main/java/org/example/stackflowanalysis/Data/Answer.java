@@ -6,7 +6,7 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "answers")
+@Table(name = "answers", indexes = @Index(name = "idx_answers_question", columnList = "question_id"))
 public class Answer {
     @Id
     private Long id;
@@ -0,0 +1,64 @@
+package org.example.stackflowanalysis.Data;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// 抓取计划中一个(时间片, 排序策略)的进度: 下一页页码, 与该页数据在同一事务中推进
+// 同时是多实例共享的工作项: leaseOwner 在 leaseExpiresAt 之前独占抓取, attempts 为被认领的次数
+@Entity
+@Table(name = "crawl_checkpoints",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"run_id", "chunk_start", "strategy"}))
+public class CrawlCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+    @Column(name = "chunk_start", nullable = false)
+    private long chunkStart;
+    @Column(nullable = false)
+    private long chunkEnd;
+    @Column(nullable = false, length = 16)
+    private String strategy;
+    @Column(nullable = false)
+    private int nextPage = 1;
+    @Column(nullable = false)
+    private boolean completed;
+    private LocalDateTime updatedAt;
+    @Column(length = 64)
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
+    @Column(nullable = false)
+    private int attempts;
+
+    public CrawlCheckpoint() {}
+    public CrawlCheckpoint(Long runId, long chunkStart, long chunkEnd, String strategy) {
+        this.runId = runId;
+        this.chunkStart = chunkStart;
+        this.chunkEnd = chunkEnd;
+        this.strategy = strategy;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getRunId() { return runId; }
+    public void setRunId(Long runId) { this.runId = runId; }
+    public long getChunkStart() { return chunkStart; }
+    public void setChunkStart(long chunkStart) { this.chunkStart = chunkStart; }
+    public long getChunkEnd() { return chunkEnd; }
+    public void setChunkEnd(long chunkEnd) { this.chunkEnd = chunkEnd; }
+    public String getStrategy() { return strategy; }
+    public void setStrategy(String strategy) { this.strategy = strategy; }
+    public int getNextPage() { return nextPage; }
+    public void setNextPage(int nextPage) { this.nextPage = nextPage; }
+    public boolean isCompleted() { return completed; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public String getLeaseOwner() { return leaseOwner; }
+    public void setLeaseOwner(String leaseOwner) { this.leaseOwner = leaseOwner; }
+    public LocalDateTime getLeaseExpiresAt() { return leaseExpiresAt; }
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) { this.leaseExpiresAt = leaseExpiresAt; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+}
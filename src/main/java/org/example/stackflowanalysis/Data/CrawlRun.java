@@ -0,0 +1,45 @@
+package org.example.stackflowanalysis.Data;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// 一次抓取计划覆盖的时间窗口 [fromEpoch, toEpoch), 未完成的计划在下次收集时继续
+@Entity
+@Table(name = "crawl_runs")
+public class CrawlRun {
+    public enum State { RUNNING, COMPLETED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private long fromEpoch;
+    @Column(nullable = false)
+    private long toEpoch;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private State state = State.RUNNING;
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public CrawlRun() {}
+    public CrawlRun(long fromEpoch, long toEpoch, LocalDateTime startedAt) {
+        this.fromEpoch = fromEpoch;
+        this.toEpoch = toEpoch;
+        this.startedAt = startedAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public long getFromEpoch() { return fromEpoch; }
+    public void setFromEpoch(long fromEpoch) { this.fromEpoch = fromEpoch; }
+    public long getToEpoch() { return toEpoch; }
+    public void setToEpoch(long toEpoch) { this.toEpoch = toEpoch; }
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
@@ -26,6 +26,14 @@ public class Question {
     private int answerCount;
     @JsonSetter(nulls = Nulls.AS_EMPTY)
     private boolean isAnswered;
+    // 入库时预计算, 供分析查询直接使用
+    @Column(columnDefinition = "integer default 0 not null")
+    private int wordCount;
+    @Column(columnDefinition = "integer default 0 not null")
+    private int tagCount;
+    // 最早回答与被采纳回答距提问的秒数, 没有时为 null
+    private Long firstAnswerSeconds;
+    private Long acceptedAnswerSeconds;
     @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
             name = "question_tags",
@@ -63,6 +71,14 @@ public class Question {
     public void setAnswerCount(int answerCount) { this.answerCount = answerCount; }
     public boolean isAnswered() { return isAnswered; }
     public void setAnswered(boolean answered) { isAnswered = answered; }
+    public int getWordCount() { return wordCount; }
+    public void setWordCount(int wordCount) { this.wordCount = wordCount; }
+    public int getTagCount() { return tagCount; }
+    public void setTagCount(int tagCount) { this.tagCount = tagCount; }
+    public Long getFirstAnswerSeconds() { return firstAnswerSeconds; }
+    public void setFirstAnswerSeconds(Long firstAnswerSeconds) { this.firstAnswerSeconds = firstAnswerSeconds; }
+    public Long getAcceptedAnswerSeconds() { return acceptedAnswerSeconds; }
+    public void setAcceptedAnswerSeconds(Long acceptedAnswerSeconds) { this.acceptedAnswerSeconds = acceptedAnswerSeconds; }
     public QuestionOwner getOwner() { return owner; }
     public void setOwner(QuestionOwner owner) { this.owner = owner; }
     public Set<Tag> getTags() { return tags; }
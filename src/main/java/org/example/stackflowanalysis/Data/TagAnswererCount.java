@@ -0,0 +1,61 @@
+package org.example.stackflowanalysis.Data;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+// 按tag汇总的回答者统计 (回答数、被采纳数、回答得分之和), 入库时按回答的增量维护
+@Entity
+@Table(name = "tag_answerer_counts",
+        indexes = @Index(name = "idx_tag_answerer_counts_top", columnList = "tag_id, answer_count DESC"))
+public class TagAnswererCount {
+    @EmbeddedId
+    private Key id;
+    @Column(name = "answer_count", nullable = false)
+    private long answerCount;
+    @Column(name = "accepted_count", nullable = false)
+    private long acceptedCount;
+    @Column(name = "score_sum", nullable = false)
+    private long scoreSum;
+
+    public TagAnswererCount() {}
+
+    public Key getId() { return id; }
+    public void setId(Key id) { this.id = id; }
+    public long getAnswerCount() { return answerCount; }
+    public void setAnswerCount(long answerCount) { this.answerCount = answerCount; }
+    public long getAcceptedCount() { return acceptedCount; }
+    public void setAcceptedCount(long acceptedCount) { this.acceptedCount = acceptedCount; }
+    public long getScoreSum() { return scoreSum; }
+    public void setScoreSum(long scoreSum) { this.scoreSum = scoreSum; }
+
+    @Embeddable
+    public static class Key implements Serializable {
+        @Column(name = "tag_id", nullable = false)
+        private Long tagId;
+        @Column(name = "answerer_id", nullable = false)
+        private Long answererId;
+
+        public Key() {}
+        public Key(Long tagId, Long answererId) {
+            this.tagId = tagId;
+            this.answererId = answererId;
+        }
+
+        public Long getTagId() { return tagId; }
+        public void setTagId(Long tagId) { this.tagId = tagId; }
+        public Long getAnswererId() { return answererId; }
+        public void setAnswererId(Long answererId) { this.answererId = answererId; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(tagId, key.tagId) && Objects.equals(answererId, key.answererId);
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(tagId, answererId);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.stackflowanalysis.Data;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+// 按月汇总的tag问题数, 入库时增量维护
+@Entity
+@Table(name = "tag_month_counts",
+        indexes = @Index(name = "idx_tag_month_counts_month", columnList = "year_month, count DESC"))
+public class TagMonthCount {
+    @EmbeddedId
+    private Key id;
+    @Column(name = "count", nullable = false)
+    private long count;
+
+    public TagMonthCount() {}
+    public TagMonthCount(Long tagId, String yearMonth, long count) {
+        this.id = new Key(tagId, yearMonth);
+        this.count = count;
+    }
+
+    public Key getId() { return id; }
+    public void setId(Key id) { this.id = id; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    @Embeddable
+    public static class Key implements Serializable {
+        @Column(name = "tag_id", nullable = false)
+        private Long tagId;
+        // yyyy-MM
+        @Column(name = "year_month", length = 7, nullable = false)
+        private String yearMonth;
+
+        public Key() {}
+        public Key(Long tagId, String yearMonth) {
+            this.tagId = tagId;
+            this.yearMonth = yearMonth;
+        }
+
+        public Long getTagId() { return tagId; }
+        public void setTagId(Long tagId) { this.tagId = tagId; }
+        public String getYearMonth() { return yearMonth; }
+        public void setYearMonth(String yearMonth) { this.yearMonth = yearMonth; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(tagId, key.tagId) && Objects.equals(yearMonth, key.yearMonth);
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(tagId, yearMonth);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.stackflowanalysis.Data;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+// 按tag与提问月份汇总的回答耗时直方图 (分桶见 LatencyHistogram), 入库时按问题的增量维护
+// first_count: 最早回答耗时落在该桶的问题数; accepted_count: 被采纳回答耗时落在该桶的问题数
+@Entity
+@Table(name = "tag_response_times")
+public class TagResponseTime {
+    @EmbeddedId
+    private Key id;
+    @Column(name = "first_count", nullable = false)
+    private long firstCount;
+    @Column(name = "accepted_count", nullable = false)
+    private long acceptedCount;
+
+    public TagResponseTime() {}
+
+    public Key getId() { return id; }
+    public void setId(Key id) { this.id = id; }
+    public long getFirstCount() { return firstCount; }
+    public void setFirstCount(long firstCount) { this.firstCount = firstCount; }
+    public long getAcceptedCount() { return acceptedCount; }
+    public void setAcceptedCount(long acceptedCount) { this.acceptedCount = acceptedCount; }
+
+    @Embeddable
+    public static class Key implements Serializable {
+        @Column(name = "tag_id", nullable = false)
+        private Long tagId;
+        // yyyy-MM
+        @Column(name = "year_month", length = 7, nullable = false)
+        private String yearMonth;
+        @Column(name = "bucket", nullable = false)
+        private short bucket;
+
+        public Key() {}
+        public Key(Long tagId, String yearMonth, int bucket) {
+            this.tagId = tagId;
+            this.yearMonth = yearMonth;
+            this.bucket = (short) bucket;
+        }
+
+        public Long getTagId() { return tagId; }
+        public void setTagId(Long tagId) { this.tagId = tagId; }
+        public String getYearMonth() { return yearMonth; }
+        public void setYearMonth(String yearMonth) { this.yearMonth = yearMonth; }
+        public short getBucket() { return bucket; }
+        public void setBucket(short bucket) { this.bucket = bucket; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return bucket == key.bucket && Objects.equals(tagId, key.tagId) && Objects.equals(yearMonth, key.yearMonth);
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(tagId, yearMonth, bucket);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.stackflowanalysis.Data;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+// 每个tag下问题标题与正文的词频索引, 入库时增量维护, 供词云直接读取
+@Entity
+@Table(name = "tag_term_counts",
+        indexes = @Index(name = "idx_tag_term_counts_top", columnList = "tag_id, count DESC"))
+public class TagTermCount {
+    @EmbeddedId
+    private Key id;
+    @Column(name = "count", nullable = false)
+    private long count;
+
+    public TagTermCount() {}
+    public TagTermCount(Long tagId, String term, long count) {
+        this.id = new Key(tagId, term);
+        this.count = count;
+    }
+
+    public Key getId() { return id; }
+    public void setId(Key id) { this.id = id; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    @Embeddable
+    public static class Key implements Serializable {
+        @Column(name = "tag_id", nullable = false)
+        private Long tagId;
+        @Column(name = "term", nullable = false)
+        private String term;
+
+        public Key() {}
+        public Key(Long tagId, String term) {
+            this.tagId = tagId;
+            this.term = term;
+        }
+
+        public Long getTagId() { return tagId; }
+        public void setTagId(Long tagId) { this.tagId = tagId; }
+        public String getTerm() { return term; }
+        public void setTerm(String term) { this.term = term; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(tagId, key.tagId) && Objects.equals(term, key.term);
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(tagId, term);
+        }
+    }
+}
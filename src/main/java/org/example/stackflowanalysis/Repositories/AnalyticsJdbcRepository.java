@@ -0,0 +1,267 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 分析用的流式只读查询, 只取标量列; 需在只读事务中调用, PostgreSQL才会按fetchSize分批拉取
+// 全量扫描的查询都带问题id区间 [fromId, toId), 供 PartitionedAggregator 分片并行执行
+@Repository
+public class AnalyticsJdbcRepository {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AnalyticsJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long countQuestions() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM questions", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    // 把全部问题按id切成数量大致相等的 partitions 段, 返回递增的区间边界 (首个为最小id, 末个为最大id+1);
+    // 没有问题时返回空数组, 问题太少时段数可能少于 partitions
+    public long[] findQuestionIdBoundaries(int partitions) {
+        Double[] fractions = new Double[Math.max(partitions - 1, 0)];
+        for (int i = 0; i < fractions.length; i++) {
+            fractions[i] = (double) (i + 1) / partitions;
+        }
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(
+                    "SELECT min(id), max(id), percentile_disc(?) WITHIN GROUP (ORDER BY id) FROM questions");
+            ps.setArray(1, con.createArrayOf("float8", fractions));
+            return ps;
+        }, rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return new long[0];
+            }
+            long max = rs.getLong(2);
+            Array cutArray = rs.getArray(3);
+            Long[] cuts = cutArray == null ? new Long[0] : (Long[]) cutArray.getArray();
+            long[] bounds = new long[cuts.length + 2];
+            int n = 0;
+            bounds[n++] = min;
+            for (Long cut : cuts) {
+                // 分位点作为右侧分段的起点; id重复或问题太少时跳过空段
+                if (cut != null && cut > bounds[n - 1] && cut <= max) {
+                    bounds[n++] = cut;
+                }
+            }
+            bounds[n++] = max + 1;
+            return Arrays.copyOf(bounds, n);
+        });
+    }
+
+    public Map<Long, String> findAllTagNames() {
+        Map<Long, String> names = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM tags", rs -> { names.put(rs.getLong(1), rs.getString(2)); });
+        return names;
+    }
+
+    // 逐行回调 (tag名, 桶起始时间, 问题数): 时间区间 [start, end) 内按 date_trunc(unit) 分组精确计数
+    public void countTagsByTruncatedTime(List<String> tagNames, String unit, LocalDateTime start, LocalDateTime end,
+                                         RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT t.name, date_trunc(?, q.date_time), count(*)
+                    FROM tags t
+                    JOIN question_tags qt ON qt.tag_id = t.id
+                    JOIN questions q ON q.id = qt.question_id
+                    WHERE t.name = ANY (?) AND q.date_time >= ? AND q.date_time < ?
+                    GROUP BY 1, 2
+                    """);
+            ps.setString(1, unit);
+            ps.setArray(2, con.createArrayOf("varchar", tagNames.toArray()));
+            ps.setTimestamp(3, Timestamp.valueOf(start));
+            ps.setTimestamp(4, Timestamp.valueOf(end));
+            return ps;
+        }, handler);
+    }
+
+    // 逐行回调 (tag名, yyyy-MM, 问题数): [firstFull, lastFull] 的整月读取月度汇总表,
+    // 首尾不完整的部分 [headStart, headEnd) 与 [tailStart, tailEnd) 精确计数; 一条语句完成, 区间为空时传相等的起止
+    public void countTagsByMonth(List<String> tagNames, YearMonth firstFull, YearMonth lastFull,
+                                 LocalDateTime headStart, LocalDateTime headEnd,
+                                 LocalDateTime tailStart, LocalDateTime tailEnd, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT t.name, c.year_month, c.count
+                    FROM tags t JOIN tag_month_counts c ON c.tag_id = t.id
+                    WHERE t.name = ANY (?) AND c.year_month BETWEEN ? AND ?
+                    UNION ALL
+                    SELECT t.name, to_char(q.date_time, 'YYYY-MM'), count(*)
+                    FROM tags t
+                    JOIN question_tags qt ON qt.tag_id = t.id
+                    JOIN questions q ON q.id = qt.question_id
+                    WHERE t.name = ANY (?)
+                      AND (q.date_time >= ? AND q.date_time < ? OR q.date_time >= ? AND q.date_time < ?)
+                    GROUP BY 1, 2
+                    """);
+            Array names = con.createArrayOf("varchar", tagNames.toArray());
+            ps.setArray(1, names);
+            ps.setString(2, firstFull.toString());
+            ps.setString(3, lastFull.toString());
+            ps.setArray(4, names);
+            ps.setTimestamp(5, Timestamp.valueOf(headStart));
+            ps.setTimestamp(6, Timestamp.valueOf(headEnd));
+            ps.setTimestamp(7, Timestamp.valueOf(tailStart));
+            ps.setTimestamp(8, Timestamp.valueOf(tailEnd));
+            return ps;
+        }, handler);
+    }
+
+    // 按question_id顺序逐行回调 (question_id, tag_id)
+    public void streamQuestionTags(long fromId, long toId, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT question_id, tag_id FROM question_tags
+                    WHERE question_id >= ? AND question_id < ? ORDER BY question_id
+                    """);
+            ps.setLong(1, fromId);
+            ps.setLong(2, toId);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // 列式引擎全量加载: 逐行回调 (id, 创建时间的UTC秒数, score, view_count, tag_count, word_count, tag_id数组)
+    public void streamCorpusQuestions(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT q.id, extract(epoch FROM q.date_time)::bigint, q.score, q.view_count, q.tag_count,
+                           q.word_count, ARRAY(SELECT qt.tag_id FROM question_tags qt WHERE qt.question_id = q.id)
+                    FROM questions q
+                    """);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // 逐行回调 (id, question_id, score, is_accepted, answerer_id)
+    public void streamCorpusAnswers(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("SELECT id, question_id, score, is_accepted, answerer_id FROM answers");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // 逐行回调 (用户id, reputation)
+    public void streamOwnerReputations(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("SELECT id, reputation FROM question_owners");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // 草图全量建立: 逐行回调 (创建时间的UTC秒数, score, view_count, owner_id, title, content, tag名数组)
+    public void streamSketchQuestions(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT extract(epoch FROM q.date_time)::bigint, q.score, q.view_count, q.owner_id, q.title, q.content,
+                           ARRAY(SELECT t.name FROM question_tags qt JOIN tags t ON t.id = qt.tag_id
+                                 WHERE qt.question_id = q.id)
+                    FROM questions q
+                    """);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // 逐行回调 (回答创建时间的UTC秒数, answerer_id, 回答者reputation, 所属问题的tag名数组)
+    public void streamSketchAnswers(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT extract(epoch FROM a.date_time)::bigint, a.answerer_id, o.reputation,
+                           ARRAY(SELECT t.name FROM question_tags qt JOIN tags t ON t.id = qt.tag_id
+                                 WHERE qt.question_id = a.question_id)
+                    FROM answers a LEFT JOIN question_owners o ON o.id = a.answerer_id
+                    """);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // 逐行回调 (id, title, content, tag_id数组), 用于重建词频索引
+    public void streamQuestionTexts(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT q.id, q.title, q.content,
+                           ARRAY(SELECT qt.tag_id FROM question_tags qt WHERE qt.question_id = q.id)
+                    FROM questions q
+                    """);
+            ps.setFetchSize(FETCH_SIZE / 10);
+            return ps;
+        }, handler);
+    }
+
+    // 有回答的问题逐行回调 (提问月份 yyyy-MM, 最早回答秒数, 被采纳回答秒数, tag_id数组), 用于重建回答耗时直方图
+    public void streamQuestionResponseTimes(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT to_char(q.date_time, 'YYYY-MM'), q.first_answer_seconds, q.accepted_answer_seconds,
+                           ARRAY(SELECT qt.tag_id FROM question_tags qt WHERE qt.question_id = q.id)
+                    FROM questions q
+                    WHERE q.first_answer_seconds IS NOT NULL
+                    """);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // 每个问题一行: tag_count, word_count, 是否可解决, 回答者平均声望, 回答平均分, 是否热门(含>=2个当月top10 tag)
+    public void streamSolvabilityRows(long fromId, long toId, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    WITH month_top AS (
+                        SELECT r.tag_id, r.year_month FROM (
+                            SELECT tag_id, year_month,
+                                   row_number() OVER (PARTITION BY year_month ORDER BY count DESC, tag_id) AS rn
+                            FROM tag_month_counts
+                        ) r WHERE r.rn <= 10
+                    ), trendy AS (
+                        SELECT qt.question_id FROM question_tags qt
+                        JOIN questions q ON q.id = qt.question_id
+                        JOIN month_top m ON m.tag_id = qt.tag_id AND m.year_month = to_char(q.date_time, 'YYYY-MM')
+                        WHERE qt.question_id >= ? AND qt.question_id < ?
+                        GROUP BY qt.question_id HAVING count(*) >= 2
+                    ), answer_stats AS (
+                        SELECT a.question_id,
+                               bool_or(a.is_accepted OR a.score > 0) AS solvable,
+                               avg(o.reputation) AS avg_reputation,
+                               avg(a.score) AS avg_score
+                        FROM answers a LEFT JOIN question_owners o ON o.id = a.answerer_id
+                        WHERE a.question_id >= ? AND a.question_id < ?
+                        GROUP BY a.question_id
+                    )
+                    SELECT q.tag_count, q.word_count, coalesce(s.solvable, false),
+                           s.avg_reputation, s.avg_score, t.question_id IS NOT NULL
+                    FROM questions q
+                    LEFT JOIN answer_stats s ON s.question_id = q.id
+                    LEFT JOIN trendy t ON t.question_id = q.id
+                    WHERE q.id >= ? AND q.id < ?
+                    """);
+            for (int i = 0; i < 3; i++) {
+                ps.setLong(2 * i + 1, fromId);
+                ps.setLong(2 * i + 2, toId);
+            }
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+}
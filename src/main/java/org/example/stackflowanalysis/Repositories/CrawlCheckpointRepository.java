@@ -0,0 +1,10 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.Data.CrawlCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+// 认领、续约等工作队列操作见 CrawlQueueJdbcRepository
+@Repository
+public interface CrawlCheckpointRepository extends JpaRepository<CrawlCheckpoint, Long> {
+}
@@ -0,0 +1,94 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.Data.CrawlCheckpoint;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+// crawl_checkpoints 作为工作队列的认领、续约与释放; 租约时间均按数据库时钟计算, 不受各实例时钟偏差影响
+@Repository
+public class CrawlQueueJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CrawlQueueJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // 事务级 advisory 锁, 串行化各实例创建或接续抓取计划, 事务结束时释放
+    public void lockPlanning() {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('crawl_runs'))");
+    }
+
+    // 按计划顺序认领一个未完成、无有效租约且尝试次数未用尽的检查点; 其他实例正在认领而锁住的行直接跳过
+    public Optional<CrawlCheckpoint> claimNext(long runId, String owner, Duration lease, int maxAttempts) {
+        List<CrawlCheckpoint> claimed = jdbcTemplate.query("""
+                UPDATE crawl_checkpoints c SET lease_owner = ?,
+                    lease_expires_at = localtimestamp + make_interval(secs => ?), attempts = c.attempts + 1
+                FROM (SELECT id FROM crawl_checkpoints
+                      WHERE run_id = ? AND NOT completed AND attempts < ?
+                        AND (lease_expires_at IS NULL OR lease_expires_at < localtimestamp)
+                      ORDER BY chunk_start, strategy
+                      LIMIT 1
+                      FOR UPDATE SKIP LOCKED) next
+                WHERE c.id = next.id
+                RETURNING c.id, c.run_id, c.chunk_start, c.chunk_end, c.strategy, c.next_page, c.attempts
+                """, (rs, rowNum) -> {
+                    CrawlCheckpoint checkpoint = new CrawlCheckpoint(rs.getLong(2), rs.getLong(3), rs.getLong(4),
+                            rs.getString(5));
+                    checkpoint.setId(rs.getLong(1));
+                    checkpoint.setNextPage(rs.getInt(6));
+                    checkpoint.setAttempts(rs.getInt(7));
+                    checkpoint.setLeaseOwner(owner);
+                    return checkpoint;
+                }, owner, lease.toSeconds(), runId, maxAttempts);
+        return claimed.stream().findFirst();
+    }
+
+    // 推进进度并续约, 仅在 owner 仍持有该检查点时生效 (租约过期后被其他实例认领则不生效); 完成时结束租约
+    public boolean advance(long id, String owner, int nextPage, boolean completed, Duration lease) {
+        return jdbcTemplate.update("""
+                UPDATE crawl_checkpoints SET next_page = ?, completed = ?, updated_at = localtimestamp,
+                    lease_expires_at = CASE WHEN ? THEN NULL ELSE localtimestamp + make_interval(secs => ?) END
+                WHERE id = ? AND lease_owner = ?
+                """, nextPage, completed, completed, lease.toSeconds(), id, owner) == 1;
+    }
+
+    // 释放 owner 持有的未完成检查点, 其他实例无需等待租约过期即可接手; 主动释放不计入尝试次数
+    public int releaseAll(String owner) {
+        return jdbcTemplate.update("""
+                UPDATE crawl_checkpoints SET lease_owner = NULL, lease_expires_at = NULL,
+                    attempts = greatest(attempts - 1, 0)
+                WHERE lease_owner = ? AND NOT completed
+                """, owner);
+    }
+
+    // 释放 owner 持有的一个未完成检查点, 其他实例或本实例可立即重新认领, 从已推进到的页继续;
+    // 与 releaseAll 不同, 这次认领计入尝试次数, 反复失败的检查点在尝试次数用尽后被放弃
+    public boolean release(long id, String owner) {
+        return jdbcTemplate.update("""
+                UPDATE crawl_checkpoints SET lease_owner = NULL, lease_expires_at = NULL
+                WHERE id = ? AND lease_owner = ? AND NOT completed
+                """, id, owner) == 1;
+    }
+
+    // 仍需抓取的检查点数: 还能被认领的, 加上正被某个实例持有的
+    public long countOutstanding(long runId, int maxAttempts) {
+        return jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM crawl_checkpoints
+                WHERE run_id = ? AND NOT completed AND (attempts < ? OR lease_expires_at >= localtimestamp)
+                """, Long.class, runId, maxAttempts);
+    }
+
+    // 尝试次数用尽仍未完成、已放弃的检查点数
+    public long countAbandoned(long runId, int maxAttempts) {
+        return jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM crawl_checkpoints
+                WHERE run_id = ? AND NOT completed AND attempts >= ?
+                  AND (lease_expires_at IS NULL OR lease_expires_at < localtimestamp)
+                """, Long.class, runId, maxAttempts);
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.Data.CrawlRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CrawlRunRepository extends JpaRepository<CrawlRun, Long> {
+    Optional<CrawlRun> findFirstByStateOrderByIdDesc(CrawlRun.State state);
+}
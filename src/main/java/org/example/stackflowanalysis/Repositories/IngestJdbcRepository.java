@@ -0,0 +1,426 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Data.TagAnswererCount;
+import org.example.stackflowanalysis.Data.TagMonthCount;
+import org.example.stackflowanalysis.Data.TagResponseTime;
+import org.example.stackflowanalysis.Data.TagTermCount;
+import org.example.stackflowanalysis.Util.TextStats;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+// 批量写入路径: 按页执行集合查询和 INSERT ... ON CONFLICT 批处理, 绕开逐条的JPA往返
+@Repository
+public class IngestJdbcRepository {
+
+    // 回答当前在库中的状态, 用于计算 tag_answerer_counts 的增量
+    public record AnswerState(Long answererId, int score, boolean accepted) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IngestJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void forEachQuestionId(LongConsumer consumer) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("SELECT id FROM questions");
+            ps.setFetchSize(50_000);
+            return ps;
+        }, rs -> { consumer.accept(rs.getLong(1)); });
+    }
+
+    public Set<Long> findExistingQuestionIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        Set<Long> existing = new HashSet<>();
+        jdbcTemplate.query("SELECT id FROM questions WHERE id = ANY(?)",
+                ps -> ps.setArray(1, bigintArray(ps, ids)),
+                rs -> { existing.add(rs.getLong(1)); });
+        return existing;
+    }
+
+    // 新tag一次性插入, 再一次查询取回全部id
+    public Map<String, Long> upsertTags(Collection<String> names) {
+        Map<String, Long> ids = new HashMap<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+        jdbcTemplate.update("INSERT INTO tags (name) SELECT unnest(?) ON CONFLICT (name) DO NOTHING",
+                ps -> ps.setArray(1, varcharArray(ps, names)));
+        jdbcTemplate.query("SELECT id, name FROM tags WHERE name = ANY(?)",
+                ps -> ps.setArray(1, varcharArray(ps, names)),
+                rs -> { ids.put(rs.getString(2), rs.getLong(1)); });
+        return ids;
+    }
+
+    public void upsertOwners(Collection<OwnerDto> owners) {
+        if (owners.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(owners.size());
+        for (OwnerDto o : owners) {
+            rows.add(new Object[]{o.userId(), o.displayName(), o.reputation() == null ? 0 : o.reputation()});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO question_owners (id, username, reputation) VALUES (?, ?, ?)
+                ON CONFLICT (id) DO UPDATE SET username = EXCLUDED.username, reputation = EXCLUDED.reputation
+                """, rows);
+    }
+
+    // 一条 unnest 语句插入整页问题, 返回真正新插入的id (并发写入时已被别处插入的不计入)
+    public Set<Long> insertQuestions(List<QuestionDto> questions) {
+        Set<Long> inserted = new HashSet<>();
+        if (questions.isEmpty()) {
+            return inserted;
+        }
+        int n = questions.size();
+        Object[] ids = new Object[n], titles = new Object[n], bodies = new Object[n], dates = new Object[n],
+                scores = new Object[n], views = new Object[n], answerCounts = new Object[n],
+                answered = new Object[n], owners = new Object[n], wordCounts = new Object[n], tagCounts = new Object[n],
+                firstAnswers = new Object[n], acceptedAnswers = new Object[n];
+        for (int i = 0; i < n; i++) {
+            QuestionDto q = questions.get(i);
+            ids[i] = q.questionId();
+            titles[i] = nullToEmpty(q.title());
+            bodies[i] = nullToEmpty(q.body());
+            dates[i] = q.creationDate();
+            scores[i] = q.score();
+            views[i] = q.viewCount();
+            answerCounts[i] = q.answerCount();
+            answered[i] = q.isAnswered();
+            owners[i] = ownerId(q.owner());
+            wordCounts[i] = TextStats.countWords(q.body());
+            tagCounts[i] = q.tags() == null ? 0 : (int) q.tags().stream().map(t -> t.toLowerCase(Locale.ROOT)).distinct().count();
+            firstAnswers[i] = q.getFirstAnswerSeconds();
+            acceptedAnswers[i] = q.getAcceptedAnswerSeconds();
+        }
+        jdbcTemplate.query("""
+                INSERT INTO questions (id, title, content, date_time, score, view_count, answer_count, is_answered, owner_id,
+                                       word_count, tag_count, first_answer_seconds, accepted_answer_seconds)
+                SELECT u.id, u.title, u.content, to_timestamp(u.created) AT TIME ZONE 'UTC',
+                       u.score, u.view_count, u.answer_count, u.is_answered, u.owner_id, u.word_count, u.tag_count,
+                       u.first_answer_seconds, u.accepted_answer_seconds
+                FROM unnest(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                     AS u(id, title, content, created, score, view_count, answer_count, is_answered, owner_id,
+                          word_count, tag_count, first_answer_seconds, accepted_answer_seconds)
+                ON CONFLICT (id, date_time) DO NOTHING
+                RETURNING id
+                """,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+                    ps.setArray(2, ps.getConnection().createArrayOf("varchar", titles));
+                    ps.setArray(3, ps.getConnection().createArrayOf("text", bodies));
+                    ps.setArray(4, ps.getConnection().createArrayOf("bigint", dates));
+                    ps.setArray(5, ps.getConnection().createArrayOf("int4", scores));
+                    ps.setArray(6, ps.getConnection().createArrayOf("int4", views));
+                    ps.setArray(7, ps.getConnection().createArrayOf("int4", answerCounts));
+                    ps.setArray(8, ps.getConnection().createArrayOf("bool", answered));
+                    ps.setArray(9, ps.getConnection().createArrayOf("bigint", owners));
+                    ps.setArray(10, ps.getConnection().createArrayOf("int4", wordCounts));
+                    ps.setArray(11, ps.getConnection().createArrayOf("int4", tagCounts));
+                    ps.setArray(12, ps.getConnection().createArrayOf("bigint", firstAnswers));
+                    ps.setArray(13, ps.getConnection().createArrayOf("bigint", acceptedAnswers));
+                },
+                rs -> { inserted.add(rs.getLong(1)); });
+        return inserted;
+    }
+
+    // 月度tag计数累加, 按主键排序写入避免死锁
+    public void incrementTagMonthCounts(Map<TagMonthCount.Key, Long> increments) {
+        List<Object[]> rows = new ArrayList<>(increments.size());
+        increments.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<TagMonthCount.Key, Long> e) -> e.getKey().getTagId())
+                        .thenComparing(e -> e.getKey().getYearMonth()))
+                .forEach(e -> rows.add(new Object[]{e.getKey().getTagId(), e.getKey().getYearMonth(), e.getValue()}));
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO tag_month_counts (tag_id, year_month, count) VALUES (?, ?, ?)
+                ON CONFLICT (tag_id, year_month) DO UPDATE SET count = tag_month_counts.count + EXCLUDED.count
+                """, rows);
+    }
+
+    // 词频累加: 一页的增量可达数万行, 用一条 unnest 语句代替逐行批处理
+    public void incrementTagTermCounts(Map<TagTermCount.Key, Long> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<TagTermCount.Key, Long>> sorted = new ArrayList<>(increments.entrySet());
+        sorted.sort(Comparator.comparing((Map.Entry<TagTermCount.Key, Long> e) -> e.getKey().getTagId())
+                .thenComparing(e -> e.getKey().getTerm()));
+        int n = sorted.size();
+        Object[] tagIds = new Object[n], terms = new Object[n], counts = new Object[n];
+        for (int i = 0; i < n; i++) {
+            Map.Entry<TagTermCount.Key, Long> e = sorted.get(i);
+            tagIds[i] = e.getKey().getTagId();
+            terms[i] = e.getKey().getTerm();
+            counts[i] = e.getValue();
+        }
+        jdbcTemplate.update("""
+                INSERT INTO tag_term_counts (tag_id, term, count)
+                SELECT * FROM unnest(?, ?, ?)
+                ON CONFLICT (tag_id, term) DO UPDATE SET count = tag_term_counts.count + EXCLUDED.count
+                """,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", tagIds));
+                    ps.setArray(2, ps.getConnection().createArrayOf("varchar", terms));
+                    ps.setArray(3, ps.getConnection().createArrayOf("bigint", counts));
+                });
+    }
+
+    // 已存在的问题只刷新会变化的统计字段; 带上创建时间, 只访问问题所在的月分区
+    public void updateQuestionStats(List<QuestionDto> questions) {
+        List<Object[]> rows = new ArrayList<>(questions.size());
+        for (QuestionDto q : questions) {
+            rows.add(new Object[]{q.score(), q.viewCount(), q.answerCount(), q.isAnswered(), ownerId(q.owner()),
+                    q.getFirstAnswerSeconds(), q.getAcceptedAnswerSeconds(), q.questionId(), q.creationDate()});
+        }
+        jdbcTemplate.batchUpdate("""
+                UPDATE questions SET score = ?, view_count = ?, answer_count = ?, is_answered = ?, owner_id = ?,
+                    first_answer_seconds = ?::bigint, accepted_answer_seconds = ?::bigint
+                WHERE id = ? AND date_time = to_timestamp(?) AT TIME ZONE 'UTC'
+                """, rows);
+    }
+
+    // 锁定已存在的问题并取回其 {最早回答秒数, 被采纳回答秒数}, 本事务提交前其他写入者不会改动它们
+    public Map<Long, Long[]> findResponseTimesForUpdate(Collection<Long> questionIds) {
+        Map<Long, Long[]> times = new HashMap<>();
+        if (questionIds.isEmpty()) {
+            return times;
+        }
+        jdbcTemplate.query("""
+                SELECT id, first_answer_seconds, accepted_answer_seconds FROM questions
+                WHERE id = ANY(?) ORDER BY id FOR UPDATE
+                """,
+                ps -> ps.setArray(1, bigintArray(ps, questionIds)),
+                rs -> {
+                    long first = rs.getLong(2);
+                    Long firstSeconds = rs.wasNull() ? null : first;
+                    long accepted = rs.getLong(3);
+                    Long acceptedSeconds = rs.wasNull() ? null : accepted;
+                    times.put(rs.getLong(1), new Long[]{firstSeconds, acceptedSeconds});
+                });
+        return times;
+    }
+
+    // 回答耗时直方图增量 {最早回答, 被采纳回答}, 可为负; 按主键排序写入避免死锁
+    public void incrementTagResponseTimes(Map<TagResponseTime.Key, long[]> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<TagResponseTime.Key, long[]>> sorted = new ArrayList<>(increments.entrySet());
+        sorted.sort(Comparator.comparing((Map.Entry<TagResponseTime.Key, long[]> e) -> e.getKey().getTagId())
+                .thenComparing(e -> e.getKey().getYearMonth())
+                .thenComparing(e -> e.getKey().getBucket()));
+        int n = sorted.size();
+        Object[] tagIds = new Object[n], months = new Object[n], buckets = new Object[n],
+                firstCounts = new Object[n], acceptedCounts = new Object[n];
+        for (int i = 0; i < n; i++) {
+            Map.Entry<TagResponseTime.Key, long[]> e = sorted.get(i);
+            tagIds[i] = e.getKey().getTagId();
+            months[i] = e.getKey().getYearMonth();
+            buckets[i] = e.getKey().getBucket();
+            firstCounts[i] = e.getValue()[0];
+            acceptedCounts[i] = e.getValue()[1];
+        }
+        jdbcTemplate.update("""
+                INSERT INTO tag_response_times (tag_id, year_month, bucket, first_count, accepted_count)
+                SELECT * FROM unnest(?, ?, ?, ?, ?)
+                ON CONFLICT (tag_id, year_month, bucket) DO UPDATE SET
+                    first_count = tag_response_times.first_count + EXCLUDED.first_count,
+                    accepted_count = tag_response_times.accepted_count + EXCLUDED.accepted_count
+                """,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", tagIds));
+                    ps.setArray(2, ps.getConnection().createArrayOf("varchar", months));
+                    ps.setArray(3, ps.getConnection().createArrayOf("int2", buckets));
+                    ps.setArray(4, ps.getConnection().createArrayOf("bigint", firstCounts));
+                    ps.setArray(5, ps.getConnection().createArrayOf("bigint", acceptedCounts));
+                });
+    }
+
+    // 为 table (questions 或 answers) 创建各月份的分区, 已存在的跳过; months 为各月的第一天
+    public void createMonthPartitions(String table, Collection<LocalDate> months) {
+        if (months.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("SELECT create_month_partition(?, m) FROM unnest(?) AS m ORDER BY m",
+                ps -> {
+                    ps.setString(1, table);
+                    ps.setArray(2, ps.getConnection().createArrayOf("date",
+                            months.stream().map(java.sql.Date::valueOf).toArray()));
+                },
+                rs -> { });
+    }
+
+    public void insertQuestionTags(List<long[]> questionTagPairs) {
+        List<Object[]> rows = new ArrayList<>(questionTagPairs.size());
+        for (long[] pair : questionTagPairs) {
+            rows.add(new Object[]{pair[0], pair[1]});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO question_tags (question_id, tag_id) VALUES (?, ?) ON CONFLICT DO NOTHING", rows);
+    }
+
+    // 锁定已存在的回答并取回其状态, 本事务提交前其他写入者不会改动它们
+    public Map<Long, AnswerState> findAnswerStatesForUpdate(Collection<Long> answerIds) {
+        Map<Long, AnswerState> states = new HashMap<>();
+        if (answerIds.isEmpty()) {
+            return states;
+        }
+        jdbcTemplate.query("SELECT id, answerer_id, score, is_accepted FROM answers WHERE id = ANY(?) ORDER BY id FOR UPDATE",
+                ps -> ps.setArray(1, bigintArray(ps, answerIds)),
+                rs -> {
+                    long answererId = rs.getLong(2);
+                    states.put(rs.getLong(1), new AnswerState(rs.wasNull() ? null : answererId, rs.getInt(3), rs.getBoolean(4)));
+                });
+        return states;
+    }
+
+    public Map<Long, List<Long>> findQuestionTagIds(Collection<Long> questionIds) {
+        Map<Long, List<Long>> tagIds = new HashMap<>();
+        if (questionIds.isEmpty()) {
+            return tagIds;
+        }
+        jdbcTemplate.query("SELECT question_id, tag_id FROM question_tags WHERE question_id = ANY(?)",
+                ps -> ps.setArray(1, bigintArray(ps, questionIds)),
+                rs -> { tagIds.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(rs.getLong(2)); });
+        return tagIds;
+    }
+
+    // 整页回答先以一条 unnest 语句插入, 已存在的再一条语句刷新会变化的字段; 返回真正新插入的回答id
+    // (分区表上不能用 RETURNING xmax 区分插入与更新, 因此拆成两条语句)
+    public Set<Long> upsertAnswers(Map<Long, List<AnswerDto>> answersByQuestion) {
+        Set<Long> inserted = new HashSet<>();
+        // 按id排序并去重, 同一语句不能两次更新同一行
+        Map<Long, Object[]> byId = new TreeMap<>();
+        for (Map.Entry<Long, List<AnswerDto>> entry : answersByQuestion.entrySet()) {
+            for (AnswerDto a : entry.getValue()) {
+                if (a.answerId() != null) {
+                    byId.put(a.answerId(), new Object[]{
+                            a.answerId(), nullToEmpty(a.body()), a.creationDate(), a.score(), a.isAccepted(),
+                            entry.getKey(), ownerId(a.owner())
+                    });
+                }
+            }
+        }
+        if (byId.isEmpty()) {
+            return inserted;
+        }
+        Object[][] columns = columns(byId.values(), 7);
+        String[] types = {"bigint", "text", "bigint", "int4", "bool", "bigint", "bigint"};
+        jdbcTemplate.query("""
+                INSERT INTO answers (id, content, date_time, score, is_accepted, question_id, answerer_id)
+                SELECT u.id, u.content, to_timestamp(u.created) AT TIME ZONE 'UTC', u.score, u.is_accepted,
+                       u.question_id, u.answerer_id
+                FROM unnest(?, ?, ?, ?, ?, ?, ?) AS u(id, content, created, score, is_accepted, question_id, answerer_id)
+                ON CONFLICT (id, date_time) DO NOTHING
+                RETURNING id
+                """,
+                ps -> {
+                    for (int c = 0; c < types.length; c++) {
+                        ps.setArray(c + 1, ps.getConnection().createArrayOf(types[c], columns[c]));
+                    }
+                },
+                rs -> { inserted.add(rs.getLong(1)); });
+        List<Object[]> existing = new ArrayList<>();
+        for (Object[] row : byId.values()) {
+            if (!inserted.contains((Long) row[0])) {
+                existing.add(new Object[]{row[0], row[2], row[3], row[4], row[6]});
+            }
+        }
+        if (!existing.isEmpty()) {
+            Object[][] updates = columns(existing, 5);
+            String[] updateTypes = {"bigint", "bigint", "int4", "bool", "bigint"};
+            jdbcTemplate.update("""
+                    UPDATE answers a SET score = u.score, is_accepted = u.is_accepted, answerer_id = u.answerer_id
+                    FROM unnest(?, ?, ?, ?, ?) AS u(id, created, score, is_accepted, answerer_id)
+                    WHERE a.id = u.id AND a.date_time = to_timestamp(u.created) AT TIME ZONE 'UTC'
+                    """,
+                    ps -> {
+                        for (int c = 0; c < updateTypes.length; c++) {
+                            ps.setArray(c + 1, ps.getConnection().createArrayOf(updateTypes[c], updates[c]));
+                        }
+                    });
+        }
+        return inserted;
+    }
+
+    // 行转列, 供 unnest 按列传入数组
+    private static Object[][] columns(Collection<Object[]> rows, int width) {
+        Object[][] columns = new Object[width][rows.size()];
+        int i = 0;
+        for (Object[] row : rows) {
+            for (int c = 0; c < width; c++) {
+                columns[c][i] = row[c];
+            }
+            i++;
+        }
+        return columns;
+    }
+
+    // 回答者统计增量 {回答数, 采纳数, 得分}, 按主键排序写入避免死锁
+    public void incrementTagAnswererCounts(Map<TagAnswererCount.Key, long[]> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<TagAnswererCount.Key, long[]>> sorted = new ArrayList<>(increments.entrySet());
+        sorted.sort(Comparator.comparing((Map.Entry<TagAnswererCount.Key, long[]> e) -> e.getKey().getTagId())
+                .thenComparing(e -> e.getKey().getAnswererId()));
+        int n = sorted.size();
+        Object[] tagIds = new Object[n], answererIds = new Object[n], answers = new Object[n],
+                accepted = new Object[n], scores = new Object[n];
+        for (int i = 0; i < n; i++) {
+            Map.Entry<TagAnswererCount.Key, long[]> e = sorted.get(i);
+            tagIds[i] = e.getKey().getTagId();
+            answererIds[i] = e.getKey().getAnswererId();
+            answers[i] = e.getValue()[0];
+            accepted[i] = e.getValue()[1];
+            scores[i] = e.getValue()[2];
+        }
+        jdbcTemplate.update("""
+                INSERT INTO tag_answerer_counts (tag_id, answerer_id, answer_count, accepted_count, score_sum)
+                SELECT * FROM unnest(?, ?, ?, ?, ?)
+                ON CONFLICT (tag_id, answerer_id) DO UPDATE SET
+                    answer_count = tag_answerer_counts.answer_count + EXCLUDED.answer_count,
+                    accepted_count = tag_answerer_counts.accepted_count + EXCLUDED.accepted_count,
+                    score_sum = tag_answerer_counts.score_sum + EXCLUDED.score_sum
+                """,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", tagIds));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", answererIds));
+                    ps.setArray(3, ps.getConnection().createArrayOf("bigint", answers));
+                    ps.setArray(4, ps.getConnection().createArrayOf("bigint", accepted));
+                    ps.setArray(5, ps.getConnection().createArrayOf("bigint", scores));
+                });
+    }
+
+    private static Long ownerId(OwnerDto owner) {
+        return isValidOwner(owner) ? owner.userId() : null;
+    }
+
+    public static boolean isValidOwner(OwnerDto owner) {
+        return owner != null && owner.displayName() != null && owner.userId() != null;
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static Array bigintArray(PreparedStatement ps, Collection<Long> values) throws SQLException {
+        return ps.getConnection().createArrayOf("bigint", values.toArray());
+    }
+
+    private static Array varcharArray(PreparedStatement ps, Collection<String> values) throws SQLException {
+        return ps.getConnection().createArrayOf("varchar", values.toArray());
+    }
+}
@@ -2,46 +2,39 @@ package org.example.stackflowanalysis.Repositories;
 
 import org.example.stackflowanalysis.Data.Question;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
-import java.util.List;
-
 @Repository
 public interface QuestionRepository extends JpaRepository<Question, Long> {
-    @Query("SELECT DISTINCT q FROM Question q LEFT JOIN FETCH q.tags")
-    List<Question> findAllWithTags();
-
-    @Query("""
-            SELECT DISTINCT q FROM Question q JOIN q.tags t
-            WHERE t.name = :tagName AND q.dateTime BETWEEN :startDate AND :endDate
-            """)
-    List<Question> findByTagAndDateRange(
-            @Param("tagName") String tagName,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate
-    );
-
-    @Query("""
-            SELECT DISTINCT q FROM Question q LEFT JOIN FETCH q.tags
-            WHERE q.dateTime BETWEEN :startDate AND :endDate
-            """)
-    List<Question> findWithTagsByMonth(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate
-    );
-
-    @Query("SELECT DISTINCT q FROM Question q " +
-            "LEFT JOIN FETCH q.tags " +
-            "LEFT JOIN FETCH q.answers " +
-            "JOIN q.tags t " +
-            "WHERE t.name IN :tagNames")
-    List<Question> findByTagNamesWithContent(@Param("tagNames") List<String> tagNames);
-
-    @Query("SELECT DISTINCT q FROM Question q LEFT JOIN FETCH q.answers")
-    List<Question> findAllWithAnswers();
-
     boolean existsById(Long id);
+
+    // 为入库前已存在的数据回填预计算字段, 分词规则与 TextStats.countWords 一致
+    @Modifying
+    @Query(value = """
+            UPDATE questions q SET
+                tag_count = (SELECT count(*) FROM question_tags qt WHERE qt.question_id = q.id),
+                word_count = CASE WHEN q.content = '' THEN 0
+                    ELSE coalesce(array_length(regexp_split_to_array(
+                        btrim(q.content, E' \\t\\n\\r\\f\\x0B'), E'[ \\t\\n\\r\\f\\x0B]+'), 1), 0) END
+            """, nativeQuery = true)
+    int refreshPrecomputedStats();
+
+    // 由库中的回答回填最早回答与被采纳回答的秒数, 与 QuestionDto.getFirstAnswerSeconds 等的规则一致;
+    // greatest 会忽略 NULL, 没有对应回答时须显式保留 NULL
+    @Modifying
+    @Query(value = """
+            UPDATE questions q SET
+                first_answer_seconds = CASE WHEN s.first_at IS NOT NULL
+                    THEN greatest(0, extract(epoch FROM s.first_at - q.date_time))::bigint END,
+                accepted_answer_seconds = CASE WHEN s.accepted_at IS NOT NULL
+                    THEN greatest(0, extract(epoch FROM s.accepted_at - q.date_time))::bigint END
+            FROM (SELECT q2.id, q2.date_time, min(a.date_time) AS first_at,
+                         min(a.date_time) FILTER (WHERE a.is_accepted) AS accepted_at
+                  FROM questions q2 LEFT JOIN answers a ON a.question_id = q2.id
+                  GROUP BY q2.id, q2.date_time) s
+            WHERE q.id = s.id AND q.date_time = s.date_time
+            """, nativeQuery = true)
+    int refreshResponseTimes();
 }
@@ -0,0 +1,123 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.DTOs.SearchHitDto;
+import org.example.stackflowanalysis.DTOs.SearchResultDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 基于 search_vector 列与 GIN 索引的全文检索 (列与索引见 db/migration/V2__full_text_search.sql)
+// 问题本身与其各个回答分别打分, 问题取其中的最高分; 只有最终返回的一页才计算摘要
+// 常见词可能命中大部分语料, 问题与回答各自最多取 MAX_CANDIDATES 个满足过滤条件的匹配再打分排序,
+// 超出时只在这些候选中排序, total 为候选中的问题数并标记为截断
+@Repository
+public class SearchJdbcRepository {
+
+    private static final String HEADLINE_OPTIONS = "StartSel=<mark>, StopSel=</mark>, MinWords=15, MaxWords=35, MaxFragments=2";
+    // 不小于接口允许的最大 offset + limit, 候选未截断时可翻到最后一页
+    private static final int MAX_CANDIDATES = 20_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SearchJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // query 按 websearch_to_tsquery 语法解析 (支持 "短语"、or、-排除); tags 非空时要求问题带有全部这些tag;
+    // from/to 为创建时间的 [from, to) 区间, 可为 null. total 随结果返回, offset 超出总数时为 0
+    public SearchResultDto search(String query, List<String> tags, LocalDateTime from, LocalDateTime to,
+                                  int limit, int offset) {
+        List<Object> filterArgs = new ArrayList<>();
+        StringBuilder filters = new StringBuilder();
+        if (!tags.isEmpty()) {
+            filters.append(" AND q.id IN (SELECT qt.question_id FROM question_tags qt JOIN tags t ON t.id = qt.tag_id"
+                    + " WHERE t.name = ANY (?) GROUP BY qt.question_id HAVING count(*) = ?)");
+            filterArgs.add(tags.toArray(String[]::new));
+            filterArgs.add(tags.size());
+        }
+        if (from != null) {
+            filters.append(" AND q.date_time >= ?");
+            filterArgs.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            filters.append(" AND q.date_time < ?");
+            filterArgs.add(Timestamp.valueOf(to));
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(query);
+        args.addAll(filterArgs);
+        args.add(MAX_CANDIDATES);
+        args.addAll(filterArgs);
+        args.add(MAX_CANDIDATES);
+        args.add(limit);
+        args.add(offset);
+        args.add(MAX_CANDIDATES);
+        args.add(MAX_CANDIDATES);
+        // 过滤条件在各自分支内与 GIN 匹配一起执行, 截断发生在过滤之后; 没有过滤条件时回答分支不需要关联问题表
+        String sql = """
+                WITH query AS (SELECT websearch_to_tsquery('english', ?) AS tsq),
+                question_matches AS (
+                    SELECT q.id AS question_id, NULL::bigint AS answer_id, ts_rank(q.search_vector, query.tsq) AS rank
+                    FROM questions q, query WHERE q.search_vector @@ query.tsq%1$s
+                    LIMIT ?
+                ),
+                answer_matches AS (
+                    SELECT a.question_id, a.id AS answer_id, ts_rank(a.search_vector, query.tsq) AS rank
+                    FROM answers a%2$s, query WHERE a.search_vector @@ query.tsq%1$s
+                    LIMIT ?
+                ),
+                best AS (
+                    SELECT DISTINCT ON (question_id) question_id, answer_id, rank
+                    FROM (SELECT * FROM question_matches UNION ALL SELECT * FROM answer_matches) m
+                    ORDER BY question_id, rank DESC, answer_id NULLS FIRST
+                ),
+                page AS (
+                    SELECT b.question_id, b.answer_id, b.rank, count(*) OVER () AS total
+                    FROM best b
+                    ORDER BY b.rank DESC, b.question_id DESC
+                    LIMIT ? OFFSET ?
+                )
+                SELECT p.question_id, q.title,
+                       ts_headline('english', regexp_replace(coalesce(a.content, q.content), '<[^>]*>', ' ', 'g'),
+                                   query.tsq, '%3$s') AS snippet,
+                       q.date_time, q.score, q.answer_count, q.is_answered,
+                       ARRAY(SELECT t.name FROM question_tags qt JOIN tags t ON t.id = qt.tag_id
+                             WHERE qt.question_id = p.question_id ORDER BY t.name) AS tag_names,
+                       p.rank, p.answer_id IS NOT NULL AS in_answer, p.total,
+                       (SELECT count(*) FROM question_matches) = ? OR (SELECT count(*) FROM answer_matches) = ?
+                           AS total_capped
+                FROM page p
+                JOIN questions q ON q.id = p.question_id
+                LEFT JOIN answers a ON a.id = p.answer_id
+                CROSS JOIN query
+                ORDER BY p.rank DESC, p.question_id DESC
+                """.formatted(filters, filters.isEmpty() ? "" : " JOIN questions q ON q.id = a.question_id",
+                HEADLINE_OPTIONS);
+        long[] total = {0};
+        boolean[] totalCapped = {false};
+        List<SearchHitDto> hits = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            total[0] = rs.getLong("total");
+            totalCapped[0] = rs.getBoolean("total_capped");
+            Array tagArray = rs.getArray("tag_names");
+            List<String> tagNames = tagArray == null ? List.of() : Arrays.asList((String[]) tagArray.getArray());
+            return new SearchHitDto(
+                    rs.getLong("question_id"),
+                    rs.getString("title"),
+                    rs.getString("snippet"),
+                    rs.getTimestamp("date_time").toLocalDateTime(),
+                    rs.getInt("score"),
+                    rs.getInt("answer_count"),
+                    rs.getBoolean("is_answered"),
+                    tagNames,
+                    rs.getDouble("rank"),
+                    rs.getBoolean("in_answer"));
+        }, args.toArray());
+        return new SearchResultDto(query, total[0], totalCapped[0], offset, limit, hits);
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+// 快照导出: 按问题id键集分页读出, 还原成与接口返回一致的 QuestionDto (含用户、tag、回答)
+@Repository
+public class SnapshotJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SnapshotJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean hasQuestions() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM questions)", Boolean.class));
+    }
+
+    // id 大于 afterId 的前 limit 个问题, 按 id 升序
+    public List<QuestionDto> findQuestionsAfter(long afterId, int limit) {
+        List<QuestionDto> questions = jdbcTemplate.query("""
+                SELECT q.id, q.title, q.content, extract(epoch FROM q.date_time)::bigint,
+                       q.score, q.view_count, q.answer_count, q.is_answered,
+                       o.id, o.username, o.reputation,
+                       ARRAY(SELECT t.name FROM question_tags qt JOIN tags t ON t.id = qt.tag_id
+                             WHERE qt.question_id = q.id ORDER BY t.name)
+                FROM questions q LEFT JOIN question_owners o ON o.id = q.owner_id
+                WHERE q.id > ? ORDER BY q.id LIMIT ?
+                """, (rs, rowNum) -> new QuestionDto(
+                rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4),
+                rs.getInt(5), rs.getInt(6), rs.getInt(7), rs.getBoolean(8),
+                toStrings(rs.getArray(12)), owner(rs, 9), List.of()
+        ), afterId, limit);
+        if (questions.isEmpty()) {
+            return questions;
+        }
+        Map<Long, List<AnswerDto>> answers = findAnswers(afterId, questions.get(questions.size() - 1).questionId());
+        List<QuestionDto> result = new ArrayList<>(questions.size());
+        for (QuestionDto q : questions) {
+            result.add(new QuestionDto(q.questionId(), q.title(), q.body(), q.creationDate(), q.score(), q.viewCount(),
+                    q.answerCount(), q.isAnswered(), q.tags(), q.owner(),
+                    answers.getOrDefault(q.questionId(), List.of())));
+        }
+        return result;
+    }
+
+    private Map<Long, List<AnswerDto>> findAnswers(long afterQuestionId, long lastQuestionId) {
+        Map<Long, List<AnswerDto>> answers = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT a.question_id, a.id, a.content, extract(epoch FROM a.date_time)::bigint, a.score, a.is_accepted,
+                       o.id, o.username, o.reputation
+                FROM answers a LEFT JOIN question_owners o ON o.id = a.answerer_id
+                WHERE a.question_id > ? AND a.question_id <= ?
+                ORDER BY a.question_id, a.id
+                """, rs -> {
+            answers.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(new AnswerDto(
+                    rs.getLong(2), rs.getString(3), rs.getLong(4), rs.getInt(5), rs.getBoolean(6), owner(rs, 7)));
+        }, afterQuestionId, lastQuestionId);
+        return answers;
+    }
+
+    private static OwnerDto owner(ResultSet rs, int firstColumn) throws SQLException {
+        long id = rs.getLong(firstColumn);
+        if (rs.wasNull()) {
+            return null;
+        }
+        return new OwnerDto(id, rs.getString(firstColumn + 1), rs.getInt(firstColumn + 2));
+    }
+
+    private static List<String> toStrings(Array array) throws SQLException {
+        if (array == null) {
+            return List.of();
+        }
+        return Arrays.asList((String[]) array.getArray());
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.Data.TagAnswererCount;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TagAnswererCountRepository extends JpaRepository<TagAnswererCount, TagAnswererCount.Key> {
+
+    interface AnswererCount {
+        Long getUserId();
+        String getDisplayName();
+        int getReputation();
+        long getAnswerCount();
+        long getAcceptedCount();
+        long getScoreSum();
+    }
+
+    interface ReputationBucket {
+        // 声望的十进制位数, 声望 0 计为 1 位
+        int getDigits();
+        long getOwners();
+    }
+
+    @Query("""
+            SELECT o.id AS userId, o.username AS displayName, o.reputation AS reputation,
+                   c.answerCount AS answerCount, c.acceptedCount AS acceptedCount, c.scoreSum AS scoreSum
+            FROM TagAnswererCount c, Tag t, QuestionOwner o
+            WHERE t.id = c.id.tagId AND o.id = c.id.answererId AND t.name = :tagName AND c.answerCount > 0
+            ORDER BY c.answerCount DESC, c.acceptedCount DESC, o.id
+            """)
+    List<AnswererCount> findTopAnswerers(@Param("tagName") String tagName, Limit limit);
+
+    @Query(value = """
+            SELECT length(greatest(reputation, 1)::text) AS digits, count(*) AS owners
+            FROM question_owners GROUP BY 1 ORDER BY 1
+            """, nativeQuery = true)
+    List<ReputationBucket> countOwnersByReputationDigits();
+
+    // 只统计在该tag下回答过问题的用户
+    @Query(value = """
+            SELECT length(greatest(o.reputation, 1)::text) AS digits, count(*) AS owners
+            FROM tag_answerer_counts c
+            JOIN tags t ON t.id = c.tag_id
+            JOIN question_owners o ON o.id = c.answerer_id
+            WHERE t.name = :tagName AND c.answer_count > 0
+            GROUP BY 1 ORDER BY 1
+            """, nativeQuery = true)
+    List<ReputationBucket> countAnswerersByReputationDigits(@Param("tagName") String tagName);
+
+    @Modifying
+    @Query(value = "DELETE FROM tag_answerer_counts", nativeQuery = true)
+    void deleteAllCounts();
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO tag_answerer_counts (tag_id, answerer_id, answer_count, accepted_count, score_sum)
+            SELECT qt.tag_id, a.answerer_id, count(*), count(*) FILTER (WHERE a.is_accepted), sum(a.score)
+            FROM answers a JOIN question_tags qt ON qt.question_id = a.question_id
+            WHERE a.answerer_id IS NOT NULL
+            GROUP BY qt.tag_id, a.answerer_id
+            """, nativeQuery = true)
+    int rebuildFromAnswers();
+}
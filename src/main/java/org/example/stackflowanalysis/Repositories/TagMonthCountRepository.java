@@ -0,0 +1,40 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.Data.TagMonthCount;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TagMonthCountRepository extends JpaRepository<TagMonthCount, TagMonthCount.Key> {
+
+    interface TagCount {
+        String getTagName();
+        long getCount();
+    }
+
+    @Query("""
+            SELECT t.name AS tagName, c.count AS count FROM TagMonthCount c, Tag t
+            WHERE t.id = c.id.tagId AND c.id.yearMonth = :yearMonth
+            ORDER BY c.count DESC, t.name
+            """)
+    List<TagCount> findTopTags(@Param("yearMonth") String yearMonth, Limit limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM tag_month_counts", nativeQuery = true)
+    void deleteAllCounts();
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO tag_month_counts (tag_id, year_month, count)
+            SELECT qt.tag_id, to_char(q.date_time, 'YYYY-MM'), count(*)
+            FROM question_tags qt JOIN questions q ON q.id = qt.question_id
+            GROUP BY qt.tag_id, to_char(q.date_time, 'YYYY-MM')
+            """, nativeQuery = true)
+    int rebuildFromQuestions();
+}
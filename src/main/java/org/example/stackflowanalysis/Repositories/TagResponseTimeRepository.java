@@ -0,0 +1,35 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.Data.TagResponseTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TagResponseTimeRepository extends JpaRepository<TagResponseTime, TagResponseTime.Key> {
+
+    interface BucketCount {
+        String getYearMonth();
+        int getBucket();
+        long getFirstCount();
+        long getAcceptedCount();
+    }
+
+    // 读取的行数不超过 月数 × 桶数, 与问题和回答的总量无关
+    @Query(value = """
+            SELECT r.year_month AS yearMonth, r.bucket AS bucket,
+                   r.first_count AS firstCount, r.accepted_count AS acceptedCount
+            FROM tag_response_times r JOIN tags t ON t.id = r.tag_id
+            WHERE t.name = :tagName AND r.year_month BETWEEN :fromMonth AND :toMonth
+            """, nativeQuery = true)
+    List<BucketCount> findBuckets(@Param("tagName") String tagName, @Param("fromMonth") String fromMonth,
+                                  @Param("toMonth") String toMonth);
+
+    @Modifying
+    @Query(value = "DELETE FROM tag_response_times", nativeQuery = true)
+    void deleteAllCounts();
+}
@@ -0,0 +1,31 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.Data.TagTermCount;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TagTermCountRepository extends JpaRepository<TagTermCount, TagTermCount.Key> {
+
+    interface TermCount {
+        String getTerm();
+        long getCount();
+    }
+
+    @Query("""
+            SELECT c.id.term AS term, c.count AS count FROM TagTermCount c, Tag t
+            WHERE t.id = c.id.tagId AND t.name = :tagName
+            ORDER BY c.count DESC, c.id.term
+            """)
+    List<TermCount> findTopTerms(@Param("tagName") String tagName, Limit limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM tag_term_counts", nativeQuery = true)
+    void deleteAllCounts();
+}
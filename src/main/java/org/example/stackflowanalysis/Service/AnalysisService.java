@@ -1,321 +1,445 @@
 package org.example.stackflowanalysis.Service;
 
-import org.example.stackflowanalysis.Data.*;
-import org.example.stackflowanalysis.Repositories.QuestionRepository;
+import io.micrometer.core.annotation.Timed;
+import org.example.stackflowanalysis.Config.AnalysisCacheConfig;
+import org.example.stackflowanalysis.Config.VersionedCache;
+import org.example.stackflowanalysis.DTOs.AnalysisProgressDto;
+import org.example.stackflowanalysis.DTOs.ApproximateResultDto;
+import org.example.stackflowanalysis.DTOs.ResponseTimeSeriesDto;
+import org.example.stackflowanalysis.DTOs.TopAnswererDto;
+import org.example.stackflowanalysis.DTOs.TrendSeriesDto;
+import org.example.stackflowanalysis.Repositories.AnalyticsJdbcRepository;
+import org.example.stackflowanalysis.Repositories.TagAnswererCountRepository;
+import org.example.stackflowanalysis.Repositories.TagMonthCountRepository;
+import org.example.stackflowanalysis.Repositories.TagResponseTimeRepository;
+import org.example.stackflowanalysis.Repositories.TagTermCountRepository;
+import org.example.stackflowanalysis.Util.LatencyHistogram;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.TemporalAdjusters;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+// 各接口结果按 方法名+参数 缓存, 新数据入库后自动失效 (见 AnalysisCacheConfig)
+// 近似模式 (getApproximate* 等) 读取 SketchEngine 的草图, 不缓存
+// analysis.engine=columnar 时趋势、月度topN、tag共现与可解决性由内存列存 ColumnarCorpusEngine 计算
+// 每个公开方法的耗时记为 analysis{method=...}; 缓存命中时直接返回不计入, 命中率见 analysis.cache.requests
+// 查询库的方法各自在只读事务中执行; 分片并行的全量分析 (tag共现、可解决性) 不开启事务,
+// 以免调用线程等待各分片时一直占着一个连接 (见 PartitionedAggregator)
 @Service
-@Transactional(readOnly = true)
+@Timed(value = "analysis", histogram = true)
 public class AnalysisService {
 
-    private final QuestionRepository questionRepository;
-    private final Map<String, Set<String>> monthTopTagsCache = new ConcurrentHashMap<>();
+    private static final int WORD_CLOUD_SIZE = 50;
+    // 单次趋势查询的时间桶上限, 约为27年的逐日数据
+    static final int MAX_TREND_BUCKETS = 10_000;
 
-    public AnalysisService(QuestionRepository questionRepository) {
-        this.questionRepository = questionRepository;
+    private final TagMonthCountRepository tagMonthCountRepository;
+    private final TagCoOccurrenceEngine coOccurrenceEngine;
+    private final AnalyticsJdbcRepository analyticsRepository;
+    private final PartitionedAggregator aggregator;
+    private final TagTermCountRepository tagTermCountRepository;
+    private final TagAnswererCountRepository tagAnswererCountRepository;
+    private final TagResponseTimeRepository tagResponseTimeRepository;
+    private final VersionedCache analysisCache;
+    private final ColumnarCorpusEngine columnarEngine;
+    private final SketchEngine sketchEngine;
+
+    public AnalysisService(TagMonthCountRepository tagMonthCountRepository,
+                           TagCoOccurrenceEngine coOccurrenceEngine, AnalyticsJdbcRepository analyticsRepository,
+                           PartitionedAggregator aggregator, TagTermCountRepository tagTermCountRepository,
+                           TagAnswererCountRepository tagAnswererCountRepository,
+                           TagResponseTimeRepository tagResponseTimeRepository, VersionedCache analysisCache,
+                           ColumnarCorpusEngine columnarEngine, SketchEngine sketchEngine) {
+        this.tagMonthCountRepository = tagMonthCountRepository;
+        this.coOccurrenceEngine = coOccurrenceEngine;
+        this.analyticsRepository = analyticsRepository;
+        this.aggregator = aggregator;
+        this.tagTermCountRepository = tagTermCountRepository;
+        this.tagAnswererCountRepository = tagAnswererCountRepository;
+        this.tagResponseTimeRepository = tagResponseTimeRepository;
+        this.analysisCache = analysisCache;
+        this.columnarEngine = columnarEngine;
+        this.sketchEngine = sketchEngine;
     }
 
-    // tag逐月统计数量象征热度
+    // tag逐月统计数量象征热度: end为开区间, 返回按月份排序、没有问题的月份补0的结果
+    @Cacheable(cacheNames = AnalysisCacheConfig.ANALYSIS_CACHE, keyGenerator = "analysisKeyGenerator", sync = true)
+    @Transactional(readOnly = true)
     public Map<String, Long> getTopicTrend(String tagName, LocalDateTime start, LocalDateTime end) {
-        List<Question> questions = questionRepository.findByTagAndDateRange(tagName, start, end);
-        return questions.stream()
-                .map(q -> q.getDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM")))
-                .collect(Collectors.groupingBy(
-                        Function.identity(),
-                        Collectors.counting()
-                ));
+        TrendSeriesDto trend = computeTrends(List.of(tagName), TrendGranularity.MONTH, start, end);
+        long[] counts = trend.series().get(tagName);
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            result.put(trend.buckets().get(i), counts[i]);
+        }
+        return result;
     }
-    // topN关联tag查询
-    public List<Map.Entry<String, Integer>> getTopCoOccurringTags(int topN) {
-        List<Question> allQuestions = questionRepository.findAllWithTags();
-        Map<String, Integer> pairCounts = new HashMap<>();
-        for (Question q : allQuestions) {
-            List<String> tags = q.getTags().stream()
-                    .map(Tag::getName)
-                    // 不包含Java的Tag版本
-                    .filter(tar -> !tar.equals("java"))
-                    .sorted()
-                    .toList();
-            for (int i = 0; i < tags.size(); i++) {
-                for (int j = i + 1; j < tags.size(); j++) {
-                    String pair = tags.get(i) + " + " + tags.get(j);
-                    pairCounts.put(pair, pairCounts.getOrDefault(pair, 0) + 1);
+    // 多tag按粒度分桶的趋势: 时间区间 [start, end), 一条分组查询得到全部tag全部时间桶的计数
+    @Cacheable(cacheNames = AnalysisCacheConfig.ANALYSIS_CACHE, keyGenerator = "analysisKeyGenerator", sync = true)
+    @Transactional(readOnly = true)
+    public TrendSeriesDto getTrends(List<String> tagNames, TrendGranularity granularity,
+                                    LocalDateTime start, LocalDateTime end) {
+        return computeTrends(tagNames, granularity, start, end);
+    }
+    private TrendSeriesDto computeTrends(List<String> tagNames, TrendGranularity granularity,
+                                         LocalDateTime start, LocalDateTime end) {
+        TrendBuckets trendBuckets = trendBuckets(granularity, start, end);
+        List<String> buckets = trendBuckets.labels();
+        List<LocalDate> bucketDates = trendBuckets.starts();
+        Map<LocalDate, Integer> bucketIndex = new HashMap<>();
+        for (int i = 0; i < bucketDates.size(); i++) {
+            bucketIndex.put(bucketDates.get(i), i);
+        }
+        Map<String, long[]> series = new LinkedHashMap<>();
+        for (String tagName : tagNames) {
+            series.put(tagName, new long[buckets.size()]);
+        }
+        if (buckets.isEmpty()) {
+            return new TrendSeriesDto(granularity.name().toLowerCase(), buckets, series);
+        }
+        if (columnarEngine.enabled()) {
+            // 首桶从 start 开始计数, 其余桶从各自的起始日开始
+            long[] bucketStarts = new long[bucketDates.size()];
+            bucketStarts[0] = epochSecondCeil(start);
+            for (int i = 1; i < bucketStarts.length; i++) {
+                bucketStarts[i] = bucketDates.get(i).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            }
+            columnarEngine.countTags(series, bucketStarts, epochSecondCeil(end));
+            return new TrendSeriesDto(granularity.name().toLowerCase(), buckets, series);
+        }
+        TrendAccumulator accumulator = (tagName, date, count) -> {
+            long[] counts = series.get(tagName);
+            Integer index = bucketIndex.get(granularity.truncate(date));
+            if (counts != null && index != null) {
+                counts[index] += count;
+            }
+        };
+        if (granularity == TrendGranularity.DAY || granularity == TrendGranularity.WEEK) {
+            analyticsRepository.countTagsByTruncatedTime(tagNames, granularity.name().toLowerCase(), start, end,
+                    rs -> accumulator.add(rs.getString(1), rs.getTimestamp(2).toLocalDateTime().toLocalDate(),
+                            rs.getLong(3)));
+        } else {
+            // 整月读取月度汇总表, 首尾不完整的月份精确计数
+            MonthSplit split = monthSplit(start, end);
+            analyticsRepository.countTagsByMonth(tagNames, split.firstFull(), split.lastFull(), start, split.headEnd(),
+                    split.tailStart(), end,
+                    rs -> accumulator.add(rs.getString(1), YearMonth.parse(rs.getString(2)).atDay(1), rs.getLong(3)));
+        }
+        return new TrendSeriesDto(granularity.name().toLowerCase(), buckets, series);
+    }
+    // 区间 [start, end) 拆为整月 [firstFull, lastFull] 与首尾不完整的 [start, headEnd)、[tailStart, end);
+    // 没有整月时 firstFull 晚于 lastFull, 全部区间归入首段, 尾段为空
+    record MonthSplit(YearMonth firstFull, YearMonth lastFull, LocalDateTime headEnd, LocalDateTime tailStart) {}
+    static MonthSplit monthSplit(LocalDateTime start, LocalDateTime end) {
+        YearMonth firstFull = isMonthStart(start) ? YearMonth.from(start) : YearMonth.from(start).plusMonths(1);
+        YearMonth lastFull = YearMonth.from(end).minusMonths(1);
+        if (firstFull.isAfter(lastFull)) {
+            return new MonthSplit(firstFull, lastFull, end, end);
+        }
+        return new MonthSplit(firstFull, lastFull, firstFull.atDay(1).atStartOfDay(),
+                lastFull.plusMonths(1).atDay(1).atStartOfDay());
+    }
+    // 区间 [start, end) 覆盖的时间桶起始日与标签; 首尾时间桶可能只有一部分落在区间内
+    record TrendBuckets(List<LocalDate> starts, List<String> labels) {}
+    static TrendBuckets trendBuckets(TrendGranularity granularity, LocalDateTime start, LocalDateTime end) {
+        List<LocalDate> starts = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        if (start.isBefore(end)) {
+            LocalDate lastDay = end.minusNanos(1).toLocalDate();
+            for (LocalDate bucket = granularity.truncate(start.toLocalDate()); !bucket.isAfter(lastDay);
+                 bucket = granularity.next(bucket)) {
+                if (starts.size() == MAX_TREND_BUCKETS) {
+                    throw new IllegalArgumentException("时间桶数量超过 " + MAX_TREND_BUCKETS + "，请缩小时间范围或使用更粗的粒度");
                 }
+                starts.add(bucket);
+                labels.add(granularity.label(bucket));
             }
         }
-        return pairCounts.entrySet().stream()
-                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .limit(topN)
-                .collect(Collectors.toList());
+        return new TrendBuckets(starts, labels);
+    }
+    private interface TrendAccumulator {
+        void add(String tagName, LocalDate date, long count);
+    }
+    // 问题创建时间精确到秒, 不足一秒的部分向上取整后比较结果不变
+    private static long epochSecondCeil(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) + (time.getNano() > 0 ? 1 : 0);
+    }
+    private static boolean isMonthStart(LocalDateTime time) {
+        return time.getDayOfMonth() == 1 && time.toLocalTime().equals(LocalTime.MIDNIGHT);
+    }
+    // topN关联tag查询
+    @Cacheable(cacheNames = AnalysisCacheConfig.ANALYSIS_CACHE, keyGenerator = "analysisKeyGenerator", sync = true)
+    public List<Map.Entry<String, Integer>> getTopCoOccurringTags(int topN) {
+        if (columnarEngine.enabled()) {
+            return columnarEngine.topPairs(topN);
+        }
+        return coOccurrenceEngine.topPairs(topN);
+    }
+    // 流式版本: 引擎已有当前版本的结果时直接返回, 否则计算过程中逐批回调当前的topN; 列式引擎无中间进度
+    public List<Map.Entry<String, Integer>> getTopCoOccurringTags(
+            int topN, Consumer<AnalysisProgressDto<List<Map.Entry<String, Integer>>>> progress) {
+        if (columnarEngine.enabled()) {
+            return columnarEngine.topPairs(topN);
+        }
+        return coOccurrenceEngine.topPairs(topN, progress);
     }
     // 某月topN的tag查询
+    @Cacheable(cacheNames = AnalysisCacheConfig.ANALYSIS_CACHE, keyGenerator = "analysisKeyGenerator", sync = true)
+    @Transactional(readOnly = true)
     public List<Map.Entry<String, Integer>> getTopNTagsmonthly(LocalDateTime dateTime, int topN) {
-        LocalDateTime start = dateTime.with(TemporalAdjusters.firstDayOfMonth()).with(LocalTime.MIN);
-        LocalDateTime end = dateTime.with(TemporalAdjusters.lastDayOfMonth()).with(LocalTime.MAX);
-        List<Question> questions = questionRepository.findWithTagsByMonth(start, end);
-        Map<String, Integer> Counts = new HashMap<>();
-        for (Question q : questions) {
-            List<String> tags = q.getTags().stream()
-                    .map(Tag::getName)
-                    .sorted()
-                    .toList();
-            for (String tag : tags) {
-                Counts.put(tag, Counts.getOrDefault(tag, 0) + 1);
-            }
+        if (columnarEngine.enabled()) {
+            return columnarEngine.topTagsInMonth(YearMonth.from(dateTime), topN);
         }
-        return Counts.entrySet().stream()
-                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .limit(topN)
+        String yearMonth = YearMonth.from(dateTime).toString();
+        return tagMonthCountRepository.findTopTags(yearMonth, Limit.of(topN)).stream()
+                .map(row -> Map.entry(row.getTagName(), (int) row.getCount()))
                 .collect(Collectors.toList());
     }
     // 多线程常见问题统计
     public Map<String, Long> generateMultithreadingWordCloud() {
-        List<String> targetTags = Arrays.asList("multithreading");
-        List<Question> threads = questionRepository.findByTagNamesWithContent(targetTags);
-        Set<String> stopWords = getStopWords();
-        return threads.stream()
-                .map(q -> (q.getTitle() + " " + q.getContent()).toLowerCase())
-                .map(this::protectTechnicalPhrases)
-                .map(this::cleanText)
-                .flatMap(text -> Arrays.stream(text.split("\\s+")))
-                .filter(word -> word.length() > 2 && !stopWords.contains(word))
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
-                .entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()) // 降序
-                .limit(50)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
-    }
-    // 分析问题解决的因素
-    public Map<String, Object> compareSolvability() {
-        List<Question> all = questionRepository.findAllWithAnswers();
-        preComputeMonthTopTags(all);
-        List<Question> solvable = new ArrayList<>();
-        List<Question> hard = new ArrayList<>();
-        for (Question q : all) {
-            boolean isSolvable = false;
-            if (q.getAnswers() != null) {
-                for (Answer a : q.getAnswers()) {
-                    if (a.isAccepted() || a.getScore() > 0) {
-                        isSolvable = true;
-                        break;
-                    }
-                }
-            }
-            if (isSolvable) {
-                solvable.add(q);
+        return generateWordCloud("multithreading");
+    }
+    // 任意tag的词云, 直接读取入库时维护的词频索引
+    @Cacheable(cacheNames = AnalysisCacheConfig.ANALYSIS_CACHE, keyGenerator = "analysisKeyGenerator", sync = true)
+    @Transactional(readOnly = true)
+    public Map<String, Long> generateWordCloud(String tagName) {
+        Map<String, Long> cloud = new LinkedHashMap<>();
+        for (TagTermCountRepository.TermCount row : tagTermCountRepository.findTopTerms(tagName, Limit.of(WORD_CLOUD_SIZE))) {
+            cloud.put(row.getTerm(), row.getCount());
+        }
+        return cloud;
+    }
+    // 某tag下回答最多的用户, 读取入库时维护的 tag_answerer_counts 与用户表, 不扫描回答
+    @Cacheable(cacheNames = AnalysisCacheConfig.ANALYSIS_CACHE, keyGenerator = "analysisKeyGenerator", sync = true)
+    @Transactional(readOnly = true)
+    public List<TopAnswererDto> getTopAnswerers(String tagName, int topN) {
+        return tagAnswererCountRepository.findTopAnswerers(tagName, Limit.of(topN)).stream()
+                .map(row -> new TopAnswererDto(row.getUserId(), row.getDisplayName(), row.getReputation(),
+                        row.getAnswerCount(), row.getAcceptedCount(), row.getScoreSum()))
+                .collect(Collectors.toList());
+    }
+    // 声望按数量级分桶 (0-9, 10-99, ...) 的用户数; tagName 为 null 时统计全部用户, 否则只统计在该tag下回答过的用户
+    @Cacheable(cacheNames = AnalysisCacheConfig.ANALYSIS_CACHE, keyGenerator = "analysisKeyGenerator", sync = true)
+    @Transactional(readOnly = true)
+    public Map<String, Long> getReputationDistribution(String tagName) {
+        List<TagAnswererCountRepository.ReputationBucket> rows = tagName == null
+                ? tagAnswererCountRepository.countOwnersByReputationDigits()
+                : tagAnswererCountRepository.countAnswerersByReputationDigits(tagName);
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        int maxDigits = rows.isEmpty() ? 0 : rows.get(rows.size() - 1).getDigits();
+        long lower = 0;
+        long upper = 10;
+        for (int digits = 1; digits <= maxDigits; digits++) {
+            distribution.put(lower + "-" + (upper - 1), 0L);
+            lower = upper;
+            upper *= 10;
+        }
+        List<String> labels = new ArrayList<>(distribution.keySet());
+        for (TagAnswererCountRepository.ReputationBucket row : rows) {
+            distribution.put(labels.get(row.getDigits() - 1), row.getOwners());
+        }
+        return distribution;
+    }
+    // 某tag在 [from, to] 各提问月份的回答耗时分位数, 由入库时维护的 tag_response_times 直方图计算,
+    // 读取的行数不超过 月数 × 桶数, 与问题和回答的总量无关; 分位数的相对误差见 LatencyHistogram
+    @Cacheable(cacheNames = AnalysisCacheConfig.ANALYSIS_CACHE, keyGenerator = "analysisKeyGenerator", sync = true)
+    @Transactional(readOnly = true)
+    public ResponseTimeSeriesDto getResponseTimes(String tagName, YearMonth from, YearMonth to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("开始月份不能晚于结束月份");
+        }
+        List<String> months = new ArrayList<>();
+        Map<String, Integer> monthIndexes = new HashMap<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            if (months.size() == MAX_TREND_BUCKETS) {
+                throw new IllegalArgumentException("月份数量超过 " + MAX_TREND_BUCKETS + "，请缩小时间范围");
             }
-            else {
-                hard.add(q);
+            monthIndexes.put(month.toString(), months.size());
+            months.add(month.toString());
+        }
+        // 只为有数据的月份分配直方图
+        long[][] first = new long[months.size()][];
+        long[][] accepted = new long[months.size()][];
+        for (TagResponseTimeRepository.BucketCount row
+                : tagResponseTimeRepository.findBuckets(tagName, from.toString(), to.toString())) {
+            int i = monthIndexes.get(row.getYearMonth());
+            if (first[i] == null) {
+                first[i] = new long[LatencyHistogram.BUCKETS];
+                accepted[i] = new long[LatencyHistogram.BUCKETS];
             }
+            first[i][row.getBucket()] += row.getFirstCount();
+            accepted[i][row.getBucket()] += row.getAcceptedCount();
         }
-        // 时间检定
-        Map<String, Object> result = new HashMap<>();
-        long trendSolvable = countTagsinTimeWithCache(solvable);
-        long trendHard = countTagsinTimeWithCache(hard);
-        result.put("Trendiness", formatResult(trendSolvable, trendHard));
-        // 统计数据计算
-        double[] solvableStats = calculateAllStats(solvable);
-        double[] hardStats = calculateAllStats(hard);
-        result.put("Complexity", formatResult(solvableStats[0], hardStats[0]));
-        result.put("Detail", formatResult(solvableStats[1], hardStats[1]));
-        result.put("Reputation", formatResult(solvableStats[2], hardStats[2]));
-        result.put("Answer Score", formatResult(solvableStats[3], hardStats[3]));
-        return result;
+        return new ResponseTimeSeriesDto(tagName, months, latencyCurve(first), latencyCurve(accepted));
     }
-    // 辅助方法
-    private String protectTechnicalPhrases(String text) {
-        Map<String, String> phraseMap = new HashMap<>();
-        // 复合多单词专业名词
-        phraseMap.put("race condition", "race_condition");
-        phraseMap.put("dead lock", "dead_lock");
-        phraseMap.put("memory leak", "memory_leak");
-        phraseMap.put("thread safe", "thread_safe");
-        phraseMap.put("thread pool", "thread_pool");
-        phraseMap.put("context switch", "context_switch");
-        phraseMap.put("concurrent modification", "concurrent_modification");
-        phraseMap.put("wait notify", "wait_notify");
-        phraseMap.put("count down latch", "count_down_latch");
-        phraseMap.put("atomic integer", "atomic_integer");
-        String processed = text;
-        for (Map.Entry<String, String> entry : phraseMap.entrySet()) {
-            if (processed.contains(entry.getKey())) {
-                processed = processed.replace(entry.getKey(), entry.getValue());
+    private static ResponseTimeSeriesDto.LatencyCurve latencyCurve(long[][] monthlyCounts) {
+        long[] overall = new long[LatencyHistogram.BUCKETS];
+        long[] empty = new long[LatencyHistogram.BUCKETS];
+        List<ResponseTimeSeriesDto.Percentiles> monthly = new ArrayList<>(monthlyCounts.length);
+        for (long[] counts : monthlyCounts) {
+            if (counts != null) {
+                for (int b = 0; b < counts.length; b++) {
+                    overall[b] += counts[b];
+                }
             }
+            monthly.add(percentiles(counts == null ? empty : counts));
+        }
+        return new ResponseTimeSeriesDto.LatencyCurve(monthly, percentiles(overall));
+    }
+    private static ResponseTimeSeriesDto.Percentiles percentiles(long[] counts) {
+        return new ResponseTimeSeriesDto.Percentiles(Arrays.stream(counts).sum(),
+                LatencyHistogram.percentile(counts, 0.5), LatencyHistogram.percentile(counts, 0.9),
+                LatencyHistogram.percentile(counts, 0.99));
+    }
+    // 分析问题解决的因素: 标量投影查询按问题id分片并行扫描, 每个分片单遍累计两组问题的全部指标后合并
+    @Cacheable(cacheNames = AnalysisCacheConfig.ANALYSIS_CACHE, keyGenerator = "analysisKeyGenerator", sync = true)
+    public Map<String, Object> compareSolvability() {
+        return computeSolvability(null);
+    }
+    // 流式版本: 每合并一个分片回调一次累计结果; 最终结果与 compareSolvability 共用同一个缓存条目
+    public Map<String, Object> compareSolvability(Consumer<AnalysisProgressDto<Map<String, Object>>> progress) {
+        return analysisCache.get(AnalysisCacheConfig.analysisKey("compareSolvability"),
+                () -> computeSolvability(progress));
+    }
+    private Map<String, Object> computeSolvability(Consumer<AnalysisProgressDto<Map<String, Object>>> progress) {
+        if (columnarEngine.enabled()) {
+            SolvabilityTotals totals = new SolvabilityTotals();
+            columnarEngine.forEachSolvabilityRow((tags, words, solvable, hasReputation, reputation,
+                                                  hasScore, score, trendy) ->
+                    (solvable ? totals.solvable : totals.hard)
+                            .add(tags, words, hasReputation, reputation, hasScore, score, trendy));
+            return totals.toResult();
+        }
+        long total = progress == null ? 0 : analyticsRepository.countQuestions();
+        SolvabilityTotals totals = aggregator.aggregate(SolvabilityTotals::new,
+                (fromId, toId, partial) -> analyticsRepository.streamSolvabilityRows(fromId, toId, rs -> {
+                    SolvabilityStats target = rs.getBoolean(3) ? partial.solvable : partial.hard;
+                    double reputation = rs.getDouble(4);
+                    boolean hasReputation = !rs.wasNull();
+                    double score = rs.getDouble(5);
+                    boolean hasScore = !rs.wasNull();
+                    target.add(rs.getInt(1), rs.getInt(2), hasReputation, reputation, hasScore, score, rs.getBoolean(6));
+                }),
+                SolvabilityTotals::merge,
+                progress == null ? null : current -> progress.accept(new AnalysisProgressDto<>(
+                        current.solvable.questions + current.hard.questions, total, current.toResult())));
+        return totals.toResult();
+    }
+    // ---- 近似模式: 读取 SketchEngine 中入库时维护的草图, 耗时与数据量无关; 结果随入库即时变化, 不缓存 ----
+    // 时间区间按整天计: start 所在日到 end 之前的最后一天
+    public ApproximateResultDto<TrendSeriesDto> getApproximateTrends(List<String> tagNames, TrendGranularity granularity,
+                                                                     LocalDateTime start, LocalDateTime end) {
+        TrendBuckets buckets = trendBuckets(granularity, start, end);
+        LocalDate endDay = end.toLocalTime().equals(LocalTime.MIDNIGHT) ? end.toLocalDate() : end.toLocalDate().plusDays(1);
+        ApproximateResultDto<Map<String, long[]>> counts = sketchEngine.countTags(tagNames, granularity,
+                buckets.starts(), start.toLocalDate(), endDay);
+        return counts.withResult(new TrendSeriesDto(granularity.name().toLowerCase(), buckets.labels(), counts.result()));
+    }
+    public ApproximateResultDto<Map<String, Long>> getApproximateTopicTrend(String tagName, LocalDateTime start,
+                                                                            LocalDateTime end) {
+        ApproximateResultDto<TrendSeriesDto> trend = getApproximateTrends(List.of(tagName), TrendGranularity.MONTH, start, end);
+        long[] counts = trend.result().series().get(tagName);
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            result.put(trend.result().buckets().get(i), counts[i]);
         }
-        return processed;
-    }
-    private String cleanText(String text) {
-        String noHtml = text.replaceAll("<[^>]*>", " ");
-        return noHtml.replaceAll("[^a-z0-9_]", " ");
-    }
-    private Set<String> getStopWords() {
-        return new HashSet<>(Arrays.asList(
-                // 句子常用词
-                "the", "is", "are", "was", "were", "and", "or", "but", "if", "of", "to", "in", "on", "at",
-                "for", "with", "about", "by", "as", "it", "this", "that", "these", "those", "can", "could",
-                "would", "should", "have", "has", "had", "do", "does", "did", "not", "so", "be", "been",
-                "what", "how", "you", "all", "some", "one", "then", "which", "when", "there", "than",
-                "also", "than", "any", "them", "why", "here", "will",
-                // Java 关键字 (如果不想统计 public class 这种词)
-                "public", "private", "protected", "class", "interface", "void", "return", "static", "final",
-                "new", "import", "package", "try", "catch", "throw", "throws", "extends", "implements", "thread",
-                "threads", "false", "int", "long", "main", "string", "true", "null", "println",
-                // 上下文噪音词
-                "code", "java", "problem", "issue", "question", "want", "need", "help", "using", "example",
-                "output", "error", "exception", "run", "running", "work", "use", "used", "get", "quot", "like"
-        ));
+        return trend.withResult(result);
+    }
+    public ApproximateResultDto<List<Map.Entry<String, Integer>>> getApproximateTopCoOccurringTags(int topN) {
+        return sketchEngine.topPairs(topN);
+    }
+    public ApproximateResultDto<List<Map.Entry<String, Integer>>> getApproximateTopNTagsMonthly(LocalDateTime dateTime,
+                                                                                               int topN) {
+        return sketchEngine.topTagsInMonth(YearMonth.from(dateTime), topN);
+    }
+    public ApproximateResultDto<Map<String, Long>> generateApproximateWordCloud(String tagName) {
+        return sketchEngine.wordCloud(tagName, WORD_CLOUD_SIZE);
+    }
+    // 某tag某月的提问者与回答者去重数
+    public ApproximateResultDto<Map<String, Long>> getDistinctUsers(String tagName, YearMonth yearMonth) {
+        return sketchEngine.distinctUsers(tagName, yearMonth);
     }
+    // 问题得分、浏览数或回答者声望的分位数
+    public ApproximateResultDto<Map<String, Double>> getPercentiles(SketchEngine.Metric metric) {
+        return sketchEngine.percentiles(metric);
+    }
+    // 辅助方法
     private String formatResult(Number val1, Number val2) {
         if (val1 instanceof Double || val2 instanceof Double) {
             return String.format("%.2f_%.2f", val1.doubleValue(), val2.doubleValue());
         }
         return val1 + "_" + val2;
     }
-    private boolean inTopTags(Question question, Set<String> topTags) {
-        return question.getTags().stream()
-                .filter(t -> topTags.contains(t.getName()))
-                .count() >= 2;
-    }
-    private long countTagsinTime(List<Question> questions) {
-        long count = 0;
-        for (Question q : questions) {
-            List<Map.Entry<String, Integer>> topTagsEntries = getTopNTagsmonthly(q.getDateTime(), 10);
-            Set<String> topTagNames = topTagsEntries.stream()
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toSet());
-            if (inTopTags(q, topTagNames)) {
-                count++;
-            }
+    // 一个分片的累加器: 可解决与难解决两组问题各自的统计
+    private final class SolvabilityTotals {
+        final SolvabilityStats solvable = new SolvabilityStats();
+        final SolvabilityStats hard = new SolvabilityStats();
+
+        void merge(SolvabilityTotals other) {
+            solvable.merge(other.solvable);
+            hard.merge(other.hard);
         }
-        return count;
-    }
-    private double calculateAvgTagCount(List<Question> questions) {
-        return questions.stream()
-                .mapToInt(q -> q.getTags() == null ? 0 : q.getTags().size())
-                .average()
-                .orElse(0.0);
-    }
-    private double calculateAvgWordCount(List<Question> questions) {
-        return questions.stream()
-                .mapToInt(q -> {
-                    String content = q.getContent();
-                    if (content == null || content.isEmpty()) return 0;
-                    return content.trim().split("\\s+").length;
-                })
-                .average()
-                .orElse(0.0);
-    }
-    private double calculateAvgAnswererReputation(List<Question> questions) {
-        return questions.stream()
-                .mapToDouble(q -> {
-                    if (q.getAnswers() == null || q.getAnswers().isEmpty()) return 0.0;
-                    return q.getAnswers().stream()
-                            .mapToInt(a -> a.getAnswerer() == null ? 0 : a.getAnswerer().getReputation())
-                            .average()
-                            .orElse(0.0);
-                })
-                .filter(avg -> avg != 0)
-                .average()
-                .orElse(0.0);
-    }
-    private double calculateAvgAnswerScore(List<Question> questions) {
-        return questions.stream()
-                .mapToDouble(q -> {
-                    if (q.getAnswers() == null || q.getAnswers().isEmpty()) return 0.0;
-                    return q.getAnswers().stream()
-                            .mapToInt(Answer::getScore)
-                            .average()
-                            .orElse(0.0);
-                })
-                .filter(avg -> avg != 0)
-                .average()
-                .orElse(0.0);
-    }
-    private void preComputeMonthTopTags(List<Question> questions) {
-        monthTopTagsCache.clear();
-        Map<String, List<Question>> questionsByMonth = questions.stream()
-                .collect(Collectors.groupingBy(q ->
-                        q.getDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM"))));
-        for (Map.Entry<String, List<Question>> entry : questionsByMonth.entrySet()) {
-            String month = entry.getKey();
-            List<Question> monthQuestions = entry.getValue();
-            Map<String, Integer> tagCounts = new HashMap<>();
-            for (Question q : monthQuestions) {
-                for (Tag tag : q.getTags()) {
-                    tagCounts.put(tag.getName(), tagCounts.getOrDefault(tag.getName(), 0) + 1);
-                }
-            }
-            Set<String> topTags = tagCounts.entrySet().stream()
-                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                    .limit(10)
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toSet());
-            monthTopTagsCache.put(month, topTags);
+        Map<String, Object> toResult() {
+            Map<String, Object> result = new HashMap<>();
+            // 时间检定
+            result.put("Trendiness", formatResult(solvable.trendy, hard.trendy));
+            // 统计数据计算
+            result.put("Complexity", formatResult(solvable.avgTags(), hard.avgTags()));
+            result.put("Detail", formatResult(solvable.avgWords(), hard.avgWords()));
+            result.put("Reputation", formatResult(solvable.avgReputation(), hard.avgReputation()));
+            result.put("Answer Score", formatResult(solvable.avgScore(), hard.avgScore()));
+            return result;
         }
     }
-    private long countTagsinTimeWithCache(List<Question> questions) {
-        long count = 0;
-        for (Question q : questions) {
-            String month = q.getDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM"));
-            Set<String> topTagNames = monthTopTagsCache.get(month);
-            if (topTagNames != null && inTopTags(q, topTagNames)) {
-                count++;
+    private static final class SolvabilityStats {
+        long questions;
+        long trendy;
+        double totalTags;
+        double totalWords;
+        double totalReputation;
+        long reputationQuestions;
+        double totalScore;
+        long scoreQuestions;
+
+        void add(int tags, int words, boolean hasReputation, double reputation,
+                 boolean hasScore, double score, boolean isTrendy) {
+            questions++;
+            totalTags += tags;
+            totalWords += words;
+            if (hasReputation) {
+                totalReputation += reputation;
+                reputationQuestions++;
             }
-        }
-        return count;
-    }
-    private double[] calculateAllStats(List<Question> questions) {
-        double totalTags = 0;
-        double totalWords = 0;
-        double totalReputation = 0;
-        double totalRepQuestions = 0;
-        double totalScore = 0;
-        double totalScoreQuestions = 0;
-        for (Question q : questions) {
-            totalTags += (q.getTags() == null ? 0 : q.getTags().size());
-            String content = q.getContent();
-            if (content != null && !content.isEmpty()) {
-                totalWords += content.trim().split("\\s+").length;
+            if (hasScore) {
+                totalScore += score;
+                scoreQuestions++;
             }
-            if (q.getAnswers() != null && !q.getAnswers().isEmpty()) {
-                double questionRepSum = 0;
-                double questionScoreSum = 0;
-                int validAnswers = 0;
-                for (Answer a : q.getAnswers()) {
-                    if (a.getAnswerer() != null) {
-                        questionRepSum += a.getAnswerer().getReputation();
-                        validAnswers++;
-                    }
-                    questionScoreSum += a.getScore();
-                }
-                if (validAnswers > 0) {
-                    totalReputation += questionRepSum / validAnswers;
-                    totalRepQuestions++;
-                }
-                totalScore += questionScoreSum / q.getAnswers().size();
-                totalScoreQuestions++;
+            if (isTrendy) {
+                trendy++;
             }
         }
-        int questionCount = questions.size();
-        double avgTags = questionCount > 0 ? totalTags / questionCount : 0;
-        double avgWords = questionCount > 0 ? totalWords / questionCount : 0;
-        double avgRep = totalRepQuestions > 0 ? totalReputation / totalRepQuestions : 0;
-        double avgScore = totalScoreQuestions > 0 ? totalScore / totalScoreQuestions : 0;
-        return new double[]{avgTags, avgWords, avgRep, avgScore};
-    }
-}
\ No newline at end of file
+        void merge(SolvabilityStats other) {
+            questions += other.questions;
+            trendy += other.trendy;
+            totalTags += other.totalTags;
+            totalWords += other.totalWords;
+            totalReputation += other.totalReputation;
+            reputationQuestions += other.reputationQuestions;
+            totalScore += other.totalScore;
+            scoreQuestions += other.scoreQuestions;
+        }
+        double avgTags() { return questions > 0 ? totalTags / questions : 0; }
+        double avgWords() { return questions > 0 ? totalWords / questions : 0; }
+        double avgReputation() { return reputationQuestions > 0 ? totalReputation / reputationQuestions : 0; }
+        double avgScore() { return scoreQuestions > 0 ? totalScore / scoreQuestions : 0; }
+    }
+}
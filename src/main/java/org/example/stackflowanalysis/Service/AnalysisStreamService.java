@@ -0,0 +1,151 @@
+package org.example.stackflowanalysis.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.stackflowanalysis.DTOs.CollectionStatusDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// 长耗时接口的 SSE 版本: 计算在独立线程池中进行, 请求线程立即释放;
+// 计算过程中推送 progress 事件 (累计结果), 结束时推送 result 事件, 出错推送 error 事件
+@Service
+public class AnalysisStreamService {
+
+    private final AnalysisService analysisService;
+    private final CollectionJobService collectionJobService;
+    private final long timeoutMillis;
+    private final Duration collectionInterval;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "collection-progress");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AnalysisStreamService(AnalysisService analysisService, CollectionJobService collectionJobService,
+                                 @Value("${analysis.stream.threads:2}") int threads,
+                                 @Value("${analysis.stream.timeout:PT10M}") Duration timeout,
+                                 @Value("${collector.progress-interval:PT1S}") Duration collectionInterval) {
+        this.analysisService = analysisService;
+        this.collectionJobService = collectionJobService;
+        this.timeoutMillis = timeout.toMillis();
+        this.collectionInterval = collectionInterval;
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "analysis-stream");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public SseEmitter solvability() {
+        return stream(emitter -> analysisService.compareSolvability(progress -> emitter.send("progress", progress)));
+    }
+
+    public SseEmitter topPairs(int topN) {
+        return stream(emitter -> analysisService.getTopCoOccurringTags(topN,
+                progress -> emitter.send("progress", progress)));
+    }
+
+    // 启动 (或接入正在运行的) 采集任务, 按固定间隔推送进度, 任务结束后推送最终状态
+    public SseEmitter collection() {
+        SseEmitter sseEmitter = new SseEmitter(0L);
+        Emitter emitter = new Emitter(sseEmitter);
+        CollectionStatusDto started = collectionJobService.start();
+        emitter.send("progress", started);
+        String jobId = started.jobId();
+        ScheduledFuture<?>[] ticker = new ScheduledFuture<?>[1];
+        ticker[0] = scheduler.scheduleAtFixedRate(() -> {
+            CollectionStatusDto status = collectionJobService.status()
+                    .filter(s -> s.jobId().equals(jobId))
+                    .orElse(null);
+            if (status == null || status.finishedAt() != null) {
+                emitter.send("result", status == null ? Map.of("message", "任务已被替换") : status);
+                emitter.complete();
+                ticker[0].cancel(false);
+            } else if (!emitter.send("progress", status)) {
+                ticker[0].cancel(false);
+            }
+        }, collectionInterval.toMillis(), collectionInterval.toMillis(), TimeUnit.MILLISECONDS);
+        // 客户端断开只停止推送, 采集任务继续运行
+        sseEmitter.onCompletion(() -> ticker[0].cancel(false));
+        sseEmitter.onTimeout(() -> ticker[0].cancel(false));
+        sseEmitter.onError(e -> ticker[0].cancel(false));
+        return sseEmitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private interface Computation {
+        Object run(Emitter emitter);
+    }
+
+    private SseEmitter stream(Computation computation) {
+        SseEmitter sseEmitter = new SseEmitter(timeoutMillis);
+        Emitter emitter = new Emitter(sseEmitter);
+        try {
+            executor.execute(() -> {
+                try {
+                    // 客户端中途断开时仍把计算做完, 结果进入缓存供下次使用
+                    emitter.send("result", computation.run(emitter));
+                    emitter.complete();
+                } catch (RuntimeException e) {
+                    emitter.send("error", Map.of("message", String.valueOf(rootMessage(e))));
+                    emitter.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("服务正在关闭", e);
+        }
+        return sseEmitter;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    // 包装 SseEmitter: 客户端断开后 send 返回 false 不再抛异常, 调用方据此停止推送
+    private static final class Emitter {
+        private final SseEmitter sseEmitter;
+        private volatile boolean open = true;
+
+        Emitter(SseEmitter sseEmitter) {
+            this.sseEmitter = sseEmitter;
+            sseEmitter.onCompletion(() -> open = false);
+            sseEmitter.onTimeout(() -> open = false);
+            sseEmitter.onError(e -> open = false);
+        }
+
+        boolean send(String event, Object data) {
+            if (!open) {
+                return false;
+            }
+            try {
+                sseEmitter.send(SseEmitter.event().name(event).data(data));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                open = false;
+                return false;
+            }
+        }
+
+        void complete() {
+            if (open) {
+                sseEmitter.complete();
+            }
+        }
+    }
+}
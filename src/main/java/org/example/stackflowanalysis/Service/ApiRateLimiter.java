@@ -0,0 +1,123 @@
+package org.example.stackflowanalysis.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// 所有抓取线程共享的令牌桶, 根据API返回的quota_remaining和backoff动态调整速率
+@Component
+public class ApiRateLimiter {
+
+    private final double maxPermitsPerSecond;
+    private final double minPermitsPerSecond;
+    private final double capacity;
+    private final int lowQuotaThreshold;
+    // 令牌与暂停按单调时钟计时, 配额重置按UTC日历时间; 测试中替换为可控的时钟
+    private final LongSupplier nanoTime;
+    private final Clock clock;
+    private final Sleeper sleeper;
+
+    private double permitsPerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    @Autowired
+    public ApiRateLimiter(@Value("${collector.rate.permits-per-second:5}") double maxPermitsPerSecond,
+                          @Value("${collector.rate.burst:5}") int burst,
+                          @Value("${collector.rate.low-quota-threshold:500}") int lowQuotaThreshold) {
+        this(maxPermitsPerSecond, burst, lowQuotaThreshold, System::nanoTime, Clock.systemUTC(),
+                TimeUnit.NANOSECONDS::sleep);
+    }
+
+    ApiRateLimiter(double maxPermitsPerSecond, int burst, int lowQuotaThreshold,
+                   LongSupplier nanoTime, Clock clock, Sleeper sleeper) {
+        if (maxPermitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("速率限制参数必须为正数");
+        }
+        this.maxPermitsPerSecond = maxPermitsPerSecond;
+        this.minPermitsPerSecond = Math.min(0.2, maxPermitsPerSecond);
+        this.capacity = burst;
+        this.lowQuotaThreshold = lowQuotaThreshold;
+        this.nanoTime = nanoTime;
+        this.clock = clock;
+        this.sleeper = sleeper;
+        this.permitsPerSecond = maxPermitsPerSecond;
+        this.tokens = burst;
+        this.lastRefillNanos = nanoTime.getAsLong();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    // 阻塞直到拿到一个令牌
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = nanoTime.getAsLong();
+                refill(now);
+                if (now - pausedUntilNanos < 0) {
+                    waitNanos = pausedUntilNanos - now;
+                } else if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                } else {
+                    waitNanos = (long) ((1 - tokens) / permitsPerSecond * 1_000_000_000L);
+                }
+            }
+            sleeper.sleep(Math.max(waitNanos, 1_000_000L));
+        }
+    }
+
+    // 每次成功响应后调用: backoff要求所有线程暂停, 配额不足时按比例降速
+    public synchronized void onResponse(int quotaRemaining, Integer backoffSeconds) {
+        if (backoffSeconds != null && backoffSeconds > 0) {
+            pauseFor(TimeUnit.SECONDS.toNanos(backoffSeconds));
+        }
+        if (quotaRemaining <= 0) {
+            // 配额按UTC自然日重置
+            long secondsToReset = LocalDate.now(clock.withZone(ZoneOffset.UTC)).plusDays(1).atStartOfDay()
+                    .toEpochSecond(ZoneOffset.UTC) - clock.millis() / 1000;
+            pauseFor(TimeUnit.SECONDS.toNanos(Math.max(secondsToReset, 1)));
+        } else if (quotaRemaining < lowQuotaThreshold) {
+            permitsPerSecond = Math.max(minPermitsPerSecond,
+                    maxPermitsPerSecond * quotaRemaining / lowQuotaThreshold);
+        } else {
+            permitsPerSecond = maxPermitsPerSecond;
+        }
+    }
+
+    // 遇到429时全局暂停
+    public synchronized void onTooManyRequests(long pauseMillis) {
+        tokens = 0;
+        pauseFor(TimeUnit.MILLISECONDS.toNanos(pauseMillis));
+    }
+
+    public synchronized double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * permitsPerSecond / 1_000_000_000L);
+            lastRefillNanos = now;
+        }
+    }
+
+    private void pauseFor(long nanos) {
+        long until = nanoTime.getAsLong() + nanos;
+        if (until - pausedUntilNanos > 0) {
+            pausedUntilNanos = until;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.CollectionStatusDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+// 一次数据收集任务的状态与进度; 计数器均为LongAdder, 抓取线程无锁更新
+public class CollectionJob {
+
+    public enum State { RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Instant startedAt = Instant.now();
+    private volatile Instant finishedAt;
+    private volatile State state = State.RUNNING;
+    private volatile boolean cancelRequested;
+    private volatile boolean started;
+    private volatile String message;
+    private volatile long tasksTotal;
+
+    private final LongAdder pagesFetched = new LongAdder();
+    private final LongAdder newQuestions = new LongAdder();
+    private final LongAdder duplicateQuestions = new LongAdder();
+    private final LongAdder tasksCompleted = new LongAdder();
+
+    public String getId() { return id; }
+    public State getState() { return state; }
+    public boolean isRunning() { return state == State.RUNNING; }
+    public boolean isCancelRequested() { return cancelRequested; }
+
+    public boolean hasStarted() { return started; }
+    public void markStarted() { started = true; }
+    public void requestCancel() { cancelRequested = true; }
+    public void setTasksTotal(long tasksTotal) { this.tasksTotal = tasksTotal; }
+    public void pageFetched() { pagesFetched.increment(); }
+    public void taskCompleted() { tasksCompleted.increment(); }
+    public void questionsPersisted(int newCount, int duplicateCount) {
+        newQuestions.add(newCount);
+        duplicateQuestions.add(duplicateCount);
+    }
+
+    // 只有运行中的任务能结束, 已结束的状态不会被之后的结束覆盖; 返回是否由本次调用结束
+    public synchronized boolean finish(State finalState, String finalMessage) {
+        if (state != State.RUNNING) {
+            return false;
+        }
+        message = finalMessage;
+        finishedAt = Instant.now();
+        state = finalState;
+        return true;
+    }
+
+    public CollectionStatusDto toStatus() {
+        State currentState = state;
+        Instant finished = finishedAt;
+        Instant end = finished == null ? Instant.now() : finished;
+        double elapsedSeconds = Math.max(Duration.between(startedAt, end).toMillis() / 1000.0, 0.001);
+        long pages = pagesFetched.sum();
+        long done = tasksCompleted.sum();
+        long total = tasksTotal;
+        // 按已完成的(时间片, 排序)任务比例估算剩余时间
+        Long eta = null;
+        if (currentState == State.RUNNING && done > 0 && total > done) {
+            eta = (long) (elapsedSeconds * (total - done) / done);
+        }
+        return new CollectionStatusDto(id, currentState.name(), startedAt, finished, pages,
+                newQuestions.sum(), duplicateQuestions.sum(), done, total,
+                pages / elapsedSeconds, eta, message);
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.stackflowanalysis.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.stackflowanalysis.DTOs.CollectionStatusDto;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// 数据收集任务管理: 同一时间只允许一个任务运行, 重复触发返回正在运行的任务
+@Service
+public class CollectionJobService {
+
+    private final DataService dataService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "collection-job");
+        t.setDaemon(true);
+        return t;
+    });
+    private CollectionJob currentJob;
+    private Future<?> currentFuture;
+
+    public CollectionJobService(DataService dataService) {
+        this.dataService = dataService;
+    }
+
+    public synchronized CollectionStatusDto start() {
+        if (currentJob != null && currentJob.isRunning()) {
+            return currentJob.toStatus();
+        }
+        CollectionJob job = new CollectionJob();
+        currentJob = job;
+        currentFuture = executor.submit(() -> run(job));
+        return job.toStatus();
+    }
+
+    public synchronized Optional<CollectionStatusDto> status() {
+        return Optional.ofNullable(currentJob).map(CollectionJob::toStatus);
+    }
+
+    public synchronized Optional<CollectionStatusDto> cancel() {
+        if (currentJob == null) {
+            return Optional.empty();
+        }
+        if (currentJob.isRunning()) {
+            currentJob.requestCancel();
+            currentFuture.cancel(true);
+            // 任务还没开始执行就被取消时, run不会再被调用
+            if (!currentJob.hasStarted()) {
+                currentJob.finish(CollectionJob.State.CANCELLED, "已取消");
+            }
+        }
+        return Optional.of(currentJob.toStatus());
+    }
+
+    private void run(CollectionJob job) {
+        job.markStarted();
+        // cancel 先请求取消再检查是否已开始, 这里先标记开始再检查取消: 两者至少一方看到对方,
+        // 不会出现 cancel 已按未开始结束任务而这里仍继续收集
+        if (job.isCancelRequested()) {
+            job.finish(CollectionJob.State.CANCELLED, "已取消");
+            return;
+        }
+        try {
+            dataService.collectData(job);
+            if (job.isCancelRequested()) {
+                job.finish(CollectionJob.State.CANCELLED, "已取消");
+            } else {
+                job.finish(CollectionJob.State.COMPLETED, "数据收集完成");
+            }
+        } catch (Exception e) {
+            job.finish(CollectionJob.State.FAILED, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+}
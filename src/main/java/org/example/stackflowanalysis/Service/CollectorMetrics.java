@@ -0,0 +1,66 @@
+package org.example.stackflowanalysis.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 采集指标: 每页请求耗时 (按抓取方式与结果区分)、最近一次响应的剩余配额、新问题与重复问题数
+@Component
+public class CollectorMetrics {
+
+    public enum Outcome {
+        SUCCESS, EMPTY, TOO_MANY_REQUESTS, ERROR;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final Map<Outcome, Timer> blockingTimers = new EnumMap<>(Outcome.class);
+    private final Map<Outcome, Timer> reactiveTimers = new EnumMap<>(Outcome.class);
+    // 尚未收到响应时为 -1
+    private final AtomicInteger quotaRemaining = new AtomicInteger(-1);
+    private final Counter newQuestions;
+    private final Counter duplicateQuestions;
+
+    public CollectorMetrics(MeterRegistry registry) {
+        for (Outcome outcome : Outcome.values()) {
+            blockingTimers.put(outcome, pageTimer(registry, "blocking", outcome));
+            reactiveTimers.put(outcome, pageTimer(registry, "reactive", outcome));
+        }
+        Gauge.builder("collector.quota.remaining", quotaRemaining, AtomicInteger::get)
+                .description("最近一次API响应中的剩余配额")
+                .register(registry);
+        newQuestions = Counter.builder("collector.questions").tag("result", "new").register(registry);
+        duplicateQuestions = Counter.builder("collector.questions").tag("result", "duplicate").register(registry);
+    }
+
+    private static Timer pageTimer(MeterRegistry registry, String mode, Outcome outcome) {
+        return Timer.builder("collector.page.fetch")
+                .description("单页请求耗时, 含限速等待之后的请求与响应解析")
+                .tag("mode", mode)
+                .tag("outcome", outcome.tag())
+                .register(registry);
+    }
+
+    public void pageFetched(boolean reactive, Outcome outcome, long startNanos) {
+        (reactive ? reactiveTimers : blockingTimers).get(outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void quotaRemaining(int quota) {
+        quotaRemaining.set(quota);
+    }
+
+    public void questionsPersisted(int newItems, int duplicates) {
+        newQuestions.increment(newItems);
+        duplicateQuestions.increment(duplicates);
+    }
+}
@@ -0,0 +1,526 @@
+package org.example.stackflowanalysis.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Repositories.AnalyticsJdbcRepository;
+import org.example.stackflowanalysis.Repositories.IngestJdbcRepository;
+import org.example.stackflowanalysis.Util.AfterCommit;
+import org.example.stackflowanalysis.Util.LongHashSet;
+import org.example.stackflowanalysis.Util.LongIntHashMap;
+import org.example.stackflowanalysis.Util.TextStats;
+import org.example.stackflowanalysis.Util.TopKHeap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 列式语料引擎: 问题、回答、用户的分析用字段按列存放在基本类型数组中, 问题的tag为CSR邻接表
+// (tagRefs[tagStart[row], tagStart[row+1]) 为第row个问题的tag下标); 趋势、月度topN、tag共现与可解决性直接扫描数组,
+// 扫描过程中不为每行分配对象
+// analysis.engine=columnar 时启用: 首次查询时在一个可重复读事务中整体加载, 之后每页入库提交后增量写入
+@Component
+public class ColumnarCorpusEngine {
+
+    private static final String EXCLUDED_TAG = "java";
+    // 可解决性分析中"趋势问题"的判定: 至少两个tag位于当月数量前10
+    private static final int TRENDY_TOP_TAGS = 10;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // 可解决性分析的逐问题回调, 参数与 AnalyticsJdbcRepository.streamSolvabilityRows 的各列一致
+    public interface SolvabilityRowConsumer {
+        void accept(int tags, int words, boolean solvable, boolean hasReputation, double reputation,
+                    boolean hasScore, double score, boolean trendy);
+    }
+
+    // ranks[tag下标] 为名称的字典序排名, names[排名] 为名称
+    private record TagOrder(int[] ranks, String[] names) {}
+
+    private final AnalyticsJdbcRepository analyticsRepository;
+    private final TransactionTemplate loadTransaction;
+    private final boolean enabled;
+    // 查询持读锁, 加载与增量写入持写锁
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+    private volatile long columnBytes;
+
+    // tag: 稠密下标按出现顺序分配; 名称排序在tag增加后的下一次查询时重算
+    private final LongIntHashMap tagIndexById = new LongIntHashMap();
+    private final Map<String, Integer> tagIndexByName = new HashMap<>();
+    private long[] tagIds = new long[INITIAL_CAPACITY];
+    private String[] tagNames = new String[INITIAL_CAPACITY];
+    private int tags;
+    private volatile TagOrder tagOrder = new TagOrder(new int[0], new String[0]);
+
+    // 问题: 创建时间为UTC秒数, months 为 年*12+月-1
+    private final LongIntHashMap questionRowById = new LongIntHashMap();
+    private long[] created = new long[INITIAL_CAPACITY];
+    private int[] months = new int[INITIAL_CAPACITY];
+    private int[] tagCounts = new int[INITIAL_CAPACITY];
+    private int[] wordCounts = new int[INITIAL_CAPACITY];
+    private int[] tagStart = new int[INITIAL_CAPACITY + 1];
+    private int[] tagRefs = new int[INITIAL_CAPACITY * 4];
+    private int questions;
+
+    // 回答: 所属问题的行号, 回答者为用户行号, 匿名为 -1
+    private final LongIntHashMap answerRowById = new LongIntHashMap();
+    private int[] answerQuestions = new int[INITIAL_CAPACITY];
+    private int[] answerScores = new int[INITIAL_CAPACITY];
+    private boolean[] answerAccepted = new boolean[INITIAL_CAPACITY];
+    private int[] answerOwners = new int[INITIAL_CAPACITY];
+    private int answers;
+
+    private final LongIntHashMap ownerRowById = new LongIntHashMap();
+    private int[] ownerReputations = new int[INITIAL_CAPACITY];
+    private int owners;
+
+    public ColumnarCorpusEngine(AnalyticsJdbcRepository analyticsRepository,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                @Value("${analysis.engine:database}") String engine) {
+        if (!"database".equals(engine) && !"columnar".equals(engine)) {
+            throw new IllegalArgumentException("analysis.engine 只能为 database 或 columnar");
+        }
+        this.analyticsRepository = analyticsRepository;
+        this.enabled = "columnar".equals(engine);
+        // 几条加载查询须看到同一时刻的数据
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setReadOnly(true);
+        this.loadTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        Gauge.builder("analysis.corpus.column.bytes", this, e -> e.columnBytes)
+                .description("列式引擎各列数组占用的字节数, 不含id索引")
+                .register(meterRegistry);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    // 在入库事务中调用, 提交后把本页新插入的问题与全部回答、用户写入列存; 未加载时忽略, 加载时会从库中读到
+    // 重复写入同一页是幂等的: 已存在的问题保持不变, 回答与用户按id覆盖
+    // 已存在的问题不更新与库一致: 列存只有创建时间、tag与字数, 库中对已有问题只刷新分数、浏览量等统计
+    // (IngestJdbcRepository.updateQuestionStats), 不改tag与字数; 可解决性用到的分数来自回答列
+    public void applyAfterCommit(CommittedPage page) {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> apply(page));
+    }
+
+    private void apply(CommittedPage page) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            page.tagIds().forEach((name, id) -> addTag(id, name));
+            for (OwnerDto owner : page.owners()) {
+                putOwner(owner.userId(), owner.reputation() == null ? 0 : owner.reputation());
+            }
+            for (QuestionDto qDto : page.insertedQuestions()) {
+                long[] ids = page.questionTagIds().getOrDefault(qDto.questionId(), new long[0]);
+                addQuestion(qDto.questionId(), qDto.creationDate(), ids.length, TextStats.countWords(qDto.body()),
+                        ids, ids.length);
+            }
+            page.answers().forEach((questionId, list) -> {
+                for (AnswerDto aDto : list) {
+                    if (aDto.answerId() != null) {
+                        boolean hasOwner = IngestJdbcRepository.isValidOwner(aDto.owner());
+                        putAnswer(aDto.answerId(), questionId, aDto.score(), aDto.isAccepted(),
+                                hasOwner, hasOwner ? aDto.owner().userId() : 0);
+                    }
+                }
+            });
+            updateColumnBytes();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 在重建问题统计 (字数、tag数) 的事务中调用, 提交后丢弃列存, 下一次查询时从库中重新加载
+    public void resetAfterCommit() {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(this::reset);
+    }
+
+    private void reset() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            tagIndexById.clear();
+            tagIndexByName.clear();
+            tagIds = new long[INITIAL_CAPACITY];
+            tagNames = new String[INITIAL_CAPACITY];
+            tags = 0;
+            tagOrder = new TagOrder(new int[0], new String[0]);
+            questionRowById.clear();
+            created = new long[INITIAL_CAPACITY];
+            months = new int[INITIAL_CAPACITY];
+            tagCounts = new int[INITIAL_CAPACITY];
+            wordCounts = new int[INITIAL_CAPACITY];
+            tagStart = new int[INITIAL_CAPACITY + 1];
+            tagRefs = new int[INITIAL_CAPACITY * 4];
+            questions = 0;
+            answerRowById.clear();
+            answerQuestions = new int[INITIAL_CAPACITY];
+            answerScores = new int[INITIAL_CAPACITY];
+            answerAccepted = new boolean[INITIAL_CAPACITY];
+            answerOwners = new int[INITIAL_CAPACITY];
+            answers = 0;
+            ownerRowById.clear();
+            ownerReputations = new int[INITIAL_CAPACITY];
+            owners = 0;
+            updateColumnBytes();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                loadTransaction.executeWithoutResult(status -> load());
+                updateColumnBytes();
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        analyticsRepository.findAllTagNames().forEach(this::addTag);
+        analyticsRepository.streamOwnerReputations(rs -> putOwner(rs.getLong(1), rs.getInt(2)));
+        long[] buffer = new long[16];
+        analyticsRepository.streamCorpusQuestions(rs -> {
+            Array tagArray = rs.getArray(7);
+            Long[] ids = tagArray == null ? new Long[0] : (Long[]) tagArray.getArray();
+            long[] questionTags = ids.length <= buffer.length ? buffer : new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                questionTags[i] = ids[i];
+            }
+            addQuestion(rs.getLong(1), rs.getLong(2), rs.getInt(5), rs.getInt(6), questionTags, ids.length);
+        });
+        analyticsRepository.streamCorpusAnswers(rs -> {
+            long answererId = rs.getLong(5);
+            boolean hasOwner = !rs.wasNull();
+            putAnswer(rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getBoolean(4), hasOwner, answererId);
+        });
+    }
+
+    // ---- 查询 ----
+
+    // series 的每个tag按时间桶累加计数: 桶i覆盖 [bucketStarts[i], bucketStarts[i+1]), 末桶止于 end (UTC秒数, 开区间)
+    public void countTags(Map<String, long[]> series, long[] bucketStarts, long end) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long[][] seriesByTag = new long[tags][];
+            series.forEach((name, counts) -> {
+                Integer tag = tagIndexByName.get(name);
+                if (tag != null) {
+                    seriesByTag[tag] = counts;
+                }
+            });
+            long start = bucketStarts[0];
+            for (int row = 0; row < questions; row++) {
+                long time = created[row];
+                if (time < start || time >= end) {
+                    continue;
+                }
+                int bucket = -1;
+                for (int i = tagStart[row]; i < tagStart[row + 1]; i++) {
+                    long[] counts = seriesByTag[tagRefs[i]];
+                    if (counts != null) {
+                        if (bucket < 0) {
+                            bucket = bucketOf(bucketStarts, time);
+                        }
+                        counts[bucket]++;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 最后一个起点不大于 time 的桶
+    private static int bucketOf(long[] bucketStarts, long time) {
+        int index = Arrays.binarySearch(bucketStarts, time);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    // 某月问题数最多的topN个tag, 数量相同时按名称排序
+    public List<Map.Entry<String, Integer>> topTagsInMonth(YearMonth yearMonth, int topN) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            int month = monthIndex(yearMonth.getYear(), yearMonth.getMonthValue());
+            int[] counts = new int[tags];
+            for (int row = 0; row < questions; row++) {
+                if (months[row] == month) {
+                    for (int i = tagStart[row]; i < tagStart[row + 1]; i++) {
+                        counts[tagRefs[i]]++;
+                    }
+                }
+            }
+            TagOrder order = tagOrder();
+            TopKHeap heap = new TopKHeap(topN);
+            for (int tag = 0; tag < tags; tag++) {
+                if (counts[tag] > 0) {
+                    heap.offer(order.ranks()[tag], counts[tag]);
+                }
+            }
+            int[] topCounts = new int[heap.size()];
+            long[] keys = heap.drainKeysDescending(topCounts);
+            List<Map.Entry<String, Integer>> result = new ArrayList<>(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                result.add(Map.entry(order.names()[(int) keys[i]], topCounts[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 除 java 以外两两共同出现次数最多的topN个tag组合, 组合内与同计数的组合间均按名称排序, 与 TagCoOccurrenceEngine 一致
+    public List<Map.Entry<String, Integer>> topPairs(int topN) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            TagOrder order = tagOrder();
+            int[] ranks = order.ranks();
+            Integer excluded = tagIndexByName.get(EXCLUDED_TAG);
+            int excludedTag = excluded == null ? -1 : excluded;
+            LongIntHashMap pairCounts = new LongIntHashMap(Math.max(1024, tags * 8));
+            for (int row = 0; row < questions; row++) {
+                int from = tagStart[row];
+                int to = tagStart[row + 1];
+                for (int i = from; i < to; i++) {
+                    if (tagRefs[i] == excludedTag) {
+                        continue;
+                    }
+                    int a = ranks[tagRefs[i]];
+                    for (int j = i + 1; j < to; j++) {
+                        if (tagRefs[j] == excludedTag) {
+                            continue;
+                        }
+                        int b = ranks[tagRefs[j]];
+                        pairCounts.addTo(a < b ? ((long) a << 32) | b : ((long) b << 32) | a, 1);
+                    }
+                }
+            }
+            TopKHeap heap = new TopKHeap(topN);
+            pairCounts.forEach(heap::offer);
+            int[] counts = new int[heap.size()];
+            long[] keys = heap.drainKeysDescending(counts);
+            List<Map.Entry<String, Integer>> result = new ArrayList<>(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                String first = order.names()[(int) (keys[i] >>> 32)];
+                String second = order.names()[(int) keys[i]];
+                result.add(Map.entry(first + " + " + second, counts[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 逐问题回调可解决性分析的各项指标, 口径与 streamSolvabilityRows 相同, 但当月热门tag由列存现算而非读取月度汇总表
+    public void forEachSolvabilityRow(SolvabilityRowConsumer consumer) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            LongHashSet trendyTags = monthTopTags();
+            boolean[] solvable = new boolean[questions];
+            double[] reputationSums = new double[questions];
+            int[] reputationCounts = new int[questions];
+            long[] scoreSums = new long[questions];
+            int[] answerCounts = new int[questions];
+            for (int answer = 0; answer < answers; answer++) {
+                int row = answerQuestions[answer];
+                int score = answerScores[answer];
+                solvable[row] |= answerAccepted[answer] || score > 0;
+                scoreSums[row] += score;
+                answerCounts[row]++;
+                int owner = answerOwners[answer];
+                if (owner >= 0) {
+                    reputationSums[row] += ownerReputations[owner];
+                    reputationCounts[row]++;
+                }
+            }
+            for (int row = 0; row < questions; row++) {
+                int trendyCount = 0;
+                long month = (long) months[row] << 32;
+                for (int i = tagStart[row]; i < tagStart[row + 1]; i++) {
+                    if (trendyTags.contains(month | tagRefs[i])) {
+                        trendyCount++;
+                    }
+                }
+                consumer.accept(tagCounts[row], wordCounts[row], solvable[row],
+                        reputationCounts[row] > 0,
+                        reputationCounts[row] > 0 ? reputationSums[row] / reputationCounts[row] : 0,
+                        answerCounts[row] > 0,
+                        answerCounts[row] > 0 ? (double) scoreSums[row] / answerCounts[row] : 0,
+                        trendyCount >= 2);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 每月问题数前10的tag, 元素为 (月份<<32 | tag下标); 数量相同时tag id小者优先, 与 streamSolvabilityRows 一致
+    private LongHashSet monthTopTags() {
+        LongIntHashMap monthTagCounts = new LongIntHashMap(Math.max(1024, tags * 4));
+        for (int row = 0; row < questions; row++) {
+            long month = (long) months[row] << 32;
+            for (int i = tagStart[row]; i < tagStart[row + 1]; i++) {
+                monthTagCounts.addTo(month | tagRefs[i], 1);
+            }
+        }
+        Map<Integer, TopKHeap> heaps = new HashMap<>();
+        monthTagCounts.forEach((key, count) -> heaps
+                .computeIfAbsent((int) (key >>> 32), month -> new TopKHeap(TRENDY_TOP_TAGS))
+                .offer(tagIds[(int) key], count));
+        LongHashSet top = new LongHashSet(heaps.size() * TRENDY_TOP_TAGS);
+        heaps.forEach((month, heap) -> {
+            long[] ids = heap.drainKeysDescending(new int[heap.size()]);
+            for (long id : ids) {
+                top.add(((long) month << 32) | tagIndexById.get(id));
+            }
+        });
+        return top;
+    }
+
+    // ---- 写入, 调用方持写锁 ----
+
+    private void addTag(long id, String name) {
+        if (tagIndexById.getOrDefault(id, -1) >= 0) {
+            return;
+        }
+        if (tags == tagIds.length) {
+            tagIds = Arrays.copyOf(tagIds, tags * 2);
+            tagNames = Arrays.copyOf(tagNames, tags * 2);
+        }
+        tagIds[tags] = id;
+        tagNames[tags] = name;
+        tagIndexById.put(id, tags);
+        tagIndexByName.put(name, tags);
+        tags++;
+    }
+
+    private void putOwner(long id, int reputation) {
+        int row = ownerRowById.getOrDefault(id, -1);
+        if (row < 0) {
+            if (owners == ownerReputations.length) {
+                ownerReputations = Arrays.copyOf(ownerReputations, owners * 2);
+            }
+            row = owners++;
+            ownerRowById.put(id, row);
+        }
+        ownerReputations[row] = reputation;
+    }
+
+    private void addQuestion(long id, long createdSeconds, int tagCount, int wordCount, long[] questionTagIds, int n) {
+        if (questionRowById.getOrDefault(id, -1) >= 0) {
+            return;
+        }
+        if (questions == created.length) {
+            int capacity = questions * 2;
+            created = Arrays.copyOf(created, capacity);
+            months = Arrays.copyOf(months, capacity);
+            tagCounts = Arrays.copyOf(tagCounts, capacity);
+            wordCounts = Arrays.copyOf(wordCounts, capacity);
+            tagStart = Arrays.copyOf(tagStart, capacity + 1);
+        }
+        int refs = tagStart[questions];
+        if (refs + n > tagRefs.length) {
+            tagRefs = Arrays.copyOf(tagRefs, Math.max(tagRefs.length * 2, refs + n));
+        }
+        for (int i = 0; i < n; i++) {
+            int tag = tagIndexById.getOrDefault(questionTagIds[i], -1);
+            if (tag >= 0) {
+                tagRefs[refs++] = tag;
+            }
+        }
+        LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(createdSeconds, 86_400L));
+        created[questions] = createdSeconds;
+        months[questions] = monthIndex(day.getYear(), day.getMonthValue());
+        tagCounts[questions] = tagCount;
+        wordCounts[questions] = wordCount;
+        tagStart[questions + 1] = refs;
+        questionRowById.put(id, questions);
+        questions++;
+    }
+
+    private void putAnswer(long id, long questionId, int score, boolean accepted, boolean hasOwner, long answererId) {
+        int questionRow = questionRowById.getOrDefault(questionId, -1);
+        if (questionRow < 0) {
+            return;
+        }
+        int row = answerRowById.getOrDefault(id, -1);
+        if (row < 0) {
+            if (answers == answerQuestions.length) {
+                int capacity = answers * 2;
+                answerQuestions = Arrays.copyOf(answerQuestions, capacity);
+                answerScores = Arrays.copyOf(answerScores, capacity);
+                answerAccepted = Arrays.copyOf(answerAccepted, capacity);
+                answerOwners = Arrays.copyOf(answerOwners, capacity);
+            }
+            row = answers++;
+            answerRowById.put(id, row);
+            // 与库中一致, 回答所属的问题不随更新改变
+            answerQuestions[row] = questionRow;
+        }
+        answerScores[row] = score;
+        answerAccepted[row] = accepted;
+        answerOwners[row] = hasOwner ? ownerRowById.getOrDefault(answererId, -1) : -1;
+    }
+
+    // tag数量变化后重算; 读锁下可能有多个查询同时重算, 结果相同
+    private TagOrder tagOrder() {
+        TagOrder order = tagOrder;
+        if (order.ranks().length == tags) {
+            return order;
+        }
+        Integer[] sorted = new Integer[tags];
+        for (int i = 0; i < tags; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, Comparator.comparing(i -> tagNames[i]));
+        int[] ranks = new int[tags];
+        String[] names = new String[tags];
+        for (int rank = 0; rank < tags; rank++) {
+            ranks[sorted[rank]] = rank;
+            names[rank] = tagNames[sorted[rank]];
+        }
+        order = new TagOrder(ranks, names);
+        tagOrder = order;
+        return order;
+    }
+
+    private static int monthIndex(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    private void updateColumnBytes() {
+        columnBytes = 8L * (tagIds.length + created.length)
+                + 4L * (months.length + tagCounts.length + wordCounts.length + tagStart.length + tagRefs.length)
+                + 4L * (answerQuestions.length + answerScores.length + answerOwners.length) + answerAccepted.length
+                + 4L * ownerReputations.length;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 一页入库的结果, 提交后交给内存中的分析引擎 (ColumnarCorpusEngine、SketchEngine) 增量更新
+// questionTagIds 含本页全部问题的tag id; insertedAnswerIds 为本页中新插入的回答
+public record CommittedPage(
+        List<QuestionDto> insertedQuestions,
+        Map<Long, long[]> questionTagIds,
+        Map<String, Long> tagIds,
+        Collection<OwnerDto> owners,
+        Map<Long, List<AnswerDto>> answers,
+        Set<Long> insertedAnswerIds
+) {}
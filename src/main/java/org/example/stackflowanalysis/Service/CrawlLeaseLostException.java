@@ -0,0 +1,16 @@
+package org.example.stackflowanalysis.Service;
+
+// 检查点的租约已过期并被其他实例认领, 本实例对它的写入作废
+public class CrawlLeaseLostException extends IllegalStateException {
+
+    private final long checkpointId;
+
+    public CrawlLeaseLostException(long checkpointId) {
+        super("检查点 #" + checkpointId + " 的租约已被其他实例接手");
+        this.checkpointId = checkpointId;
+    }
+
+    public long getCheckpointId() {
+        return checkpointId;
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.Data.CrawlCheckpoint;
+import org.example.stackflowanalysis.Data.CrawlRun;
+import org.example.stackflowanalysis.Repositories.CrawlCheckpointRepository;
+import org.example.stackflowanalysis.Repositories.CrawlQueueJdbcRepository;
+import org.example.stackflowanalysis.Repositories.CrawlRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// 抓取计划: 有未完成的计划就继续, 否则从上次完成计划的结束时间抓到现在(首次抓取最近15年)
+// 多个实例可连接同一数据库共同完成一个计划: 各自认领检查点并持有租约, 见 CrawlQueueJdbcRepository
+@Service
+public class CrawlPlanService {
+
+    private static final Logger log = LoggerFactory.getLogger(CrawlPlanService.class);
+
+    public static final String[] SORT_STRATEGIES = {
+            "votes",
+            "creation",
+            "hot",
+            "week",
+            "month"
+    };
+    static final long CHUNK_SECONDS = 720L * 24 * 60 * 60;
+    private static final int HISTORY_YEARS = 15;
+
+    private final CrawlRunRepository runRepository;
+    private final CrawlCheckpointRepository checkpointRepository;
+    private final CrawlQueueJdbcRepository queueRepository;
+    private final String workerId;
+    private final Duration lease;
+    private final int maxAttempts;
+
+    public CrawlPlanService(CrawlRunRepository runRepository, CrawlCheckpointRepository checkpointRepository,
+                            CrawlQueueJdbcRepository queueRepository,
+                            @Value("${collector.worker-id:}") String workerId,
+                            @Value("${collector.lease:PT5M}") Duration lease,
+                            @Value("${collector.max-attempts:5}") int maxAttempts) {
+        if (lease.toSeconds() < 1) {
+            throw new IllegalArgumentException("collector.lease 至少为1秒");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("collector.max-attempts 必须为正数");
+        }
+        this.runRepository = runRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.queueRepository = queueRepository;
+        this.workerId = workerId.isBlank() ? defaultWorkerId() : workerId;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+    }
+
+    // 进程号@主机名, 同一主机上的多个进程也互不相同
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        String id = ProcessHandle.current().pid() + "@" + host;
+        return id.length() > 64 ? id.substring(0, 64) : id;
+    }
+
+    public String workerId() {
+        return workerId;
+    }
+
+    // 各实例同时启动时只有一个创建新计划, 其余等待后接续同一计划
+    @Transactional
+    public CrawlRun resumeOrPlan(LocalDateTime now) {
+        queueRepository.lockPlanning();
+        var unfinished = runRepository.findFirstByStateOrderByIdDesc(CrawlRun.State.RUNNING);
+        if (unfinished.isPresent()) {
+            return unfinished.get();
+        }
+        long to = now.toEpochSecond(ZoneOffset.UTC);
+        long from = runRepository.findFirstByStateOrderByIdDesc(CrawlRun.State.COMPLETED)
+                .map(CrawlRun::getToEpoch)
+                .orElse(now.minusYears(HISTORY_YEARS).toEpochSecond(ZoneOffset.UTC));
+        CrawlRun run = runRepository.save(new CrawlRun(from, to, now));
+        List<CrawlCheckpoint> checkpoints = new ArrayList<>();
+        for (long chunkStart = from; chunkStart < to; chunkStart += CHUNK_SECONDS) {
+            long chunkEnd = Math.min(chunkStart + CHUNK_SECONDS, to);
+            for (String strategy : SORT_STRATEGIES) {
+                checkpoints.add(new CrawlCheckpoint(run.getId(), chunkStart, chunkEnd, strategy));
+            }
+        }
+        checkpointRepository.saveAll(checkpoints);
+        return run;
+    }
+
+    // 计划中尚未完成的检查点数, 包括其他实例正在抓取的
+    public long outstandingCheckpoints(CrawlRun run) {
+        return queueRepository.countOutstanding(run.getId(), maxAttempts);
+    }
+
+    // 认领下一个检查点, 没有可认领的时返回空; 认领在单条语句中提交, 其他实例随即看到租约
+    public Optional<CrawlCheckpoint> claimNext(CrawlRun run) {
+        return queueRepository.claimNext(run.getId(), workerId, lease, maxAttempts);
+    }
+
+    // 在入库事务中推进本实例持有的检查点并续约; 租约已被其他实例接手时抛出 CrawlLeaseLostException 使整页回滚
+    public void advance(long checkpointId, int nextPage, boolean completed) {
+        if (!queueRepository.advance(checkpointId, workerId, nextPage, completed, lease)) {
+            throw new CrawlLeaseLostException(checkpointId);
+        }
+    }
+
+    // 某页反复请求失败时交还该检查点, 不推进进度, 稍后从失败的页重新抓取
+    public void release(long checkpointId) {
+        queueRepository.release(checkpointId, workerId);
+    }
+
+    // 收集结束或取消时交还本实例持有的检查点
+    public int releaseLeases() {
+        return queueRepository.releaseAll(workerId);
+    }
+
+    // 所有检查点都完成 (或尝试次数用尽而放弃) 时把计划标记为完成, 返回是否完成
+    @Transactional
+    public boolean completeIfDone(CrawlRun run) {
+        if (queueRepository.countOutstanding(run.getId(), maxAttempts) > 0) {
+            return false;
+        }
+        long abandoned = queueRepository.countAbandoned(run.getId(), maxAttempts);
+        if (abandoned > 0) {
+            log.warn("抓取计划 #{} 有{}个(时间片, 排序)组合认领{}次仍未完成, 已放弃",
+                    run.getId(), abandoned, maxAttempts);
+        }
+        CrawlRun managed = runRepository.findById(run.getId()).orElseThrow();
+        managed.setState(CrawlRun.State.COMPLETED);
+        managed.setFinishedAt(LocalDateTime.now());
+        return true;
+    }
+}
@@ -1,206 +1,468 @@
 package org.example.stackflowanalysis.Service;
 
 import org.example.stackflowanalysis.DTOs.*;
-import org.example.stackflowanalysis.Data.Answer;
-import org.example.stackflowanalysis.Data.Question;
-import org.example.stackflowanalysis.Data.QuestionOwner;
-import org.example.stackflowanalysis.Data.Tag;
-import org.example.stackflowanalysis.Repositories.AnswerRepository;
-import org.example.stackflowanalysis.Repositories.QuestionOwnerRepository;
-import org.example.stackflowanalysis.Repositories.QuestionRepository;
-import org.example.stackflowanalysis.Repositories.TagRepository;
+import org.example.stackflowanalysis.Data.CrawlCheckpoint;
+import org.example.stackflowanalysis.Data.CrawlRun;
+import org.example.stackflowanalysis.Repositories.IngestJdbcRepository;
+import org.example.stackflowanalysis.Util.LongHashSet;
+import org.example.stackflowanalysis.Util.StreamingPageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
 
 @Service
 public class DataService {
 
-    @Autowired private QuestionRepository questionRepository;
-    @Autowired private TagRepository tagRepository;
-    @Autowired private QuestionOwnerRepository ownerRepository;
-    @Autowired private AnswerRepository answerRepository;
+    // 收集开始、结束等里程碑为 info, 逐页进度为 debug, 速率限制与请求出错为 warn
+    private static final Logger log = LoggerFactory.getLogger(DataService.class);
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private static final String API_URL_TEMPLATE =
-            "https://api.stackexchange.com/2.3/questions?" +
-                    "page=%d" +
-                    "&pagesize=50" +
-                    "&fromdate=%d" +
-                    "&todate=%d" +
-                    "&order=desc" +
-                    "&sort=%s" +
-                    "&tagged=java" +
-                    "&site=stackoverflow" +
-                    "&filter=!aksql6NjneanAa";
+    @Autowired private IngestService ingestService;
+    @Autowired private StackExchangeClient stackExchangeClient;
+    @Autowired private ReactiveStackExchangeClient reactiveClient;
 
-    private static final String[] SORT_STRATEGIES = {
-            "votes",
-            "creation",
-            "hot",
-            "week",
-            "month"
-    };
-    private final Set<Long> collectedQuestionIds = ConcurrentHashMap.newKeySet();
+    private static final int MAX_PAGES = 25;
+
+    // 持久化队列中的一项: 某检查点一页中的若干问题; pageEnd为true时该页到齐, 连同之前暂存的问题整页入库
+    // completed为true表示该检查点已抓完. 阻塞抓取每页只发一项, 响应式抓取每个问题一项, 最后发页结束标记
+    // discarded为true表示该页请求中途出错, 丢弃已暂存的问题, 不能并入之后重试或跳到的页
+    private record FetchedPage(long checkpointId, int page, List<QuestionDto> items, boolean completed, boolean pageEnd,
+                               boolean discarded) {
+        FetchedPage(long checkpointId, int page, List<QuestionDto> items, boolean completed, boolean pageEnd) {
+            this(checkpointId, page, items, completed, pageEnd, false);
+        }
+    }
+    // 持久化队列结束标记, 按引用比较
+    private static final FetchedPage END_OF_PAGES = new FetchedPage(-1, 0, List.of(), true, true);
+    // 响应式抓取中解析线程与持久化队列之间的预取量, 超出后停止从连接读取
+    private static final int HANDOFF_PREFETCH = 16;
+
+    @Autowired private ApiRateLimiter rateLimiter;
+    @Autowired private CrawlPlanService crawlPlanService;
+    @Autowired private IngestJdbcRepository ingestRepository;
+    @Autowired private CollectorMetrics metrics;
+    @Value("${collector.fetch-mode:blocking}") private String fetchMode;
+    @Value("${collector.fetch-threads:4}") private int fetchThreads;
+    @Value("${collector.persist-queue-capacity:32}") private int persistQueueCapacity;
+    @Value("${collector.rate.too-many-requests-pause:PT60S}") private Duration tooManyRequestsPause;
+    @Value("${collector.error-retry-delay:PT5S}") private Duration errorRetryDelay;
+    @Value("${collector.page-retries:3}") private int pageRetries;
+    @Value("${collector.claim-poll-interval:PT5S}") private Duration claimPollInterval;
+
+    // 已入库问题id, 首次收集时从数据库加载; 只在持久化线程中访问
+    // 多实例抓取时其他实例写入的问题不在其中, 再次遇到时按已有问题更新, 不会重复插入
+    private LongHashSet collectedQuestionIds;
+    // 本次收集中租约被其他实例接手的检查点, 由持久化线程记录, 抓取线程见到后停止抓取该检查点
+    private final Set<Long> lostLeases = ConcurrentHashMap.newKeySet();
+    // 本次收集中入库失败的异常, 由持久化线程记录; 之后停止抓取, 不再入库, 收集以失败结束
+    private volatile Exception persistFailure;
     public void collectData() {
-        System.out.println("开始多维度数据收集...");
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusYears(15);
-        long startTimestamp = startDate.toEpochSecond(ZoneOffset.UTC);
-        long endTimestamp = endDate.toEpochSecond(ZoneOffset.UTC);
-        long chunkSeconds = 720L * 24 * 60 * 60;
-        for (long chunkStart = startTimestamp; chunkStart < endTimestamp; chunkStart += chunkSeconds) {
-            long chunkEnd = Math.min(chunkStart + chunkSeconds, endTimestamp);
-            for (String sortStrategy : SORT_STRATEGIES) {
-                System.out.printf("时间片 %s 至 %s | 排序: %s%n",
-                        LocalDateTime.ofEpochSecond(chunkStart, 0, ZoneOffset.UTC),
-                        LocalDateTime.ofEpochSecond(chunkEnd, 0, ZoneOffset.UTC),
-                        sortStrategy);
-                collectDataForStrategy(chunkStart, chunkEnd, sortStrategy, 25);
-                try { Thread.sleep(1000); } catch (InterruptedException e) { break; }
-            }
-            try { Thread.sleep(3000); } catch (InterruptedException e) { break; }
+        collectData(new CollectionJob());
+    }
+    public void collectData(CollectionJob job) {
+        log.info("开始多维度数据收集...");
+        seedCollectedQuestionIds();
+        CrawlRun run = crawlPlanService.resumeOrPlan(LocalDateTime.now());
+        long outstanding = crawlPlanService.outstandingCheckpoints(run);
+        log.info("抓取计划 #{}: {} 至 {}, 剩余{}个(时间片, 排序)组合, 本实例 {}", run.getId(),
+                LocalDateTime.ofEpochSecond(run.getFromEpoch(), 0, ZoneOffset.UTC),
+                LocalDateTime.ofEpochSecond(run.getToEpoch(), 0, ZoneOffset.UTC),
+                outstanding, crawlPlanService.workerId());
+        // 多实例时其余组合由其他实例完成, 本任务的完成数只计本实例抓取的
+        job.setTasksTotal(outstanding);
+        lostLeases.clear();
+        persistFailure = null;
+        // 抓取线程逐个认领(时间片, 排序)组合并发请求, 单独的持久化线程通过有界队列消费, 网络与写库互相重叠
+        BlockingQueue<FetchedPage> pages = new ArrayBlockingQueue<>(persistQueueCapacity);
+        Thread persister = new Thread(() -> persistPages(pages, job), "collector-persist");
+        persister.start();
+        try {
+            if ("reactive".equals(fetchMode)) {
+                fetchReactive(run, pages, job);
+            } else {
+                fetchBlocking(run, pages, job);
+            }
+        } finally {
+            finishPersisting(pages, persister);
+            // 已抓取的页都已入库, 交还未抓完的检查点 (取消或出错时), 其他实例可立即接手
+            int released = crawlPlanService.releaseLeases();
+            if (released > 0) {
+                log.info("交还未完成的检查点: {}", released);
+            }
         }
-        System.out.println("数据收集完成！总共收集唯一问题: " + collectedQuestionIds.size());
-    }
-    private void collectDataForStrategy(long fromDate, long toDate, String sortStrategy, int maxPages) {
-        int page = 1;
-        int totalInThisRun = 0;
-        maxPages = Math.min(maxPages, 25);
-        while (page <= maxPages) {
-            String url = String.format(API_URL_TEMPLATE, page, fromDate, toDate, sortStrategy);
-            System.out.println("  获取第 " + page + " 页...");
-            try {
-                ResponseEntity<StackOverflowResponse<QuestionDto>> responseEntity =
-                        restTemplate.exchange(
-                                url,
-                                HttpMethod.GET,
-                                null,
-                                new ParameterizedTypeReference<StackOverflowResponse<QuestionDto>>() {}
-                        );
-                StackOverflowResponse<QuestionDto> response = responseEntity.getBody();
-                if (response == null || response.items() == null || response.items().isEmpty()) {
-                    System.out.println("  无数据，停止当前策略");
-                    break;
+        // 失败页所在检查点没有推进, 已随上面的租约交还, 下次收集从该页继续
+        if (persistFailure != null) {
+            throw new IllegalStateException("保存抓取结果失败: " + persistFailure.getMessage(), persistFailure);
+        }
+        if (!job.isCancelRequested() && crawlPlanService.completeIfDone(run)) {
+            log.info("抓取计划 #{} 已完成", run.getId());
+        }
+        log.info("数据收集结束！已入库唯一问题: {}", collectedQuestionIds.size());
+    }
+    // 阻塞抓取: 固定线程池, 每个线程认领一个检查点, 同步请求并整页反序列化, 抓完再认领下一个
+    private void fetchBlocking(CrawlRun run, BlockingQueue<FetchedPage> pages, CollectionJob job) {
+        ExecutorService fetchers = Executors.newFixedThreadPool(fetchThreads);
+        List<Future<?>> tasks = new ArrayList<>();
+        try {
+            for (int i = 0; i < fetchThreads; i++) {
+                tasks.add(fetchers.submit(() -> {
+                    while (!job.isCancelRequested() && !Thread.currentThread().isInterrupted()) {
+                        Optional<CrawlCheckpoint> checkpoint = claimNext(run, job);
+                        if (checkpoint.isEmpty()) {
+                            return;
+                        }
+                        collectDataForStrategy(checkpoint.get(), pages, job);
+                        job.taskCompleted();
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    log.error("抓取任务异常", e.getCause());
                 }
-                int newItems = 0;
-                for (QuestionDto qDto : response.items()) {
-                    if (!collectedQuestionIds.contains(qDto.questionId())) {
-                        saveQuestionData(qDto);
-                        collectedQuestionIds.add(qDto.questionId());
-                        newItems++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            fetchers.shutdownNow();
+            awaitFetchers(fetchers);
+        }
+    }
+    // 响应式抓取: 最多 fetchThreads 个检查点并发, 每个检查点内按页顺序请求
+    // 有空位时才认领下一个检查点; 认领是阻塞的数据库调用, 连同下游的请求都放到弹性线程上
+    private void fetchReactive(CrawlRun run, BlockingQueue<FetchedPage> pages, CollectionJob job) {
+        try {
+            Flux.<CrawlCheckpoint>generate(sink -> claimNext(run, job).ifPresentOrElse(sink::next, sink::complete))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(checkpoint -> crawlReactive(checkpoint, pages, job)
+                            .doFinally(signal -> job.taskCompleted()), fetchThreads)
+                    .blockLast();
+        } catch (CancellationException e) {
+            log.info("响应式抓取已取消");
+        } catch (RuntimeException e) {
+            if (!(Exceptions.unwrap(e) instanceof InterruptedException)) {
+                throw e;
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+    // 认领下一个检查点. 暂时没有可认领的、但仍有检查点被其他实例 (或本实例其他线程) 持有时等待重试,
+    // 持有者失联、租约过期后由本实例接手; 计划中再无未完成的检查点、取消或中断时返回空
+    private Optional<CrawlCheckpoint> claimNext(CrawlRun run, CollectionJob job) {
+        while (!job.isCancelRequested()) {
+            Optional<CrawlCheckpoint> checkpoint = crawlPlanService.claimNext(run);
+            if (checkpoint.isPresent() || crawlPlanService.outstandingCheckpoints(run) == 0) {
+                return checkpoint;
+            }
+            try {
+                Thread.sleep(claimPollInterval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return Optional.empty();
+    }
+    // 抓取进度: 下一次请求的页码, 是否已无更多数据, 该页已连续出错的次数
+    private record PageStep(int page, boolean exhausted, int failures) {}
+    private Mono<Void> crawlReactive(CrawlCheckpoint checkpoint, BlockingQueue<FetchedPage> pages, CollectionJob job) {
+        String label = label(checkpoint);
+        return Mono.just(new PageStep(checkpoint.getNextPage(), false, 0))
+                .expand(step -> step.exhausted() || step.page() > MAX_PAGES || step.failures() > pageRetries
+                        || job.isCancelRequested() || lostLeases.contains(checkpoint.getId())
+                        ? Mono.empty()
+                        : fetchPageReactive(checkpoint, step, pages, job, label))
+                .last()
+                .flatMap(last -> {
+                    if (last.failures() > pageRetries && !lostLeases.contains(checkpoint.getId())) {
+                        return Mono.<Void>fromRunnable(() -> releaseFailedPage(checkpoint, last.page(), label))
+                                .subscribeOn(Schedulers.boundedElastic());
                     }
+                    // 与阻塞抓取一致: 正常结束才标记检查点完成
+                    if (!last.exhausted() && last.page() <= MAX_PAGES || lostLeases.contains(checkpoint.getId())) {
+                        return Mono.<Void>empty();
+                    }
+                    return Mono.<Void>fromRunnable(() -> handOff(pages,
+                                    new FetchedPage(checkpoint.getId(), last.page(), List.of(), true, true), job))
+                            .subscribeOn(Schedulers.boundedElastic());
+                })
+                .doOnSuccess(v -> log.debug("{} 当前策略结束", label));
+    }
+    private Mono<PageStep> fetchPageReactive(CrawlCheckpoint checkpoint, PageStep step, BlockingQueue<FetchedPage> pages,
+                                             CollectionJob job, String label) {
+        int page = step.page();
+        int[] itemCount = {0};
+        long[] started = {0};
+        return Mono.fromCallable(() -> {
+                    rateLimiter.acquire();
+                    started[0] = System.nanoTime();
+                    return page;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenMany(reactiveClient.streamQuestions(page, checkpoint.getChunkStart(), checkpoint.getChunkEnd(),
+                        checkpoint.getStrategy()))
+                // 入队可能阻塞, 切到弹性线程; 预取有限, 持久化跟不上时上游停止读取
+                .publishOn(Schedulers.boundedElastic(), HANDOFF_PREFETCH)
+                .<StreamingPageDecoder.PageMeta>handle((event, sink) -> {
+                    if (event instanceof ReactiveStackExchangeClient.Item item) {
+                        handOff(pages, new FetchedPage(checkpoint.getId(), page, List.of(item.question()), false, false), job);
+                        itemCount[0]++;
+                    } else if (event instanceof ReactiveStackExchangeClient.End end) {
+                        sink.next(end.meta());
+                    }
+                })
+                .single()
+                .map(meta -> {
+                    if (itemCount[0] == 0) {
+                        metrics.pageFetched(true, CollectorMetrics.Outcome.EMPTY, started[0]);
+                        log.debug("{} 第 {} 页无数据，停止当前策略", label, page);
+                        return new PageStep(page, true, 0);
+                    }
+                    metrics.pageFetched(true, CollectorMetrics.Outcome.SUCCESS, started[0]);
+                    metrics.quotaRemaining(meta.quotaRemaining());
+                    rateLimiter.onResponse(meta.quotaRemaining(), meta.backoff());
+                    job.pageFetched();
+                    handOff(pages, new FetchedPage(checkpoint.getId(), page, List.of(), false, true), job);
+                    log.debug("{} 第 {} 页获取{}条，剩余配额{}", label, page, itemCount[0], meta.quotaRemaining());
+                    return new PageStep(page + 1, !meta.hasMore(), 0);
+                })
+                .onErrorResume(WebClientResponseException.TooManyRequests.class, e -> {
+                    metrics.pageFetched(true, CollectorMetrics.Outcome.TOO_MANY_REQUESTS, started[0]);
+                    log.warn("{} 遇到速率限制，全部抓取线程等待{}秒...", label, tooManyRequestsPause.toSeconds());
+                    rateLimiter.onTooManyRequests(tooManyRequestsPause.toMillis());
+                    return discardPartialPage(checkpoint, page, itemCount[0], pages, job)
+                            .thenReturn(new PageStep(page, false, step.failures()));
+                })
+                .onErrorResume(e -> !(e instanceof CancellationException), e -> {
+                    metrics.pageFetched(true, CollectorMetrics.Outcome.ERROR, started[0]);
+                    PageStep retry = new PageStep(page, false, step.failures() + 1);
+                    Mono<Void> discard = discardPartialPage(checkpoint, page, itemCount[0], pages, job);
+                    if (retry.failures() > pageRetries) {
+                        log.warn("{} 第 {} 页请求出错: {}", label, page, e.getMessage());
+                        return discard.thenReturn(retry);
+                    }
+                    log.warn("{} 第 {} 页请求出错: {}，稍后重试", label, page, e.getMessage());
+                    return discard.then(Mono.delay(errorRetryDelay)).thenReturn(retry);
+                });
+    }
+    // 页中途出错时, 已逐条交给持久化线程的问题不完整, 通知其丢弃; 在这些问题之后入队, 顺序有保证
+    private static Mono<Void> discardPartialPage(CrawlCheckpoint checkpoint, int page, int handedOff,
+                                                 BlockingQueue<FetchedPage> pages, CollectionJob job) {
+        if (handedOff == 0) {
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(() -> handOff(pages,
+                        new FetchedPage(checkpoint.getId(), page, List.of(), false, false, true), job))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+    // 阻塞地交给持久化线程; 取消后不再等待队列空位
+    private static void handOff(BlockingQueue<FetchedPage> pages, FetchedPage fetched, CollectionJob job) {
+        try {
+            while (!pages.offer(fetched, 100, TimeUnit.MILLISECONDS)) {
+                if (job.isCancelRequested()) {
+                    throw new CancellationException("采集已取消");
                 }
-                totalInThisRun += newItems;
-                System.out.printf("  获取%d条，其中%d条新数据%n",
-                        response.items().size(), newItems);
-                Thread.sleep(2000);
-                if (!response.hasMore()) {
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("采集已中断");
+        }
+    }
+    private static String label(CrawlCheckpoint checkpoint) {
+        return String.format("[%s 至 %s | %s]",
+                LocalDateTime.ofEpochSecond(checkpoint.getChunkStart(), 0, ZoneOffset.UTC).toLocalDate(),
+                LocalDateTime.ofEpochSecond(checkpoint.getChunkEnd(), 0, ZoneOffset.UTC).toLocalDate(),
+                checkpoint.getStrategy());
+    }
+    private synchronized void seedCollectedQuestionIds() {
+        if (collectedQuestionIds == null) {
+            LongHashSet ids = new LongHashSet();
+            ingestRepository.forEachQuestionId(ids::add);
+            collectedQuestionIds = ids;
+            log.info("已从数据库加载问题id: {}", ids.size());
+        }
+    }
+    private void collectDataForStrategy(CrawlCheckpoint checkpoint, BlockingQueue<FetchedPage> pages, CollectionJob job) {
+        long fromDate = checkpoint.getChunkStart();
+        long toDate = checkpoint.getChunkEnd();
+        String sortStrategy = checkpoint.getStrategy();
+        String label = label(checkpoint);
+        int page = checkpoint.getNextPage();
+        int fetchedInThisRun = 0;
+        int failures = 0;
+        boolean exhausted = false;
+        while (page <= MAX_PAGES && !exhausted && failures <= pageRetries && !Thread.currentThread().isInterrupted()
+                && !job.isCancelRequested() && !lostLeases.contains(checkpoint.getId())) {
+            long started = 0;
+            try {
+                rateLimiter.acquire();
+                started = System.nanoTime();
+                StackOverflowResponse<QuestionDto> response =
+                        stackExchangeClient.fetchQuestions(page, fromDate, toDate, sortStrategy);
+                if (response == null || response.items() == null || response.items().isEmpty()) {
+                    metrics.pageFetched(false, CollectorMetrics.Outcome.EMPTY, started);
+                    log.debug("{} 第 {} 页无数据，停止当前策略", label, page);
+                    exhausted = true;
                     break;
                 }
+                metrics.pageFetched(false, CollectorMetrics.Outcome.SUCCESS, started);
+                metrics.quotaRemaining(response.quotaRemaining());
+                rateLimiter.onResponse(response.quotaRemaining(), response.backoff());
+                job.pageFetched();
+                pages.put(new FetchedPage(checkpoint.getId(), page, response.items(), false, true));
+                fetchedInThisRun += response.items().size();
+                log.debug("{} 第 {} 页获取{}条，剩余配额{}",
+                        label, page, response.items().size(), response.quotaRemaining());
+                exhausted = !response.hasMore();
+                failures = 0;
                 page++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (org.springframework.web.client.HttpClientErrorException.TooManyRequests e) {
-                System.out.println("  遇到速率限制，等待60秒...");
-                try { Thread.sleep(60000); } catch (InterruptedException ie) { break; }
+                metrics.pageFetched(false, CollectorMetrics.Outcome.TOO_MANY_REQUESTS, started);
+                log.warn("{} 遇到速率限制，全部抓取线程等待{}秒...", label, tooManyRequestsPause.toSeconds());
+                rateLimiter.onTooManyRequests(tooManyRequestsPause.toMillis());
             } catch (Exception e) {
-                System.out.println("  请求出错: " + e.getMessage() + "，跳过本页");
-                page++;
-                try { Thread.sleep(5000); } catch (InterruptedException ie) { break; }
+                metrics.pageFetched(false, CollectorMetrics.Outcome.ERROR, started);
+                if (++failures > pageRetries) {
+                    log.warn("{} 第 {} 页请求出错: {}", label, page, e.getMessage());
+                    break;
+                }
+                log.warn("{} 第 {} 页请求出错: {}，稍后重试", label, page, e.getMessage());
+                try { Thread.sleep(errorRetryDelay.toMillis()); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
             }
         }
-        System.out.printf("当前策略完成，收集%d条新数据%n", totalInThisRun);
+        // 正常结束(没有更多数据或到达页数上限)才标记检查点完成, 取消时保留进度下次继续
+        if (lostLeases.contains(checkpoint.getId())) {
+            log.info("{} 租约已被其他实例接手，停止当前策略", label);
+        } else if (failures > pageRetries) {
+            releaseFailedPage(checkpoint, page, label);
+        } else if (exhausted || page > MAX_PAGES) {
+            try {
+                pages.put(new FetchedPage(checkpoint.getId(), page, List.of(), true, true));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.debug("{} 当前策略结束，抓取{}条", label, fetchedInThisRun);
     }
-
-    @Transactional
-    protected void saveQuestionData(QuestionDto qDto) {
-        QuestionOwner owner = getOrCreateOwner(qDto.owner());
-        Question question = new Question(
-                qDto.title(),
-                qDto.body(),
-                owner,
-                qDto.getCreationDateTime()
-        );
-        question.setId(qDto.questionId());
-        question.setScore(qDto.score());
-        question.setViewCount(qDto.viewCount());
-        question.setAnswerCount(qDto.answerCount());
-        question.setAnswered(qDto.isAnswered());
-        question.setOwner(owner);
-        Set<Tag> tags = new HashSet<>();
-        if (qDto.tags() != null && !qDto.tags().isEmpty()) {
-            List<Tag> existingTags = tagRepository.findByNameIn(qDto.tags());
-            Map<String, Tag> existingTagMap = existingTags.stream()
-                    .collect(Collectors.toMap(Tag::getName, tag -> tag));
-            List<Tag> newTags = new ArrayList<>();
-            for (String tagName : qDto.tags()) {
-                Tag tag = existingTagMap.get(tagName);
-                if (tag != null) {
-                    tags.add(tag);
-                } else {
-                    Tag newTag = new Tag(tagName);
-                    newTags.add(newTag);
-                    tags.add(newTag);
+    // 同一页重试后仍出错: 不能跳过该页继续抓取, 否则之后的页入库时检查点越过它推进, 该页再也不会被抓取
+    // 停止当前策略并交还检查点, 稍后 (由本实例或其他实例) 从该页重新抓取; 每次认领计入尝试次数, 用尽后放弃
+    private void releaseFailedPage(CrawlCheckpoint checkpoint, int page, String label) {
+        log.warn("{} 第 {} 页重试{}次仍出错，交还当前策略稍后重新抓取", label, page, pageRetries);
+        crawlPlanService.release(checkpoint.getId());
+    }
+    private void persistPages(BlockingQueue<FetchedPage> pages, CollectionJob job) {
+        // 响应式抓取逐条送来的问题按检查点暂存, 到页结束标记时整页入库并推进检查点
+        Map<Long, List<QuestionDto>> pending = new HashMap<>();
+        while (true) {
+            FetchedPage fetched;
+            try {
+                fetched = pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (fetched == END_OF_PAGES) {
+                return;
+            }
+            // 已有页入库失败: 之后的页不能入库, 否则检查点越过失败页推进, 该页被跳过; 只取出队列中的数据直到结束
+            if (persistFailure != null) {
+                continue;
+            }
+            if (fetched.discarded()) {
+                pending.remove(fetched.checkpointId());
+                continue;
+            }
+            if (!fetched.pageEnd()) {
+                pending.computeIfAbsent(fetched.checkpointId(), id -> new ArrayList<>()).addAll(fetched.items());
+                continue;
+            }
+            List<QuestionDto> items = pending.remove(fetched.checkpointId());
+            if (items == null) {
+                items = fetched.items();
+            } else {
+                items.addAll(fetched.items());
+            }
+            List<QuestionDto> unseen = new ArrayList<>(items.size());
+            for (QuestionDto qDto : items) {
+                if (qDto.questionId() != null && !collectedQuestionIds.contains(qDto.questionId())) {
+                    unseen.add(qDto);
+                }
+            }
+            int newItems = 0;
+            try {
+                newItems = ingestService.ingestCheckpointedPage(unseen, fetched.checkpointId(),
+                        fetched.completed() ? fetched.page() : fetched.page() + 1, fetched.completed());
+                for (QuestionDto qDto : unseen) {
+                    collectedQuestionIds.add(qDto.questionId());
                 }
+            } catch (CrawlLeaseLostException e) {
+                // 之后同一检查点的页 (响应式抓取中已在途的) 也会因租约失效被拒绝
+                lostLeases.add(e.getCheckpointId());
+                log.warn("{}，放弃本页", e.getMessage());
+                continue;
+            } catch (Exception e) {
+                log.error("保存本页失败，停止收集", e);
+                persistFailure = e;
+                job.requestCancel();
+                continue;
             }
-            if (!newTags.isEmpty()) {
-                tagRepository.saveAll(newTags);
+            if (!items.isEmpty()) {
+                job.questionsPersisted(newItems, items.size() - newItems);
+                metrics.questionsPersisted(newItems, items.size() - newItems);
+                log.debug("写入{}条，其中{}条新数据", items.size(), newItems);
             }
         }
-        question.setTags(tags);
-        question = questionRepository.save(question);
-        if (qDto.answers() != null && !qDto.answers().isEmpty()) {
-            List<Answer> answersToSave = new ArrayList<>();
-            for (AnswerDto aDto : qDto.answers()) {
-                QuestionOwner answerer = getOrCreateOwner(aDto.owner());
-                Answer answer = new Answer(
-                        aDto.body(),
-                        question,
-                        answerer,
-                        aDto.getCreationDateTime()
-                );
-                answer.setId(aDto.answerId());
-                answer.setScore(aDto.score());
-                answer.setAccepted(aDto.isAccepted());
-                answersToSave.add(answer);
-            }
-            answerRepository.saveAll(answersToSave);
-        }
     }
-
-    private QuestionOwner getOrCreateOwner(OwnerDto ownerDto) {
-        if (ownerDto == null || ownerDto.displayName() == null || ownerDto.userId() == null) {
-            return null;
-        }
-        Optional<QuestionOwner> existing = ownerRepository.findById(ownerDto.userId());
-        if (existing.isPresent()) {
-            QuestionOwner owner = existing.get();
-            owner.setId(ownerDto.userId());
-            owner.setUsername(ownerDto.displayName());
-            owner.setReputation(ownerDto.reputation());
-            ownerRepository.save(owner);
-            return owner;
+    private void awaitFetchers(ExecutorService fetchers) {
+        // 取消时也等抓取线程退出: 暂时清除中断标记, 结束后恢复
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (!fetchers.awaitTermination(1, TimeUnit.SECONDS)) {
+                log.info("等待抓取线程退出...");
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
+    }
+    private void finishPersisting(BlockingQueue<FetchedPage> pages, Thread persister) {
+        // 取消时也把已抓取的页写完: 暂时清除中断标记, 结束后恢复
+        boolean interrupted = Thread.interrupted();
         try {
-            return ownerRepository.save(new QuestionOwner(ownerDto.userId(), ownerDto.displayName(), ownerDto.reputation()));
-        } catch (DataIntegrityViolationException e) {
-            QuestionOwner tar = ownerRepository.findById(ownerDto.userId())
-                    .orElseThrow(() -> new RuntimeException("并发处理异常：保存失败且无法查询到数据", e));
-            tar.setId(ownerDto.userId());
-            tar.setUsername(ownerDto.displayName());
-            tar.setReputation(ownerDto.reputation());
-            ownerRepository.save(tar);
-            return tar;
+            // 抓取已全部结束后才投递结束标记, 保证标记之后不再有数据页
+            pages.put(END_OF_PAGES);
+            persister.join();
+        } catch (InterruptedException e) {
+            persister.interrupt();
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
-}
\ No newline at end of file
+
+    // 单条入库, 与整页入库走同一条批处理路径
+    protected void saveQuestionData(QuestionDto qDto) {
+        ingestService.ingestPage(List.of(qDto));
+    }
+}
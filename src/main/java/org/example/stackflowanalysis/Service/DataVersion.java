@@ -0,0 +1,22 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.Util.AfterCommit;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 数据版本号: 每页数据入库并提交后 (以及汇总表重建后) 递增, 分析结果缓存以此判断是否过期
+@Component
+public class DataVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    // 在事务中调用时推迟到提交之后递增, 回滚则不变
+    public void bumpAfterCommit() {
+        AfterCommit.run(version::incrementAndGet);
+    }
+}
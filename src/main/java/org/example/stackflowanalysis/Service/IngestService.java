@@ -0,0 +1,318 @@
+package org.example.stackflowanalysis.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.stackflowanalysis.Config.JdbcStatementCounter;
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Data.TagAnswererCount;
+import org.example.stackflowanalysis.Data.TagMonthCount;
+import org.example.stackflowanalysis.Data.TagResponseTime;
+import org.example.stackflowanalysis.Data.TagTermCount;
+import org.example.stackflowanalysis.Repositories.IngestJdbcRepository;
+import org.example.stackflowanalysis.Util.LatencyHistogram;
+import org.example.stackflowanalysis.Util.TermTokenizer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// 整页入库: 每页一个事务, tag与用户各一次集合查询, 其余均为JDBC批处理
+// 用户只写入新出现或信息有变化的 (见 OwnerCache)
+@Service
+public class IngestService {
+
+    private final IngestJdbcRepository ingestRepository;
+    private final CrawlPlanService crawlPlanService;
+    private final DataVersion dataVersion;
+    private final OwnerCache ownerCache;
+    private final MonthlyPartitions monthlyPartitions;
+    private final ColumnarCorpusEngine columnarEngine;
+    private final SketchEngine sketchEngine;
+
+    // 整页耗时按是否维护汇总表区分; 每问题耗时与语句数按页内问题数均摊
+    private final Timer pageTimer;
+    private final Timer pageWithoutRollupsTimer;
+    private final Timer perQuestionTimer;
+    private final DistributionSummary statementsPerQuestion;
+    private final Counter insertedQuestions;
+    private final Counter existingQuestions;
+
+    public IngestService(IngestJdbcRepository ingestRepository, CrawlPlanService crawlPlanService,
+                         DataVersion dataVersion, OwnerCache ownerCache, MonthlyPartitions monthlyPartitions,
+                         ColumnarCorpusEngine columnarEngine,
+                         SketchEngine sketchEngine, MeterRegistry meterRegistry) {
+        this.ingestRepository = ingestRepository;
+        this.crawlPlanService = crawlPlanService;
+        this.dataVersion = dataVersion;
+        this.ownerCache = ownerCache;
+        this.monthlyPartitions = monthlyPartitions;
+        this.columnarEngine = columnarEngine;
+        this.sketchEngine = sketchEngine;
+        this.pageTimer = Timer.builder("ingest.page").tag("rollups", "true")
+                .description("整页入库耗时").register(meterRegistry);
+        this.pageWithoutRollupsTimer = Timer.builder("ingest.page").tag("rollups", "false")
+                .description("整页入库耗时").register(meterRegistry);
+        this.perQuestionTimer = Timer.builder("ingest.question")
+                .description("入库耗时按页内问题数均摊").register(meterRegistry);
+        this.statementsPerQuestion = DistributionSummary.builder("ingest.statements.per.question")
+                .description("入库时每个问题平均的JDBC语句数").register(meterRegistry);
+        this.insertedQuestions = Counter.builder("ingest.questions").tag("result", "inserted").register(meterRegistry);
+        this.existingQuestions = Counter.builder("ingest.questions").tag("result", "existing").register(meterRegistry);
+    }
+
+    // 写入一页并在同一事务中推进抓取检查点、续约, 崩溃后从最后提交的页继续
+    // 建好分区后、写入数据前推进检查点: 租约已被其他实例接手时抛出 CrawlLeaseLostException, 本页不再写入
+    @Transactional
+    public int ingestCheckpointedPage(List<QuestionDto> page, long checkpointId, int nextPage, boolean completed) {
+        Runnable advance = () -> crawlPlanService.advance(checkpointId, nextPage, completed);
+        if (page.isEmpty()) {
+            advance.run();
+            return 0;
+        }
+        return ingestPage(page, true, advance);
+    }
+
+    // 返回本页中新插入的问题数
+    @Transactional
+    public int ingestPage(List<QuestionDto> page) {
+        return ingestPage(page, true, () -> { });
+    }
+
+    // 向空库批量导入时不增量维护汇总表, 由调用方在导入结束后整体重建一次
+    @Transactional
+    public int ingestPageWithoutRollups(List<QuestionDto> page) {
+        return ingestPage(page, false, () -> { });
+    }
+
+    // beforeWrite 在建好分区之后、写入任何数据之前执行; 分区须在本事务持有其他锁之前创建
+    private int ingestPage(List<QuestionDto> page, boolean maintainRollups, Runnable beforeWrite) {
+        long start = System.nanoTime();
+        long statementsBefore = JdbcStatementCounter.currentThreadCount();
+        int questions = 0;
+        try {
+            Map<Long, QuestionDto> byId = new LinkedHashMap<>();
+            for (QuestionDto qDto : page) {
+                if (qDto != null && qDto.questionId() != null) {
+                    byId.put(qDto.questionId(), qDto);
+                }
+            }
+            questions = byId.size();
+            monthlyPartitions.ensureFor(byId.values());
+            beforeWrite.run();
+            if (questions == 0) {
+                return 0;
+            }
+            int inserted = ingestQuestions(byId, maintainRollups);
+            insertedQuestions.increment(inserted);
+            existingQuestions.increment(questions - inserted);
+            return inserted;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            (maintainRollups ? pageTimer : pageWithoutRollupsTimer).record(elapsed, TimeUnit.NANOSECONDS);
+            if (questions > 0) {
+                perQuestionTimer.record(elapsed / questions, TimeUnit.NANOSECONDS);
+                statementsPerQuestion.record(
+                        (double) (JdbcStatementCounter.currentThreadCount() - statementsBefore) / questions);
+            }
+        }
+    }
+
+    private int ingestQuestions(Map<Long, QuestionDto> byId, boolean maintainRollups) {
+        Set<Long> existingIds = ingestRepository.findExistingQuestionIds(byId.keySet());
+        List<QuestionDto> newQuestions = new ArrayList<>();
+        List<QuestionDto> knownQuestions = new ArrayList<>();
+        for (QuestionDto qDto : byId.values()) {
+            (existingIds.contains(qDto.questionId()) ? knownQuestions : newQuestions).add(qDto);
+        }
+        Map<Long, Long[]> previousResponseTimes = maintainRollups
+                ? ingestRepository.findResponseTimesForUpdate(knownQuestions.stream().map(QuestionDto::questionId).toList())
+                : Map.of();
+        // 用户按id排序写入, 避免并发事务间死锁
+        Map<Long, OwnerDto> owners = new TreeMap<>();
+        Set<String> tagNames = new TreeSet<>();
+        Map<Long, List<AnswerDto>> answers = new LinkedHashMap<>();
+        for (QuestionDto qDto : byId.values()) {
+            addOwner(owners, qDto.owner());
+            if (qDto.tags() != null) {
+                for (String tagName : qDto.tags()) {
+                    tagNames.add(tagName.toLowerCase(Locale.ROOT));
+                }
+            }
+            if (qDto.answers() != null && !qDto.answers().isEmpty()) {
+                for (AnswerDto aDto : qDto.answers()) {
+                    addOwner(owners, aDto.owner());
+                }
+                answers.put(qDto.questionId(), qDto.answers());
+            }
+        }
+        ingestRepository.upsertOwners(ownerCache.changedOwners(owners.values()));
+        Map<String, Long> tagIds = ingestRepository.upsertTags(tagNames);
+        Set<Long> insertedIds = ingestRepository.insertQuestions(newQuestions);
+        ingestRepository.updateQuestionStats(knownQuestions);
+        List<long[]> questionTags = new ArrayList<>();
+        List<QuestionDto> committedQuestions = new ArrayList<>();
+        Map<Long, long[]> pageTagIds = new HashMap<>();
+        for (QuestionDto qDto : byId.values()) {
+            pageTagIds.put(qDto.questionId(), resolveTagIds(qDto, tagIds));
+        }
+        Map<TagMonthCount.Key, Long> monthCounts = new HashMap<>();
+        Map<TagTermCount.Key, Long> termCounts = new HashMap<>();
+        Map<TagResponseTime.Key, long[]> responseTimes = new HashMap<>();
+        for (QuestionDto qDto : newQuestions) {
+            if (!insertedIds.contains(qDto.questionId())) {
+                continue;
+            }
+            long[] questionTagIds = pageTagIds.get(qDto.questionId());
+            for (long tagId : questionTagIds) {
+                questionTags.add(new long[]{qDto.questionId(), tagId});
+            }
+            committedQuestions.add(qDto);
+            if (!maintainRollups) {
+                continue;
+            }
+            String yearMonth = YearMonth.from(qDto.getCreationDateTime()).toString();
+            Map<String, Integer> terms = TermTokenizer.INSTANCE.countTerms(qDto.title(), qDto.body());
+            for (long tagId : questionTagIds) {
+                monthCounts.merge(new TagMonthCount.Key(tagId, yearMonth), 1L, Long::sum);
+                terms.forEach((term, count) -> termCounts.merge(new TagTermCount.Key(tagId, term), (long) count, Long::sum));
+                addResponseTimes(responseTimes, tagId, yearMonth, qDto.getFirstAnswerSeconds(),
+                        qDto.getAcceptedAnswerSeconds(), 1);
+            }
+        }
+        if (maintainRollups) {
+            addChangedResponseTimes(responseTimes, knownQuestions, previousResponseTimes);
+        }
+        ingestRepository.insertQuestionTags(questionTags);
+        ingestRepository.incrementTagMonthCounts(monthCounts);
+        ingestRepository.incrementTagTermCounts(termCounts);
+        ingestRepository.incrementTagResponseTimes(responseTimes);
+        Set<Long> insertedAnswerIds = maintainRollups && !answers.isEmpty()
+                ? upsertAnswersAndCounts(answers)
+                : ingestRepository.upsertAnswers(answers);
+        CommittedPage committed = new CommittedPage(committedQuestions, pageTagIds, tagIds, owners.values(), answers,
+                insertedAnswerIds);
+        columnarEngine.applyAfterCommit(committed);
+        sketchEngine.applyAfterCommit(committed);
+        // 非空的页总会写入: 已有问题的分数与浏览量、回答的分数与采纳状态、用户声望及各汇总表的增量,
+        // 都是缓存的分析结果的输入, 提交后一律使缓存失效
+        dataVersion.bumpAfterCommit();
+        return insertedIds.size();
+    }
+
+    // 写入回答并把与库中旧状态的差值累加到 tag_answerer_counts; 问题的tag以库中 question_tags 为准
+    // 返回新插入的回答id
+    private Set<Long> upsertAnswersAndCounts(Map<Long, List<AnswerDto>> answers) {
+        List<Long> answerIds = new ArrayList<>();
+        for (List<AnswerDto> list : answers.values()) {
+            for (AnswerDto aDto : list) {
+                if (aDto.answerId() != null) {
+                    answerIds.add(aDto.answerId());
+                }
+            }
+        }
+        Map<Long, IngestJdbcRepository.AnswerState> before = ingestRepository.findAnswerStatesForUpdate(answerIds);
+        Set<Long> insertedAnswers = ingestRepository.upsertAnswers(answers);
+        Map<Long, List<Long>> questionTagIds = ingestRepository.findQuestionTagIds(answers.keySet());
+        Map<TagAnswererCount.Key, long[]> increments = new HashMap<>();
+        for (Map.Entry<Long, List<AnswerDto>> entry : answers.entrySet()) {
+            List<Long> tagIds = questionTagIds.getOrDefault(entry.getKey(), List.of());
+            if (tagIds.isEmpty()) {
+                continue;
+            }
+            for (AnswerDto aDto : entry.getValue()) {
+                if (aDto.answerId() == null) {
+                    continue;
+                }
+                IngestJdbcRepository.AnswerState old = before.get(aDto.answerId());
+                if (old == null && !insertedAnswers.contains(aDto.answerId())) {
+                    // 查询之后才由并发事务插入, 已由对方计入
+                    continue;
+                }
+                Long answererId = IngestJdbcRepository.isValidOwner(aDto.owner()) ? aDto.owner().userId() : null;
+                for (long tagId : tagIds) {
+                    if (old != null && old.answererId() != null) {
+                        addAnswer(increments, tagId, old.answererId(), -1, old.accepted(), old.score());
+                    }
+                    if (answererId != null) {
+                        addAnswer(increments, tagId, answererId, 1, aDto.isAccepted(), aDto.score());
+                    }
+                }
+            }
+        }
+        increments.values().removeIf(delta -> delta[0] == 0 && delta[1] == 0 && delta[2] == 0);
+        ingestRepository.incrementTagAnswererCounts(increments);
+        return insertedAnswers;
+    }
+
+    // 已存在的问题回答耗时有变化时 (新回答、改采纳) 从旧桶移到新桶; 问题的tag以库中 question_tags 为准
+    private void addChangedResponseTimes(Map<TagResponseTime.Key, long[]> increments, List<QuestionDto> knownQuestions,
+                                         Map<Long, Long[]> previous) {
+        List<QuestionDto> changed = new ArrayList<>();
+        for (QuestionDto qDto : knownQuestions) {
+            Long[] before = previous.get(qDto.questionId());
+            if (before != null && (!Objects.equals(before[0], qDto.getFirstAnswerSeconds())
+                    || !Objects.equals(before[1], qDto.getAcceptedAnswerSeconds()))) {
+                changed.add(qDto);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Long>> questionTagIds = ingestRepository.findQuestionTagIds(
+                changed.stream().map(QuestionDto::questionId).toList());
+        for (QuestionDto qDto : changed) {
+            Long[] before = previous.get(qDto.questionId());
+            String yearMonth = YearMonth.from(qDto.getCreationDateTime()).toString();
+            for (long tagId : questionTagIds.getOrDefault(qDto.questionId(), List.of())) {
+                addResponseTimes(increments, tagId, yearMonth, before[0], before[1], -1);
+                addResponseTimes(increments, tagId, yearMonth, qDto.getFirstAnswerSeconds(),
+                        qDto.getAcceptedAnswerSeconds(), 1);
+            }
+        }
+        increments.values().removeIf(delta -> delta[0] == 0 && delta[1] == 0);
+    }
+
+    private static void addResponseTimes(Map<TagResponseTime.Key, long[]> increments, long tagId, String yearMonth,
+                                         Long firstSeconds, Long acceptedSeconds, int sign) {
+        if (firstSeconds != null) {
+            increments.computeIfAbsent(new TagResponseTime.Key(tagId, yearMonth, LatencyHistogram.bucket(firstSeconds)),
+                    key -> new long[2])[0] += sign;
+        }
+        if (acceptedSeconds != null) {
+            increments.computeIfAbsent(new TagResponseTime.Key(tagId, yearMonth, LatencyHistogram.bucket(acceptedSeconds)),
+                    key -> new long[2])[1] += sign;
+        }
+    }
+
+    private static void addAnswer(Map<TagAnswererCount.Key, long[]> increments, long tagId, long answererId,
+                                  int sign, boolean accepted, int score) {
+        long[] delta = increments.computeIfAbsent(new TagAnswererCount.Key(tagId, answererId), key -> new long[3]);
+        delta[0] += sign;
+        delta[1] += accepted ? sign : 0;
+        delta[2] += (long) sign * score;
+    }
+
+    private void addOwner(Map<Long, OwnerDto> owners, OwnerDto ownerDto) {
+        if (IngestJdbcRepository.isValidOwner(ownerDto)) {
+            owners.put(ownerDto.userId(), ownerDto);
+        }
+    }
+
+    private long[] resolveTagIds(QuestionDto qDto, Map<String, Long> tagIds) {
+        if (qDto.tags() == null) {
+            return new long[0];
+        }
+        return qDto.tags().stream()
+                .map(name -> tagIds.get(name.toLowerCase(Locale.ROOT)))
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .distinct()
+                .toArray();
+    }
+}
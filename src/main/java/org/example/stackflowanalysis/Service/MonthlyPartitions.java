@@ -0,0 +1,64 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Repositories.IngestJdbcRepository;
+import org.example.stackflowanalysis.Util.AfterCommit;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// questions 与 answers 按月分区 (见 db/migration/V3): 入库事务开始时为页中出现的新月份创建分区.
+// 已建好的月份在事务提交后记入内存, 之后同月的页不再访问数据库; 回滚的创建下次重试.
+// 记录随进程启动为空, 每个月份在首次出现时调用一次数据库函数, 分区已存在时它直接返回
+@Component
+public class MonthlyPartitions {
+
+    private final IngestJdbcRepository ingestRepository;
+    private final Set<YearMonth> questionMonths = ConcurrentHashMap.newKeySet();
+    private final Set<YearMonth> answerMonths = ConcurrentHashMap.newKeySet();
+
+    public MonthlyPartitions(IngestJdbcRepository ingestRepository) {
+        this.ingestRepository = ingestRepository;
+    }
+
+    // 应在写入本页任何数据之前调用, 创建分区时本事务尚未持有其他锁
+    public void ensureFor(Collection<QuestionDto> questions) {
+        Set<YearMonth> newQuestionMonths = new TreeSet<>();
+        Set<YearMonth> newAnswerMonths = new TreeSet<>();
+        for (QuestionDto qDto : questions) {
+            addIfUnknown(qDto.creationDate(), questionMonths, newQuestionMonths);
+            if (qDto.answers() != null) {
+                for (AnswerDto aDto : qDto.answers()) {
+                    addIfUnknown(aDto.creationDate(), answerMonths, newAnswerMonths);
+                }
+            }
+        }
+        create("questions", questionMonths, newQuestionMonths);
+        create("answers", answerMonths, newAnswerMonths);
+    }
+
+    private static void addIfUnknown(Long epochSecond, Set<YearMonth> known, Set<YearMonth> unknown) {
+        if (epochSecond == null) {
+            return;
+        }
+        YearMonth month = YearMonth.from(Instant.ofEpochSecond(epochSecond).atOffset(ZoneOffset.UTC));
+        if (!known.contains(month)) {
+            unknown.add(month);
+        }
+    }
+
+    private void create(String table, Set<YearMonth> known, Set<YearMonth> months) {
+        if (months.isEmpty()) {
+            return;
+        }
+        ingestRepository.createMonthPartitions(table, months.stream().map(month -> month.atDay(1)).toList());
+        AfterCommit.run(() -> known.addAll(months));
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.stackflowanalysis.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.Util.AfterCommit;
+import org.example.stackflowanalysis.Util.LongIntHashMap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// 用户维度的写合并缓存: 记录每个用户最近一次写入数据库的 (用户名, 声望) 指纹,
+// 入库时只有新用户或信息有变化的用户才进入本页的批量 upsert, 活跃用户不会在每页被重复更新.
+// 指纹在事务提交后才记录, 回滚的写入下次会重试. 缓存随进程启动为空, 每个用户在首次出现时写一次;
+// question_owners 被外部清空后需重启应用, 否则未变化的用户不会重新写入
+@Component
+public class OwnerCache {
+
+    // 不存在的键; 指纹恰好等于它的用户每次都会写入, 只多一次写, 不影响正确性
+    private static final int ABSENT = Integer.MIN_VALUE;
+
+    private final LongIntHashMap writtenFingerprints = new LongIntHashMap(1 << 16);
+    private final Counter written;
+    private final Counter skipped;
+
+    public OwnerCache(MeterRegistry meterRegistry) {
+        this.written = Counter.builder("ingest.owners").tag("result", "written").register(meterRegistry);
+        this.skipped = Counter.builder("ingest.owners").tag("result", "unchanged").register(meterRegistry);
+    }
+
+    // 返回需要写入的用户, 并在当前事务提交后记录它们的指纹
+    public List<OwnerDto> changedOwners(Collection<OwnerDto> owners) {
+        List<OwnerDto> changed = new ArrayList<>();
+        int[] fingerprints;
+        synchronized (writtenFingerprints) {
+            fingerprints = new int[owners.size()];
+            int i = 0;
+            for (OwnerDto owner : owners) {
+                int fingerprint = fingerprint(owner);
+                if (writtenFingerprints.getOrDefault(owner.userId(), ABSENT) != fingerprint) {
+                    changed.add(owner);
+                    fingerprints[i++] = fingerprint;
+                }
+            }
+        }
+        written.increment(changed.size());
+        skipped.increment(owners.size() - changed.size());
+        if (!changed.isEmpty()) {
+            AfterCommit.run(() -> record(changed, fingerprints));
+        }
+        return changed;
+    }
+
+    public int size() {
+        synchronized (writtenFingerprints) {
+            return writtenFingerprints.size();
+        }
+    }
+
+    private void record(List<OwnerDto> owners, int[] fingerprints) {
+        synchronized (writtenFingerprints) {
+            for (int i = 0; i < owners.size(); i++) {
+                writtenFingerprints.put(owners.get(i).userId(), fingerprints[i]);
+            }
+        }
+    }
+
+    // 用户名不变时不同的声望指纹必然不同, 最常见的声望变化不会漏写; 只有改名时才可能因哈希碰撞漏写一次
+    private static int fingerprint(OwnerDto owner) {
+        int reputation = owner.reputation() == null ? 0 : owner.reputation();
+        return 31 * owner.displayName().hashCode() + reputation;
+    }
+}
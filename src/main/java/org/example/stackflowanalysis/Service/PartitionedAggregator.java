@@ -0,0 +1,140 @@
+package org.example.stackflowanalysis.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.stackflowanalysis.Repositories.AnalyticsJdbcRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// 全量分析的分片并行聚合: 按问题id切成数量大致相等的区间, 每个区间在独立的只读事务中扫描,
+// 累加到该分片自己的累加器 (无共享可变状态), 分片完成后在调用线程中依次合并
+// 各分片是各自的事务快照, 扫描期间有新数据入库时结果可能包含部分新数据, 与缓存的数据版本机制一致
+// 分片在专用的固定线程池中执行阻塞的JDBC扫描, 所有并发的聚合共用该线程池, 同时占用的连接数不超过并行度;
+// 不能在事务中调用, 否则调用线程等待期间一直占着自己的连接
+@Component
+public class PartitionedAggregator {
+
+    // 每个线程分到的分片数; 多切几段使快慢不均的分片能被其他线程分担
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    public interface PartitionScan<A> {
+        // 把 [fromId, toId) 区间的问题累加到 accumulator
+        void scan(long fromId, long toId, A accumulator);
+    }
+
+    private final AnalyticsJdbcRepository analyticsRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int parallelism;
+    private final ExecutorService pool;
+
+    public PartitionedAggregator(AnalyticsJdbcRepository analyticsRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${analysis.parallelism:0}") int parallelism,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+                                 @Value("${analysis.reserved-connections:4}") int reservedConnections) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("analysis.parallelism 不能为负数");
+        }
+        if (reservedConnections < 0) {
+            throw new IllegalArgumentException("analysis.reserved-connections 不能为负数");
+        }
+        // 连接池中留给请求处理、入库与汇总表维护的连接, 其余可供分片扫描使用
+        int maxParallelism = connectionPoolSize - reservedConnections;
+        if (maxParallelism < 1) {
+            throw new IllegalStateException("连接池大小 " + connectionPoolSize + " 不足以在保留 " + reservedConnections
+                    + " 个连接后进行分片扫描, 请增大 spring.datasource.hikari.maximum-pool-size");
+        }
+        if (parallelism > maxParallelism) {
+            throw new IllegalStateException("analysis.parallelism=" + parallelism + " 超过连接池可供分片扫描的连接数 "
+                    + maxParallelism + " (maximum-pool-size 减去 analysis.reserved-connections)");
+        }
+        this.analyticsRepository = analyticsRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // 0 表示使用全部核心, 但不超过可供分片扫描的连接数
+        this.parallelism = parallelism == 0
+                ? Math.min(Runtime.getRuntime().availableProcessors(), maxParallelism) : parallelism;
+        this.pool = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread t = new Thread(r, "analysis-partition");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    // onMerged 在每个分片合并后以当前合并结果回调, 总在调用线程中执行; 可为 null
+    public <A> A aggregate(Supplier<A> newAccumulator, PartitionScan<A> scan, BiConsumer<A, A> merge,
+                           Consumer<A> onMerged) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 事务范围内查询得到的连接要到事务结束才归还, 调用线程等待分片期间会一直占着它
+            throw new IllegalStateException("分片聚合不能在事务中调用");
+        }
+        A result = newAccumulator.get();
+        long[] bounds = analyticsRepository.findQuestionIdBoundaries(parallelism * PARTITIONS_PER_THREAD);
+        if (bounds.length < 2) {
+            return result;
+        }
+        if (parallelism == 1) {
+            // 单线程时直接在调用线程中逐段扫描, 每段一个只读事务
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long fromId = bounds[i];
+                long toId = bounds[i + 1];
+                readOnlyTransaction.executeWithoutResult(status -> scan.scan(fromId, toId, result));
+                if (onMerged != null) {
+                    onMerged.accept(result);
+                }
+            }
+            return result;
+        }
+        CompletionService<A> completion = new ExecutorCompletionService<>(pool);
+        List<Future<A>> futures = new ArrayList<>(bounds.length - 1);
+        try {
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long fromId = bounds[i];
+                long toId = bounds[i + 1];
+                futures.add(completion.submit(() -> readOnlyTransaction.execute(status -> {
+                    A partial = newAccumulator.get();
+                    scan.scan(fromId, toId, partial);
+                    return partial;
+                })));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                merge.accept(result, completion.take().get());
+                if (onMerged != null) {
+                    onMerged.accept(result);
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("分片聚合被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("分片聚合失败", e.getCause());
+        } finally {
+            // 出错时取消尚未完成的分片
+            for (Future<A> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
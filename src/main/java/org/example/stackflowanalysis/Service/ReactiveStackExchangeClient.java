@@ -0,0 +1,67 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Util.StreamingPageDecoder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 非阻塞抓取一页: 响应体按网络分块流式解析, 每个问题解析完即向下游发出, 最后发出分页信息
+// 下游处理不过来时不再向连接请求数据, 背压一直传到 TCP 接收窗口
+@Component
+public class ReactiveStackExchangeClient {
+
+    public sealed interface PageEvent permits Item, End {}
+    public record Item(QuestionDto question) implements PageEvent {}
+    public record End(StreamingPageDecoder.PageMeta meta) implements PageEvent {}
+
+    private final WebClient webClient;
+    private final StackExchangeClient stackExchangeClient;
+    private final JsonMapper jsonMapper;
+
+    public ReactiveStackExchangeClient(@Qualifier("stackExchangeWebClient") WebClient webClient,
+                                       StackExchangeClient stackExchangeClient, JsonMapper jsonMapper) {
+        this.webClient = webClient;
+        this.stackExchangeClient = stackExchangeClient;
+        this.jsonMapper = jsonMapper;
+    }
+
+    // HTTP 错误以 WebClientResponseException 结束, 429 为其 TooManyRequests 子类
+    public Flux<PageEvent> streamQuestions(int page, long fromDate, long toDate, String sort) {
+        return webClient.get()
+                .uri(stackExchangeClient.questionsUri(page, fromDate, toDate, sort))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchangeToFlux(response -> {
+                    if (response.statusCode().isError()) {
+                        return response.<PageEvent>createError().flux();
+                    }
+                    StreamingPageDecoder<QuestionDto> decoder = new StreamingPageDecoder<>(jsonMapper, QuestionDto.class);
+                    return response.bodyToFlux(DataBuffer.class)
+                            .concatMapIterable(buffer -> decode(decoder, buffer), 1)
+                            .concatWith(Mono.fromCallable(() -> new End(decoder.finish())));
+                });
+    }
+
+    private static List<PageEvent> decode(StreamingPageDecoder<QuestionDto> decoder, DataBuffer buffer) {
+        List<PageEvent> events = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+            while (chunks.hasNext()) {
+                for (QuestionDto question : decoder.feed(chunks.next())) {
+                    events.add(new Item(question));
+                }
+            }
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return events;
+    }
+}
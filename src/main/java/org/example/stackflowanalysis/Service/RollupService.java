@@ -0,0 +1,128 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.Data.TagResponseTime;
+import org.example.stackflowanalysis.Data.TagTermCount;
+import org.example.stackflowanalysis.Repositories.*;
+import org.example.stackflowanalysis.Util.LatencyHistogram;
+import org.example.stackflowanalysis.Util.TermTokenizer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 汇总表的全量重建, 用于已有数据或汇总表出错后的修复
+@Service
+public class RollupService {
+
+    // 重建词频与回答耗时直方图时累积到这么多条再写库, 控制内存占用
+    private static final int FLUSH_THRESHOLD = 200_000;
+
+    private final TagMonthCountRepository tagMonthCountRepository;
+    private final QuestionRepository questionRepository;
+    private final TagTermCountRepository tagTermCountRepository;
+    private final TagAnswererCountRepository tagAnswererCountRepository;
+    private final TagResponseTimeRepository tagResponseTimeRepository;
+    private final AnalyticsJdbcRepository analyticsRepository;
+    private final IngestJdbcRepository ingestRepository;
+    private final DataVersion dataVersion;
+    private final ColumnarCorpusEngine columnarEngine;
+    private final SketchEngine sketchEngine;
+
+    public RollupService(TagMonthCountRepository tagMonthCountRepository, QuestionRepository questionRepository,
+                         TagTermCountRepository tagTermCountRepository,
+                         TagAnswererCountRepository tagAnswererCountRepository,
+                         TagResponseTimeRepository tagResponseTimeRepository,
+                         AnalyticsJdbcRepository analyticsRepository, IngestJdbcRepository ingestRepository,
+                         DataVersion dataVersion, ColumnarCorpusEngine columnarEngine, SketchEngine sketchEngine) {
+        this.tagMonthCountRepository = tagMonthCountRepository;
+        this.questionRepository = questionRepository;
+        this.tagTermCountRepository = tagTermCountRepository;
+        this.tagAnswererCountRepository = tagAnswererCountRepository;
+        this.tagResponseTimeRepository = tagResponseTimeRepository;
+        this.analyticsRepository = analyticsRepository;
+        this.ingestRepository = ingestRepository;
+        this.dataVersion = dataVersion;
+        this.columnarEngine = columnarEngine;
+        this.sketchEngine = sketchEngine;
+    }
+
+    @Transactional
+    public int rebuildTagMonthCounts() {
+        tagMonthCountRepository.deleteAllCounts();
+        dataVersion.bumpAfterCommit();
+        return tagMonthCountRepository.rebuildFromQuestions();
+    }
+
+    @Transactional
+    public int rebuildTagAnswererCounts() {
+        tagAnswererCountRepository.deleteAllCounts();
+        dataVersion.bumpAfterCommit();
+        return tagAnswererCountRepository.rebuildFromAnswers();
+    }
+
+    // 回填的字数与tag数是列存加载的列, 已加载的列存在提交后重新加载
+    @Transactional
+    public int rebuildQuestionStats() {
+        dataVersion.bumpAfterCommit();
+        columnarEngine.resetAfterCommit();
+        questionRepository.refreshResponseTimes();
+        return questionRepository.refreshPrecomputedStats();
+    }
+
+    // 由问题上的回答耗时重新分桶, 返回有回答的问题数; 问题上的耗时需先由 rebuildQuestionStats 回填
+    @Transactional
+    public int rebuildTagResponseTimes() {
+        tagResponseTimeRepository.deleteAllCounts();
+        dataVersion.bumpAfterCommit();
+        Map<TagResponseTime.Key, long[]> pending = new HashMap<>();
+        int[] questions = {0};
+        analyticsRepository.streamQuestionResponseTimes(rs -> {
+            String yearMonth = rs.getString(1);
+            int firstBucket = LatencyHistogram.bucket(rs.getLong(2));
+            long accepted = rs.getLong(3);
+            int acceptedBucket = rs.wasNull() ? -1 : LatencyHistogram.bucket(accepted);
+            for (Long tagId : (Long[]) rs.getArray(4).getArray()) {
+                pending.computeIfAbsent(new TagResponseTime.Key(tagId, yearMonth, firstBucket), key -> new long[2])[0]++;
+                if (acceptedBucket >= 0) {
+                    pending.computeIfAbsent(new TagResponseTime.Key(tagId, yearMonth, acceptedBucket),
+                            key -> new long[2])[1]++;
+                }
+            }
+            questions[0]++;
+            if (pending.size() >= FLUSH_THRESHOLD) {
+                ingestRepository.incrementTagResponseTimes(pending);
+                pending.clear();
+            }
+        });
+        ingestRepository.incrementTagResponseTimes(pending);
+        return questions[0];
+    }
+
+    // 重新分词全部问题, 返回处理的问题数
+    @Transactional
+    public int rebuildTagTermCounts() {
+        tagTermCountRepository.deleteAllCounts();
+        dataVersion.bumpAfterCommit();
+        // 草图中的词频与汇总表一样按分词结果累计, 提交后一并重新建立
+        sketchEngine.resetAfterCommit();
+        Map<TagTermCount.Key, Long> pending = new HashMap<>();
+        int[] questions = {0};
+        analyticsRepository.streamQuestionTexts(rs -> {
+            Long[] tagIds = (Long[]) rs.getArray(4).getArray();
+            if (tagIds.length > 0) {
+                Map<String, Integer> terms = TermTokenizer.INSTANCE.countTerms(rs.getString(2), rs.getString(3));
+                for (Long tagId : tagIds) {
+                    terms.forEach((term, count) -> pending.merge(new TagTermCount.Key(tagId, term), (long) count, Long::sum));
+                }
+            }
+            questions[0]++;
+            if (pending.size() >= FLUSH_THRESHOLD) {
+                ingestRepository.incrementTagTermCounts(pending);
+                pending.clear();
+            }
+        });
+        ingestRepository.incrementTagTermCounts(pending);
+        return questions[0];
+    }
+}
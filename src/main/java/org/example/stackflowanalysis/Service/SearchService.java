@@ -0,0 +1,28 @@
+package org.example.stackflowanalysis.Service;
+
+import io.micrometer.core.annotation.Timed;
+import org.example.stackflowanalysis.DTOs.SearchResultDto;
+import org.example.stackflowanalysis.Repositories.SearchJdbcRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// 全文检索; 查询组合过多不进入分析结果缓存, 依靠 GIN 索引直接查询
+@Service
+@Transactional(readOnly = true)
+public class SearchService {
+
+    private final SearchJdbcRepository searchRepository;
+
+    public SearchService(SearchJdbcRepository searchRepository) {
+        this.searchRepository = searchRepository;
+    }
+
+    @Timed(value = "search", histogram = true)
+    public SearchResultDto search(String query, List<String> tags, LocalDateTime from, LocalDateTime to,
+                                  int limit, int offset) {
+        return searchRepository.search(query, tags, from, to, limit, offset);
+    }
+}
@@ -0,0 +1,356 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.ApproximateResultDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Repositories.AnalyticsJdbcRepository;
+import org.example.stackflowanalysis.Repositories.IngestJdbcRepository;
+import org.example.stackflowanalysis.Util.AfterCommit;
+import org.example.stackflowanalysis.Util.CountMinSketch;
+import org.example.stackflowanalysis.Util.DistinctCountSketch;
+import org.example.stackflowanalysis.Util.HeavyHitters;
+import org.example.stackflowanalysis.Util.SketchHash;
+import org.example.stackflowanalysis.Util.TDigest;
+import org.example.stackflowanalysis.Util.TermTokenizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+// 近似分析用的草图, 内存固定 (由 analysis.approx.width 决定), 与已入库的问题数无关:
+// - 各粒度 tag×时间桶 的问题数、tag×词 的词频: Count-Min
+// - tag、tag组合 (不含 java)、词 的高频候选: Count-Min 加固定容量的候选表, 只有候选才会出现在topN与词云中
+// - 每个 tag×月 的提问者与回答者去重数: HyperLogLog 网格
+// - 问题得分、浏览数与回答者声望的分位数: t-digest
+// 首次查询时在一个可重复读事务中扫描全库建立, 之后每页入库提交后加入新插入的问题与回答;
+// 加载期间恰好提交的页可能被计入两次, 对近似结果的影响可忽略
+@Component
+public class SketchEngine {
+
+    private static final int DEPTH = 5;
+    private static final int TAG_CANDIDATES = 1024;
+    private static final int PAIR_CANDIDATES = 1024;
+    private static final int TERM_CANDIDATES = 4096;
+    private static final int DISTINCT_DEPTH = 3;
+    private static final int DISTINCT_WIDTH = 4096;
+    private static final int DISTINCT_PRECISION = 8;
+    private static final double COMPRESSION = 100;
+    private static final String EXCLUDED_TAG = "java";
+
+    // 分位数统计的指标: 问题得分与浏览数取入库时的值, 回答者声望按回答计, 回答多的用户权重大
+    public enum Metric {
+        SCORE, VIEWS, REPUTATION;
+
+        public static Metric parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("metric 必须是 score、views、reputation 之一");
+            }
+        }
+    }
+
+    private static final class Sketches {
+        final Map<TrendGranularity, CountMinSketch> bucketCounts = new EnumMap<>(TrendGranularity.class);
+        final HeavyHitters tags;
+        final HeavyHitters pairs;
+        final HeavyHitters terms;
+        final CountMinSketch tagTerms;
+        final DistinctCountSketch askers = new DistinctCountSketch(DISTINCT_DEPTH, DISTINCT_WIDTH, DISTINCT_PRECISION);
+        final DistinctCountSketch answerers = new DistinctCountSketch(DISTINCT_DEPTH, DISTINCT_WIDTH, DISTINCT_PRECISION);
+        final Map<Metric, TDigest> digests = new EnumMap<>(Metric.class);
+        long questions;
+        long answers;
+
+        Sketches(int width) {
+            for (TrendGranularity granularity : TrendGranularity.values()) {
+                bucketCounts.put(granularity, new CountMinSketch(DEPTH, width));
+            }
+            tags = new HeavyHitters(TAG_CANDIDATES, DEPTH, width);
+            pairs = new HeavyHitters(PAIR_CANDIDATES, DEPTH, width);
+            terms = new HeavyHitters(TERM_CANDIDATES, DEPTH, width);
+            tagTerms = new CountMinSketch(DEPTH, width);
+            for (Metric metric : Metric.values()) {
+                digests.put(metric, new TDigest(COMPRESSION));
+            }
+        }
+    }
+
+    private final AnalyticsJdbcRepository analyticsRepository;
+    private final TransactionTemplate loadTransaction;
+    private final int width;
+    // 首次查询前为 null, 不占内存
+    private Sketches sketches;
+
+    public SketchEngine(AnalyticsJdbcRepository analyticsRepository, PlatformTransactionManager transactionManager,
+                        @Value("${analysis.approx.width:65536}") int width) {
+        if (width < 1024 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("analysis.approx.width 必须是不小于1024的2的幂");
+        }
+        this.analyticsRepository = analyticsRepository;
+        this.width = width;
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setReadOnly(true);
+        this.loadTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    // 在入库事务中调用, 提交后加入本页新插入的问题与回答; 尚未建立时忽略, 建立时会从库中读到
+    public void applyAfterCommit(CommittedPage page) {
+        AfterCommit.run(() -> apply(page));
+    }
+
+    // 在重建词频的事务中调用, 提交后丢弃草图, 下一次近似查询时从库中重新建立 (按当前分词规则)
+    public void resetAfterCommit() {
+        AfterCommit.run(this::reset);
+    }
+
+    private synchronized void reset() {
+        sketches = null;
+    }
+
+    private synchronized void apply(CommittedPage page) {
+        if (sketches == null) {
+            return;
+        }
+        Map<Long, String> tagNames = new HashMap<>();
+        page.tagIds().forEach((name, id) -> tagNames.put(id, name));
+        for (QuestionDto qDto : page.insertedQuestions()) {
+            addQuestion(sketches, names(page.questionTagIds().get(qDto.questionId()), tagNames), qDto.creationDate(),
+                    qDto.score(), qDto.viewCount(),
+                    IngestJdbcRepository.isValidOwner(qDto.owner()) ? qDto.owner().userId() : null,
+                    qDto.title(), qDto.body());
+        }
+        page.answers().forEach((questionId, list) -> {
+            List<String> questionTags = names(page.questionTagIds().get(questionId), tagNames);
+            for (AnswerDto aDto : list) {
+                if (aDto.answerId() == null || !IngestJdbcRepository.isValidOwner(aDto.owner())) {
+                    continue;
+                }
+                // 重复加入去重计数不改变结果, 分位数只加入新插入的回答
+                addAnswer(sketches, questionTags, aDto.creationDate(), aDto.owner().userId(),
+                        page.insertedAnswerIds().contains(aDto.answerId()), aDto.owner().reputation());
+            }
+        });
+    }
+
+    private static List<String> names(long[] tagIds, Map<Long, String> tagNames) {
+        if (tagIds == null) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>(tagIds.length);
+        for (long tagId : tagIds) {
+            names.add(tagNames.get(tagId));
+        }
+        return names;
+    }
+
+    private synchronized Sketches sketches() {
+        if (sketches == null) {
+            Sketches built = new Sketches(width);
+            loadTransaction.executeWithoutResult(status -> load(built));
+            sketches = built;
+        }
+        return sketches;
+    }
+
+    private void load(Sketches built) {
+        analyticsRepository.streamSketchQuestions(rs -> {
+            long ownerId = rs.getLong(4);
+            Long askerId = rs.wasNull() ? null : ownerId;
+            addQuestion(built, tagNames(rs.getArray(7)), rs.getLong(1), rs.getInt(2), rs.getInt(3), askerId,
+                    rs.getString(5), rs.getString(6));
+        });
+        analyticsRepository.streamSketchAnswers(rs -> {
+            long answererId = rs.getLong(2);
+            if (rs.wasNull()) {
+                return;
+            }
+            int reputation = rs.getInt(3);
+            addAnswer(built, tagNames(rs.getArray(4)), rs.getLong(1), answererId, true, rs.wasNull() ? null : reputation);
+        });
+    }
+
+    private static List<String> tagNames(Array array) throws SQLException {
+        return array == null ? List.of() : Arrays.asList((String[]) array.getArray());
+    }
+
+    private static void addQuestion(Sketches s, List<String> tagNames, Long createdSeconds, int score, int views,
+                                    Long askerId, String title, String body) {
+        s.questions++;
+        s.digests.get(Metric.SCORE).add(score);
+        s.digests.get(Metric.VIEWS).add(views);
+        if (createdSeconds == null) {
+            return;
+        }
+        LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(createdSeconds, 86_400L));
+        long month = monthIndex(day);
+        long[] tagHashes = new long[tagNames.size()];
+        for (int i = 0; i < tagHashes.length; i++) {
+            String tag = tagNames.get(i);
+            long tagHash = SketchHash.of(tag);
+            tagHashes[i] = tagHash;
+            s.tags.add(tagHash, tag, 1);
+            s.bucketCounts.forEach((granularity, sketch) ->
+                    sketch.add(SketchHash.combine(tagHash, granularity.truncate(day).toEpochDay()), 1));
+            if (askerId != null) {
+                s.askers.add(SketchHash.combine(tagHash, month), askerId);
+            }
+        }
+        TermTokenizer.INSTANCE.countTerms(title, body).forEach((term, count) -> {
+            long termHash = SketchHash.of(term);
+            s.terms.add(termHash, term, count);
+            for (long tagHash : tagHashes) {
+                s.tagTerms.add(SketchHash.combine(tagHash, termHash), count);
+            }
+        });
+        // 组合按名称排序, 与精确结果的 "a + b" 一致
+        String[] sorted = tagNames.stream().filter(tag -> !EXCLUDED_TAG.equals(tag)).sorted().toArray(String[]::new);
+        for (int i = 0; i < sorted.length; i++) {
+            for (int j = i + 1; j < sorted.length; j++) {
+                s.pairs.add(SketchHash.combine(SketchHash.of(sorted[i]), SketchHash.of(sorted[j])),
+                        sorted[i] + " + " + sorted[j], 1);
+            }
+        }
+    }
+
+    // 只有新回答计入声望分位数, reputation 为 null 时也不计入
+    private static void addAnswer(Sketches s, List<String> tagNames, Long createdSeconds, long answererId,
+                                  boolean inserted, Integer reputation) {
+        if (inserted) {
+            s.answers++;
+            if (reputation != null) {
+                s.digests.get(Metric.REPUTATION).add(reputation);
+            }
+        }
+        if (createdSeconds == null) {
+            return;
+        }
+        long month = monthIndex(LocalDate.ofEpochDay(Math.floorDiv(createdSeconds, 86_400L)));
+        for (String tag : tagNames) {
+            s.answerers.add(SketchHash.combine(SketchHash.of(tag), month), answererId);
+        }
+    }
+
+    private static long monthIndex(LocalDate day) {
+        return day.getYear() * 12L + day.getMonthValue() - 1;
+    }
+
+    // ---- 查询 ----
+
+    // 各tag在各时间桶中的问题数, 日期区间 [startDay, endDay); 完整的桶直接查该粒度的草图,
+    // 首尾不完整的桶逐日累加, 误差上界按累加的天数放大; error 为所有桶中最大的上界
+    public synchronized ApproximateResultDto<Map<String, long[]>> countTags(
+            List<String> tagNames, TrendGranularity granularity, List<LocalDate> bucketStarts,
+            LocalDate startDay, LocalDate endDay) {
+        Sketches s = sketches();
+        CountMinSketch bucketSketch = s.bucketCounts.get(granularity);
+        CountMinSketch daySketch = s.bucketCounts.get(TrendGranularity.DAY);
+        Map<String, long[]> series = new LinkedHashMap<>();
+        double error = 0;
+        for (String tag : tagNames) {
+            long tagHash = SketchHash.of(tag);
+            long[] counts = new long[bucketStarts.size()];
+            for (int i = 0; i < counts.length; i++) {
+                LocalDate bucketStart = bucketStarts.get(i);
+                LocalDate bucketEnd = granularity.next(bucketStart);
+                if (!bucketStart.isBefore(startDay) && !bucketEnd.isAfter(endDay)) {
+                    counts[i] = bucketSketch.estimate(SketchHash.combine(tagHash, bucketStart.toEpochDay()));
+                    error = Math.max(error, bucketSketch.errorBound());
+                } else {
+                    LocalDate from = bucketStart.isBefore(startDay) ? startDay : bucketStart;
+                    LocalDate to = bucketEnd.isAfter(endDay) ? endDay : bucketEnd;
+                    for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+                        counts[i] += daySketch.estimate(SketchHash.combine(tagHash, day.toEpochDay()));
+                    }
+                    error = Math.max(error, daySketch.errorBound() * (to.toEpochDay() - from.toEpochDay()));
+                }
+            }
+            series.put(tag, counts);
+        }
+        return new ApproximateResultDto<>(series, "count-min", "absolute", error, bucketSketch.confidence(),
+                s.questions);
+    }
+
+    // 某月问题数最多的topN个tag, 候选为全部时间内的高频tag
+    public synchronized ApproximateResultDto<List<Map.Entry<String, Integer>>> topTagsInMonth(YearMonth yearMonth,
+                                                                                            int topN) {
+        Sketches s = sketches();
+        CountMinSketch monthSketch = s.bucketCounts.get(TrendGranularity.MONTH);
+        long monthStart = yearMonth.atDay(1).toEpochDay();
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        for (Map.Entry<String, Integer> candidate : s.tags.top(TAG_CANDIDATES)) {
+            int estimate = monthSketch.estimate(SketchHash.combine(SketchHash.of(candidate.getKey()), monthStart));
+            if (estimate > 0) {
+                counts.add(Map.entry(candidate.getKey(), estimate));
+            }
+        }
+        return new ApproximateResultDto<>(top(counts, topN), "count-min", "absolute", monthSketch.errorBound(),
+                monthSketch.confidence(), s.questions);
+    }
+
+    public synchronized ApproximateResultDto<List<Map.Entry<String, Integer>>> topPairs(int topN) {
+        Sketches s = sketches();
+        CountMinSketch pairSketch = s.pairs.sketch();
+        return new ApproximateResultDto<>(s.pairs.top(topN), "count-min", "absolute", pairSketch.errorBound(),
+                pairSketch.confidence(), s.questions);
+    }
+
+    // 某tag的词云, 候选为全部问题中的高频词
+    public synchronized ApproximateResultDto<Map<String, Long>> wordCloud(String tagName, int size) {
+        Sketches s = sketches();
+        long tagHash = SketchHash.of(tagName);
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        for (Map.Entry<String, Integer> candidate : s.terms.top(TERM_CANDIDATES)) {
+            int estimate = s.tagTerms.estimate(SketchHash.combine(tagHash, SketchHash.of(candidate.getKey())));
+            if (estimate > 0) {
+                counts.add(Map.entry(candidate.getKey(), estimate));
+            }
+        }
+        Map<String, Long> cloud = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : top(counts, size)) {
+            cloud.put(entry.getKey(), (long) entry.getValue());
+        }
+        return new ApproximateResultDto<>(cloud, "count-min", "absolute", s.tagTerms.errorBound(),
+                s.tagTerms.confidence(), s.questions);
+    }
+
+    // 某tag某月的提问者与回答者去重数; 提问按问题的创建月份, 回答按回答的创建月份
+    public synchronized ApproximateResultDto<Map<String, Long>> distinctUsers(String tagName, YearMonth yearMonth) {
+        Sketches s = sketches();
+        long group = SketchHash.combine(SketchHash.of(tagName), yearMonth.getYear() * 12L + yearMonth.getMonthValue() - 1);
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("askers", s.askers.estimate(group));
+        result.put("answerers", s.answerers.estimate(group));
+        return new ApproximateResultDto<>(result, "hyperloglog", "relative", s.askers.relativeStandardError(), null,
+                s.questions + s.answers);
+    }
+
+    // p50/p90/p99 与最小、最大值; error 为三个分位点中最大的排名误差
+    public synchronized ApproximateResultDto<Map<String, Double>> percentiles(Metric metric) {
+        TDigest digest = sketches().digests.get(metric);
+        Map<String, Double> result = new LinkedHashMap<>();
+        if (digest.count() > 0) {
+            result.put("min", digest.quantile(0));
+            result.put("p50", digest.quantile(0.5));
+            result.put("p90", digest.quantile(0.9));
+            result.put("p99", digest.quantile(0.99));
+            result.put("max", digest.quantile(1));
+        }
+        return new ApproximateResultDto<>(result, "t-digest", "rank", digest.rankError(0.5), null, digest.count());
+    }
+
+    // 按估计值降序、同值按名称排序取前n个
+    private static List<Map.Entry<String, Integer>> top(List<Map.Entry<String, Integer>> counts, int n) {
+        counts.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareTo(b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+        return new ArrayList<>(counts.subList(0, Math.min(n, counts.size())));
+    }
+}
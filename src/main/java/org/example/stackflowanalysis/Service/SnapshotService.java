@@ -0,0 +1,160 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.DTOs.SnapshotSummaryDto;
+import org.example.stackflowanalysis.Repositories.SnapshotJdbcRepository;
+import org.example.stackflowanalysis.Util.SnapshotReader;
+import org.example.stackflowanalysis.Util.SnapshotWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// 离线快照: 导出全部问题/回答/用户/tag到压缩的二进制文件, 导入时逐块解压并走正常的整页入库路径
+@Service
+public class SnapshotService {
+
+    private static final int EXPORT_PAGE_SIZE = 1000;
+    private static final int IMPORT_PAGE_SIZE = 500;
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private final SnapshotJdbcRepository snapshotRepository;
+    private final IngestService ingestService;
+    private final RollupService rollupService;
+    private final Path directory;
+
+    public SnapshotService(SnapshotJdbcRepository snapshotRepository, IngestService ingestService,
+                           RollupService rollupService, @Value("${snapshot.directory:snapshots}") String directory) {
+        this.snapshotRepository = snapshotRepository;
+        this.ingestService = ingestService;
+        this.rollupService = rollupService;
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+    }
+
+    // 整个导出在同一个可重复读事务中, 各分页看到同一时刻的数据; 先写临时文件再改名, 不留下半个快照
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public SnapshotSummaryDto export(String fileName) {
+        Path target = resolve(fileName);
+        long startedAt = System.currentTimeMillis();
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, fileName, ".part");
+            long questions;
+            long answers;
+            try (SnapshotWriter writer = new SnapshotWriter(temp)) {
+                long afterId = 0;
+                List<QuestionDto> page;
+                while (!(page = snapshotRepository.findQuestionsAfter(afterId, EXPORT_PAGE_SIZE)).isEmpty()) {
+                    for (QuestionDto question : page) {
+                        writer.write(question);
+                    }
+                    afterId = page.get(page.size() - 1).questionId();
+                }
+                questions = writer.questions();
+                answers = writer.answers();
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new SnapshotSummaryDto(target.getFileName().toString(), questions, answers, 0,
+                    Files.size(target), System.currentTimeMillis() - startedAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException("快照导出失败: " + e.getMessage(), e);
+        }
+    }
+
+    // 先完整读一遍文件校验各数据块, 文件截断或损坏时不写入任何数据
+    // 之后每页一个事务, 写库中途失败时已导入的页保留, 重新导入会跳过已存在的问题
+    // 向空库导入时汇总表不逐页增量更新, 最后整体重建, 比逐页upsert快得多; 中途失败时也重建,
+    // 否则已提交的页没有汇总, 而库已非空, 重新导入走增量路径跳过这些问题, 汇总表一直缺少它们
+    public SnapshotSummaryDto importSnapshot(String fileName) {
+        Path source = resolve(fileName);
+        if (!Files.isRegularFile(source)) {
+            throw new IllegalArgumentException("快照文件不存在: " + fileName);
+        }
+        long startedAt = System.currentTimeMillis();
+        verify(source);
+        long questions = 0;
+        long answers = 0;
+        long newQuestions = 0;
+        boolean bootstrap = !snapshotRepository.hasQuestions();
+        boolean rollupsStale = false;
+        Throwable failure = null;
+        try (SnapshotReader reader = new SnapshotReader(source)) {
+            List<QuestionDto> block;
+            while ((block = reader.nextBlock()) != null) {
+                for (int from = 0; from < block.size(); from += IMPORT_PAGE_SIZE) {
+                    List<QuestionDto> page = block.subList(from, Math.min(block.size(), from + IMPORT_PAGE_SIZE));
+                    if (bootstrap) {
+                        newQuestions += ingestService.ingestPageWithoutRollups(page);
+                        rollupsStale = true;
+                    } else {
+                        newQuestions += ingestService.ingestPage(page);
+                    }
+                }
+                questions += block.size();
+                for (QuestionDto question : block) {
+                    answers += question.answers().size();
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException("快照导入失败: " + e.getMessage(), e);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (rollupsStale) {
+                try {
+                    rebuildRollups();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        throw e;
+                    }
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        try {
+            return new SnapshotSummaryDto(source.getFileName().toString(), questions, answers, newQuestions,
+                    Files.size(source), System.currentTimeMillis() - startedAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException("快照导入失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void rebuildRollups() {
+        rollupService.rebuildTagMonthCounts();
+        rollupService.rebuildTagTermCounts();
+        rollupService.rebuildTagAnswererCounts();
+        rollupService.rebuildTagResponseTimes();
+    }
+
+    // 解压并解析全部数据块, 与导入时读取的内容相同, 但不保留问题也不写库
+    private static void verify(Path source) {
+        try (SnapshotReader reader = new SnapshotReader(source)) {
+            while (reader.nextBlock() != null) {
+                // 只检查能否完整读出
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("快照导入失败: " + e.getMessage(), e);
+        }
+    }
+
+    // 只允许快照目录下的普通文件名, 防止通过接口读写任意路径
+    private Path resolve(String fileName) {
+        if (fileName == null || !FILE_NAME.matcher(fileName).matches() || fileName.startsWith(".")) {
+            throw new IllegalArgumentException("快照文件名只能包含字母、数字、点、下划线和短横线");
+        }
+        return directory.resolve(fileName);
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.DTOs.StackOverflowResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.Optional;
+
+// StackExchange 问题列表接口; 地址可指向本地回放服务做压测
+@Component
+public class StackExchangeClient {
+
+    private static final ParameterizedTypeReference<StackOverflowResponse<QuestionDto>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final String site;
+    private final String tagged;
+    private final String filter;
+    private final int pageSize;
+    private final String key;
+
+    public StackExchangeClient(@Qualifier("stackExchangeRestTemplate") RestTemplate restTemplate,
+                               @Value("${collector.api.base-url:https://api.stackexchange.com/2.3}") String baseUrl,
+                               @Value("${collector.api.site:stackoverflow}") String site,
+                               @Value("${collector.api.tagged:java}") String tagged,
+                               @Value("${collector.api.filter:!aksql6NjneanAa}") String filter,
+                               @Value("${collector.api.page-size:50}") int pageSize,
+                               @Value("${collector.api.key:}") String key) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+        this.site = site;
+        this.tagged = tagged;
+        this.filter = filter;
+        this.pageSize = pageSize;
+        this.key = key;
+    }
+
+    // 429 以 HttpClientErrorException.TooManyRequests 抛出, 由调用方统一退避
+    public StackOverflowResponse<QuestionDto> fetchQuestions(int page, long fromDate, long toDate, String sort) {
+        return restTemplate.exchange(questionsUri(page, fromDate, toDate, sort), HttpMethod.GET, null, RESPONSE_TYPE)
+                .getBody();
+    }
+
+    public URI questionsUri(int page, long fromDate, long toDate, String sort) {
+        return UriComponentsBuilder.fromUriString(baseUrl)
+                .path("/questions")
+                .queryParam("page", page)
+                .queryParam("pagesize", pageSize)
+                .queryParam("fromdate", fromDate)
+                .queryParam("todate", toDate)
+                .queryParam("order", "desc")
+                .queryParam("sort", sort)
+                .queryParam("tagged", tagged)
+                .queryParam("site", site)
+                .queryParam("filter", filter)
+                .queryParamIfPresent("key", key.isBlank() ? Optional.empty() : Optional.of(key))
+                .build()
+                .encode()
+                .toUri();
+    }
+}
@@ -0,0 +1,164 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.AnalysisProgressDto;
+import org.example.stackflowanalysis.Repositories.AnalyticsJdbcRepository;
+import org.example.stackflowanalysis.Util.LongIntHashMap;
+import org.example.stackflowanalysis.Util.TopKHeap;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// tag共现统计: 按问题id分片并行流式读取question_tags, tag名映射为稠密int id, 各分片组合键计数后合并, 小顶堆取topN
+// 结果按数据版本缓存, 只有新问题入库后才重新计算
+@Component
+public class TagCoOccurrenceEngine {
+
+    // 接口允许的topN上限, 缓存按此大小计算, 更小的topN直接截取
+    static final int CACHED_TOP_N = 100;
+    private static final String EXCLUDED_TAG = "java";
+
+    private final AnalyticsJdbcRepository analyticsRepository;
+    private final PartitionedAggregator aggregator;
+    private final DataVersion dataVersion;
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(long version, int limit, List<Map.Entry<String, Integer>> topPairs) {}
+
+    public TagCoOccurrenceEngine(AnalyticsJdbcRepository analyticsRepository, PartitionedAggregator aggregator,
+                                 DataVersion dataVersion) {
+        this.analyticsRepository = analyticsRepository;
+        this.aggregator = aggregator;
+        this.dataVersion = dataVersion;
+    }
+
+    // 不在事务中执行, 见 PartitionedAggregator
+    public List<Map.Entry<String, Integer>> topPairs(int topN) {
+        return topPairs(topN, null);
+    }
+
+    // progress 不为空时, 需要重新计算的情况下每合并一个分片回调一次按当前计数得到的topN
+    public List<Map.Entry<String, Integer>> topPairs(
+            int topN, Consumer<AnalysisProgressDto<List<Map.Entry<String, Integer>>>> progress) {
+        Snapshot cached = snapshot;
+        long version = dataVersion.current();
+        if (cached == null || cached.version() != version || cached.limit() < topN) {
+            synchronized (this) {
+                cached = snapshot;
+                version = dataVersion.current();
+                if (cached == null || cached.version() != version || cached.limit() < topN) {
+                    int limit = Math.max(topN, CACHED_TOP_N);
+                    cached = new Snapshot(version, limit, compute(limit, topN, progress));
+                    snapshot = cached;
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> pairs = cached.topPairs();
+        return new ArrayList<>(pairs.subList(0, Math.min(topN, pairs.size())));
+    }
+
+    private List<Map.Entry<String, Integer>> compute(
+            int limit, int progressTopN, Consumer<AnalysisProgressDto<List<Map.Entry<String, Integer>>>> progress) {
+        // 按名称排序后分配稠密id, 这样id的大小顺序与名称的字典序一致
+        Map<Long, String> tagNames = analyticsRepository.findAllTagNames();
+        String[] names = tagNames.values().stream().sorted().toArray(String[]::new);
+        Map<String, Integer> denseIdByName = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            denseIdByName.put(names[i], i);
+        }
+        Map<Long, Integer> denseIdByTagId = new HashMap<>(names.length * 2);
+        tagNames.forEach((id, name) -> {
+            if (!EXCLUDED_TAG.equals(name)) {
+                denseIdByTagId.put(id, denseIdByName.get(name));
+            }
+        });
+
+        int expectedPairs = Math.max(1024, names.length * 8);
+        long total = progress == null ? 0 : analyticsRepository.countQuestions();
+        PairCounts merged = aggregator.aggregate(
+                () -> new PairCounts(expectedPairs),
+                (fromId, toId, partial) -> {
+                    PairCollector collector = new PairCollector(partial.counts);
+                    analyticsRepository.streamQuestionTags(fromId, toId, rs -> {
+                        Integer denseId = denseIdByTagId.get(rs.getLong(2));
+                        collector.accept(rs.getLong(1), denseId == null ? -1 : denseId);
+                    });
+                    collector.flush();
+                    partial.questions += collector.questions;
+                },
+                PairCounts::merge,
+                progress == null ? null : current -> progress.accept(new AnalysisProgressDto<>(
+                        current.questions, total, topEntries(current.counts, progressTopN, names))));
+        return topEntries(merged.counts, limit, names);
+    }
+
+    private static List<Map.Entry<String, Integer>> topEntries(LongIntHashMap pairCounts, int limit, String[] names) {
+        TopKHeap heap = new TopKHeap(limit);
+        pairCounts.forEach(heap::offer);
+        int[] counts = new int[heap.size()];
+        long[] keys = heap.drainKeysDescending(counts);
+        List<Map.Entry<String, Integer>> result = new ArrayList<>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            String first = names[(int) (keys[i] >>> 32)];
+            String second = names[(int) keys[i]];
+            result.add(Map.entry(first + " + " + second, counts[i]));
+        }
+        return result;
+    }
+
+    // 一个分片的累加器: 组合键计数与已处理的问题数
+    private static final class PairCounts {
+        final LongIntHashMap counts;
+        long questions;
+
+        PairCounts(int expectedPairs) {
+            counts = new LongIntHashMap(expectedPairs);
+        }
+
+        void merge(PairCounts other) {
+            other.counts.forEach(counts::addTo);
+            questions += other.questions;
+        }
+    }
+
+    // 累积同一个问题的tag, 问题切换时把两两组合计入pairCounts
+    private static final class PairCollector {
+        private final LongIntHashMap pairCounts;
+        private int[] tags = new int[16];
+        private int tagCount;
+        private long currentQuestion = Long.MIN_VALUE;
+        // 已处理的问题数
+        long questions;
+
+        PairCollector(LongIntHashMap pairCounts) {
+            this.pairCounts = pairCounts;
+        }
+
+        void accept(long questionId, int denseTagId) {
+            if (questionId != currentQuestion) {
+                flush();
+                currentQuestion = questionId;
+                questions++;
+            }
+            if (denseTagId < 0) {
+                return;
+            }
+            if (tagCount == tags.length) {
+                tags = Arrays.copyOf(tags, tagCount * 2);
+            }
+            tags[tagCount++] = denseTagId;
+        }
+
+        void flush() {
+            if (tagCount > 1) {
+                Arrays.sort(tags, 0, tagCount);
+                for (int i = 0; i < tagCount; i++) {
+                    for (int j = i + 1; j < tagCount; j++) {
+                        pairCounts.addTo(((long) tags[i] << 32) | tags[j], 1);
+                    }
+                }
+            }
+            tagCount = 0;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.stackflowanalysis.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+// 趋势的时间桶粒度; 周以周一为起点, 与 PostgreSQL date_trunc('week') 一致
+public enum TrendGranularity {
+    DAY, WEEK, MONTH, YEAR;
+
+    public static TrendGranularity parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("granularity 必须是 day、week、month、year 之一");
+        }
+    }
+
+    // 日期所在时间桶的起始日
+    public LocalDate truncate(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+            case YEAR -> date.withDayOfYear(1);
+        };
+    }
+
+    public LocalDate next(LocalDate bucketStart) {
+        return switch (this) {
+            case DAY -> bucketStart.plusDays(1);
+            case WEEK -> bucketStart.plusWeeks(1);
+            case MONTH -> bucketStart.plusMonths(1);
+            case YEAR -> bucketStart.plusYears(1);
+        };
+    }
+
+    // 时间桶标签: 日和周为起始日 yyyy-MM-dd, 月为 yyyy-MM, 年为 yyyy
+    public String label(LocalDate bucketStart) {
+        return switch (this) {
+            case DAY, WEEK -> bucketStart.toString();
+            case MONTH -> bucketStart.toString().substring(0, 7);
+            case YEAR -> String.valueOf(bucketStart.getYear());
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.stackflowanalysis.Util;
+
+// Count-Min 计数草图 (保守更新): depth 行 × width 列的int计数器, 内存与加入的数据量无关
+// 估计值不小于真实值, 且以 1 - e^-depth 的概率至多高出 ε·N, 其中 ε = e/width, N 为累计加入的总数; 非线程安全
+public final class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int[] counters;
+    private long total;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 2 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("depth 必须为正数, width 必须为2的幂");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counters = new int[depth * width];
+    }
+
+    // 累加并返回累加后的估计值; 只抬高低于新估计值的计数器
+    public int add(long key, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count 必须为正数");
+        }
+        total += count;
+        int target = estimate(key) + count;
+        for (int row = 0; row < depth; row++) {
+            int index = index(row, key);
+            if (counters[index] < target) {
+                counters[index] = target;
+            }
+        }
+        return target;
+    }
+
+    public int estimate(long key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[index(row, key)]);
+        }
+        return estimate;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    // 单个估计值的误差上界 ε·N
+    public double errorBound() {
+        return Math.E / width * total;
+    }
+
+    // 误差不超过上界的概率
+    public double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    private int index(int row, long key) {
+        long h = SketchHash.mix(key ^ (row + 1) * 0x9e3779b97f4a7c15L);
+        return row * width + (int) (h & (width - 1));
+    }
+}
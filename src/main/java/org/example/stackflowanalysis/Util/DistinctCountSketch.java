@@ -0,0 +1,77 @@
+package org.example.stackflowanalysis.Util;
+
+// 分组去重计数: depth 行 × width 列的 HyperLogLog 网格, 每格 2^precision 个单字节寄存器
+// 分组在每行按哈希落到一格, 估计值取各行中最小者; 与其他分组同格只会使估计偏大
+// 内存固定为 depth·width·2^precision 字节; 单个HLL的相对标准误差约为 1.04/sqrt(2^precision); 非线程安全
+public final class DistinctCountSketch {
+
+    private final int depth;
+    private final int width;
+    private final int precision;
+    private final int registers;
+    private final byte[] cells;
+
+    public DistinctCountSketch(int depth, int width, int precision) {
+        if (depth < 1 || width < 2 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("depth 必须为正数, width 必须为2的幂");
+        }
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision 必须在 4 到 16 之间");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.precision = precision;
+        this.registers = 1 << precision;
+        this.cells = new byte[depth * width * registers];
+    }
+
+    // 重复加入同一元素不改变结果
+    public void add(long group, long item) {
+        long h = SketchHash.mix(item);
+        int register = (int) (h >>> (64 - precision));
+        // 余下的位中第一个1出现的位置, 全0时为 65 - precision
+        int rank = Math.min(Long.numberOfLeadingZeros(h << precision) + 1, 65 - precision);
+        for (int row = 0; row < depth; row++) {
+            int index = cellOffset(row, group) + register;
+            if (cells[index] < rank) {
+                cells[index] = (byte) rank;
+            }
+        }
+    }
+
+    public long estimate(long group) {
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, cellEstimate(cellOffset(row, group)));
+        }
+        return Math.round(estimate);
+    }
+
+    public double relativeStandardError() {
+        return 1.04 / Math.sqrt(registers);
+    }
+
+    private double cellEstimate(int offset) {
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < registers; i++) {
+            int value = cells[offset + i];
+            sum += 1.0 / (1L << value);
+            if (value == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / registers);
+        double estimate = alpha * registers * registers / sum;
+        // 小基数时改用线性计数
+        if (estimate <= 2.5 * registers && zeros > 0) {
+            return registers * Math.log((double) registers / zeros);
+        }
+        return estimate;
+    }
+
+    private int cellOffset(int row, long group) {
+        long h = SketchHash.mix(group ^ (row + 1) * 0x9e3779b97f4a7c15L);
+        return (row * width + (int) (h & (width - 1))) * registers;
+    }
+}
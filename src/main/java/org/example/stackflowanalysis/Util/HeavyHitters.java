@@ -0,0 +1,109 @@
+package org.example.stackflowanalysis.Util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 近似的高频项: Count-Min 计数加容量固定的候选表, 累加后估计值超过候选表中最小者的键替换之
+// 候选表为按估计值的小顶堆, 键到堆位置的索引用 HashMap; 内存只取决于容量与草图大小; 非线程安全
+public final class HeavyHitters {
+
+    private final CountMinSketch sketch;
+    private final long[] keys;
+    private final int[] counts;
+    private final String[] labels;
+    private final Map<Long, Integer> positions;
+    private int size;
+
+    public HeavyHitters(int capacity, int depth, int width) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity 必须为正数");
+        }
+        sketch = new CountMinSketch(depth, width);
+        keys = new long[capacity];
+        counts = new int[capacity];
+        labels = new String[capacity];
+        positions = new HashMap<>(capacity * 2);
+    }
+
+    // label 为键对应的展示名称, 只有进入候选表时才保存
+    public void add(long key, String label, int count) {
+        int estimate = sketch.add(key, count);
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] = estimate;
+            siftDown(position);
+        } else if (size < keys.length) {
+            set(size, key, label, estimate);
+            siftUp(size++);
+        } else if (estimate > counts[0]) {
+            positions.remove(keys[0]);
+            set(0, key, label, estimate);
+            siftDown(0);
+        }
+    }
+
+    public CountMinSketch sketch() {
+        return sketch;
+    }
+
+    // 候选表中估计值最大的n个 (名称, 当前估计值), 按估计值降序, 相同时按名称排序
+    public List<Map.Entry<String, Integer>> top(int n) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(Map.entry(labels[i], sketch.estimate(keys[i])));
+        }
+        entries.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareTo(b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+        return new ArrayList<>(entries.subList(0, Math.min(n, entries.size())));
+    }
+
+    private void set(int i, long key, String label, int count) {
+        keys[i] = key;
+        labels[i] = label;
+        counts[i] = count;
+        positions.put(key, i);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[i] >= counts[parent]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && counts[left + 1] < counts[left] ? left + 1 : left;
+            if (counts[i] <= counts[smallest]) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long key = keys[i];
+        String label = labels[i];
+        int count = counts[i];
+        keys[i] = keys[j];
+        labels[i] = labels[j];
+        counts[i] = counts[j];
+        keys[j] = key;
+        labels[j] = label;
+        counts[j] = count;
+        positions.put(keys[i], i);
+        positions.put(keys[j], j);
+    }
+}
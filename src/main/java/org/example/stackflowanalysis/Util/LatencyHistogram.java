@@ -0,0 +1,51 @@
+package org.example.stackflowanalysis.Util;
+
+// 耗时 (秒) 的对数分桶: 桶0为0秒, 桶 b (b>=1) 为 [2^((b-1)/4), 2^(b/4)) 秒, 每个2倍区间分4桶;
+// 相邻桶边界相差约19%, 分位数取所在桶的几何中点, 相对误差不超过约9%. 超过 2^(MAX_BUCKET/4) 秒的都记入最后一桶
+public final class LatencyHistogram {
+
+    public static final int MAX_BUCKET = 127;
+    public static final int BUCKETS = MAX_BUCKET + 1;
+    private static final int PER_OCTAVE = 4;
+
+    private LatencyHistogram() {}
+
+    public static int bucket(long seconds) {
+        if (seconds <= 0) {
+            return 0;
+        }
+        // 2的幂次按整数位数精确计算, 只有八度内的细分用浮点对数
+        int octave = 63 - Long.numberOfLeadingZeros(seconds);
+        double fraction = seconds / (double) (1L << octave);
+        int sub = Math.min(PER_OCTAVE - 1, (int) (PER_OCTAVE * Math.log(fraction) / Math.log(2)));
+        return Math.min(MAX_BUCKET, 1 + octave * PER_OCTAVE + sub);
+    }
+
+    // 桶的代表值 (秒): 上下边界的几何中点
+    public static double midpoint(int bucket) {
+        if (bucket == 0) {
+            return 0;
+        }
+        return Math.pow(2, (bucket - 0.5) / PER_OCTAVE);
+    }
+
+    // counts 为各桶计数; 没有数据时返回 null
+    public static Long percentile(long[] counts, double q) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long cumulative = 0;
+        for (int b = 0; b < counts.length; b++) {
+            cumulative += counts[b];
+            if (cumulative >= rank) {
+                return Math.round(midpoint(b));
+            }
+        }
+        return Math.round(midpoint(counts.length - 1));
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.stackflowanalysis.Util;
+
+import java.util.Arrays;
+
+// long 的开放寻址哈希集合, 每个元素约16字节, 用于百万级问题id去重; 非线程安全
+public final class LongHashSet {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashSet(int expectedSize) {
+        allocate(tableSizeFor(Math.max(expectedSize, MIN_CAPACITY / 2) * 2));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long key) {
+        checkKey(key);
+        int slot = mix(key) & mask;
+        while (true) {
+            long k = keys[slot];
+            if (k == key) return true;
+            if (k == EMPTY) return false;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // 新加入返回true, 已存在返回false
+    public boolean add(long key) {
+        checkKey(key);
+        int slot = mix(key) & mask;
+        while (true) {
+            long k = keys[slot];
+            if (k == key) {
+                return false;
+            }
+            if (k == EMPTY) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    rehash();
+                }
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        allocate(oldKeys.length * 2);
+        for (long k : oldKeys) {
+            if (k != EMPTY) {
+                int slot = mix(k) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = k;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("不支持的键: " + key);
+        }
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(Math.max(n - 1, 1)) << 1;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量过大: " + n);
+        }
+        return capacity;
+    }
+
+    // murmur3 fmix64
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
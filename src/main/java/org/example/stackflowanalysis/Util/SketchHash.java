@@ -0,0 +1,29 @@
+package org.example.stackflowanalysis.Util;
+
+// 草图共用的64位哈希: 字符串用 FNV-1a 后再混合, 组合键把两个哈希混合为一个
+public final class SketchHash {
+
+    private SketchHash() {}
+
+    public static long of(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    public static long combine(long first, long second) {
+        return mix(mix(first) ^ second);
+    }
+
+    // MurmurHash3 的 fmix64
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.stackflowanalysis.Util;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// 按块读取 SnapshotWriter 写出的快照: 文件以只读方式分段内存映射, 压缩数据直接从映射区解压, 不经过堆上拷贝
+public final class SnapshotReader implements Closeable {
+
+    private static final long WINDOW_BYTES = 256L << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final Inflater inflater = new Inflater();
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private byte[] raw = new byte[1 << 20];
+    private boolean finished;
+
+    public SnapshotReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.fileSize = channel.size();
+            ByteBuffer header = map(SnapshotWriter.HEADER_BYTES);
+            byte[] magic = new byte[SnapshotWriter.MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, SnapshotWriter.MAGIC)) {
+                throw new IOException("不是有效的快照文件: " + file);
+            }
+            short version = header.getShort();
+            if (version != SnapshotWriter.VERSION) {
+                throw new IOException("不支持的快照版本: " + version);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        position += SnapshotWriter.HEADER_BYTES;
+    }
+
+    // 读取下一个数据块中的全部问题, 读完返回 null; 文件截断或数据块损坏 (含 zlib 校验和不符) 时抛出 IOException
+    public List<QuestionDto> nextBlock() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int compressedLength = map(Integer.BYTES).getInt();
+        if (compressedLength == 0) {
+            finished = true;
+            return null;
+        }
+        ByteBuffer blockHeader = map(SnapshotWriter.BLOCK_HEADER_BYTES);
+        blockHeader.getInt();
+        int rawLength = blockHeader.getInt();
+        int questionCount = blockHeader.getInt();
+        if (compressedLength < 0 || rawLength < 0 || rawLength == Integer.MAX_VALUE || questionCount < 0) {
+            throw new IOException("快照数据块已损坏");
+        }
+        position += SnapshotWriter.BLOCK_HEADER_BYTES;
+        ByteBuffer compressed = map(compressedLength);
+        position += compressedLength;
+        // 多留一个字节, 解压结果比块头记录的更长时能够发现
+        if (raw.length <= rawLength) {
+            raw = new byte[rawLength + 1];
+        }
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            // 一直解压到压缩流结束, 这样末尾的 Adler-32 校验和也会被检查
+            while (length <= rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, rawLength + 1 - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != rawLength || !inflater.finished() || inflater.getRemaining() != 0) {
+                throw new IOException("快照数据块已损坏");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("快照数据块已损坏", e);
+        }
+        ByteBuffer block = ByteBuffer.wrap(raw, 0, rawLength);
+        List<QuestionDto> questions = new ArrayList<>(Math.min(questionCount, rawLength));
+        try {
+            for (int i = 0; i < questionCount; i++) {
+                questions.add(readQuestion(block));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("快照数据块已损坏", e);
+        }
+        if (block.hasRemaining()) {
+            throw new IOException("快照数据块已损坏");
+        }
+        return questions;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        window = null;
+        channel.close();
+    }
+
+    // 返回从当前位置开始、至少 length 字节的映射视图; 超出当前窗口时重新映射
+    private ByteBuffer map(int length) throws IOException {
+        if (position + length > fileSize) {
+            throw new IOException("快照文件不完整");
+        }
+        if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+            windowStart = position;
+            long size = Math.min(fileSize - position, Math.max(WINDOW_BYTES, length));
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+        }
+        return window.slice((int) (position - windowStart), length);
+    }
+
+    private static QuestionDto readQuestion(ByteBuffer block) {
+        long id = block.getLong();
+        String title = readString(block);
+        String body = readString(block);
+        long created = block.getLong();
+        int score = block.getInt();
+        int viewCount = block.getInt();
+        int answerCount = block.getInt();
+        boolean answered = block.get() != 0;
+        OwnerDto owner = readOwner(block);
+        int tagCount = block.getInt();
+        // 计数来自文件, 损坏时可能极大, 预分配不超过剩余字节数
+        List<String> tags = new ArrayList<>(Math.min(tagCount, block.remaining()));
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(readString(block));
+        }
+        int storedAnswers = block.getInt();
+        List<AnswerDto> answers = new ArrayList<>(Math.min(storedAnswers, block.remaining()));
+        for (int i = 0; i < storedAnswers; i++) {
+            long answerId = block.getLong();
+            String answerBody = readString(block);
+            long answerCreated = block.getLong();
+            int answerScore = block.getInt();
+            boolean accepted = block.get() != 0;
+            answers.add(new AnswerDto(answerId, answerBody, answerCreated, answerScore, accepted, readOwner(block)));
+        }
+        return new QuestionDto(id, title, body, created, score, viewCount, answerCount, answered, tags, owner, answers);
+    }
+
+    private static OwnerDto readOwner(ByteBuffer block) {
+        byte kind = block.get();
+        if (kind == SnapshotWriter.OWNER_ABSENT) {
+            return null;
+        }
+        long userId = block.getLong();
+        String name = readString(block);
+        Integer reputation = kind == SnapshotWriter.OWNER_PRESENT ? block.getInt() : null;
+        return new OwnerDto(userId, name, reputation);
+    }
+
+    private static String readString(ByteBuffer block) {
+        int length = block.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > block.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(block.array(), block.arrayOffset() + block.position(), length, StandardCharsets.UTF_8);
+        block.position(block.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.stackflowanalysis.Util;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+// 快照文件格式 (大端序):
+//   文件头: 魔数 "SOSNAP" + short 版本号
+//   数据块: int 压缩后长度 + int 原始长度 + int 问题数 + Deflate 压缩的问题记录; 压缩长度为0表示文件结束
+//   问题记录: 定长字段 + 长度前缀的UTF-8字符串, 用户/tag/回答内嵌其中, 与接口返回的结构一致
+public final class SnapshotWriter implements Closeable {
+
+    static final byte[] MAGIC = {'S', 'O', 'S', 'N', 'A', 'P'};
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = MAGIC.length + Short.BYTES;
+    static final int BLOCK_HEADER_BYTES = 3 * Integer.BYTES;
+    static final byte OWNER_ABSENT = 0;
+    static final byte OWNER_PRESENT = 1;
+    static final byte OWNER_WITHOUT_REPUTATION = 2;
+
+    private static final int BLOCK_TARGET_BYTES = 1 << 20;
+
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(BLOCK_TARGET_BYTES + (64 << 10));
+    private final DataOutputStream block = new DataOutputStream(blockBytes);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[BLOCK_TARGET_BYTES];
+    private int blockQuestions;
+    private long questions;
+    private long answers;
+
+    public SnapshotWriter(Path file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.write(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    public void write(QuestionDto question) throws IOException {
+        block.writeLong(question.questionId());
+        writeString(question.title());
+        writeString(question.body());
+        block.writeLong(question.creationDate());
+        block.writeInt(question.score());
+        block.writeInt(question.viewCount());
+        block.writeInt(question.answerCount());
+        block.writeBoolean(question.isAnswered());
+        writeOwner(question.owner());
+        List<String> tags = question.tags() == null ? List.of() : question.tags();
+        block.writeInt(tags.size());
+        for (String tag : tags) {
+            writeString(tag);
+        }
+        List<AnswerDto> questionAnswers = question.answers() == null ? List.of() : question.answers();
+        block.writeInt(questionAnswers.size());
+        for (AnswerDto answer : questionAnswers) {
+            block.writeLong(answer.answerId());
+            writeString(answer.body());
+            block.writeLong(answer.creationDate());
+            block.writeInt(answer.score());
+            block.writeBoolean(answer.isAccepted());
+            writeOwner(answer.owner());
+        }
+        questions++;
+        answers += questionAnswers.size();
+        blockQuestions++;
+        if (blockBytes.size() >= BLOCK_TARGET_BYTES) {
+            flushBlock();
+        }
+    }
+
+    public long questions() {
+        return questions;
+    }
+
+    public long answers() {
+        return answers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+            out.writeInt(0);
+            out.close();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockQuestions == 0) {
+            return;
+        }
+        byte[] raw = blockBytes.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.writeInt(length);
+        out.writeInt(raw.length);
+        out.writeInt(blockQuestions);
+        out.write(compressed, 0, length);
+        blockBytes.reset();
+        blockQuestions = 0;
+    }
+
+    private void writeOwner(OwnerDto owner) throws IOException {
+        if (owner == null || owner.userId() == null) {
+            block.writeByte(OWNER_ABSENT);
+            return;
+        }
+        block.writeByte(owner.reputation() == null ? OWNER_WITHOUT_REPUTATION : OWNER_PRESENT);
+        block.writeLong(owner.userId());
+        writeString(owner.displayName());
+        if (owner.reputation() != null) {
+            block.writeInt(owner.reputation());
+        }
+    }
+
+    // 长度前缀字符串, -1 表示 null; 不用 writeUTF, 正文可能超过 64KB
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            block.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        block.writeInt(bytes.length);
+        block.write(bytes);
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.stackflowanalysis.Util;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.async.ByteBufferFeeder;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.util.TokenBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// 增量解析 StackExchange 分页响应 {"items":[...], "has_more":..., "quota_remaining":..., "backoff":...}
+// 数据按网络分块喂入, items 中每个元素一闭合就反序列化交出, 不需要先缓冲整页; 其余顶层字段解析完后由 finish 返回
+// 非线程安全, 每个响应一个实例
+public final class StreamingPageDecoder<T> {
+
+    public record PageMeta(boolean hasMore, int quotaRemaining, Integer backoff) {}
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> itemType;
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+
+    private int depth;
+    // 顶层对象是否已闭合; 空响应或只有空白也算不完整, 不能当作最后一页
+    private boolean closed;
+    private String topLevelField;
+    private boolean inItems;
+    private TokenBuffer element;
+    private int elementDepth;
+
+    private boolean hasMore;
+    private int quotaRemaining;
+    private Integer backoff;
+
+    public StreamingPageDecoder(ObjectMapper objectMapper, Class<T> itemType) {
+        this.objectMapper = objectMapper;
+        this.itemType = itemType;
+        this.parser = objectMapper.createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.nonBlockingInputFeeder();
+    }
+
+    // 喂入一块数据, 返回这块数据中解析完成的元素; chunk 在返回前被完全读取, 调用方随后可以释放
+    public List<T> feed(ByteBuffer chunk) {
+        List<T> completed = new ArrayList<>();
+        if (!chunk.hasRemaining()) {
+            return completed;
+        }
+        feeder.feedInput(chunk);
+        drain(completed);
+        return completed;
+    }
+
+    public PageMeta finish() {
+        feeder.endOfInput();
+        List<T> trailing = new ArrayList<>();
+        drain(trailing);
+        if (!trailing.isEmpty() || !closed || element != null) {
+            throw new IllegalStateException("响应JSON不完整");
+        }
+        parser.close();
+        return new PageMeta(hasMore, quotaRemaining, backoff);
+    }
+
+    private void drain(List<T> completed) {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (element != null) {
+                element.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    elementDepth++;
+                } else if (token.isStructEnd() && --elementDepth == 0) {
+                    completed.add(objectMapper.readValue(element, itemType));
+                    element = null;
+                }
+                continue;
+            }
+            if (inItems && depth == 2 && token == JsonToken.START_OBJECT) {
+                element = TokenBuffer.forBuffering(parser, parser.objectReadContext());
+                element.copyCurrentEvent(parser);
+                elementDepth = 1;
+                continue;
+            }
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    depth++;
+                    if (depth == 2 && token == JsonToken.START_ARRAY && "items".equals(topLevelField)) {
+                        inItems = true;
+                    }
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    if (depth == 2) {
+                        inItems = false;
+                    }
+                    depth--;
+                    closed = depth == 0;
+                }
+                case PROPERTY_NAME -> {
+                    if (depth == 1) {
+                        topLevelField = parser.currentName();
+                    }
+                }
+                default -> {
+                    if (depth == 1) {
+                        readTopLevelValue(token);
+                    }
+                }
+            }
+        }
+    }
+
+    private void readTopLevelValue(JsonToken token) {
+        switch (topLevelField) {
+            case "has_more" -> hasMore = token == JsonToken.VALUE_TRUE;
+            case "quota_remaining" -> quotaRemaining = parser.getIntValue();
+            case "backoff" -> backoff = token == JsonToken.VALUE_NULL ? null : parser.getIntValue();
+            default -> {
+            }
+        }
+    }
+}
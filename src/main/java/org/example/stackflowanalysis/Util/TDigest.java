@@ -0,0 +1,136 @@
+package org.example.stackflowanalysis.Util;
+
+import java.util.Arrays;
+
+// 合并式 t-digest: 新值先进缓冲区, 满后与已有质心按均值归并, 再按 k1 尺度函数 k(q) = δ/(2π)·asin(2q-1) 压缩,
+// 每个质心跨度不超过 1 个k单位, 因此两端分位数更精确; 质心数不超过 δ+1, 内存与加入的数量无关; 非线程安全
+public final class TDigest {
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    private final double[] buffer;
+    private int buffered;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("compression 不能小于10");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) + 2;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[capacity * 5];
+    }
+
+    public void add(double value) {
+        if (buffered == buffer.length) {
+            flush();
+        }
+        buffer[buffered++] = value;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    // 分位点 q 的估计值, 没有数据时为 NaN
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q 必须在 0 到 1 之间");
+        }
+        flush();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+        // 质心的均值视为位于其权重区间的中点, 中点之间线性插值; 两端与最小、最大值插值
+        double index = q * count;
+        if (index <= weights[0] / 2) {
+            return min + (means[0] - min) * (index / (weights[0] / 2));
+        }
+        double cumulative = 0;
+        for (int i = 0; i < centroids - 1; i++) {
+            double left = cumulative + weights[i] / 2;
+            double right = cumulative + weights[i] + weights[i + 1] / 2;
+            if (index <= right) {
+                return means[i] + (means[i + 1] - means[i]) * ((index - left) / (right - left));
+            }
+            cumulative += weights[i];
+        }
+        double last = weights[centroids - 1] / 2;
+        double fromLast = index - (count - last);
+        return means[centroids - 1] + (max - means[centroids - 1]) * Math.min(fromLast / last, 1);
+    }
+
+    // 分位点 q 处估计值所在排名的误差比例, 约为质心跨度的一半 π·sqrt(q(1-q))/δ
+    public double rankError(double q) {
+        return Math.PI * Math.sqrt(q * (1 - q)) / compression;
+    }
+
+    private void flush() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        int n = centroids + buffered;
+        double[] mergedMeans = new double[n];
+        double[] mergedWeights = new double[n];
+        int i = 0, j = 0;
+        for (int k = 0; k < n; k++) {
+            if (j >= buffered || (i < centroids && means[i] <= buffer[j])) {
+                mergedMeans[k] = means[i];
+                mergedWeights[k] = weights[i++];
+            } else {
+                mergedMeans[k] = buffer[j++];
+                mergedWeights[k] = 1;
+            }
+        }
+        buffered = 0;
+        compress(mergedMeans, mergedWeights, n);
+    }
+
+    private void compress(double[] inMeans, double[] inWeights, int n) {
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += inWeights[k];
+        }
+        if (means.length < n) {
+            means = new double[n];
+            weights = new double[n];
+        }
+        int out = 0;
+        means[0] = inMeans[0];
+        weights[0] = inWeights[0];
+        double before = 0;
+        double limit = total * quantileLimit(0);
+        for (int k = 1; k < n; k++) {
+            if (before + weights[out] + inWeights[k] <= limit) {
+                weights[out] += inWeights[k];
+                means[out] += (inMeans[k] - means[out]) * inWeights[k] / weights[out];
+            } else {
+                before += weights[out];
+                limit = total * quantileLimit(before / total);
+                out++;
+                means[out] = inMeans[k];
+                weights[out] = inWeights[k];
+            }
+        }
+        centroids = out + 1;
+    }
+
+    // 从分位点 q 起跨 1 个k单位后的分位点
+    private double quantileLimit(double q) {
+        double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1) + 1;
+        return k >= compression / 4 ? 1 : (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+}
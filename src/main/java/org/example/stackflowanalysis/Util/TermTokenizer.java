@@ -0,0 +1,209 @@
+package org.example.stackflowanalysis.Util;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// 词云分词: 单遍扫描, 跳过HTML标签, 只保留[a-z0-9_], 合并多单词专业名词, 过滤停用词和短词
+// 无正则、无中间字符串, 只为最终输出的词分配String; 线程安全, 可共享
+public final class TermTokenizer {
+
+    // 复合多单词专业名词, 合并为下划线连接的单个词
+    private static final String[] PHRASES = {
+            "race condition",
+            "dead lock",
+            "memory leak",
+            "thread safe",
+            "thread pool",
+            "context switch",
+            "concurrent modification",
+            "wait notify",
+            "count down latch",
+            "atomic integer"
+    };
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            // 句子常用词
+            "the", "is", "are", "was", "were", "and", "or", "but", "if", "of", "to", "in", "on", "at",
+            "for", "with", "about", "by", "as", "it", "this", "that", "these", "those", "can", "could",
+            "would", "should", "have", "has", "had", "do", "does", "did", "not", "so", "be", "been",
+            "what", "how", "you", "all", "some", "one", "then", "which", "when", "there", "than",
+            "also", "any", "them", "why", "here", "will",
+            // Java 关键字 (如果不想统计 public class 这种词)
+            "public", "private", "protected", "class", "interface", "void", "return", "static", "final",
+            "new", "import", "package", "try", "catch", "throw", "throws", "extends", "implements", "thread",
+            "threads", "false", "int", "long", "main", "string", "true", "null", "println",
+            // 上下文噪音词
+            "code", "java", "problem", "issue", "question", "want", "need", "help", "using", "example",
+            "output", "error", "exception", "run", "running", "work", "use", "used", "get", "quot", "like"
+    );
+
+    private static final int MIN_TERM_LENGTH = 3;
+    private static final String[][] PHRASE_WORDS = Arrays.stream(PHRASES)
+            .map(p -> p.split(" "))
+            .toArray(String[][]::new);
+    private static final int MAX_PHRASE_WORDS = Arrays.stream(PHRASE_WORDS).mapToInt(w -> w.length).max().orElse(1);
+
+    public static final TermTokenizer INSTANCE = new TermTokenizer();
+
+    private TermTokenizer() {}
+
+    // 两个词之间的分隔: 尚无字符, 恰好一个ASCII空格, 其他 (多个字符、标签、文本开头等)
+    private static final int GAP_NONE = 0;
+    private static final int GAP_SPACE = 1;
+    private static final int GAP_OTHER = 2;
+
+    // 统计若干段文本中的词频, 文本之间视为一个空格分隔 (与原先按 标题 + " " + 正文 拼接一致)
+    public Map<String, Integer> countTerms(String... texts) {
+        Map<String, Integer> counts = new HashMap<>();
+        tokenize(term -> counts.merge(term, 1, Integer::sum), texts);
+        return counts;
+    }
+
+    public void tokenize(Consumer<String> sink, String... texts) {
+        PhraseJoiner joiner = new PhraseJoiner(sink);
+        char[] buffer = new char[64];
+        int gap = GAP_OTHER;
+        boolean first = true;
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            if (!first) {
+                gap = nextGap(gap, ' ');
+            }
+            first = false;
+            int length = 0;
+            int n = text.length();
+            for (int i = 0; i < n; i++) {
+                char c = text.charAt(i);
+                if (c == '<') {
+                    int close = text.indexOf('>', i + 1);
+                    if (length > 0) {
+                        length = emit(joiner, buffer, length, gap);
+                        gap = GAP_NONE;
+                    }
+                    if (close >= 0) {
+                        i = close;
+                    }
+                    gap = GAP_OTHER;
+                    continue;
+                }
+                if (c >= 'A' && c <= 'Z') {
+                    c = (char) (c + ('a' - 'A'));
+                }
+                if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_') {
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, length * 2);
+                    }
+                    buffer[length++] = c;
+                } else {
+                    if (length > 0) {
+                        length = emit(joiner, buffer, length, gap);
+                        gap = GAP_NONE;
+                    }
+                    gap = nextGap(gap, c);
+                }
+            }
+            if (length > 0) {
+                emit(joiner, buffer, length, gap);
+                gap = GAP_NONE;
+            }
+        }
+        joiner.flush();
+    }
+
+    private static int emit(PhraseJoiner joiner, char[] buffer, int length, int gap) {
+        joiner.accept(new String(buffer, 0, length), gap == GAP_SPACE);
+        return 0;
+    }
+
+    private static int nextGap(int gap, char c) {
+        return gap == GAP_NONE && c == ' ' ? GAP_SPACE : GAP_OTHER;
+    }
+
+    // 待定词最多保留 MAX_PHRASE_WORDS-1 个, 能组成专业名词则合并输出, 否则逐个按普通词输出
+    // 与原先的子串替换一致: 词之间须恰好是一个空格; 首词只需以短语首词结尾, 末词只需以短语末词开头 (如 thread pools -> thread_pools)
+    private static final class PhraseJoiner {
+        private final Consumer<String> sink;
+        private final String[] pending = new String[MAX_PHRASE_WORDS];
+        private int pendingCount;
+
+        PhraseJoiner(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        // spaced: 与前一个词之间恰好是一个空格, 否则不能与待定词组成短语
+        void accept(String token, boolean spaced) {
+            if (!spaced) {
+                flush();
+            }
+            pending[pendingCount++] = token;
+            while (pendingCount > 0) {
+                boolean couldContinue = false;
+                for (String[] words : PHRASE_WORDS) {
+                    int match = matches(words);
+                    if (match == words.length) {
+                        emitJoined();
+                        return;
+                    }
+                    if (match == pendingCount) {
+                        couldContinue = true;
+                    }
+                }
+                if (couldContinue && pendingCount < MAX_PHRASE_WORDS) {
+                    return;
+                }
+                emitFirst();
+            }
+        }
+
+        void flush() {
+            while (pendingCount > 0) {
+                emitFirst();
+            }
+        }
+
+        // 返回待定词与短语前缀匹配的词数: 全部匹配且完整时返回短语长度, 仅前缀匹配返回pendingCount, 否则-1
+        private int matches(String[] words) {
+            if (pendingCount > words.length) {
+                return -1;
+            }
+            for (int i = 0; i < pendingCount; i++) {
+                String token = pending[i];
+                boolean last = i == words.length - 1;
+                boolean ok;
+                if (i == 0) {
+                    ok = last ? token.contains(words[i]) : token.endsWith(words[i]);
+                } else {
+                    ok = last ? token.startsWith(words[i]) : token.equals(words[i]);
+                }
+                if (!ok) {
+                    return -1;
+                }
+            }
+            return pendingCount == words.length ? words.length : pendingCount;
+        }
+
+        private void emitJoined() {
+            StringBuilder joined = new StringBuilder(pending[0]);
+            for (int i = 1; i < pendingCount; i++) {
+                joined.append('_').append(pending[i]);
+            }
+            pendingCount = 0;
+            offer(joined.toString());
+        }
+
+        private void emitFirst() {
+            String first = pending[0];
+            System.arraycopy(pending, 1, pending, 0, pendingCount - 1);
+            pending[--pendingCount] = null;
+            offer(first);
+        }
+
+        private void offer(String term) {
+            if (term.length() >= MIN_TERM_LENGTH && !STOP_WORDS.contains(term)) {
+                sink.accept(term);
+            }
+        }
+    }
+}
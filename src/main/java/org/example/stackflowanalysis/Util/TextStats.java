@@ -0,0 +1,30 @@
+package org.example.stackflowanalysis.Util;
+
+// 入库时预计算的文本统计
+public final class TextStats {
+
+    private TextStats() {}
+
+    // 与 content.trim().split("\\s+").length 结果一致, 但不分配数组; 空内容记为0
+    public static int countWords(String content) {
+        if (content == null || content.isEmpty()) {
+            return 0;
+        }
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < content.length(); i++) {
+            if (isRegexWhitespace(content.charAt(i))) {
+                inWord = false;
+            } else if (!inWord) {
+                inWord = true;
+                words++;
+            }
+        }
+        return Math.max(words, 1);
+    }
+
+    // 正则 \s 的字符集合
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
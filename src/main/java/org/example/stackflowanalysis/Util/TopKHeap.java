@@ -0,0 +1,86 @@
+package org.example.stackflowanalysis.Util;
+
+// 固定容量的小顶堆, 保留计数最大的K个(long键, int计数); 计数相同时键小者优先
+public final class TopKHeap {
+
+    private final long[] keys;
+    private final int[] counts;
+    private int size;
+
+    public TopKHeap(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k 必须为正数");
+        }
+        keys = new long[k];
+        counts = new int[k];
+    }
+
+    public void offer(long key, int count) {
+        if (size < keys.length) {
+            keys[size] = key;
+            counts[size] = count;
+            siftUp(size++);
+        } else if (worse(0, key, count)) {
+            keys[0] = key;
+            counts[0] = count;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 按计数降序取出全部元素, 调用后堆为空
+    public long[] drainKeysDescending(int[] countsOut) {
+        int n = size;
+        long[] sortedKeys = new long[n];
+        for (int i = n - 1; i >= 0; i--) {
+            sortedKeys[i] = keys[0];
+            countsOut[i] = counts[0];
+            size--;
+            keys[0] = keys[size];
+            counts[0] = counts[size];
+            siftDown(0);
+        }
+        return sortedKeys;
+    }
+
+    // 堆中i位置的元素是否比(key, count)排名更低
+    private boolean worse(int i, long key, int count) {
+        return counts[i] < count || (counts[i] == count && keys[i] > key);
+    }
+
+    private boolean less(int i, int j) {
+        return worse(i, keys[j], counts[j]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int smallest = left + 1 < size && less(left + 1, left) ? left + 1 : left;
+            if (!less(smallest, i)) break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        int c = counts[i];
+        counts[i] = counts[j];
+        counts[j] = c;
+    }
+}
@@ -0,0 +1,107 @@
+-- 初始表结构, 与此前 Hibernate ddl-auto=update 生成的结构一致 (含约束名)
+-- 已由 Hibernate 建好表的库以 baseline 版本 0 接入 (spring.flyway.baseline-on-migrate), 本脚本各语句均为 IF NOT EXISTS
+CREATE TABLE IF NOT EXISTS question_owners (
+    id         bigint       NOT NULL,
+    reputation integer      NOT NULL,
+    username   varchar(255) NOT NULL,
+    CONSTRAINT question_owners_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS tags (
+    id   bigint GENERATED BY DEFAULT AS IDENTITY,
+    name varchar(255) NOT NULL,
+    CONSTRAINT tags_pkey PRIMARY KEY (id),
+    CONSTRAINT ukt48xdq560gs3gap9g7jg36kgc UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS questions (
+    id           bigint       NOT NULL,
+    answer_count integer      NOT NULL,
+    content      text         NOT NULL,
+    date_time    timestamp(6) NOT NULL,
+    is_answered  boolean      NOT NULL,
+    score        integer      NOT NULL,
+    title        varchar(255) NOT NULL,
+    view_count   integer      NOT NULL,
+    owner_id     bigint,
+    tag_count    integer DEFAULT 0 NOT NULL,
+    word_count   integer DEFAULT 0 NOT NULL,
+    CONSTRAINT questions_pkey PRIMARY KEY (id),
+    CONSTRAINT fke2e884esl58ovcd80lttlne7m FOREIGN KEY (owner_id) REFERENCES question_owners (id)
+);
+
+CREATE TABLE IF NOT EXISTS question_tags (
+    question_id bigint NOT NULL,
+    tag_id      bigint NOT NULL,
+    CONSTRAINT question_tags_pkey PRIMARY KEY (question_id, tag_id),
+    CONSTRAINT fkee6kn1hbh2ka2qj64bv30esbw FOREIGN KEY (question_id) REFERENCES questions (id),
+    CONSTRAINT fk4s4qdqgvc98lx55s3hu9vqam7 FOREIGN KEY (tag_id) REFERENCES tags (id)
+);
+
+CREATE TABLE IF NOT EXISTS answers (
+    id          bigint       NOT NULL,
+    content     text         NOT NULL,
+    date_time   timestamp(6) NOT NULL,
+    is_accepted boolean      NOT NULL,
+    score       integer      NOT NULL,
+    answerer_id bigint,
+    question_id bigint       NOT NULL,
+    CONSTRAINT answers_pkey PRIMARY KEY (id),
+    CONSTRAINT fk3erw1a3t0r78st8ty27x6v3g1 FOREIGN KEY (question_id) REFERENCES questions (id),
+    CONSTRAINT fkmwyn9qr5avjy8471bvj6k3non FOREIGN KEY (answerer_id) REFERENCES question_owners (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_answers_question ON answers (question_id);
+
+CREATE TABLE IF NOT EXISTS tag_month_counts (
+    tag_id     bigint     NOT NULL,
+    year_month varchar(7) NOT NULL,
+    count      bigint     NOT NULL,
+    CONSTRAINT tag_month_counts_pkey PRIMARY KEY (tag_id, year_month)
+);
+
+CREATE INDEX IF NOT EXISTS idx_tag_month_counts_month ON tag_month_counts (year_month, count DESC);
+
+CREATE TABLE IF NOT EXISTS tag_term_counts (
+    tag_id bigint       NOT NULL,
+    term   varchar(255) NOT NULL,
+    count  bigint       NOT NULL,
+    CONSTRAINT tag_term_counts_pkey PRIMARY KEY (tag_id, term)
+);
+
+CREATE INDEX IF NOT EXISTS idx_tag_term_counts_top ON tag_term_counts (tag_id, count DESC);
+
+CREATE TABLE IF NOT EXISTS tag_answerer_counts (
+    answerer_id    bigint NOT NULL,
+    tag_id         bigint NOT NULL,
+    accepted_count bigint NOT NULL,
+    answer_count   bigint NOT NULL,
+    score_sum      bigint NOT NULL,
+    CONSTRAINT tag_answerer_counts_pkey PRIMARY KEY (answerer_id, tag_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_tag_answerer_counts_top ON tag_answerer_counts (tag_id, answer_count DESC);
+
+CREATE TABLE IF NOT EXISTS crawl_runs (
+    id          bigint GENERATED BY DEFAULT AS IDENTITY,
+    finished_at timestamp(6),
+    from_epoch  bigint       NOT NULL,
+    started_at  timestamp(6) NOT NULL,
+    state       varchar(16)  NOT NULL,
+    to_epoch    bigint       NOT NULL,
+    CONSTRAINT crawl_runs_pkey PRIMARY KEY (id),
+    CONSTRAINT crawl_runs_state_check CHECK (state IN ('RUNNING', 'COMPLETED'))
+);
+
+CREATE TABLE IF NOT EXISTS crawl_checkpoints (
+    id          bigint GENERATED BY DEFAULT AS IDENTITY,
+    chunk_end   bigint      NOT NULL,
+    chunk_start bigint      NOT NULL,
+    completed   boolean     NOT NULL,
+    next_page   integer     NOT NULL,
+    run_id      bigint      NOT NULL,
+    strategy    varchar(16) NOT NULL,
+    updated_at  timestamp(6),
+    CONSTRAINT crawl_checkpoints_pkey PRIMARY KEY (id),
+    CONSTRAINT uk4umlhpxjf5sxoe4n4axskgt8j UNIQUE (run_id, chunk_start, strategy)
+);
@@ -0,0 +1,13 @@
+-- 全文检索: 问题标题(A)与正文(B)、回答正文(C) 的 tsvector 存储生成列, 插入或更新时由数据库自动维护
+-- 语句均幂等, 此前每次启动都执行过本脚本的库重复执行时不做任何事
+-- 正文为HTML, 默认解析器把标签识别为 tag 记号, english 配置不索引它们
+ALTER TABLE questions ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english'::regconfig, coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('english'::regconfig, coalesce(content, '')), 'B')) STORED;
+
+ALTER TABLE answers ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english'::regconfig, coalesce(content, '')), 'C')) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_questions_search ON questions USING gin (search_vector);
+
+CREATE INDEX IF NOT EXISTS idx_answers_search ON answers USING gin (search_vector);
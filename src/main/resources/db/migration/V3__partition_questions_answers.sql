@@ -0,0 +1,102 @@
+-- questions 与 answers 按 date_time 做月度范围分区 (questions_2024_03 等), 带时间区间条件的查询只扫描涉及的分区
+-- 分区表的主键必须包含分区键, 主键改为 (id, date_time); 问题与回答的创建时间不会变化, 按 (id, date_time) 判断冲突与按 id 等价
+-- 分区表上没有单独 id 的唯一约束, question_tags 与 answers 指向 questions 的外键无法保留, 由入库事务先写问题保证
+-- 新月份的分区由入库时调用 create_month_partition 创建, 没有默认分区: 落在不存在分区的行直接报错而不是堆积在默认分区
+
+-- 为 parent 创建 month 所在月份的分区, 已存在时直接返回
+-- 先建独立的表再 ATTACH, 父表只加 SHARE UPDATE EXCLUSIVE 锁, 不阻塞对已有分区的查询与写入; 同一父表的创建以 advisory 锁串行
+CREATE OR REPLACE FUNCTION create_month_partition(parent text, month date) RETURNS void
+LANGUAGE plpgsql AS $$
+DECLARE
+    from_time timestamp := date_trunc('month', month);
+    to_time   timestamp := date_trunc('month', month) + interval '1 month';
+    partition text      := parent || '_' || to_char(month, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    PERFORM pg_advisory_xact_lock(hashtext(parent));
+    IF to_regclass(partition) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING GENERATED)', partition, parent);
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   parent, partition, from_time, to_time);
+END
+$$;
+
+ALTER TABLE questions RENAME TO questions_unpartitioned;
+ALTER INDEX questions_pkey RENAME TO questions_unpartitioned_pkey;
+ALTER TABLE answers RENAME TO answers_unpartitioned;
+ALTER INDEX answers_pkey RENAME TO answers_unpartitioned_pkey;
+DROP INDEX idx_questions_search, idx_answers_search, idx_answers_question;
+
+CREATE TABLE questions (
+    id            bigint       NOT NULL,
+    answer_count  integer      NOT NULL,
+    content       text         NOT NULL,
+    date_time     timestamp(6) NOT NULL,
+    is_answered   boolean      NOT NULL,
+    score         integer      NOT NULL,
+    title         varchar(255) NOT NULL,
+    view_count    integer      NOT NULL,
+    owner_id      bigint,
+    tag_count     integer DEFAULT 0 NOT NULL,
+    word_count    integer DEFAULT 0 NOT NULL,
+    search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('english'::regconfig, coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('english'::regconfig, coalesce(content, '')), 'B')) STORED,
+    CONSTRAINT questions_pkey PRIMARY KEY (id, date_time),
+    CONSTRAINT fke2e884esl58ovcd80lttlne7m FOREIGN KEY (owner_id) REFERENCES question_owners (id)
+) PARTITION BY RANGE (date_time);
+
+CREATE TABLE answers (
+    id            bigint       NOT NULL,
+    content       text         NOT NULL,
+    date_time     timestamp(6) NOT NULL,
+    is_accepted   boolean      NOT NULL,
+    score         integer      NOT NULL,
+    answerer_id   bigint,
+    question_id   bigint       NOT NULL,
+    search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('english'::regconfig, coalesce(content, '')), 'C')) STORED,
+    CONSTRAINT answers_pkey PRIMARY KEY (id, date_time),
+    CONSTRAINT fkmwyn9qr5avjy8471bvj6k3non FOREIGN KEY (answerer_id) REFERENCES question_owners (id)
+) PARTITION BY RANGE (date_time);
+
+-- 已有数据覆盖的每个月都建分区 (含中间没有数据的月份)
+SELECT create_month_partition('questions', m::date)
+FROM generate_series((SELECT date_trunc('month', min(date_time)) FROM questions_unpartitioned),
+                     (SELECT max(date_time) FROM questions_unpartitioned), interval '1 month') AS m;
+
+SELECT create_month_partition('answers', m::date)
+FROM generate_series((SELECT date_trunc('month', min(date_time)) FROM answers_unpartitioned),
+                     (SELECT max(date_time) FROM answers_unpartitioned), interval '1 month') AS m;
+
+INSERT INTO questions (id, answer_count, content, date_time, is_answered, score, title, view_count, owner_id,
+                       tag_count, word_count)
+SELECT id, answer_count, content, date_time, is_answered, score, title, view_count, owner_id, tag_count, word_count
+FROM questions_unpartitioned;
+
+INSERT INTO answers (id, content, date_time, is_accepted, score, answerer_id, question_id)
+SELECT id, content, date_time, is_accepted, score, answerer_id, question_id
+FROM answers_unpartitioned;
+
+DROP TABLE answers_unpartitioned;
+-- 同时删除 question_tags 指向旧表的外键
+DROP TABLE questions_unpartitioned CASCADE;
+
+-- 数据写入后再建索引; 分区表上的索引自动建到每个分区, 之后新建的分区也会带上
+-- 每个月分区内行大致按抓取的时间片顺序写入, 日期区间用体积很小的 BRIN 索引即可
+CREATE INDEX idx_questions_date ON questions USING brin (date_time);
+CREATE INDEX idx_questions_search ON questions USING gin (search_vector);
+CREATE INDEX idx_answers_question ON answers (question_id);
+CREATE INDEX idx_answers_date ON answers USING brin (date_time);
+CREATE INDEX idx_answers_search ON answers USING gin (search_vector);
+-- 按tag查问题: 只读索引即可得到问题id, 不访问 question_tags 表
+CREATE INDEX IF NOT EXISTS idx_question_tags_tag ON question_tags (tag_id, question_id);
+
+-- autovacuum 只分析各个分区, 父表上的统计信息需要显式收集
+ANALYZE questions;
+ANALYZE answers;
+ANALYZE question_tags;
@@ -0,0 +1,14 @@
+-- 每个问题最早回答与被采纳回答距提问的秒数, 没有 (被采纳的) 回答时为空; 入库时由页中的回答计算
+-- 已有数据由 /api/rollup/rebuild 回填, 同时重建 tag_response_times
+ALTER TABLE questions
+    ADD COLUMN IF NOT EXISTS first_answer_seconds bigint,
+    ADD COLUMN IF NOT EXISTS accepted_answer_seconds bigint;
+
+CREATE TABLE IF NOT EXISTS tag_response_times (
+    tag_id         bigint     NOT NULL,
+    year_month     varchar(7) NOT NULL,
+    bucket         smallint   NOT NULL,
+    first_count    bigint     NOT NULL,
+    accepted_count bigint     NOT NULL,
+    CONSTRAINT tag_response_times_pkey PRIMARY KEY (tag_id, year_month, bucket)
+);
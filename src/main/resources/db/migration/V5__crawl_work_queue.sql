@@ -0,0 +1,10 @@
+-- 抓取检查点兼作多实例共享的工作队列: 实例以 FOR UPDATE SKIP LOCKED 认领未完成的 (时间片, 排序) 组合并持有租约,
+-- 每写入一页在同一事务中续约; 实例失联后租约过期, 其他实例从最后提交的页码继续. 时间均取数据库时钟
+ALTER TABLE crawl_checkpoints
+    ADD COLUMN IF NOT EXISTS lease_owner varchar(64),
+    ADD COLUMN IF NOT EXISTS lease_expires_at timestamp(6),
+    ADD COLUMN IF NOT EXISTS attempts integer DEFAULT 0 NOT NULL;
+
+-- 认领时按计划顺序扫描未完成的检查点
+CREATE INDEX IF NOT EXISTS idx_crawl_checkpoints_pending ON crawl_checkpoints (run_id, chunk_start, strategy)
+    WHERE NOT completed;
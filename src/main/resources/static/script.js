@@ -7,24 +7,83 @@ let coocChartInstance = null;
 let solvabilityChartInstance = null;
 
 
-async function triggerCollection() {
+let collectionStream = null;
+
+function triggerCollection() {
     const btn = document.getElementById('collectBtn');
     const status = document.getElementById('collectionStatus');
-    
+
     btn.disabled = true;
-    status.innerText = "Collecting data... (Check backend logs)";
-    
+    status.innerText = "Starting data collection...";
+    followCollection();
+}
+
+async function cancelCollection() {
     try {
-        const response = await fetch(`${API_BASE}/collect`);
-        const text = await response.text();
-        status.innerText = "Started: " + text;
+        const response = await fetch(`${API_BASE}/collect/cancel`);
+        if (response.ok) {
+            renderCollectionStatus(await response.json());
+        }
     } catch (error) {
-        status.innerText = "Error: " + error.message;
-    } finally {
-        setTimeout(() => { btn.disabled = false; }, 5000);
+        console.error("Failed to cancel collection", error);
     }
 }
 
+// 订阅采集进度 (SSE): 未运行时会启动任务, 运行中则直接接入
+function followCollection() {
+    if (collectionStream) collectionStream.close();
+    collectionStream = streamAnalysis(`${API_BASE}/collect/stream`, {
+        progress: job => renderCollectionStatus(job),
+        result: job => {
+            collectionStream = null;
+            if (job.state) {
+                renderCollectionStatus(job);
+            } else {
+                document.getElementById('collectBtn').disabled = false;
+            }
+        },
+        error: message => {
+            collectionStream = null;
+            document.getElementById('collectionStatus').innerText = "Error: " + message;
+            document.getElementById('collectBtn').disabled = false;
+        }
+    });
+}
+
+// 订阅 SSE 接口: progress 为阶段性结果, result 为最终结果, error 为服务端错误; 收到终止事件后关闭连接
+function streamAnalysis(url, handlers) {
+    const source = new EventSource(url);
+    source.addEventListener('progress', e => handlers.progress(JSON.parse(e.data)));
+    source.addEventListener('result', e => {
+        source.close();
+        handlers.result(JSON.parse(e.data));
+    });
+    source.addEventListener('error', e => {
+        source.close();
+        // 服务端 error 事件带数据; 不带数据的是连接错误
+        handlers.error(e.data ? JSON.parse(e.data).message : 'connection lost');
+    });
+    return source;
+}
+
+function progressText(progress) {
+    const pct = progress.totalQuestions > 0
+        ? ` (${(100 * progress.processedQuestions / progress.totalQuestions).toFixed(0)}%)` : '';
+    return `Processed ${progress.processedQuestions} / ${progress.totalQuestions} questions${pct}...`;
+}
+
+function renderCollectionStatus(job) {
+    const status = document.getElementById('collectionStatus');
+    const running = job.state === 'RUNNING';
+    const eta = job.etaSeconds == null ? '-' : `${Math.round(job.etaSeconds / 60)} min`;
+    status.innerText = `${job.state} | pages ${job.pagesFetched} | new ${job.newQuestions}`
+        + ` | duplicate ${job.duplicateQuestions} | tasks ${job.tasksCompleted}/${job.tasksTotal}`
+        + ` | ${job.pagesPerSecond.toFixed(2)} pages/s | ETA ${eta}`
+        + (job.message ? ` | ${job.message}` : '');
+    document.getElementById('collectBtn').disabled = running;
+    document.getElementById('cancelCollectBtn').disabled = !running;
+}
+
 
 function showTab(tabId) {
     document.querySelectorAll('.tab-content').forEach(el => el.classList.remove('active'));
@@ -36,6 +95,7 @@ function showTab(tabId) {
     if(tabId === 'cooccurrence') buttons[1].classList.add('active');
     if(tabId === 'pitfalls') buttons[2].classList.add('active');
     if(tabId === 'solvability') buttons[3].classList.add('active');
+    if(tabId === 'search') buttons[4].classList.add('active');
 
     if(tabId === 'trends') loadTrends();
     if(tabId === 'cooccurrence') loadCooccurrence();
@@ -43,8 +103,10 @@ function showTab(tabId) {
     if(tabId === 'solvability') loadSolvability();
 }
 
+// 多个tag用逗号分隔, 每个tag一条折线; 后端返回按时间排序、补0的时间桶
 async function loadTrends() {
-    const tag = document.getElementById('trendTag').value;
+    const tags = document.getElementById('trendTag').value;
+    const granularity = document.getElementById('trendGranularity').value;
     const startInput = document.getElementById('trendStart').value;
     const endInput = document.getElementById('trendEnd').value;
 
@@ -53,14 +115,21 @@ async function loadTrends() {
     const end = endInput || new Date().toISOString().slice(0, 7); // 当前 YYYY-MM
 
     try {
-        // 使用正确的参数名：starttime 和 endtime
-        const response = await fetch(`${API_BASE}/trend?tagName=${tag}&starttime=${start}&endtime=${end}`);
+        const params = new URLSearchParams({ tags, granularity, start, end });
+        const response = await fetch(`${API_BASE}/trends?${params}`);
         if (!response.ok) {
             throw new Error(`HTTP error! status: ${response.status}`);
         }
-        const data = await response.json(); 
-        const labels = Object.keys(data).sort();
-        const values = labels.map(k => data[k]);
+        const data = await response.json();
+        const colors = ['rgb(75, 192, 192)', 'rgb(244, 128, 36)', 'rgb(54, 162, 235)', 'rgb(255, 99, 132)',
+            'rgb(153, 102, 255)', 'rgb(255, 205, 86)', 'rgb(201, 203, 207)', 'rgb(46, 139, 87)'];
+        const datasets = Object.entries(data.series).map(([tag, values], i) => ({
+            label: tag,
+            data: values,
+            borderColor: colors[i % colors.length],
+            pointRadius: data.buckets.length > 200 ? 0 : 3,
+            tension: 0.1
+        }));
 
         const ctx = document.getElementById('trendsChart').getContext('2d');
         if (trendsChartInstance) trendsChartInstance.destroy();
@@ -68,13 +137,8 @@ async function loadTrends() {
         trendsChartInstance = new Chart(ctx, {
             type: 'line',
             data: {
-                labels: labels,
-                datasets: [{
-                    label: `Activity for tag: ${tag}`,
-                    data: values,
-                    borderColor: 'rgb(75, 192, 192)',
-                    tension: 0.1
-                }]
+                labels: data.buckets,
+                datasets: datasets
             },
             options: { responsive: true, maintainAspectRatio: false }
         });
@@ -84,36 +148,55 @@ async function loadTrends() {
 }
 
 
-async function loadCooccurrence() {
-    const n = document.getElementById('coocN').value || 10;
-    
-    try {
-        const response = await fetch(`${API_BASE}/topNpairs?topNStr=${n}`);
-        const data = await response.json(); 
+let coocStream = null;
 
-        const labels = data.map(item => Object.keys(item)[0]); 
-        const values = data.map(item => Object.values(item)[0]);
+function loadCooccurrence() {
+    const n = document.getElementById('coocN').value || 10;
+    const status = document.getElementById('coocStatus');
+
+    if (coocStream) coocStream.close();
+    status.innerText = 'Loading...';
+    coocStream = streamAnalysis(`${API_BASE}/topNpairs/stream?topNStr=${n}`, {
+        progress: progress => {
+            status.innerText = progressText(progress);
+            renderCooccurrence(progress.partial);
+        },
+        result: data => {
+            status.innerText = '';
+            renderCooccurrence(data);
+        },
+        error: message => {
+            status.innerText = 'Error: ' + message;
+            console.error("Failed to load co-occurrence", message);
+        }
+    });
+}
 
-        const ctx = document.getElementById('cooccurrenceChart').getContext('2d');
-        if (coocChartInstance) coocChartInstance.destroy();
+function renderCooccurrence(data) {
+    const labels = data.map(item => Object.keys(item)[0]);
+    const values = data.map(item => Object.values(item)[0]);
 
-        coocChartInstance = new Chart(ctx, {
-            type: 'bar',
-            data: {
-                labels: labels,
-                datasets: [{
-                    label: 'Co-occurrence Frequency',
-                    data: values,
-                    backgroundColor: 'rgba(244, 128, 36, 0.6)',
-                    borderColor: 'rgba(244, 128, 36, 1)',
-                    borderWidth: 1
-                }]
-            },
-            options: { responsive: true, maintainAspectRatio: false }
-        });
-    } catch (e) {
-        console.error("Failed to load co-occurrence", e);
+    if (coocChartInstance) {
+        coocChartInstance.data.labels = labels;
+        coocChartInstance.data.datasets[0].data = values;
+        coocChartInstance.update('none');
+        return;
     }
+    const ctx = document.getElementById('cooccurrenceChart').getContext('2d');
+    coocChartInstance = new Chart(ctx, {
+        type: 'bar',
+        data: {
+            labels: labels,
+            datasets: [{
+                label: 'Co-occurrence Frequency',
+                data: values,
+                backgroundColor: 'rgba(244, 128, 36, 0.6)',
+                borderColor: 'rgba(244, 128, 36, 1)',
+                borderWidth: 1
+            }]
+        },
+        options: { responsive: true, maintainAspectRatio: false }
+    });
 }
 
 
@@ -147,97 +230,193 @@ async function loadPitfalls() {
     }
 }
 
-async function loadSolvability() {
-    try {
-        const response = await fetch(`${API_BASE}/solvability`);
-        const data = await response.json(); 
-        const categories = Object.keys(data);
-
-        // 清理之前的图表实例
-        if (Array.isArray(solvabilityChartInstance)) {
-            solvabilityChartInstance.forEach(chart => chart.destroy());
-        } else if (solvabilityChartInstance) {
-            solvabilityChartInstance.destroy();
+let solvabilityStream = null;
+
+function loadSolvability() {
+    const status = document.getElementById('solvabilityStatus');
+
+    if (solvabilityStream) solvabilityStream.close();
+    status.innerText = 'Loading...';
+    solvabilityStream = streamAnalysis(`${API_BASE}/solvability/stream`, {
+        progress: progress => {
+            status.innerText = progressText(progress);
+            renderSolvability(progress.partial);
+        },
+        result: data => {
+            status.innerText = '';
+            renderSolvability(data);
+        },
+        error: message => {
+            status.innerText = 'Error: ' + message;
+            console.error("Failed to load solvability", message);
         }
-        solvabilityChartInstance = [];
-
-        const container = document.getElementById('solvabilityChartsContainer');
-        container.innerHTML = ''; // 清除之前的图表
+    });
+}
 
-        categories.forEach(cat => {
+function renderSolvability(data) {
+    const categories = Object.keys(data);
+    // 图表已存在时原地更新数值, 避免每批进度都重建
+    if (Array.isArray(solvabilityChartInstance) && solvabilityChartInstance.length === categories.length) {
+        categories.forEach((cat, i) => {
             const parts = data[cat].split('_');
-            const solvableVal = parseFloat(parts[0]);
-            const hardVal = parseFloat(parts[1]);
-
-            // 创建容器和画布
-            const wrapper = document.createElement('div');
-            wrapper.className = 'chart-wrapper';
-            
-            // 添加饼图标题
-            const title = document.createElement('h3');
-            title.innerText = cat;
-            title.style.textAlign = 'center';
-            wrapper.appendChild(title);
-
-            const canvas = document.createElement('canvas');
-            wrapper.appendChild(canvas);
-            container.appendChild(wrapper);
-
-            const ctx = canvas.getContext('2d');
-            const newChart = new Chart(ctx, {
-                type: 'pie',
-                data: {
-                    labels: ['Solvable', 'Hard'],
-                    datasets: [{
-                        data: [solvableVal, hardVal],
-                        backgroundColor: [
-                            'rgba(75, 192, 192, 0.6)', // 绿色代表可解决
-                            'rgba(255, 99, 132, 0.6)'  // 红色代表难以解决
-                        ],
-                        borderColor: [
-                            'rgba(75, 192, 192, 1)',
-                            'rgba(255, 99, 132, 1)'
-                        ],
-                        borderWidth: 1
-                    }]
-                },
-                options: {
-                    responsive: true,
-                    maintainAspectRatio: false,
-                    plugins: {
-                        legend: {
-                            position: 'bottom'
-                        },
-                        tooltip: {
-                            callbacks: {
-                                label: function(context) {
-                                    const dataset = context.dataset;
-                                    const total = context.chart._metasets[context.datasetIndex].total;
-                                    
-                                    const solvableVal = dataset.data[0];
-                                    const hardVal = dataset.data[1];
-                                    
-                                    const solvablePct = ((solvableVal / total) * 100).toFixed(1) + '%';
-                                    const hardPct = ((hardVal / total) * 100).toFixed(1) + '%';
-
-                                    return [
-                                        `Solvable: ${solvableVal} (${solvablePct})`,
-                                        `Hard: ${hardVal} (${hardPct})`
-                                    ];
-                                }
+            solvabilityChartInstance[i].data.datasets[0].data = [parseFloat(parts[0]), parseFloat(parts[1])];
+            solvabilityChartInstance[i].update('none');
+        });
+        return;
+    }
+    // 清理之前的图表实例
+    if (Array.isArray(solvabilityChartInstance)) {
+        solvabilityChartInstance.forEach(chart => chart.destroy());
+    } else if (solvabilityChartInstance) {
+        solvabilityChartInstance.destroy();
+    }
+    solvabilityChartInstance = [];
+
+    const container = document.getElementById('solvabilityChartsContainer');
+    container.innerHTML = ''; // 清除之前的图表
+
+    categories.forEach(cat => {
+        const parts = data[cat].split('_');
+        const solvableVal = parseFloat(parts[0]);
+        const hardVal = parseFloat(parts[1]);
+
+        // 创建容器和画布
+        const wrapper = document.createElement('div');
+        wrapper.className = 'chart-wrapper';
+        
+        // 添加饼图标题
+        const title = document.createElement('h3');
+        title.innerText = cat;
+        title.style.textAlign = 'center';
+        wrapper.appendChild(title);
+
+        const canvas = document.createElement('canvas');
+        wrapper.appendChild(canvas);
+        container.appendChild(wrapper);
+
+        const ctx = canvas.getContext('2d');
+        const newChart = new Chart(ctx, {
+            type: 'pie',
+            data: {
+                labels: ['Solvable', 'Hard'],
+                datasets: [{
+                    data: [solvableVal, hardVal],
+                    backgroundColor: [
+                        'rgba(75, 192, 192, 0.6)', // 绿色代表可解决
+                        'rgba(255, 99, 132, 0.6)'  // 红色代表难以解决
+                    ],
+                    borderColor: [
+                        'rgba(75, 192, 192, 1)',
+                        'rgba(255, 99, 132, 1)'
+                    ],
+                    borderWidth: 1
+                }]
+            },
+            options: {
+                responsive: true,
+                maintainAspectRatio: false,
+                plugins: {
+                    legend: {
+                        position: 'bottom'
+                    },
+                    tooltip: {
+                        callbacks: {
+                            label: function(context) {
+                                const dataset = context.dataset;
+                                const total = context.chart._metasets[context.datasetIndex].total;
+                                
+                                const solvableVal = dataset.data[0];
+                                const hardVal = dataset.data[1];
+                                
+                                const solvablePct = ((solvableVal / total) * 100).toFixed(1) + '%';
+                                const hardPct = ((hardVal / total) * 100).toFixed(1) + '%';
+
+                                return [
+                                    `Solvable: ${solvableVal} (${solvablePct})`,
+                                    `Hard: ${hardVal} (${hardPct})`
+                                ];
                             }
                         }
                     }
                 }
-            });
-            solvabilityChartInstance.push(newChart);
+            }
         });
+        solvabilityChartInstance.push(newChart);
+    });
+}
+
+const SEARCH_PAGE_SIZE = 20;
+let searchOffset = 0;
+
+// 标题与摘要来自接口, 内容本身是转义后的HTML; 去掉其中的标签, 只保留服务端加上的 <mark>
+function searchHtml(text) {
+    return (text || '').replace(/<(?!\/?mark>)[^>]*>/g, ' ');
+}
 
+async function loadSearch(offset) {
+    const q = document.getElementById('searchQuery').value.trim();
+    const status = document.getElementById('searchStatus');
+    if (!q) {
+        status.textContent = 'Please enter a query';
+        return;
+    }
+    const params = new URLSearchParams({ q, limit: SEARCH_PAGE_SIZE, offset: Math.max(offset, 0) });
+    const tags = document.getElementById('searchTags').value.trim();
+    const from = document.getElementById('searchFrom').value;
+    const to = document.getElementById('searchTo').value;
+    if (tags) params.set('tags', tags);
+    if (from) params.set('from', from);
+    if (to) params.set('to', to);
+
+    status.textContent = 'Searching...';
+    try {
+        const started = performance.now();
+        const response = await fetch(`${API_BASE}/search?${params}`);
+        if (!response.ok) {
+            throw new Error(`HTTP error! status: ${response.status}`);
+        }
+        const data = await response.json();
+        searchOffset = data.offset;
+        const list = document.getElementById('searchResults');
+        list.start = data.offset + 1;
+        list.innerHTML = '';
+        data.hits.forEach(hit => {
+            const item = document.createElement('li');
+            const link = document.createElement('a');
+            link.href = `https://stackoverflow.com/questions/${hit.questionId}`;
+            link.target = '_blank';
+            link.innerHTML = searchHtml(hit.title);
+            const meta = document.createElement('div');
+            meta.className = 'search-meta';
+            meta.textContent = `${hit.creationDate.slice(0, 10)} · score ${hit.score} · ${hit.answerCount} answers`
+                + `${hit.answered ? ' (answered)' : ''} · ${hit.tags.join(', ')}`
+                + `${hit.matchedInAnswer ? ' · matched in an answer' : ''}`;
+            const snippet = document.createElement('p');
+            snippet.innerHTML = searchHtml(hit.snippet);
+            item.append(link, meta, snippet);
+            list.appendChild(item);
+        });
+        const elapsed = Math.round(performance.now() - started);
+        status.textContent = data.total === 0 ? `No results (${elapsed} ms)`
+            : `${data.offset + 1}-${data.offset + data.hits.length} of ${data.total} (${elapsed} ms)`;
+        document.getElementById('searchPrev').disabled = data.offset === 0;
+        document.getElementById('searchNext').disabled = data.offset + data.hits.length >= data.total;
     } catch (e) {
-        console.error("Failed to load solvability", e);
+        console.error("Failed to search", e);
+        status.textContent = 'Search failed';
     }
 }
 
-document.addEventListener('DOMContentLoaded', () => {
-
+document.addEventListener('DOMContentLoaded', async () => {
+    // 页面刷新后恢复正在运行的收集任务进度
+    try {
+        const response = await fetch(`${API_BASE}/collect/status`);
+        if (response.ok) {
+            const job = await response.json();
+            renderCollectionStatus(job);
+            if (job.state === 'RUNNING') followCollection();
+        }
+    } catch (error) {
+        console.error("Failed to load collection status", error);
+    }
 });
@@ -0,0 +1,65 @@
+package org.example.stackflowanalysis.DTOs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QuestionDtoTest {
+
+    private static final long CREATED = 1_600_000_000L;
+
+    @Test
+    void firstAnswerIsEarliestValidAnswer() {
+        QuestionDto question = question(
+                answer(1L, CREATED + 300, false),
+                answer(2L, CREATED + 90, false),
+                // 缺少id或时间的回答不计
+                answer(null, CREATED + 10, false),
+                answer(3L, null, false));
+        assertEquals(90L, question.getFirstAnswerSeconds());
+    }
+
+    @Test
+    void answerBeforeQuestionCountsAsZero() {
+        // 合并过来的问题中回答可能早于提问
+        QuestionDto question = question(answer(1L, CREATED - 3_600, true), answer(2L, CREATED + 60, false));
+        assertEquals(0L, question.getFirstAnswerSeconds());
+        assertEquals(0L, question.getAcceptedAnswerSeconds());
+    }
+
+    @Test
+    void acceptedAnswerIsIndependentOfEarliest() {
+        QuestionDto question = question(answer(1L, CREATED + 30, false), answer(2L, CREATED + 7_200, true));
+        assertEquals(30L, question.getFirstAnswerSeconds());
+        assertEquals(7_200L, question.getAcceptedAnswerSeconds());
+    }
+
+    @Test
+    void absentAnswersGiveNull() {
+        assertNull(question().getFirstAnswerSeconds());
+        assertNull(question().getAcceptedAnswerSeconds());
+        QuestionDto withoutList = new QuestionDto(1L, "t", "b", CREATED, 0, 0, 0, false, List.of(), null, null);
+        assertNull(withoutList.getFirstAnswerSeconds());
+        assertNull(withoutList.getAcceptedAnswerSeconds());
+        QuestionDto unaccepted = question(answer(1L, CREATED + 60, false));
+        assertEquals(60L, unaccepted.getFirstAnswerSeconds());
+        assertNull(unaccepted.getAcceptedAnswerSeconds());
+        // 被采纳但缺少id或时间的回答不计
+        QuestionDto invalidAccepted = question(answer(null, CREATED + 60, true), answer(2L, null, true));
+        assertNull(invalidAccepted.getFirstAnswerSeconds());
+        assertNull(invalidAccepted.getAcceptedAnswerSeconds());
+    }
+
+    private static QuestionDto question(AnswerDto... answers) {
+        return new QuestionDto(1L, "t", "b", CREATED, 0, 0, answers.length, answers.length > 0, List.of(), null,
+                Arrays.asList(answers));
+    }
+
+    private static AnswerDto answer(Long id, Long created, boolean accepted) {
+        return new AnswerDto(id, "a", created, 0, accepted, null);
+    }
+}
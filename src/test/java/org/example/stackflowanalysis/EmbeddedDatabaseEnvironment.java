@@ -0,0 +1,60 @@
+package org.example.stackflowanalysis;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.EnvironmentPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.CommandLinePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+// 测试中的应用上下文一律连接嵌入式 PostgreSQL: 每个测试JVM启动一个空库, 由 Flyway 建表, JVM 退出时关闭
+// 优先级高于 application.properties, 测试不会读写开发库; 命令行已指定数据源时 (基准测试) 不干预
+public class EmbeddedDatabaseEnvironment implements EnvironmentPostProcessor, Ordered {
+
+    private static EmbeddedPostgres postgres;
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        PropertySource<?> commandLine = environment.getPropertySources()
+                .get(CommandLinePropertySource.COMMAND_LINE_PROPERTY_SOURCE_NAME);
+        if (commandLine != null && commandLine.containsProperty("spring.datasource.url")) {
+            return;
+        }
+        String url = start().getJdbcUrl("postgres", "postgres");
+        environment.getPropertySources().addFirst(new MapPropertySource("embeddedPostgres", Map.of(
+                "spring.datasource.url", url + "&reWriteBatchedInserts=true",
+                "spring.datasource.username", "postgres",
+                "spring.datasource.password", "postgres",
+                "spring.devtools.restart.enabled", "false")));
+    }
+
+    // 在读取 application.properties 之后执行
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    private static synchronized EmbeddedPostgres start() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("嵌入式 PostgreSQL 启动失败", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    // JVM 退出中, 数据目录为临时目录
+                }
+            }, "embedded-postgres-shutdown"));
+        }
+        return postgres;
+    }
+}
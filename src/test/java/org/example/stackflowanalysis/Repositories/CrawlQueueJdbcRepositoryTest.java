@@ -0,0 +1,247 @@
+package org.example.stackflowanalysis.Repositories;
+
+import org.example.stackflowanalysis.Data.CrawlCheckpoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 每个测试自建一个抓取计划及其检查点, 结束时删除; 计划状态为 COMPLETED, 不会被应用接续
+@SpringBootTest
+class CrawlQueueJdbcRepositoryTest {
+
+    private static final Duration LEASE = Duration.ofHours(1);
+    private static final String[] STRATEGIES = {"activity", "votes"};
+
+    @Autowired private CrawlQueueJdbcRepository queue;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    private long runId;
+    private final String owner = "test-" + UUID.randomUUID();
+    private final String other = "test-" + UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        runId = jdbcTemplate.queryForObject("""
+                INSERT INTO crawl_runs (from_epoch, to_epoch, started_at, state)
+                VALUES (0, 100, localtimestamp, 'COMPLETED') RETURNING id
+                """, Long.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM crawl_checkpoints WHERE run_id = ?", runId);
+        jdbcTemplate.update("DELETE FROM crawl_runs WHERE id = ?", runId);
+    }
+
+    @Test
+    void claimsInPlanOrderAndSkipsLeased() {
+        List<Long> ids = createCheckpoints(4);
+
+        CrawlCheckpoint first = queue.claimNext(runId, owner, LEASE, 5).orElseThrow();
+        CrawlCheckpoint second = queue.claimNext(runId, other, LEASE, 5).orElseThrow();
+
+        assertEquals(ids.get(0), first.getId());
+        assertEquals(STRATEGIES[0], first.getStrategy());
+        assertEquals(1, first.getAttempts());
+        assertEquals(owner, first.getLeaseOwner());
+        assertEquals(ids.get(1), second.getId());
+        assertEquals(STRATEGIES[1], second.getStrategy());
+        assertEquals(ids.subList(2, 4), claimAll(owner, ids.size()));
+        // 全部被持有: 无可认领, 但仍都未完成
+        assertTrue(queue.claimNext(runId, other, LEASE, 5).isEmpty());
+        assertEquals(4, queue.countOutstanding(runId, 5));
+    }
+
+    @Test
+    void advanceRenewsLeaseAndCompletes() {
+        createCheckpoints(1);
+        CrawlCheckpoint claimed = queue.claimNext(runId, owner, LEASE, 5).orElseThrow();
+
+        assertTrue(queue.advance(claimed.getId(), owner, 3, false, LEASE));
+        Map<String, Object> row = row(claimed.getId());
+        assertEquals(3, row.get("next_page"));
+        assertNotNull(row.get("lease_expires_at"));
+
+        assertTrue(queue.advance(claimed.getId(), owner, 3, true, LEASE));
+        row = row(claimed.getId());
+        assertEquals(true, row.get("completed"));
+        assertNull(row.get("lease_expires_at"));
+        // 已完成的检查点不再被认领, 也不计入未完成
+        assertTrue(queue.claimNext(runId, other, LEASE, 5).isEmpty());
+        assertEquals(0, queue.countOutstanding(runId, 5));
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverAndOldOwnerCannotAdvance() {
+        createCheckpoints(1);
+        CrawlCheckpoint claimed = queue.claimNext(runId, owner, LEASE, 5).orElseThrow();
+        assertTrue(queue.advance(claimed.getId(), owner, 2, false, LEASE));
+        expireLease(claimed.getId());
+
+        CrawlCheckpoint takenOver = queue.claimNext(runId, other, LEASE, 5).orElseThrow();
+        assertEquals(claimed.getId(), takenOver.getId());
+        // 从原持有者已推进到的页继续
+        assertEquals(2, takenOver.getNextPage());
+        assertEquals(2, takenOver.getAttempts());
+
+        assertFalse(queue.advance(claimed.getId(), owner, 5, false, LEASE));
+        assertEquals(2, row(claimed.getId()).get("next_page"));
+        assertTrue(queue.advance(claimed.getId(), other, 3, false, LEASE));
+    }
+
+    @Test
+    void exhaustedAttemptsAreAbandoned() {
+        createCheckpoints(1);
+        long id = queue.claimNext(runId, owner, LEASE, 2).orElseThrow().getId();
+        expireLease(id);
+        assertEquals(id, queue.claimNext(runId, owner, LEASE, 2).orElseThrow().getId());
+        // 持有中的仍算未完成
+        assertEquals(0, queue.countAbandoned(runId, 2));
+        assertEquals(1, queue.countOutstanding(runId, 2));
+
+        expireLease(id);
+        assertTrue(queue.claimNext(runId, other, LEASE, 2).isEmpty());
+        assertEquals(1, queue.countAbandoned(runId, 2));
+        assertEquals(0, queue.countOutstanding(runId, 2));
+    }
+
+    @Test
+    void releaseAllReturnsUnfinishedWithoutCountingAttempt() {
+        List<Long> ids = createCheckpoints(2);
+        CrawlCheckpoint done = queue.claimNext(runId, owner, LEASE, 5).orElseThrow();
+        queue.advance(done.getId(), owner, 1, true, LEASE);
+        queue.claimNext(runId, owner, LEASE, 5).orElseThrow();
+
+        assertEquals(1, queue.releaseAll(owner));
+        Map<String, Object> row = row(ids.get(1));
+        assertNull(row.get("lease_owner"));
+        assertEquals(0, row.get("attempts"));
+        assertEquals(ids.get(1), queue.claimNext(runId, other, LEASE, 5).orElseThrow().getId());
+    }
+
+    @Test
+    void releaseReturnsCheckpointButCountsAttempt() {
+        createCheckpoints(1);
+        CrawlCheckpoint claimed = queue.claimNext(runId, owner, LEASE, 2).orElseThrow();
+        queue.advance(claimed.getId(), owner, 4, false, LEASE);
+
+        assertFalse(queue.release(claimed.getId(), other));
+        assertTrue(queue.release(claimed.getId(), owner));
+        Map<String, Object> row = row(claimed.getId());
+        assertNull(row.get("lease_owner"));
+        assertEquals(1, row.get("attempts"));
+
+        // 立即可被认领, 从释放前推进到的页继续
+        CrawlCheckpoint again = queue.claimNext(runId, other, LEASE, 2).orElseThrow();
+        assertEquals(claimed.getId(), again.getId());
+        assertEquals(4, again.getNextPage());
+        assertTrue(queue.release(again.getId(), other));
+        // 尝试次数用尽后放弃
+        assertTrue(queue.claimNext(runId, owner, LEASE, 2).isEmpty());
+        assertEquals(1, queue.countAbandoned(runId, 2));
+    }
+
+    @Test
+    void releaseIgnoresCompletedCheckpoint() {
+        createCheckpoints(1);
+        CrawlCheckpoint claimed = queue.claimNext(runId, owner, LEASE, 5).orElseThrow();
+        queue.advance(claimed.getId(), owner, 2, true, LEASE);
+
+        assertFalse(queue.release(claimed.getId(), owner));
+        assertEquals(true, row(claimed.getId()).get("completed"));
+    }
+
+    @Test
+    void claimSkipsRowLockedByAnotherTransaction() throws Exception {
+        List<Long> ids = createCheckpoints(2);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 另一个事务正在认领第一个检查点而锁住该行
+            Future<?> holder = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+                jdbcTemplate.queryForObject("SELECT id FROM crawl_checkpoints WHERE id = ? FOR UPDATE", Long.class, ids.get(0));
+                locked.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(locked.await(30, TimeUnit.SECONDS));
+
+            CrawlCheckpoint claimed = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> queue.claimNext(runId, owner, LEASE, 5).orElseThrow());
+            assertEquals(ids.get(1), claimed.getId());
+
+            release.countDown();
+            holder.get(30, TimeUnit.SECONDS);
+            assertEquals(ids.get(0), queue.claimNext(runId, other, LEASE, 5).orElseThrow().getId());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentClaimsNeverShareCheckpoint() throws Exception {
+        List<Long> ids = createCheckpoints(20);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Long>>> workers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String worker = owner + "-" + i;
+                workers.add(executor.submit(() -> claimAll(worker, ids.size())));
+            }
+            List<Long> claimed = new ArrayList<>();
+            for (Future<List<Long>> worker : workers) {
+                claimed.addAll(worker.get(60, TimeUnit.SECONDS));
+            }
+            Collections.sort(claimed);
+            assertEquals(ids, claimed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // 每个时间片两种排序, 按 (chunk_start, strategy) 即认领顺序返回id
+    private List<Long> createCheckpoints(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long chunkStart = i / STRATEGIES.length * 10L;
+            ids.add(jdbcTemplate.queryForObject("""
+                    INSERT INTO crawl_checkpoints (run_id, chunk_start, chunk_end, strategy, next_page, completed)
+                    VALUES (?, ?, ?, ?, 1, false) RETURNING id
+                    """, Long.class, runId, chunkStart, chunkStart + 10, STRATEGIES[i % STRATEGIES.length]));
+        }
+        return ids;
+    }
+
+    private List<Long> claimAll(String worker, int limit) {
+        List<Long> claimed = new ArrayList<>();
+        Optional<CrawlCheckpoint> next;
+        while (claimed.size() <= limit && (next = queue.claimNext(runId, worker, LEASE, 5)).isPresent()) {
+            claimed.add(next.get().getId());
+        }
+        return claimed;
+    }
+
+    private void expireLease(long id) {
+        jdbcTemplate.update("UPDATE crawl_checkpoints SET lease_expires_at = localtimestamp - interval '1 minute' WHERE id = ?", id);
+    }
+
+    private Map<String, Object> row(long id) {
+        return jdbcTemplate.queryForMap("SELECT * FROM crawl_checkpoints WHERE id = ?", id);
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.stackflowanalysis.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 假时钟驱动: 休眠直接推进时间并记录总休眠时长, 不依赖真实时间
+class ApiRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long now = 1_000 * SECOND;
+    private long slept;
+
+    private ApiRateLimiter limiter(double permitsPerSecond, int burst, String utcTime) {
+        Clock clock = Clock.fixed(Instant.parse(utcTime), ZoneOffset.UTC);
+        return new ApiRateLimiter(permitsPerSecond, burst, 500, () -> now, clock, nanos -> {
+            now += nanos;
+            slept += nanos;
+        });
+    }
+
+    private ApiRateLimiter limiter() {
+        return limiter(5, 5, "2024-03-01T12:00:00Z");
+    }
+
+    @Test
+    void burstIsFreeThenRefillsAtRate() throws InterruptedException {
+        ApiRateLimiter limiter = limiter();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        assertEquals(0, slept);
+
+        // 桶已空, 每秒5个即每个令牌200ms
+        limiter.acquire();
+        assertEquals(SECOND / 5, slept);
+        limiter.acquire();
+        assertEquals(2 * SECOND / 5, slept);
+    }
+
+    @Test
+    void idleRefillIsCappedAtBurst() throws InterruptedException {
+        ApiRateLimiter limiter = limiter();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        now += 100 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        assertEquals(0, slept);
+        limiter.acquire();
+        assertEquals(SECOND / 5, slept);
+    }
+
+    @Test
+    void lowQuotaSlowsDownProportionally() throws InterruptedException {
+        ApiRateLimiter limiter = limiter();
+        limiter.onResponse(250, null);
+        assertEquals(2.5, limiter.getPermitsPerSecond(), 1e-9);
+        // 不低于每秒0.2个
+        limiter.onResponse(1, null);
+        assertEquals(0.2, limiter.getPermitsPerSecond(), 1e-9);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        limiter.acquire();
+        assertEquals(5 * SECOND, slept);
+
+        limiter.onResponse(500, null);
+        assertEquals(5, limiter.getPermitsPerSecond(), 1e-9);
+    }
+
+    @Test
+    void backoffPausesAllAcquires() throws InterruptedException {
+        ApiRateLimiter limiter = limiter();
+        limiter.onResponse(10_000, 10);
+        limiter.acquire();
+        assertEquals(10 * SECOND, slept);
+        // 暂停期间桶已补满, 之后不再等待
+        limiter.acquire();
+        assertEquals(10 * SECOND, slept);
+    }
+
+    @Test
+    void tooManyRequestsPausesAndEmptiesBucket() throws InterruptedException {
+        ApiRateLimiter limiter = limiter();
+        limiter.onTooManyRequests(60_000);
+        // 较短的暂停不会缩短已有的暂停
+        limiter.onResponse(10_000, 1);
+        limiter.onTooManyRequests(1_000);
+        limiter.acquire();
+        assertEquals(60 * SECOND, slept);
+    }
+
+    @Test
+    void exhaustedQuotaPausesUntilUtcMidnight() throws InterruptedException {
+        ApiRateLimiter limiter = limiter(5, 5, "2024-03-01T23:59:30Z");
+        limiter.onResponse(0, null);
+        limiter.acquire();
+        assertEquals(30 * SECOND, slept);
+
+        // 恰在零点时暂停到下一个零点
+        ApiRateLimiter atMidnight = limiter(5, 5, "2024-03-02T00:00:00Z");
+        slept = 0;
+        atMidnight.onResponse(0, null);
+        atMidnight.acquire();
+        assertEquals(TimeUnit.DAYS.toNanos(1), slept);
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new ApiRateLimiter(0, 5, 500));
+        assertThrows(IllegalArgumentException.class, () -> new ApiRateLimiter(5, 0, 500));
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.CollectionStatusDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// 任务状态只能从运行中结束一次; 取消与任务线程的竞争不会让已结束的任务继续或改变结果
+class CollectionJobServiceTest {
+
+    private final DataService dataService = mock(DataService.class);
+    private final CollectionJobService service = new CollectionJobService(dataService);
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void terminalStateIsNotOverwritten() {
+        CollectionJob job = new CollectionJob();
+        assertTrue(job.finish(CollectionJob.State.CANCELLED, "已取消"));
+        assertFalse(job.finish(CollectionJob.State.COMPLETED, "数据收集完成"));
+        assertFalse(job.finish(CollectionJob.State.FAILED, "出错"));
+
+        CollectionStatusDto status = job.toStatus();
+        assertEquals("CANCELLED", status.state());
+        assertEquals("已取消", status.message());
+        assertNotNull(status.finishedAt());
+    }
+
+    @Test
+    void cancelStopsRunningJob() throws Exception {
+        CountDownLatch collecting = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            CollectionJob job = invocation.getArgument(0);
+            collecting.countDown();
+            while (!job.isCancelRequested()) {
+                Thread.onSpinWait();
+            }
+            return null;
+        }).when(dataService).collectData(any());
+
+        service.start();
+        assertTrue(collecting.await(10, TimeUnit.SECONDS));
+        service.cancel();
+
+        assertEquals("CANCELLED", awaitFinished().state());
+        verify(dataService, times(1)).collectData(any());
+    }
+
+    @Test
+    void cancelRightAfterStartNeverCollectsForFinishedJob() throws Exception {
+        // 反复在任务线程开始前后取消: 进入收集时任务必须仍在运行, 取消时已结束的任务结果不再改变
+        List<CollectionJob.State> statesAtEntry = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            CollectionJob job = invocation.getArgument(0);
+            statesAtEntry.add(job.getState());
+            return null;
+        }).when(dataService).collectData(any());
+
+        for (int i = 0; i < 500; i++) {
+            service.start();
+            CollectionStatusDto cancelled = service.cancel().orElseThrow();
+            CollectionStatusDto finished = awaitFinished();
+            assertNotEquals("RUNNING", finished.state());
+            if (!"RUNNING".equals(cancelled.state())) {
+                assertEquals(cancelled.state(), finished.state());
+            }
+        }
+        assertTrue(statesAtEntry.stream().allMatch(state -> state == CollectionJob.State.RUNNING), statesAtEntry::toString);
+    }
+
+    private CollectionStatusDto awaitFinished() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        CollectionStatusDto status = service.status().orElseThrow();
+        while ("RUNNING".equals(status.state()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = service.status().orElseThrow();
+        }
+        return status;
+    }
+}
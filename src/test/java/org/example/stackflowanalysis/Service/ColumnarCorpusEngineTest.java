@@ -0,0 +1,115 @@
+package org.example.stackflowanalysis.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.Repositories.AnalyticsJdbcRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+// 增量写入后的列存与从库中重新加载的列存一致, 包括重新抓到已有问题 (分数、tag、正文、回答都变了) 的情况
+@SpringBootTest(properties = "analysis.engine=columnar")
+class ColumnarCorpusEngineTest {
+
+    private record Row(int tags, int words, boolean solvable, boolean hasReputation, double reputation,
+                       boolean hasScore, double score, boolean trendy) {}
+
+    @Autowired private ColumnarCorpusEngine engine;
+    @Autowired private IngestService ingestService;
+    @Autowired private RollupService rollupService;
+    @Autowired private AnalyticsJdbcRepository analyticsRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    private IngestFixture fixture;
+    private String otherTag;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new IngestFixture(jdbcTemplate);
+        otherTag = fixture.tag() + "-other";
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.cleanup();
+        jdbcTemplate.update("DELETE FROM tags WHERE name = ?", otherTag);
+    }
+
+    @Test
+    void incrementalUpdatesMatchReload() {
+        YearMonth month = YearMonth.of(2020, 1);
+        // 先加载, 之后的写入都走增量路径
+        engine.topTagsInMonth(month, 1);
+        OwnerDto asker = fixture.owner(10);
+        OwnerDto answerer = fixture.owner(100);
+        long questionId = fixture.questionId();
+        long answerId = fixture.answerId();
+        ingestService.ingestPage(List.of(fixture.question(questionId, 1,
+                List.of(IngestFixture.answer(answerId, 60, 2, false, answerer)), asker)));
+        List<Row> inserted = rows(engine);
+        assertEquals(rows(reloaded()), inserted);
+
+        // 库中已有问题只刷新分数、浏览量等统计, tag与正文不变; 回答与用户按id覆盖
+        OwnerDto promoted = new OwnerDto(answerer.userId(), answerer.displayName(), 500);
+        QuestionDto original = fixture.question(questionId, 9, List.of(
+                IngestFixture.answer(answerId, 60, -3, true, promoted),
+                IngestFixture.answer(fixture.answerId(), 120, 4, false, asker)), asker);
+        QuestionDto changed = new QuestionDto(questionId, original.title(), "<p>a much longer body than before</p>",
+                original.creationDate(), original.score(), 1_000, original.answerCount(), original.isAnswered(),
+                List.of(fixture.tag(), otherTag), original.owner(), original.answers());
+        assertEquals(0, ingestService.ingestPage(List.of(changed)));
+
+        List<Row> updated = rows(engine);
+        assertNotEquals(inserted, updated);
+        ColumnarCorpusEngine fresh = reloaded();
+        assertEquals(rows(fresh), updated);
+        assertEquals(fresh.topTagsInMonth(month, 1_000), engine.topTagsInMonth(month, 1_000));
+        Map<String, long[]> series = Map.of(fixture.tag(), new long[1], otherTag, new long[1]);
+        engine.countTags(series, new long[]{IngestFixture.CREATED}, IngestFixture.CREATED + 1);
+        assertEquals(1, series.get(fixture.tag())[0]);
+        assertEquals(0, series.get(otherTag)[0]);
+    }
+
+    @Test
+    void questionStatsRebuildReloadsColumns() {
+        OwnerDto asker = fixture.owner(10);
+        long questionId = fixture.questionId();
+        ingestService.ingestPage(List.of(fixture.question(questionId, 1, List.of(), asker)));
+        // 库中的字数出错后加载列存, 列存带着错误的值
+        jdbcTemplate.update("UPDATE questions SET word_count = 999 WHERE id = ?", questionId);
+        engine.resetAfterCommit();
+        List<Row> stale = rows(engine);
+
+        rollupService.rebuildQuestionStats();
+
+        List<Row> rebuilt = rows(engine);
+        assertNotEquals(stale, rebuilt);
+        assertEquals(rows(reloaded()), rebuilt);
+    }
+
+    private ColumnarCorpusEngine reloaded() {
+        return new ColumnarCorpusEngine(analyticsRepository, transactionManager, new SimpleMeterRegistry(), "columnar");
+    }
+
+    // 行的顺序取决于加载或写入顺序, 排序后比较
+    private static List<Row> rows(ColumnarCorpusEngine engine) {
+        List<Row> rows = new ArrayList<>();
+        engine.forEachSolvabilityRow((tags, words, solvable, hasReputation, reputation, hasScore, score, trendy) ->
+                rows.add(new Row(tags, words, solvable, hasReputation, reputation, hasScore, score, trendy)));
+        rows.sort((a, b) -> a.toString().compareTo(b.toString()));
+        return rows;
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.TopAnswererDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 重新抓到已有问题时只更新分数、回答与声望, 没有新问题插入; 缓存的分析结果也必须随之失效
+@SpringBootTest
+class IngestCacheInvalidationTest {
+
+    @Autowired private IngestService ingestService;
+    @Autowired private AnalysisService analysisService;
+    @Autowired private DataVersion dataVersion;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    private IngestFixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new IngestFixture(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.cleanup();
+    }
+
+    @Test
+    void updatingKnownQuestionInvalidatesCachedAnalysis() {
+        OwnerDto asker = fixture.owner(10);
+        OwnerDto answerer = fixture.owner(100);
+        long questionId = fixture.questionId();
+        long answerId = fixture.answerId();
+        ingestService.ingestPage(List.of(fixture.question(questionId, 1,
+                List.of(IngestFixture.answer(answerId, 60, 2, false, answerer)), asker)));
+        TopAnswererDto before = analysisService.getTopAnswerers(fixture.tag(), 10).get(0);
+        assertEquals(2, before.answerScore());
+        assertEquals(100, before.reputation());
+        long version = dataVersion.current();
+
+        OwnerDto promoted = new OwnerDto(answerer.userId(), answerer.displayName(), 300);
+        int inserted = ingestService.ingestPage(List.of(fixture.question(questionId, 5,
+                List.of(IngestFixture.answer(answerId, 60, 7, false, promoted)), asker)));
+
+        assertEquals(0, inserted);
+        assertTrue(dataVersion.current() > version);
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT score FROM questions WHERE id = ?", Integer.class, questionId));
+        TopAnswererDto after = analysisService.getTopAnswerers(fixture.tag(), 10).get(0);
+        assertEquals(7, after.answerScore());
+        assertEquals(300, after.reputation());
+    }
+
+    @Test
+    void newAnswerOnKnownQuestionRefreshesAnswererAnalyses() {
+        OwnerDto asker = fixture.owner(10);
+        OwnerDto first = fixture.owner(50);
+        long questionId = fixture.questionId();
+        long firstAnswerId = fixture.answerId();
+        ingestService.ingestPage(List.of(fixture.question(questionId, 1,
+                List.of(IngestFixture.answer(firstAnswerId, 60, 1, false, first)), asker)));
+        assertEquals(1, analysisService.getTopAnswerers(fixture.tag(), 10).size());
+        assertEquals(Map.of("0-9", 0L, "10-99", 1L), analysisService.getReputationDistribution(fixture.tag()));
+
+        // 增量抓取: 只是已有问题多了一个回答, 回答者声望为 1000-9999
+        OwnerDto second = fixture.owner(2500);
+        ingestService.ingestPage(List.of(fixture.question(questionId, 1, List.of(
+                IngestFixture.answer(firstAnswerId, 60, 1, false, first),
+                IngestFixture.answer(fixture.answerId(), 120, 3, true, second)), asker)));
+
+        List<TopAnswererDto> answerers = analysisService.getTopAnswerers(fixture.tag(), 10);
+        assertEquals(2, answerers.size());
+        assertEquals(Map.of("0-9", 0L, "10-99", 1L, "100-999", 0L, "1000-9999", 1L),
+                analysisService.getReputationDistribution(fixture.tag()));
+    }
+
+    @Test
+    void scoreOnlyChangeBumpsDataVersion() {
+        OwnerDto asker = fixture.owner(10);
+        long questionId = fixture.questionId();
+        ingestService.ingestPage(List.of(fixture.question(questionId, 1, List.of(), asker)));
+        long version = dataVersion.current();
+
+        ingestService.ingestPage(List.of(fixture.question(questionId, 42, List.of(), asker)));
+
+        assertTrue(dataVersion.current() > version);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// 写入测试库的入库数据: id 与 tag 名随机生成, 不与库中已有数据冲突 (OwnerCache 等进程内缓存也不会见过它们);
+// cleanup 删除本次写入的问题、回答、用户、tag 及各汇总表中该 tag 的行
+final class IngestFixture {
+
+    // 2020-01-15T00:00:00Z
+    static final long CREATED = 1_579_046_400L;
+    private static final long ID_BASE = 9_000_000_000_000_000L;
+
+    private final JdbcTemplate jdbc;
+    private final String tag = "fixture-" + Long.toHexString(ThreadLocalRandom.current().nextLong(1L << 40));
+    private final List<Long> questionIds = new ArrayList<>();
+    private final List<Long> ownerIds = new ArrayList<>();
+
+    IngestFixture(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    String tag() {
+        return tag;
+    }
+
+    long questionId() {
+        long id = randomId();
+        questionIds.add(id);
+        return id;
+    }
+
+    long answerId() {
+        return randomId();
+    }
+
+    OwnerDto owner(int reputation) {
+        long id = randomId();
+        ownerIds.add(id);
+        return new OwnerDto(id, "user-" + id, reputation);
+    }
+
+    QuestionDto question(long id, int score, List<AnswerDto> answers, OwnerDto owner) {
+        return new QuestionDto(id, "fixture question", "<p>fixture body text</p>", CREATED, score, 10,
+                answers.size(), !answers.isEmpty(), List.of(tag), owner, answers);
+    }
+
+    static AnswerDto answer(long id, long secondsAfterQuestion, int score, boolean accepted, OwnerDto owner) {
+        return new AnswerDto(id, "<p>fixture answer</p>", CREATED + secondsAfterQuestion, score, accepted, owner);
+    }
+
+    void cleanup() {
+        Long[] questions = questionIds.toArray(Long[]::new);
+        for (String table : List.of("tag_answerer_counts", "tag_month_counts", "tag_term_counts", "tag_response_times")) {
+            jdbc.update("DELETE FROM " + table + " WHERE tag_id IN (SELECT id FROM tags WHERE name = ?)", tag);
+        }
+        jdbc.update("DELETE FROM question_tags WHERE question_id = ANY(?)", (Object) questions);
+        jdbc.update("DELETE FROM answers WHERE question_id = ANY(?)", (Object) questions);
+        jdbc.update("DELETE FROM questions WHERE id = ANY(?)", (Object) questions);
+        jdbc.update("DELETE FROM question_owners WHERE id = ANY(?)", (Object) ownerIds.toArray(Long[]::new));
+        jdbc.update("DELETE FROM tags WHERE name = ?", tag);
+    }
+
+    private static long randomId() {
+        return ID_BASE + ThreadLocalRandom.current().nextLong(1L << 50);
+    }
+}
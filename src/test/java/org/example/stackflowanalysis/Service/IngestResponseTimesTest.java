@@ -0,0 +1,109 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.Util.LatencyHistogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 重新抓到已有问题且最早回答或被采纳回答变化时, tag_response_times 减去旧桶、加上新桶
+@SpringBootTest
+class IngestResponseTimesTest {
+
+    @Autowired private IngestService ingestService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    private IngestFixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new IngestFixture(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.cleanup();
+    }
+
+    @Test
+    void changedAnswersMoveCountsBetweenBuckets() {
+        OwnerDto asker = fixture.owner(10);
+        OwnerDto answerer = fixture.owner(100);
+        long questionId = fixture.questionId();
+        long late = fixture.answerId();
+        long early = fixture.answerId();
+        int lateBucket = LatencyHistogram.bucket(3_600);
+        int earlyBucket = LatencyHistogram.bucket(60);
+
+        ingest(questionId, asker);
+        assertEquals(Map.of(), rows());
+
+        ingest(questionId, asker, IngestFixture.answer(late, 3_600, 1, false, answerer));
+        assertEquals(Map.of(lateBucket, List.of(1L, 0L)), rows());
+
+        // 更早的回答出现, 晚的回答被采纳: 最早回答移到新桶, 被采纳回答计入晚的桶
+        ingest(questionId, asker, IngestFixture.answer(late, 3_600, 1, true, answerer),
+                IngestFixture.answer(early, 60, 0, false, answerer));
+        assertEquals(Map.of(lateBucket, List.of(0L, 1L), earlyBucket, List.of(1L, 0L)), rows());
+        assertEquals(List.of(60L, 3_600L), questionTimes(questionId));
+
+        // 没有变化时不重复计数
+        ingest(questionId, asker, IngestFixture.answer(late, 3_600, 1, true, answerer),
+                IngestFixture.answer(early, 60, 0, false, answerer));
+        assertEquals(Map.of(lateBucket, List.of(0L, 1L), earlyBucket, List.of(1L, 0L)), rows());
+
+        // 改为采纳早于提问的回答 (合并过来的问题), 两项都记为0秒
+        long merged = fixture.answerId();
+        ingest(questionId, asker, IngestFixture.answer(merged, -600, 0, true, answerer),
+                IngestFixture.answer(late, 3_600, 1, false, answerer));
+        assertEquals(Map.of(0, List.of(1L, 1L)), rows());
+        assertEquals(List.of(0L, 0L), questionTimes(questionId));
+    }
+
+    @Test
+    void otherQuestionsOfTagAreUnaffected() {
+        OwnerDto asker = fixture.owner(10);
+        long unchanged = fixture.questionId();
+        long changed = fixture.questionId();
+        int bucket = LatencyHistogram.bucket(120);
+        ingestService.ingestPage(List.of(
+                fixture.question(unchanged, 0, List.of(IngestFixture.answer(fixture.answerId(), 120, 0, true, asker)), asker),
+                fixture.question(changed, 0, List.of(), asker)));
+        assertEquals(Map.of(bucket, List.of(1L, 1L)), rows());
+
+        ingest(changed, asker, IngestFixture.answer(fixture.answerId(), 120, 0, false, asker));
+        assertEquals(Map.of(bucket, List.of(2L, 1L)), rows());
+    }
+
+    private void ingest(long questionId, OwnerDto asker, AnswerDto... answers) {
+        ingestService.ingestPage(List.of(fixture.question(questionId, 0, List.of(answers), asker)));
+    }
+
+    // 桶 -> [最早回答计数, 被采纳回答计数], 只含非零行
+    private Map<Integer, List<Long>> rows() {
+        Map<Integer, List<Long>> rows = new TreeMap<>();
+        jdbcTemplate.query("""
+                SELECT r.bucket, r.first_count, r.accepted_count FROM tag_response_times r
+                JOIN tags t ON t.id = r.tag_id
+                WHERE t.name = ? AND r.year_month = '2020-01' AND (r.first_count <> 0 OR r.accepted_count <> 0)
+                """, rs -> {
+                    rows.put(rs.getInt(1), List.of(rs.getLong(2), rs.getLong(3)));
+                }, fixture.tag());
+        return rows;
+    }
+
+    private List<Long> questionTimes(long questionId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT first_answer_seconds, accepted_answer_seconds FROM questions WHERE id = ?",
+                (rs, rowNum) -> List.of(rs.getLong(1), rs.getLong(2)), questionId);
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.Repositories.AnalyticsJdbcRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+// 分片边界由库中查询得到, 这里用模拟的仓库与事务管理器, 只验证分片的划分、合并与调用限制
+class PartitionedAggregatorTest {
+
+    private final AnalyticsJdbcRepository repository = mock(AnalyticsJdbcRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final List<PartitionedAggregator> aggregators = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        aggregators.forEach(PartitionedAggregator::shutdown);
+    }
+
+    private PartitionedAggregator aggregator(int parallelism) {
+        PartitionedAggregator aggregator = new PartitionedAggregator(repository, transactionManager, parallelism, 20, 4);
+        aggregators.add(aggregator);
+        return aggregator;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    void scansEachRangeOnceAndMergesAll(int parallelism) {
+        when(repository.findQuestionIdBoundaries(anyInt())).thenReturn(new long[]{0, 10, 25, 40, 41});
+        AtomicInteger merged = new AtomicInteger();
+
+        List<long[]> ranges = aggregator(parallelism).aggregate(ArrayList::new,
+                (fromId, toId, accumulator) -> accumulator.add(new long[]{fromId, toId}),
+                List::addAll, result -> merged.incrementAndGet());
+
+        // 每个线程切4段
+        verify(repository).findQuestionIdBoundaries(parallelism * 4);
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+        assertEquals(4, ranges.size());
+        assertArrayEquals(new long[]{0, 10}, ranges.get(0));
+        assertArrayEquals(new long[]{10, 25}, ranges.get(1));
+        assertArrayEquals(new long[]{25, 40}, ranges.get(2));
+        assertArrayEquals(new long[]{40, 41}, ranges.get(3));
+        assertEquals(4, merged.get());
+        // 每段一个只读事务
+        verify(transactionManager, times(4)).commit(any());
+    }
+
+    @Test
+    void emptyCorpusScansNothing() {
+        when(repository.findQuestionIdBoundaries(anyInt())).thenReturn(new long[]{5});
+        List<Long> result = aggregator(2).aggregate(ArrayList::new,
+                (fromId, toId, accumulator) -> fail("不应扫描"), List::addAll, null);
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void scanFailureIsRethrown() {
+        when(repository.findQuestionIdBoundaries(anyInt())).thenReturn(new long[]{0, 10, 20});
+        IllegalArgumentException failure = new IllegalArgumentException("分片出错");
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> aggregator(2).aggregate(
+                ArrayList::new, (fromId, toId, accumulator) -> {
+                    if (fromId == 10) {
+                        throw failure;
+                    }
+                }, List::addAll, null));
+        assertSame(failure, thrown);
+    }
+
+    @Test
+    void rejectsCallInsideTransaction() {
+        PartitionedAggregator aggregator = aggregator(2);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(IllegalStateException.class, () -> aggregator.aggregate(ArrayList::new,
+                    (fromId, toId, accumulator) -> {}, List::addAll, null));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void parallelismIsLimitedByConnectionPool() {
+        // 连接池20个, 保留4个: 最多16个分片线程
+        assertEquals(16, aggregator(16).parallelism());
+        assertThrows(IllegalStateException.class,
+                () -> new PartitionedAggregator(repository, transactionManager, 17, 20, 4));
+        assertThrows(IllegalStateException.class,
+                () -> new PartitionedAggregator(repository, transactionManager, 1, 4, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PartitionedAggregator(repository, transactionManager, -1, 20, 4));
+        int automatic = aggregator(0).parallelism();
+        assertEquals(Math.min(Runtime.getRuntime().availableProcessors(), 16), automatic);
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.DTOs.SearchHitDto;
+import org.example.stackflowanalysis.DTOs.SearchResultDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 问题与回答分别匹配, 每个问题取最高分的一处; 过滤条件在截断候选之前生效
+@SpringBootTest
+class SearchServiceTest {
+
+    @Autowired private SearchService searchService;
+    @Autowired private IngestService ingestService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    private IngestFixture fixture;
+    private String word;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new IngestFixture(jdbcTemplate);
+        StringBuilder letters = new StringBuilder("zq");
+        Random random = new Random();
+        for (int i = 0; i < 10; i++) {
+            letters.append((char) ('a' + random.nextInt(26)));
+        }
+        word = letters.toString();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.cleanup();
+    }
+
+    @Test
+    void ranksTitleMatchAboveAnswerMatch() {
+        OwnerDto owner = fixture.owner(10);
+        long inTitle = fixture.questionId();
+        long inAnswer = fixture.questionId();
+        long unrelated = fixture.questionId();
+        ingestService.ingestPage(List.of(
+                withTitle(fixture.question(inTitle, 0, List.of(), owner), "how to " + word),
+                fixture.question(inAnswer, 0, List.of(new AnswerDto(
+                        fixture.answerId(), "<p>try " + word + " instead</p>", IngestFixture.CREATED + 60, 1, false,
+                        owner)), owner),
+                fixture.question(unrelated, 0, List.of(), owner)));
+
+        SearchResultDto result = searchService.search(word, List.of(fixture.tag()), null, null, 10, 0);
+
+        assertEquals(2, result.total());
+        assertFalse(result.totalCapped());
+        List<SearchHitDto> hits = result.hits();
+        assertEquals(List.of(inTitle, inAnswer), hits.stream().map(SearchHitDto::questionId).toList());
+        assertFalse(hits.get(0).matchedInAnswer());
+        assertTrue(hits.get(1).matchedInAnswer());
+        assertTrue(hits.get(1).snippet().contains("<mark>" + word + "</mark>"), hits.get(1).snippet());
+    }
+
+    @Test
+    void filtersApplyToQuestionAndAnswerMatches() {
+        OwnerDto owner = fixture.owner(10);
+        long id = fixture.questionId();
+        ingestService.ingestPage(List.of(withTitle(fixture.question(id, 0, List.of(
+                new AnswerDto(fixture.answerId(), "<p>" + word + "</p>",
+                        IngestFixture.CREATED + 60, 1, false, owner)), owner), word)));
+        // 2020-01-15 创建
+        LocalDateTime before = LocalDateTime.of(2020, 1, 1, 0, 0);
+        LocalDateTime after = LocalDateTime.of(2020, 2, 1, 0, 0);
+
+        assertEquals(1, searchService.search(word, List.of(), before, after, 10, 0).total());
+        assertEquals(0, searchService.search(word, List.of(), null, before, 10, 0).hits().size());
+        assertEquals(0, searchService.search(word, List.of(), after, null, 10, 0).hits().size());
+        assertEquals(0, searchService.search(word, List.of(fixture.tag(), "no-such-tag"), null, null, 10, 0)
+                .hits().size());
+        // offset 超出总数时没有结果, total 为 0
+        SearchResultDto beyond = searchService.search(word, List.of(fixture.tag()), null, null, 10, 1);
+        assertTrue(beyond.hits().isEmpty());
+        assertEquals(0, beyond.total());
+    }
+
+    private static QuestionDto withTitle(QuestionDto question, String title) {
+        return new QuestionDto(question.questionId(), title, question.body(), question.creationDate(),
+                question.score(), question.viewCount(), question.answerCount(), question.isAnswered(),
+                question.tags(), question.owner(), question.answers());
+    }
+}
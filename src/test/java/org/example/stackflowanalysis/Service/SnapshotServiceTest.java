@@ -0,0 +1,209 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.example.stackflowanalysis.DTOs.SnapshotSummaryDto;
+import org.example.stackflowanalysis.Util.SnapshotReader;
+import org.example.stackflowanalysis.Util.SnapshotWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 导出再导入后数据不变; 截断或损坏的快照在写入任何数据之前报错
+@SpringBootTest
+class SnapshotServiceTest {
+
+    @Autowired private SnapshotService snapshotService;
+    @Autowired private IngestService ingestService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Value("${snapshot.directory:snapshots}") private String snapshotDirectory;
+    private IngestFixture fixture;
+    private final List<Path> files = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        fixture = new IngestFixture(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        fixture.cleanup();
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void exportThenImportRestoresDeletedQuestions() throws IOException {
+        OwnerDto asker = fixture.owner(10);
+        OwnerDto answerer = fixture.owner(2_000);
+        long first = fixture.questionId();
+        long second = fixture.questionId();
+        ingestService.ingestPage(List.of(
+                fixture.question(first, 3, List.of(
+                        IngestFixture.answer(fixture.answerId(), 60, 2, true, answerer),
+                        IngestFixture.answer(fixture.answerId(), 600, -1, false, asker)), asker),
+                fixture.question(second, -2, List.of(), answerer)));
+        String name = snapshotName();
+
+        SnapshotSummaryDto exported = snapshotService.export(name);
+        Map<Long, QuestionDto> before = readFixtureQuestions(name, first, second);
+        assertEquals(2, before.size());
+        assertEquals(2, before.get(first).answers().size());
+        assertEquals(3, before.get(first).score());
+        assertEquals(List.of(fixture.tag()), before.get(second).tags());
+
+        deleteQuestions(first, second);
+        SnapshotSummaryDto imported = snapshotService.importSnapshot(name);
+
+        assertEquals(exported.questions(), imported.questions());
+        assertEquals(exported.answers(), imported.answers());
+        assertEquals(2, imported.newQuestions());
+        String again = snapshotName();
+        snapshotService.export(again);
+        assertEquals(before, readFixtureQuestions(again, first, second));
+    }
+
+    @Test
+    void truncatedSnapshotImportsNothing() throws IOException {
+        // 每个问题约 0.4MB 的随机单词, 每三个问题一个数据块; 截断最后一个数据块
+        List<QuestionDto> questions = largeQuestions(6);
+        Path file = writeSnapshot(questions);
+        long size = Files.size(file);
+        try (var channel = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 1_000);
+        }
+
+        UncheckedIOException error = assertThrows(UncheckedIOException.class,
+                () -> snapshotService.importSnapshot(file.getFileName().toString()));
+        assertTrue(error.getMessage().contains("快照文件不完整"), error.getMessage());
+        assertEquals(0, countQuestions(questions));
+    }
+
+    @Test
+    void corruptedBlockImportsNothing() throws IOException {
+        List<QuestionDto> questions = largeQuestions(6);
+        Path file = writeSnapshot(questions);
+        byte[] bytes = Files.readAllBytes(file);
+        // 最后一个数据块中间的一个字节
+        bytes[bytes.length - 10_000] ^= 0x10;
+        Files.write(file, bytes);
+
+        UncheckedIOException error = assertThrows(UncheckedIOException.class,
+                () -> snapshotService.importSnapshot(file.getFileName().toString()));
+        assertTrue(error.getMessage().contains("快照数据块已损坏"), error.getMessage());
+        assertEquals(0, countQuestions(questions));
+    }
+
+    @Test
+    void failedBootstrapImportStillRebuildsRollups() throws IOException {
+        // 测试库为空时导入走不逐页维护汇总的路径; 第二页中有超长标题, 写库失败
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM questions", Long.class));
+        OwnerDto asker = fixture.owner(10);
+        List<QuestionDto> questions = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            questions.add(fixture.question(fixture.questionId(), 0, List.of(), asker));
+        }
+        QuestionDto bad = questions.get(550);
+        questions.set(550, new QuestionDto(bad.questionId(), "x".repeat(300), bad.body(), bad.creationDate(),
+                bad.score(), bad.viewCount(), bad.answerCount(), bad.isAnswered(), bad.tags(), bad.owner(),
+                bad.answers()));
+        Path file = writeSnapshot(questions);
+
+        assertThrows(RuntimeException.class, () -> snapshotService.importSnapshot(file.getFileName().toString()));
+
+        // 第一页 500 个问题已提交, 汇总表包含它们
+        assertEquals(500, countQuestions(questions));
+        assertEquals(500, jdbcTemplate.queryForObject("""
+                SELECT coalesce(sum(c.count), 0) FROM tag_month_counts c JOIN tags t ON t.id = c.tag_id
+                WHERE t.name = ? AND c.year_month = '2020-01'
+                """, Long.class, fixture.tag()));
+        assertTrue(jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM tag_term_counts c JOIN tags t ON t.id = c.tag_id WHERE t.name = ?
+                """, Long.class, fixture.tag()) > 0);
+    }
+
+    private List<QuestionDto> largeQuestions(int count) {
+        Random random = new Random(count);
+        OwnerDto asker = fixture.owner(10);
+        List<QuestionDto> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder body = new StringBuilder(400_000);
+            while (body.length() < 400_000) {
+                body.append((char) ('a' + random.nextInt(26)));
+                if (random.nextInt(8) == 0) {
+                    body.append(' ');
+                }
+            }
+            QuestionDto question = fixture.question(fixture.questionId(), i, List.of(), asker);
+            questions.add(new QuestionDto(question.questionId(), question.title(), body.toString(),
+                    question.creationDate(), question.score(), question.viewCount(), question.answerCount(),
+                    question.isAnswered(), question.tags(), question.owner(), question.answers()));
+        }
+        return questions;
+    }
+
+    private Path writeSnapshot(List<QuestionDto> questions) throws IOException {
+        Path directory = Path.of(snapshotDirectory).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+        Path file = directory.resolve(snapshotName());
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            for (QuestionDto question : questions) {
+                writer.write(question);
+            }
+        }
+        return file;
+    }
+
+    private Map<Long, QuestionDto> readFixtureQuestions(String name, long... ids) throws IOException {
+        Set<Long> wanted = new HashSet<>();
+        for (long id : ids) {
+            wanted.add(id);
+        }
+        Map<Long, QuestionDto> found = new HashMap<>();
+        try (SnapshotReader reader = new SnapshotReader(Path.of(snapshotDirectory).resolve(name))) {
+            List<QuestionDto> block;
+            while ((block = reader.nextBlock()) != null) {
+                for (QuestionDto question : block) {
+                    if (wanted.contains(question.questionId())) {
+                        found.put(question.questionId(), question);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private void deleteQuestions(long... ids) {
+        Long[] boxed = Arrays.stream(ids).boxed().toArray(Long[]::new);
+        jdbcTemplate.update("DELETE FROM question_tags WHERE question_id = ANY(?)", (Object) boxed);
+        jdbcTemplate.update("DELETE FROM answers WHERE question_id = ANY(?)", (Object) boxed);
+        jdbcTemplate.update("DELETE FROM questions WHERE id = ANY(?)", (Object) boxed);
+    }
+
+    private long countQuestions(List<QuestionDto> questions) {
+        Long[] ids = questions.stream().map(QuestionDto::questionId).toArray(Long[]::new);
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM questions WHERE id = ANY(?)", Long.class, (Object) ids);
+    }
+
+    private String snapshotName() {
+        String name = "test-" + UUID.randomUUID() + ".bin";
+        files.add(Path.of(snapshotDirectory).toAbsolutePath().normalize().resolve(name));
+        return name;
+    }
+}
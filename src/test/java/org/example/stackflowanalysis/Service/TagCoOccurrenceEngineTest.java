@@ -0,0 +1,140 @@
+package org.example.stackflowanalysis.Service;
+
+import org.example.stackflowanalysis.Repositories.AnalyticsJdbcRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// 在内存中的小数据集上比较分片流式计数的topN与改写前逐个问题拼接tag名计数的结果
+class TagCoOccurrenceEngineTest {
+
+    private static final List<String> TAG_NAMES = List.of("java", "spring", "spring-boot", "jpa", "hibernate",
+            "stream", "lambda", "concurrency", "a", "ab", "b", "z");
+
+    private final Map<Long, String> tagNames = new LinkedHashMap<>();
+    // 按问题id排序的 (question_id, tag_id) 行, 与 question_tags 的扫描顺序一致
+    private final List<long[]> questionTags = new ArrayList<>();
+    private final Map<Long, List<String>> tagsByQuestion = new TreeMap<>();
+    private PartitionedAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        // tag id 与名称顺序无关, 验证按名称分配的稠密id
+        for (int i = 0; i < TAG_NAMES.size(); i++) {
+            tagNames.put(1000L - i * 7, TAG_NAMES.get(i));
+        }
+        List<Long> tagIds = new ArrayList<>(tagNames.keySet());
+        Random random = new Random(2024);
+        for (long questionId = 1; questionId <= 400; questionId++) {
+            // 0 到 5 个不重复的tag, 包括只有一个tag和只有java的问题
+            List<Long> shuffled = new ArrayList<>(tagIds);
+            Collections.shuffle(shuffled, random);
+            List<Long> picked = new ArrayList<>(shuffled.subList(0, random.nextInt(6)));
+            picked.sort(null);
+            for (long tagId : picked) {
+                questionTags.add(new long[]{questionId * 3, tagId});
+            }
+            tagsByQuestion.put(questionId * 3, picked.stream().map(tagNames::get).toList());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (aggregator != null) {
+            aggregator.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    void topPairsMatchPreviousQuery(int parallelism) {
+        TagCoOccurrenceEngine engine = engine(parallelism);
+        List<Map.Entry<String, Integer>> expected = previousTopPairs(TagCoOccurrenceEngine.CACHED_TOP_N);
+
+        assertEquals(expected, engine.topPairs(TagCoOccurrenceEngine.CACHED_TOP_N));
+        assertEquals(expected.subList(0, 5), engine.topPairs(5));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    void progressEndsWithFinalCounts(int parallelism) {
+        TagCoOccurrenceEngine engine = engine(parallelism);
+        List<List<Map.Entry<String, Integer>>> updates = new ArrayList<>();
+        List<Map.Entry<String, Integer>> result = engine.topPairs(10, progress -> updates.add(progress.partial()));
+
+        assertEquals(previousTopPairs(10), result);
+        assertEquals(result, updates.get(updates.size() - 1));
+    }
+
+    private TagCoOccurrenceEngine engine(int parallelism) {
+        AnalyticsJdbcRepository repository = mock(AnalyticsJdbcRepository.class);
+        when(repository.findAllTagNames()).thenReturn(tagNames);
+        when(repository.countQuestions()).thenReturn((long) tagsByQuestion.size());
+        when(repository.findQuestionIdBoundaries(anyInt())).thenAnswer(invocation -> {
+            int partitions = invocation.getArgument(0);
+            List<Long> ids = new ArrayList<>(tagsByQuestion.keySet());
+            long[] bounds = new long[partitions + 1];
+            for (int i = 0; i < partitions; i++) {
+                bounds[i] = ids.get(ids.size() * i / partitions);
+            }
+            bounds[partitions] = ids.get(ids.size() - 1) + 1;
+            return bounds;
+        });
+        doAnswer(invocation -> {
+            long fromId = invocation.getArgument(0);
+            long toId = invocation.getArgument(1);
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (long[] row : questionTags) {
+                if (row[0] >= fromId && row[0] < toId) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong(1)).thenReturn(row[0]);
+                    when(rs.getLong(2)).thenReturn(row[1]);
+                    handler.processRow(rs);
+                }
+            }
+            return null;
+        }).when(repository).streamQuestionTags(anyLong(), anyLong(), any());
+        aggregator = new PartitionedAggregator(repository, mock(PlatformTransactionManager.class), parallelism, 10, 4);
+        return new TagCoOccurrenceEngine(repository, aggregator, new DataVersion());
+    }
+
+    // 改写前 AnalysisService.getTopCoOccurringTags 的计数方式; 原实现对同数的组合不定序, 这里按组合中的tag名排序
+    private List<Map.Entry<String, Integer>> previousTopPairs(int topN) {
+        Map<List<String>, Integer> pairCounts = new HashMap<>();
+        for (List<String> questionTagNames : tagsByQuestion.values()) {
+            List<String> tags = questionTagNames.stream()
+                    .filter(tar -> !tar.equals("java"))
+                    .sorted()
+                    .toList();
+            for (int i = 0; i < tags.size(); i++) {
+                for (int j = i + 1; j < tags.size(); j++) {
+                    pairCounts.merge(List.of(tags.get(i), tags.get(j)), 1, Integer::sum);
+                }
+            }
+        }
+        Comparator<Map.Entry<List<String>, Integer>> byPair = Comparator
+                .<Map.Entry<List<String>, Integer>, String>comparing(e -> e.getKey().get(0))
+                .thenComparing(e -> e.getKey().get(1));
+        return pairCounts.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<List<String>, Integer>>comparingInt(Map.Entry::getValue).reversed()
+                        .thenComparing(byPair))
+                .limit(topN)
+                .map(e -> Map.entry(e.getKey().get(0) + " + " + e.getKey().get(1), e.getValue()))
+                .collect(Collectors.toList());
+    }
+}
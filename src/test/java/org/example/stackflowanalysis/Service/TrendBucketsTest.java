@@ -0,0 +1,101 @@
+package org.example.stackflowanalysis.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 趋势的时间桶划分与月度汇总的首尾拆分, 不依赖数据库
+class TrendBucketsTest {
+
+    @Test
+    void weekStartsOnMondayAcrossYearBoundary() {
+        TrendGranularity week = TrendGranularity.WEEK;
+        // 2020-01-13 为周一, 2020-01-19 为周日
+        assertEquals(LocalDate.of(2020, 1, 13), week.truncate(LocalDate.of(2020, 1, 13)));
+        assertEquals(LocalDate.of(2020, 1, 13), week.truncate(LocalDate.of(2020, 1, 19)));
+        assertEquals(LocalDate.of(2020, 1, 20), week.truncate(LocalDate.of(2020, 1, 20)));
+        // 2020-01-01 为周三, 所在周从上一年开始
+        assertEquals(LocalDate.of(2019, 12, 30), week.truncate(LocalDate.of(2020, 1, 1)));
+        assertEquals("2019-12-30", week.label(week.truncate(LocalDate.of(2020, 1, 1))));
+        assertEquals(LocalDate.of(2020, 1, 6), week.next(LocalDate.of(2019, 12, 30)));
+    }
+
+    @Test
+    void edgeBucketsArePartial() {
+        // 周三到下下周二: 首尾两周都只有一部分落在区间内
+        AnalysisService.TrendBuckets weeks = AnalysisService.trendBuckets(TrendGranularity.WEEK,
+                LocalDateTime.of(2020, 1, 15, 12, 0), LocalDateTime.of(2020, 1, 28, 0, 0));
+        assertEquals(List.of(LocalDate.of(2020, 1, 13), LocalDate.of(2020, 1, 20), LocalDate.of(2020, 1, 27)),
+                weeks.starts());
+        assertEquals(List.of("2020-01-13", "2020-01-20", "2020-01-27"), weeks.labels());
+
+        AnalysisService.TrendBuckets months = AnalysisService.trendBuckets(TrendGranularity.MONTH,
+                LocalDateTime.of(2019, 12, 31, 23, 0), LocalDateTime.of(2020, 2, 1, 0, 0, 0, 1));
+        assertEquals(List.of("2019-12", "2020-01", "2020-02"), months.labels());
+    }
+
+    @Test
+    void endIsExclusive() {
+        // 结束于下一个时间桶的起点时不包含该桶
+        AnalysisService.TrendBuckets weeks = AnalysisService.trendBuckets(TrendGranularity.WEEK,
+                LocalDateTime.of(2020, 1, 13, 0, 0), LocalDateTime.of(2020, 1, 27, 0, 0));
+        assertEquals(List.of("2020-01-13", "2020-01-20"), weeks.labels());
+        AnalysisService.TrendBuckets years = AnalysisService.trendBuckets(TrendGranularity.YEAR,
+                LocalDateTime.of(2019, 6, 1, 0, 0), LocalDateTime.of(2021, 1, 1, 0, 0));
+        assertEquals(List.of("2019", "2020"), years.labels());
+        assertTrue(AnalysisService.trendBuckets(TrendGranularity.DAY,
+                LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0)).starts().isEmpty());
+    }
+
+    @Test
+    void tooManyBucketsAreRejected() {
+        LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0);
+        assertEquals(AnalysisService.MAX_TREND_BUCKETS, AnalysisService.trendBuckets(TrendGranularity.DAY,
+                start, start.plusDays(AnalysisService.MAX_TREND_BUCKETS)).starts().size());
+        assertThrows(IllegalArgumentException.class, () -> AnalysisService.trendBuckets(TrendGranularity.DAY,
+                start, start.plusDays(AnalysisService.MAX_TREND_BUCKETS + 1)));
+    }
+
+    @Test
+    void wholeMonthsNeedNoHeadOrTail() {
+        AnalysisService.MonthSplit split = AnalysisService.monthSplit(
+                LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2020, 4, 1, 0, 0));
+        assertEquals(YearMonth.of(2020, 1), split.firstFull());
+        assertEquals(YearMonth.of(2020, 3), split.lastFull());
+        assertEquals(LocalDateTime.of(2020, 1, 1, 0, 0), split.headEnd());
+        assertEquals(LocalDateTime.of(2020, 4, 1, 0, 0), split.tailStart());
+    }
+
+    @Test
+    void partialMonthsAreCountedExactly() {
+        LocalDateTime end = LocalDateTime.of(2020, 4, 10, 8, 0);
+        AnalysisService.MonthSplit split = AnalysisService.monthSplit(LocalDateTime.of(2020, 1, 15, 0, 0), end);
+        assertEquals(YearMonth.of(2020, 2), split.firstFull());
+        assertEquals(YearMonth.of(2020, 3), split.lastFull());
+        assertEquals(LocalDateTime.of(2020, 2, 1, 0, 0), split.headEnd());
+        assertEquals(LocalDateTime.of(2020, 4, 1, 0, 0), split.tailStart());
+
+        // 月初零点之后一秒开始, 该月不再是整月
+        split = AnalysisService.monthSplit(LocalDateTime.of(2020, 1, 1, 0, 0, 1), end);
+        assertEquals(YearMonth.of(2020, 2), split.firstFull());
+    }
+
+    @Test
+    void rangeWithoutWholeMonthIsAllHead() {
+        LocalDateTime start = LocalDateTime.of(2020, 1, 15, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2020, 2, 1, 0, 0);
+        AnalysisService.MonthSplit split = AnalysisService.monthSplit(start, end);
+        assertTrue(split.firstFull().isAfter(split.lastFull()));
+        assertEquals(end, split.headEnd());
+        assertEquals(end, split.tailStart());
+
+        split = AnalysisService.monthSplit(LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2020, 1, 20, 0, 0));
+        assertTrue(split.firstFull().isAfter(split.lastFull()));
+        assertEquals(LocalDateTime.of(2020, 1, 20, 0, 0), split.headEnd());
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.stackflowanalysis.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+
+    @Test
+    void estimatesStayWithinErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(5, 1024);
+        Map<Long, Integer> exact = new HashMap<>();
+        Random random = new Random(1);
+        // 偏斜分布: 少数键很多, 大量键只出现几次; 键的个数远大于宽度
+        for (int i = 0; i < 200_000; i++) {
+            long key = (long) Math.floor(Math.pow(random.nextDouble(), 3) * 20_000) - 10_000;
+            int count = 1 + random.nextInt(3);
+            sketch.add(key, count);
+            exact.merge(key, count, Integer::sum);
+        }
+        assertEquals(exact.values().stream().mapToLong(Integer::longValue).sum(), sketch.total());
+        int withinBound = 0;
+        for (Map.Entry<Long, Integer> entry : exact.entrySet()) {
+            int estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), "估计值不能小于真实值: " + entry.getKey());
+            if (estimate - entry.getValue() <= sketch.errorBound()) {
+                withinBound++;
+            }
+        }
+        assertTrue(withinBound >= sketch.confidence() * exact.size(),
+                withinBound + " / " + exact.size() + " 在误差上界内");
+    }
+
+    @Test
+    void conservativeUpdateIsExactWithoutCollisions() {
+        CountMinSketch sketch = new CountMinSketch(3, 1 << 16);
+        assertEquals(5, sketch.add(42, 5));
+        assertEquals(7, sketch.add(42, 2));
+        assertEquals(1, sketch.add(-42, 1));
+        assertEquals(7, sketch.estimate(42));
+        assertEquals(1, sketch.estimate(-42));
+        assertEquals(0, sketch.estimate(0));
+        assertEquals(8, sketch.total());
+    }
+
+    @Test
+    void emptySketchHasNoError() {
+        CountMinSketch sketch = new CountMinSketch(5, 64);
+        assertEquals(0, sketch.estimate(1));
+        assertEquals(0, sketch.errorBound());
+        assertEquals(1 - Math.exp(-5), sketch.confidence(), 1e-12);
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 64));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(3, 100));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(3, 64).add(1, 0));
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.stackflowanalysis.Util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistinctCountSketchTest {
+
+    // 小基数 (不超过 2.5·2^precision 时走线性计数) 与大基数各取几档, 每档一个分组
+    private static final int[] CARDINALITIES = {1, 10, 100, 500, 640, 1_000, 5_000, 50_000};
+
+    @ParameterizedTest
+    @ValueSource(ints = {8, 12})
+    void estimatesStayWithinThreeStandardErrors(int precision) {
+        DistinctCountSketch sketch = new DistinctCountSketch(3, 4096, precision);
+        Random random = new Random(precision);
+        for (int g = 0; g < CARDINALITIES.length; g++) {
+            for (int i = 0; i < CARDINALITIES[g]; i++) {
+                long item = random.nextLong();
+                sketch.add(g, item);
+                // 重复加入不改变结果
+                sketch.add(g, item);
+            }
+        }
+        for (int g = 0; g < CARDINALITIES.length; g++) {
+            long actual = CARDINALITIES[g];
+            long estimate = sketch.estimate(g);
+            assertTrue(Math.abs(estimate - actual) <= Math.max(1, 3 * sketch.relativeStandardError() * actual),
+                    "基数 " + actual + " 的估计值 " + estimate);
+        }
+    }
+
+    @Test
+    void smallRangeCorrectionKeepsFewItemsAccurate() {
+        // 原始 HLL 估计值在基数远小于寄存器数时严重偏大 (0 个元素时约为 0.72·256), 线性计数逐个元素都在误差范围内
+        DistinctCountSketch sketch = new DistinctCountSketch(2, 64, 8);
+        assertEquals(0, sketch.estimate(7));
+        for (long item = 1; item <= 640; item++) {
+            sketch.add(7, item * 1_000_003);
+            long estimate = sketch.estimate(7);
+            assertTrue(Math.abs(estimate - item) <= Math.max(1, 3 * sketch.relativeStandardError() * item),
+                    item + " 个元素的估计值 " + estimate);
+        }
+    }
+
+    @Test
+    void groupsDoNotShareCounts() {
+        DistinctCountSketch sketch = new DistinctCountSketch(3, 4096, 8);
+        for (long item = 0; item < 1_000; item++) {
+            sketch.add(1, item);
+        }
+        for (long item = 0; item < 10; item++) {
+            sketch.add(2, item);
+        }
+        assertEquals(10, sketch.estimate(2));
+        assertEquals(0, sketch.estimate(3));
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new DistinctCountSketch(0, 64, 8));
+        assertThrows(IllegalArgumentException.class, () -> new DistinctCountSketch(3, 63, 8));
+        assertThrows(IllegalArgumentException.class, () -> new DistinctCountSketch(3, 64, 3));
+        assertThrows(IllegalArgumentException.class, () -> new DistinctCountSketch(3, 64, 17));
+    }
+}
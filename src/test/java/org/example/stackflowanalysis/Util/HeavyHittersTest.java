@@ -0,0 +1,71 @@
+package org.example.stackflowanalysis.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHittersTest {
+
+    @Test
+    void findsTrueTopKeysOfSkewedStream() {
+        HeavyHitters hitters = new HeavyHitters(64, 5, 1024);
+        Map<String, Integer> exact = new HashMap<>();
+        Random random = new Random(11);
+        // Zipf 分布的 tag: 排名为 r 的键出现概率约与 1/r 成正比
+        for (int i = 0; i < 100_000; i++) {
+            int rank = (int) Math.floor(Math.exp(random.nextDouble() * Math.log(5_000)));
+            String label = "tag-" + rank;
+            hitters.add(SketchHash.of(label), label, 1);
+            exact.merge(label, 1, Integer::sum);
+        }
+        List<Map.Entry<String, Integer>> top = hitters.top(10);
+        List<Map.Entry<String, Integer>> expected = exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(10)
+                .toList();
+        assertEquals(expected.stream().map(Map.Entry::getKey).toList(),
+                top.stream().map(Map.Entry::getKey).toList());
+        double bound = hitters.sketch().errorBound();
+        for (Map.Entry<String, Integer> entry : top) {
+            int actual = exact.get(entry.getKey());
+            assertTrue(entry.getValue() >= actual && entry.getValue() - actual <= bound,
+                    entry.getKey() + ": " + entry.getValue() + " vs " + actual);
+        }
+    }
+
+    @Test
+    void latecomerReplacesSmallestCandidate() {
+        HeavyHitters hitters = new HeavyHitters(2, 3, 1 << 12);
+        hitters.add(1, "a", 5);
+        hitters.add(2, "b", 1);
+        hitters.add(3, "c", 1);
+        // 与候选表中最小者相同不替换
+        assertEquals(List.of(Map.entry("a", 5), Map.entry("b", 1)), hitters.top(5));
+        hitters.add(3, "c", 3);
+        assertEquals(List.of(Map.entry("a", 5), Map.entry("c", 4)), hitters.top(5));
+        hitters.add(2, "b", 5);
+        assertEquals(List.of(Map.entry("b", 6), Map.entry("a", 5)), hitters.top(5));
+    }
+
+    @Test
+    void tiesAreOrderedByLabel() {
+        HeavyHitters hitters = new HeavyHitters(8, 3, 1 << 12);
+        hitters.add(3, "gamma", 2);
+        hitters.add(1, "alpha", 2);
+        hitters.add(2, "beta", 2);
+        assertEquals(List.of(Map.entry("alpha", 2), Map.entry("beta", 2)), hitters.top(2));
+        assertEquals(List.of(), new HeavyHitters(4, 3, 64).top(3));
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitters(0, 3, 64));
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.stackflowanalysis.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void zeroAndNegativeSecondsGoToFirstBucket() {
+        assertEquals(0, LatencyHistogram.bucket(0));
+        assertEquals(0, LatencyHistogram.bucket(-1));
+        assertEquals(0, LatencyHistogram.bucket(Long.MIN_VALUE));
+        assertEquals(1, LatencyHistogram.bucket(1));
+    }
+
+    @Test
+    void bucketsMatchExactBoundaries() {
+        // s 落在 [2^((b-1)/4), 2^(b/4)) 等价于 2^(b-1) <= s^4 < 2^b, 即 b = 1 + floor(log2(s^4)), 用整数精确计算
+        for (long seconds = 1; seconds <= 200_000; seconds++) {
+            assertEquals(expectedBucket(seconds), LatencyHistogram.bucket(seconds), seconds + " 秒");
+        }
+        for (int bit = 1; bit < 63; bit++) {
+            for (long seconds : new long[]{(1L << bit) - 1, 1L << bit, (1L << bit) + 1}) {
+                assertEquals(expectedBucket(seconds), LatencyHistogram.bucket(seconds), seconds + " 秒");
+            }
+        }
+    }
+
+    @Test
+    void longDurationsAreCappedAtLastBucket() {
+        // 2^(126/4) 秒起为最后一桶
+        long lastStart = BigInteger.TWO.pow(126).sqrt().sqrt().longValueExact() + 1;
+        assertEquals(LatencyHistogram.MAX_BUCKET - 1, LatencyHistogram.bucket(lastStart - 1));
+        assertEquals(LatencyHistogram.MAX_BUCKET, LatencyHistogram.bucket(lastStart));
+        assertEquals(LatencyHistogram.MAX_BUCKET, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void midpointIsGeometricCenterOfBucket() {
+        assertEquals(0, LatencyHistogram.midpoint(0));
+        for (int b = 1; b <= LatencyHistogram.MAX_BUCKET; b++) {
+            double lower = Math.pow(2, (b - 1) / 4.0);
+            double upper = Math.pow(2, b / 4.0);
+            assertEquals(Math.sqrt(lower * upper), LatencyHistogram.midpoint(b), 1e-9 * upper, "桶 " + b);
+        }
+    }
+
+    @Test
+    void singleValuePercentileStaysWithinRelativeError() {
+        for (long seconds = 1; seconds <= 100_000; seconds++) {
+            long[] counts = new long[LatencyHistogram.BUCKETS];
+            counts[LatencyHistogram.bucket(seconds)]++;
+            long estimate = LatencyHistogram.percentile(counts, 0.5);
+            // 几何中点与桶内任一值之比不超过 2^(1/8), 另加取整
+            assertTrue(Math.abs(estimate - seconds) <= 0.0906 * seconds + 0.5, seconds + " 秒估计为 " + estimate);
+        }
+    }
+
+    @Test
+    void percentileUsesRankWithinCumulativeCounts() {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        assertNull(LatencyHistogram.percentile(counts, 0.5));
+        counts[0] = 1;
+        counts[9] = 3;
+        long ninth = Math.round(LatencyHistogram.midpoint(9));
+        assertEquals(0, LatencyHistogram.percentile(counts, 0));
+        assertEquals(0, LatencyHistogram.percentile(counts, 0.25));
+        assertEquals(ninth, LatencyHistogram.percentile(counts, 0.26));
+        assertEquals(ninth, LatencyHistogram.percentile(counts, 0.5));
+        assertEquals(ninth, LatencyHistogram.percentile(counts, 1));
+    }
+
+    private static int expectedBucket(long seconds) {
+        int log2OfFourthPower = BigInteger.valueOf(seconds).pow(4).bitLength() - 1;
+        return Math.min(LatencyHistogram.MAX_BUCKET, 1 + log2OfFourthPower);
+    }
+}
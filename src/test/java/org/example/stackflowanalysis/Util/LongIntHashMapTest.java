@@ -0,0 +1,122 @@
+package org.example.stackflowanalysis.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongIntHashMapTest {
+
+    @Test
+    void growsFromMinimalCapacityAndKeepsAllEntries() {
+        LongIntHashMap map = new LongIntHashMap(1);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextLong(1_000_000) - 500_000;
+            map.addTo(key, i % 7 + 1);
+            expected.merge(key, i % 7 + 1, Integer::sum);
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key), "key " + key));
+        assertEquals(expected, toMap(map));
+    }
+
+    @Test
+    void resolvesKeysThatShareOneSlot() {
+        // 在32槽的初始表中落到同一个槽的键, 第17个插入时触发扩容, 之后仍成簇
+        List<Long> colliding = new ArrayList<>();
+        for (long key = 0; colliding.size() < 40; key++) {
+            if ((mix(key) & 31) == 0) {
+                colliding.add(key);
+            }
+        }
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (int i = 0; i < colliding.size(); i++) {
+            map.put(colliding.get(i), i);
+            for (int j = 0; j <= i; j++) {
+                assertEquals(j, map.getOrDefault(colliding.get(j), -1));
+            }
+        }
+        assertEquals(colliding.size(), map.size());
+        assertEquals(-1, map.getOrDefault(colliding.get(colliding.size() - 1) + 1, -1));
+    }
+
+    @Test
+    void distinguishesKeysWithEqualLowOrHighBits() {
+        LongIntHashMap map = new LongIntHashMap();
+        // tag共现的组合键: 高32位与低32位互换, 以及低32位相同的键
+        long ab = (3L << 32) | 5;
+        long ba = (5L << 32) | 3;
+        map.addTo(ab, 1);
+        map.addTo(ba, 2);
+        map.addTo(ab + (1L << 32), 4);
+        map.addTo(5, 8);
+        assertEquals(4, map.size());
+        assertEquals(1, map.get(ab));
+        assertEquals(2, map.get(ba));
+        assertEquals(4, map.get(ab + (1L << 32)));
+        assertEquals(8, map.get(5));
+    }
+
+    @Test
+    void supportsZeroAndNegativeKeys() {
+        LongIntHashMap map = new LongIntHashMap();
+        long[] keys = {0, -1, 1, Long.MIN_VALUE + 1, Long.MAX_VALUE, -4_294_967_296L};
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i + 10);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i + 10, map.get(keys[i]));
+        }
+        assertEquals(keys.length, map.size());
+        assertEquals(13, map.addTo(1, 1));
+        assertEquals(-3, map.addTo(-2, -3));
+        assertEquals(0, map.get(-3));
+        assertEquals(7, map.getOrDefault(-3, 7));
+    }
+
+    @Test
+    void rejectsReservedKey() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1));
+        assertThrows(IllegalArgumentException.class, () -> map.addTo(Long.MIN_VALUE, 1));
+        assertThrows(IllegalArgumentException.class, () -> map.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    void clearRemovesEntriesButKeepsMapUsable() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (long key = -100; key < 100; key++) {
+            map.put(key, 1);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(0, map.get(0));
+        assertEquals(Map.of(), toMap(map));
+        map.addTo(0, 3);
+        assertEquals(Map.of(0L, 3), toMap(map));
+    }
+
+    private static Map<Long, Integer> toMap(LongIntHashMap map) {
+        Map<Long, Integer> entries = new HashMap<>();
+        map.forEach(entries::put);
+        return entries;
+    }
+
+    // 与 LongIntHashMap 相同的 murmur3 fmix64, 用于构造落在同一个槽的键
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
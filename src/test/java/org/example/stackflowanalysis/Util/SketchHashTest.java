@@ -0,0 +1,68 @@
+package org.example.stackflowanalysis.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SketchHashTest {
+
+    @Test
+    void stringHashIsMixedFnv1a() {
+        // FNV-1a 64 位的公开测试向量
+        assertEquals(SketchHash.mix(0xcbf29ce484222325L), SketchHash.of(""));
+        assertEquals(SketchHash.mix(0xaf63dc4c8601ec8cL), SketchHash.of("a"));
+        assertEquals(SketchHash.mix(0x85944171f73967e8L), SketchHash.of("foobar"));
+    }
+
+    @Test
+    void similarStringsDoNotCollide() {
+        Set<Long> hashes = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            hashes.add(SketchHash.of("tag-" + i));
+        }
+        assertEquals(100_000, hashes.size());
+    }
+
+    @Test
+    void combineDependsOnOrder() {
+        long java = SketchHash.of("java");
+        long spring = SketchHash.of("spring");
+        assertNotEquals(SketchHash.combine(java, spring), SketchHash.combine(spring, java));
+        assertEquals(SketchHash.combine(java, spring), SketchHash.combine(java, spring));
+    }
+
+    @Test
+    void mixSpreadsSingleBitChanges() {
+        // 输入翻转一位, 输出平均约有一半的位翻转; 草图的各行与各列都依赖这一点
+        Random random = new Random(13);
+        long flipped = 0;
+        int samples = 0;
+        for (int i = 0; i < 2_000; i++) {
+            long value = random.nextLong();
+            for (int bit = 0; bit < 64; bit++) {
+                flipped += Long.bitCount(SketchHash.mix(value) ^ SketchHash.mix(value ^ (1L << bit)));
+                samples++;
+            }
+        }
+        double average = (double) flipped / samples;
+        assertTrue(Math.abs(average - 32) < 0.5, "平均翻转位数 " + average);
+    }
+
+    @Test
+    void lowBitsOfSequentialKeysAreUniform() {
+        // 连续的id经混合后取低位作为列下标, 各列的数量应接近均匀
+        int[] buckets = new int[64];
+        for (long id = 0; id < 64_000; id++) {
+            buckets[(int) (SketchHash.mix(id) & 63)]++;
+        }
+        for (int count : buckets) {
+            assertTrue(Math.abs(count - 1_000) < 150, "列计数 " + count);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.stackflowanalysis.Util;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsQuestionsAcrossBlocks() throws IOException {
+        List<QuestionDto> questions = sampleQuestions(12, 200_000);
+        Path file = write(questions);
+
+        List<List<QuestionDto>> blocks = readBlocks(file);
+        assertTrue(blocks.size() > 1, "应写出多个数据块");
+        assertEquals(questions, blocks.stream().flatMap(List::stream).toList());
+    }
+
+    @Test
+    void nullListsAreReadBackEmpty() throws IOException {
+        QuestionDto question = new QuestionDto(1L, null, null, 0L, 0, 0, 0, false, null, null, null);
+        Path file = write(List.of(question));
+
+        assertEquals(List.of(List.of(new QuestionDto(1L, null, null, 0L, 0, 0, 0, false, List.of(), null, List.of()))),
+                readBlocks(file));
+    }
+
+    @Test
+    void emptySnapshotHasNoBlocks() throws IOException {
+        assertEquals(List.of(), readBlocks(write(List.of())));
+    }
+
+    @Test
+    void truncatedFileFailsAtEveryLength() throws IOException {
+        Path file = write(sampleQuestions(3, 2_000));
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length = 0; length < bytes.length; length++) {
+            Path truncated = directory.resolve("truncated-" + length);
+            Files.write(truncated, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> readBlocks(truncated), "截断到 " + length + " 字节");
+        }
+    }
+
+    @Test
+    void corruptedByteIsDetectedOrHarmless() throws IOException {
+        List<QuestionDto> questions = sampleQuestions(3, 500);
+        byte[] bytes = Files.readAllBytes(write(questions));
+        Path corrupted = directory.resolve("corrupted");
+        int detected = 0;
+        for (int offset = 0; offset < bytes.length; offset++) {
+            for (int bit : new int[]{0x01, 0x80}) {
+                byte[] copy = bytes.clone();
+                copy[offset] ^= (byte) bit;
+                Files.write(corrupted, copy);
+                try {
+                    // 只允许读出与原来完全相同的数据 (如压缩流末尾未使用的填充位), 否则必须报错
+                    assertEquals(questions, readBlocks(corrupted).stream().flatMap(List::stream).toList(),
+                            "偏移 " + offset + " 的损坏没有被发现");
+                } catch (IOException e) {
+                    detected++;
+                }
+            }
+        }
+        assertTrue(detected > bytes.length, "大部分损坏应被发现: " + detected);
+    }
+
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Path file = directory.resolve("foreign");
+        Files.writeString(file, "PK not a snapshot");
+        assertThrows(IOException.class, () -> new SnapshotReader(file));
+    }
+
+    private Path write(List<QuestionDto> questions) throws IOException {
+        Path file = Files.createTempFile(directory, "snapshot", ".bin");
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            for (QuestionDto question : questions) {
+                writer.write(question);
+            }
+        }
+        return file;
+    }
+
+    private static List<List<QuestionDto>> readBlocks(Path file) throws IOException {
+        List<List<QuestionDto>> blocks = new ArrayList<>();
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            List<QuestionDto> block;
+            while ((block = reader.nextBlock()) != null) {
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    // 正文为随机文本, 压缩后仍接近原长, bodyLength 足够大时跨越多个数据块
+    private static List<QuestionDto> sampleQuestions(int count, int bodyLength) {
+        Random random = new Random(count);
+        List<QuestionDto> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder body = new StringBuilder("<p>并发 ");
+            while (body.length() < bodyLength) {
+                body.append((char) ('a' + random.nextInt(26)));
+            }
+            OwnerDto asker = switch (i % 3) {
+                case 0 -> new OwnerDto(100L + i, "asker-" + i, 1_000 + i);
+                case 1 -> new OwnerDto(100L + i, null, null);
+                default -> null;
+            };
+            List<AnswerDto> answers = new ArrayList<>();
+            for (int a = 0; a < i % 3; a++) {
+                answers.add(new AnswerDto(10_000L * i + a, "answer " + a, 1_600_000_100L + a, a - 1, a == 0,
+                        a == 0 ? new OwnerDto(-5L, "deleted", 1) : null));
+            }
+            questions.add(new QuestionDto(-1L + i * 1_000_000_007L, "title " + i + " ☕", body.toString(),
+                    1_600_000_000L + i, i - 1, i * 10, answers.size(), !answers.isEmpty(),
+                    i % 2 == 0 ? List.of("java", "concurrency") : List.of(), asker, answers));
+        }
+        return questions;
+    }
+}
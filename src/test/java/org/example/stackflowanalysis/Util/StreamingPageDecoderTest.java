@@ -0,0 +1,105 @@
+package org.example.stackflowanalysis.Util;
+
+import org.example.stackflowanalysis.DTOs.AnswerDto;
+import org.example.stackflowanalysis.DTOs.OwnerDto;
+import org.example.stackflowanalysis.DTOs.QuestionDto;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingPageDecoderTest {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    // 顶层字段出现在 items 前后都有; 元素内含嵌套对象、数组、转义字符与多字节 UTF-8
+    private static final String PAGE = """
+            {"has_more":true,"items":[
+              {"question_id":1,"title":"并发 \\"HashMap\\" ☕","body":"<p>{[not json]}</p>","creation_date":1600000000,
+               "score":-2,"view_count":10,"answer_count":1,"is_answered":true,"tags":["java","并发"],
+               "owner":{"user_id":7,"display_name":"张三","reputation":100},
+               "answers":[{"answer_id":70,"body":"a","creation_date":1600000060,"score":1,"is_accepted":true,
+                           "owner":{"user_id":8,"display_name":"x","reputation":1}}]},
+              {"question_id":2,"title":"empty","body":"","creation_date":1600000001,"score":0,"view_count":0,
+               "answer_count":0,"is_answered":false,"tags":[],"owner":null,"answers":[]}
+            ],"quota_remaining":9876,"backoff":null}""";
+
+    private static final List<QuestionDto> EXPECTED = List.of(
+            new QuestionDto(1L, "并发 \"HashMap\" ☕", "<p>{[not json]}</p>", 1_600_000_000L, -2, 10, 1, true,
+                    List.of("java", "并发"), new OwnerDto(7L, "张三", 100),
+                    List.of(new AnswerDto(70L, "a", 1_600_000_060L, 1, true, new OwnerDto(8L, "x", 1)))),
+            new QuestionDto(2L, "empty", "", 1_600_000_001L, 0, 0, 0, false, List.of(), null, List.of()));
+
+    @Test
+    void decodesPageSplitAtEveryByte() {
+        byte[] bytes = PAGE.getBytes(StandardCharsets.UTF_8);
+        // 分成两块, 分割点遍历每个字节, 包括多字节字符内部
+        for (int split = 0; split <= bytes.length; split++) {
+            StreamingPageDecoder<QuestionDto> decoder = new StreamingPageDecoder<>(MAPPER, QuestionDto.class);
+            List<QuestionDto> items = new ArrayList<>(decoder.feed(ByteBuffer.wrap(bytes, 0, split)));
+            items.addAll(decoder.feed(ByteBuffer.wrap(bytes, split, bytes.length - split)));
+            assertEquals(EXPECTED, items, "分割点 " + split);
+            assertEquals(new StreamingPageDecoder.PageMeta(true, 9876, null), decoder.finish(), "分割点 " + split);
+        }
+    }
+
+    @Test
+    void decodesPageFedOneByteAtATime() {
+        byte[] bytes = PAGE.getBytes(StandardCharsets.UTF_8);
+        StreamingPageDecoder<QuestionDto> decoder = new StreamingPageDecoder<>(MAPPER, QuestionDto.class);
+        List<QuestionDto> items = new ArrayList<>();
+        for (byte b : bytes) {
+            items.addAll(decoder.feed(ByteBuffer.wrap(new byte[]{b})));
+        }
+        assertEquals(EXPECTED, items);
+        assertEquals(new StreamingPageDecoder.PageMeta(true, 9876, null), decoder.finish());
+    }
+
+    @Test
+    void emitsElementAsSoonAsItCloses() {
+        byte[] bytes = PAGE.getBytes(StandardCharsets.UTF_8);
+        int firstEnd = PAGE.substring(0, PAGE.indexOf("{\"question_id\":2")).getBytes(StandardCharsets.UTF_8).length;
+        StreamingPageDecoder<QuestionDto> decoder = new StreamingPageDecoder<>(MAPPER, QuestionDto.class);
+        assertEquals(EXPECTED.subList(0, 1), decoder.feed(ByteBuffer.wrap(bytes, 0, firstEnd)));
+        assertEquals(EXPECTED.subList(1, 2), decoder.feed(ByteBuffer.wrap(bytes, firstEnd, bytes.length - firstEnd)));
+    }
+
+    @Test
+    void readsMetaFieldsBeforeItems() {
+        String json = "{\"backoff\":10,\"quota_remaining\":3,\"items\":[],\"has_more\":false}";
+        StreamingPageDecoder<QuestionDto> decoder = new StreamingPageDecoder<>(MAPPER, QuestionDto.class);
+        assertEquals(List.of(), decoder.feed(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(new StreamingPageDecoder.PageMeta(false, 3, 10), decoder.finish());
+    }
+
+    @Test
+    void ignoresArraysOfOtherTopLevelFields() {
+        String item = "{\"question_id\":%d,\"score\":0,\"view_count\":0,\"answer_count\":0,\"is_answered\":false}";
+        String json = "{\"other\":[" + item.formatted(5) + "],\"items\":[" + item.formatted(6) + "],\"quota_remaining\":1}";
+        StreamingPageDecoder<QuestionDto> decoder = new StreamingPageDecoder<>(MAPPER, QuestionDto.class);
+        List<QuestionDto> items = decoder.feed(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(List.of(6L), items.stream().map(QuestionDto::questionId).toList());
+        assertEquals(new StreamingPageDecoder.PageMeta(false, 1, null), decoder.finish());
+    }
+
+    @Test
+    void truncatedResponseFailsOnFinish() {
+        byte[] bytes = PAGE.getBytes(StandardCharsets.UTF_8);
+        // 包括空响应, 任何截断都不是完整的 JSON
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            StreamingPageDecoder<QuestionDto> decoder = new StreamingPageDecoder<>(MAPPER, QuestionDto.class);
+            assertThrows(RuntimeException.class, () -> {
+                decoder.feed(ByteBuffer.wrap(truncated));
+                decoder.finish();
+            }, "截断到 " + length + " 字节");
+        }
+    }
+}
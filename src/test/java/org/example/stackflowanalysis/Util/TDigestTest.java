@@ -0,0 +1,148 @@
+package org.example.stackflowanalysis.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TDigestTest {
+
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+    @Test
+    void quantilesStayWithinRankError() {
+        Random random = new Random(3);
+        double[] values = new double[200_000];
+        for (int i = 0; i < values.length; i++) {
+            // 长尾分布, 与浏览数、声望类似
+            values[i] = Math.exp(random.nextGaussian() * 2);
+        }
+        assertRankErrors(values);
+    }
+
+    @Test
+    void quantilesOfSortedInputStayWithinRankError() {
+        // 按顺序加入时每次合并的缓冲区都落在已有质心之后
+        double[] values = new double[50_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        assertRankErrors(values);
+    }
+
+    @Test
+    void emptyDigestHasNoQuantile() {
+        TDigest digest = new TDigest(100);
+        assertEquals(0, digest.count());
+        assertTrue(Double.isNaN(digest.quantile(0)));
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+        assertTrue(Double.isNaN(digest.quantile(1)));
+    }
+
+    @Test
+    void singleValueIsEveryQuantile() {
+        TDigest digest = new TDigest(100);
+        digest.add(-3.5);
+        assertEquals(-3.5, digest.quantile(0));
+        assertEquals(-3.5, digest.quantile(0.5));
+        assertEquals(-3.5, digest.quantile(1));
+    }
+
+    @Test
+    void extremeQuantilesAreMinAndMax() {
+        TDigest digest = new TDigest(100);
+        Random random = new Random(5);
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 10_000; i++) {
+            double value = random.nextGaussian();
+            digest.add(value);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        assertEquals(min, digest.quantile(0));
+        assertEquals(max, digest.quantile(1));
+    }
+
+    @Test
+    void queryingBetweenAddsMergesBufferedValues() {
+        TDigest digest = new TDigest(20);
+        double[] values = new double[5_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i * 7919) % values.length;
+            digest.add(values[i]);
+            if (i % 37 == 0) {
+                // 每次查询都把缓冲区归并进质心, 之后继续加入
+                digest.quantile(0.5);
+            }
+        }
+        assertEquals(values.length, digest.count());
+        assertEquals(values.length / 2.0, digest.quantile(0.5), values.length * digest.rankError(0.5) * 2);
+        assertEquals(0, digest.quantile(0));
+        assertEquals(values.length - 1, digest.quantile(1));
+    }
+
+    @Test
+    void identicalValuesCollapse() {
+        TDigest digest = new TDigest(100);
+        for (int i = 0; i < 1_000; i++) {
+            digest.add(7);
+        }
+        for (double q : QUANTILES) {
+            assertEquals(7, digest.quantile(q));
+        }
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TDigest(5));
+        TDigest digest = new TDigest(100);
+        assertThrows(IllegalArgumentException.class, () -> digest.quantile(-0.01));
+        assertThrows(IllegalArgumentException.class, () -> digest.quantile(1.01));
+    }
+
+    // 估计值在排好序的原始数据中的排名比例与 q 之差不超过 rankError(q)
+    private static void assertRankErrors(double[] values) {
+        TDigest digest = new TDigest(100);
+        for (double value : values) {
+            digest.add(value);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double estimate = digest.quantile(q);
+            int below = lowerBound(sorted, estimate);
+            int atOrBelow = upperBound(sorted, estimate);
+            // 估计值与若干原始值相等时, 取这些值的排名中离 q 最近的
+            double rank = Math.min(Math.max(q * sorted.length, below), atOrBelow) / sorted.length;
+            assertTrue(Math.abs(rank - q) <= digest.rankError(q),
+                    "q=" + q + " 的排名误差 " + Math.abs(rank - q) + " 超过 " + digest.rankError(q));
+        }
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && sorted[index - 1] == value) {
+            index--;
+        }
+        return index;
+    }
+
+    private static int upperBound(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index < sorted.length && sorted[index] == value) {
+            index++;
+        }
+        return index;
+    }
+}
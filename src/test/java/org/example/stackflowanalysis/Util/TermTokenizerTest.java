@@ -0,0 +1,96 @@
+package org.example.stackflowanalysis.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 与原先 protectTechnicalPhrases + cleanText 的逐词结果一致
+class TermTokenizerTest {
+
+    private static final String[] PHRASES = {
+            "race condition", "dead lock", "memory leak", "thread safe", "thread pool", "context switch",
+            "concurrent modification", "wait notify", "count down latch", "atomic integer"
+    };
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "is", "are", "was", "were", "and", "or", "but", "if", "of", "to", "in", "on", "at",
+            "for", "with", "about", "by", "as", "it", "this", "that", "these", "those", "can", "could",
+            "would", "should", "have", "has", "had", "do", "does", "did", "not", "so", "be", "been",
+            "what", "how", "you", "all", "some", "one", "then", "which", "when", "there", "than",
+            "also", "any", "them", "why", "here", "will",
+            "public", "private", "protected", "class", "interface", "void", "return", "static", "final",
+            "new", "import", "package", "try", "catch", "throw", "throws", "extends", "implements", "thread",
+            "threads", "false", "int", "long", "main", "string", "true", "null", "println",
+            "code", "java", "problem", "issue", "question", "want", "need", "help", "using", "example",
+            "output", "error", "exception", "run", "running", "work", "use", "used", "get", "quot", "like"
+    );
+    private static final String[] WORDS = {
+            "thread", "pool", "pools", "race", "condition", "dead", "lock", "memory", "leak", "safe", "context",
+            "switch", "concurrent", "modification", "wait", "notify", "count", "down", "latch", "atomic",
+            "integer", "Thread", "POOL", "mythread", "workers", "x1", "a", "the", "queue_size"
+    };
+    private static final String[] SEPARATORS = {
+            " ", " ", " ", "  ", ", ", "-", "\n", "\t", ".", "<b>", "</b>", " <br/> ", "<p class=\"x\">"
+    };
+
+    @Test
+    void joinsOnlyAcrossSingleSpace() {
+        assertEquals(Map.of("pool", 2, "workers", 1),
+                TermTokenizer.INSTANCE.countTerms("a thread, pool of workers and a thread-pool"));
+        assertEquals(Map.of("thread_pool", 1, "thread_pools", 1),
+                TermTokenizer.INSTANCE.countTerms("A Thread Pool or thread pools"));
+        assertEquals(Map.of("pool", 3),
+                TermTokenizer.INSTANCE.countTerms("thread  pool, thread\npool, <b>thread</b> pool"));
+        assertEquals(Map.of("count_down_latch", 1, "count", 1, "down", 1, "latch", 1),
+                TermTokenizer.INSTANCE.countTerms("count down latch; count down  latch"));
+    }
+
+    @Test
+    void textsAreSeparatedBySingleSpace() {
+        assertEquals(Map.of("thread_pool", 1), TermTokenizer.INSTANCE.countTerms("using a thread", "pool"));
+        assertEquals(Map.of("pool", 1), TermTokenizer.INSTANCE.countTerms("using a thread ", "pool"));
+    }
+
+    @Test
+    void matchesBaselineOnRandomText() {
+        Random random = new Random(6);
+        for (int round = 0; round < 2_000; round++) {
+            String title = randomText(random, 1 + random.nextInt(8));
+            String body = randomText(random, random.nextInt(40));
+            assertEquals(baseline(title + " " + body), TermTokenizer.INSTANCE.countTerms(title, body),
+                    () -> title + " | " + body);
+        }
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        if (random.nextInt(4) == 0) {
+            text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        }
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        }
+        return text.toString();
+    }
+
+    // 原先的实现: 小写, 把短语中的空格替换为下划线, 去HTML标签与非[a-z0-9_]字符, 按空白切分
+    private static Map<String, Integer> baseline(String text) {
+        String processed = text.toLowerCase();
+        for (String phrase : PHRASES) {
+            processed = processed.replace(phrase, phrase.replace(' ', '_'));
+        }
+        processed = processed.replaceAll("<[^>]*>", " ").replaceAll("[^a-z0-9_]", " ");
+        return Arrays.stream(processed.split("\\s+"))
+                .filter(word -> word.length() > 2 && !STOP_WORDS.contains(word))
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.summingInt(word -> 1)));
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.stackflowanalysis.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopKHeapTest {
+
+    @Test
+    void keepsLargestCountsInDescendingOrder() {
+        TopKHeap heap = new TopKHeap(3);
+        long[] keys = {10, 20, 30, 40, 50, 60};
+        int[] counts = {5, 1, 9, 3, 7, 2};
+        for (int i = 0; i < keys.length; i++) {
+            heap.offer(keys[i], counts[i]);
+        }
+        int[] drainedCounts = new int[heap.size()];
+        assertArrayEquals(new long[]{30, 50, 10}, heap.drainKeysDescending(drainedCounts));
+        assertArrayEquals(new int[]{9, 7, 5}, drainedCounts);
+        assertEquals(0, heap.size());
+    }
+
+    @Test
+    void breaksTiesBySmallerKey() {
+        TopKHeap heap = new TopKHeap(3);
+        // 先到的大键不能挤掉后到的小键; 负键小于正键
+        heap.offer(9, 4);
+        heap.offer(7, 4);
+        heap.offer(8, 4);
+        heap.offer(-1, 4);
+        heap.offer(3, 4);
+        heap.offer(100, 5);
+        int[] drainedCounts = new int[heap.size()];
+        assertArrayEquals(new long[]{100, -1, 3}, heap.drainKeysDescending(drainedCounts));
+        assertArrayEquals(new int[]{5, 4, 4}, drainedCounts);
+    }
+
+    @Test
+    void returnsFewerThanKWhenUnderfilled() {
+        TopKHeap heap = new TopKHeap(10);
+        heap.offer(2, 1);
+        heap.offer(1, 1);
+        int[] drainedCounts = new int[heap.size()];
+        assertArrayEquals(new long[]{1, 2}, heap.drainKeysDescending(drainedCounts));
+        assertArrayEquals(new int[]{1, 1}, drainedCounts);
+    }
+
+    @Test
+    void matchesFullSortWithManyTies() {
+        Random random = new Random(7);
+        List<long[]> entries = new ArrayList<>();
+        TopKHeap heap = new TopKHeap(25);
+        for (long key = -500; key < 500; key++) {
+            int count = random.nextInt(10);
+            entries.add(new long[]{key, count});
+            heap.offer(key, count);
+        }
+        entries.sort(Comparator.<long[]>comparingLong(e -> -e[1]).thenComparingLong(e -> e[0]));
+        int[] drainedCounts = new int[heap.size()];
+        long[] drainedKeys = heap.drainKeysDescending(drainedCounts);
+        assertEquals(25, drainedKeys.length);
+        for (int i = 0; i < drainedKeys.length; i++) {
+            assertEquals(entries.get(i)[0], drainedKeys[i]);
+            assertEquals(entries.get(i)[1], drainedCounts[i]);
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TopKHeap(0));
+    }
+}